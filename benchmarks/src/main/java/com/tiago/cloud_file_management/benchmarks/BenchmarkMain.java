@@ -0,0 +1,29 @@
+package com.tiago.cloud_file_management.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executa os benchmarks com o JMH, gravando por padrão os resultados em
+ * {@code results/jmh-<versão>.json} para comparação entre versões com
+ * {@link CompareResults}. Os argumentos são repassados ao JMH; com {@code -rf}
+ * ou {@code -rff} o destino padrão é ignorado.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        if (!arguments.contains("-rf") && !arguments.contains("-rff")) {
+            String version = BenchmarkMain.class.getPackage().getImplementationVersion();
+            Path results = Path.of("results", "jmh-" + (version == null ? "dev" : version) + ".json");
+            Files.createDirectories(results.getParent());
+            arguments.addAll(List.of("-rf", "json", "-rff", results.toString()));
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,57 @@
+package com.tiago.cloud_file_management.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compara dois arquivos de resultados JSON do JMH, imprimindo para cada
+ * benchmark e combinação de parâmetros o resultado anterior, o atual e a
+ * variação percentual.
+ * <p>
+ * Uso: {@code java -cp benchmarks.jar com.tiago.cloud_file_management.benchmarks.CompareResults anterior.json atual.json}
+ */
+public final class CompareResults {
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Uso: CompareResults <anterior.json> <atual.json>");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = read(Path.of(args[0]));
+        Map<String, JsonNode> current = read(Path.of(args[1]));
+
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Anterior", "Atual", "Variação");
+        new TreeMap<>(current).forEach((name, result) -> {
+            JsonNode previous = baseline.get(name);
+            double score = result.path("primaryMetric").path("score").asDouble();
+            String unit = result.path("primaryMetric").path("scoreUnit").asText();
+            if (previous == null) {
+                System.out.printf("%-90s %14s %14.3f %9s  %s%n", name, "-", score, "novo", unit);
+                return;
+            }
+            double previousScore = previous.path("primaryMetric").path("score").asDouble();
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%  %s%n", name, previousScore, score,
+                    (score - previousScore) / previousScore * 100, unit);
+        });
+    }
+
+    private static Map<String, JsonNode> read(Path path) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(path.toFile())) {
+            StringBuilder name = new StringBuilder(result.path("benchmark").asText());
+            result.path("params").fields().forEachRemaining(param ->
+                    name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            results.put(name.toString(), result);
+        }
+        return results;
+    }
+}
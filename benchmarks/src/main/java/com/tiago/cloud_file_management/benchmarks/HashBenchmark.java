@@ -0,0 +1,112 @@
+package com.tiago.cloud_file_management.benchmarks;
+
+import com.tiago.cloud_file_management.S3Service;
+import com.tiago.cloud_file_management.hash.ContentHasher;
+import com.tiago.cloud_file_management.metrics.StorageMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o cálculo do SHA-256 de um arquivo em disco com diferentes estratégias de leitura:
+ * <ul>
+ *     <li>{@code service}: {@link S3Service#generateFileHash(InputStream)}, como usado pela aplicação;</li>
+ *     <li>{@code hasher}: {@link ContentHasher#sha256(Path)}, usado para arquivos guardados em disco;</li>
+ *     <li>{@code prehash}: {@link ContentHasher#preHash(Path)}, o pré-hash xxHash64;</li>
+ *     <li>{@code heap-64k}: {@code byte[]} de 64 KB;</li>
+ *     <li>{@code direct-1m}: {@link ByteBuffer} direto de 1 MB lido do {@link FileChannel};</li>
+ *     <li>{@code mmap}: o arquivo mapeado em memória.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g", "-Daws.java.v1.disableDeprecationAnnouncement=true"})
+public class HashBenchmark {
+
+    @Param({"4096", "1048576", "67108864"})
+    private int fileSize;
+
+    @Param({"service", "hasher", "prehash", "heap-64k", "direct-1m", "mmap"})
+    private String strategy;
+
+    private Path file;
+    private S3Service s3Service;
+    private ContentHasher contentHasher;
+    private ByteBuffer directBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        file = Files.createTempFile("hash-benchmark", ".bin");
+        Files.write(file, content);
+        contentHasher = new ContentHasher(DataSize.ofKilobytes(256), DataSize.ofMegabytes(4), true);
+        s3Service = new S3Service(null, null, null, contentHasher, null, null, null, null,
+                new StorageMetrics(new SimpleMeterRegistry()));
+        directBuffer = ByteBuffer.allocateDirect(1024 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Object hash() throws IOException, NoSuchAlgorithmException {
+        return switch (strategy) {
+            case "service" -> {
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    yield s3Service.generateFileHash(inputStream);
+                }
+            }
+            case "hasher" -> contentHasher.sha256(file);
+            case "prehash" -> contentHasher.preHash(file);
+            case "heap-64k" -> {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                byte[] buffer = new byte[64 * 1024];
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+                yield digest.digest();
+            }
+            case "direct-1m" -> {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    directBuffer.clear();
+                    while (channel.read(directBuffer) != -1) {
+                        directBuffer.flip();
+                        digest.update(directBuffer);
+                        directBuffer.clear();
+                    }
+                }
+                yield digest.digest();
+            }
+            case "mmap" -> {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+                yield digest.digest();
+            }
+            default -> throw new IllegalArgumentException("Estratégia desconhecida: " + strategy);
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package com.tiago.cloud_file_management.benchmarks;
+
+import com.tiago.cloud_file_management.FilePage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listagem e exclusão de ponta a ponta pelo {@code S3Service}. Os arquivos são
+ * gravados diretamente no servidor local, com seus marcadores, para que apenas a
+ * operação medida passe pelo HTTP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g", "-Daws.java.v1.disableDeprecationAnnouncement=true"})
+public class MetadataBenchmark {
+    private static final byte[] CONTENT = "conteúdo".getBytes();
+
+    @Param({"0", "20"})
+    private int latencyMillis;
+
+    @Param({"100", "1000"})
+    private int files;
+
+    private StorageFixture fixture;
+    private long deletes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new StorageFixture(latencyMillis);
+        for (int i = 0; i < files; i++) {
+            storeFile(i + "-arquivo.txt", "hash" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public FilePage listFiles() {
+        return fixture.s3Service.listFiles(1000, null);
+    }
+
+    @Benchmark
+    public String deleteFile(PendingDelete pendingDelete) {
+        fixture.s3Service.deleteFile(pendingDelete.fileName);
+        return pendingDelete.fileName;
+    }
+
+    /**
+     * Grava, antes de cada exclusão medida, o arquivo que será excluído.
+     */
+    @State(Scope.Thread)
+    public static class PendingDelete {
+        private String fileName;
+
+        @Setup(Level.Invocation)
+        public void prepare(MetadataBenchmark benchmark) {
+            fileName = "excluir-" + (++benchmark.deletes) + ".txt";
+            benchmark.storeFile(fileName, "excluir" + benchmark.deletes);
+        }
+    }
+
+    private void storeFile(String name, String hash) {
+        fixture.server.putObject(name, CONTENT, "text/plain", Map.of());
+        fixture.server.putObject("hashes/" + hash, new byte[0], null, Map.of("file-key", name));
+        fixture.server.putObject("refs/" + name, new byte[0], null, Map.of("sha256", hash));
+    }
+}
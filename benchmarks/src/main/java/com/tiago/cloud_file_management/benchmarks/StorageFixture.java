@@ -0,0 +1,73 @@
+package com.tiago.cloud_file_management.benchmarks;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.tiago.cloud_file_management.S3Service;
+import com.tiago.cloud_file_management.archive.ZipArchiveWriter;
+import com.tiago.cloud_file_management.cache.DownloadCache;
+import com.tiago.cloud_file_management.catalog.MetadataCatalog;
+import com.tiago.cloud_file_management.chunking.ChunkStore;
+import com.tiago.cloud_file_management.compression.CompressionPolicy;
+import com.tiago.cloud_file_management.dedup.DedupIndex;
+import com.tiago.cloud_file_management.download.FileDownloader;
+import com.tiago.cloud_file_management.hash.ContentHasher;
+import com.tiago.cloud_file_management.metrics.StorageMetrics;
+import com.tiago.cloud_file_management.s3.LocalS3Server;
+import com.tiago.cloud_file_management.storage.S3StorageBackend;
+import com.tiago.cloud_file_management.storage.StorageBackend;
+import com.tiago.cloud_file_management.upload.FileUploader;
+import com.tiago.cloud_file_management.upload.MultipartUploadEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Monta o {@link S3Service} com os mesmos componentes da aplicação, usando os
+ * valores padrão do {@code application.properties}, apontando para um
+ * {@link LocalS3Server} com a latência informada. O cache de downloads fica
+ * desabilitado para que cada download chegue ao S3.
+ */
+final class StorageFixture implements AutoCloseable {
+    final LocalS3Server server;
+    final S3Service s3Service;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final MultipartUploadEngine uploadEngine;
+    private final ChunkStore chunkStore;
+
+    StorageFixture(int latencyMillis) throws IOException {
+        server = new LocalS3Server().withLatency(Duration.ofMillis(latencyMillis), Duration.ZERO);
+        AmazonS3 amazonS3 = server.client();
+        uploadEngine = new MultipartUploadEngine(amazonS3, DataSize.ofMegabytes(16), 4, DataSize.ofMegabytes(32), 3, 16);
+        DownloadCache downloadCache = new DownloadCache(false, Path.of("target"), DataSize.ofMegabytes(1),
+                DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), DataSize.ofKilobytes(1), Duration.ofSeconds(30));
+        CompressionPolicy compressionPolicy = new CompressionPolicy(true, "gzip", 0, DataSize.ofKilobytes(1),
+                List.of("text/plain", "text/csv", "application/json", "application/xml"));
+        StorageBackend storage = new S3StorageBackend(amazonS3, uploadEngine, "file-management-bucket05012005");
+        chunkStore = new ChunkStore(storage, compressionPolicy, false, DataSize.ofMegabytes(8),
+                DataSize.ofKilobytes(256), DataSize.ofMegabytes(1), DataSize.ofMegabytes(4), 4, 4, 16);
+        DedupIndex dedupIndex = new DedupIndex(false, 10000, 0.01);
+        MetadataCatalog catalog = new MetadataCatalog(false, null);
+        ContentHasher contentHasher = new ContentHasher(DataSize.ofKilobytes(256), DataSize.ofMegabytes(4), true);
+        StorageMetrics metrics = new StorageMetrics(new SimpleMeterRegistry());
+        s3Service = new S3Service(storage, dedupIndex, catalog, contentHasher, chunkStore, downloadCache,
+                new FileUploader(storage, dedupIndex, catalog, contentHasher, compressionPolicy, chunkStore,
+                        downloadCache, executor, metrics),
+                new FileDownloader(storage, catalog, compressionPolicy, chunkStore, downloadCache, Optional.empty(), executor,
+                        new ZipArchiveWriter(executor, 4), metrics),
+                metrics);
+    }
+
+    @Override
+    public void close() {
+        uploadEngine.shutdown();
+        chunkStore.shutdown();
+        executor.shutdownNow();
+        server.close();
+    }
+}
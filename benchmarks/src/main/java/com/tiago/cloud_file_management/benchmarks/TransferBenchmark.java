@@ -0,0 +1,78 @@
+package com.tiago.cloud_file_management.benchmarks;
+
+import com.tiago.cloud_file_management.DownloadOptions;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload e download de ponta a ponta pelo {@code S3Service}, passando pelo SDK
+ * e pelo HTTP até o {@link com.tiago.cloud_file_management.s3.LocalS3Server}.
+ * Arquivos acima de 32 MB são enviados em partes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Daws.java.v1.disableDeprecationAnnouncement=true"})
+public class TransferBenchmark {
+
+    @Param({"0", "20"})
+    private int latencyMillis;
+
+    @Param({"65536", "8388608", "41943040"})
+    private int fileSize;
+
+    private StorageFixture fixture;
+    private byte[] content;
+    private long uploads;
+    private String downloadName;
+    private Set<String> retainedKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new StorageFixture(latencyMillis);
+        content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        String message = fixture.s3Service.uploadStream("download.csv", new ByteArrayInputStream(content), fileSize);
+        downloadName = message.substring(message.lastIndexOf(' ') + 1);
+        retainedKeys = Set.copyOf(fixture.server.keys());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    /**
+     * Remove os arquivos enviados, mantendo apenas o usado nos downloads, para que
+     * a memória do servidor local não cresça durante a medição.
+     */
+    @TearDown(Level.Invocation)
+    public void removeUploads() {
+        fixture.server.keys().stream()
+                .filter(key -> !retainedKeys.contains(key))
+                .toList()
+                .forEach(fixture.server::delete);
+    }
+
+    @Benchmark
+    public String upload() throws IOException {
+        ByteBuffer.wrap(content).putLong(++uploads);
+        return fixture.s3Service.uploadStream("upload.csv", new ByteArrayInputStream(content), fileSize);
+    }
+
+    @Benchmark
+    public long download() throws IOException {
+        var download = fixture.s3Service.downloadFile(downloadName, DownloadOptions.NONE);
+        download.body().writeTo(NullOutputStream.INSTANCE);
+        return download.contentLength();
+    }
+}
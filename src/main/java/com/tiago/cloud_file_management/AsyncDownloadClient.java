@@ -0,0 +1,209 @@
+package com.tiago.cloud_file_management;
+
+import com.tiago.cloud_file_management.chunking.ChunkManifest;
+import com.tiago.cloud_file_management.compression.ContentCodec;
+import com.tiago.cloud_file_management.compression.DecodedDownload;
+import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
+import com.tiago.cloud_file_management.exceptions.RangeNotSatisfiableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Downloads feitos pelo cliente assíncrono do S3. A requisição não ocupa nenhuma
+ * thread enquanto aguarda a resposta; o conteúdo é recebido pelo event loop do
+ * Netty e lido pela resposta HTTP à medida que chega.
+ */
+@Component
+@ConditionalOnExpression("'${aws.s3.client.mode:sync}' == 'async' and '${storage.backend:s3}' == 's3'")
+public class AsyncDownloadClient {
+    /**
+     * Indica internamente que o objeto é um manifesto de blocos.
+     */
+    private static final FileDownload CHUNKED = FileDownload.notModified(null, null);
+
+    /**
+     * Indica internamente que o S3 respondeu que o objeto não foi modificado.
+     */
+    private static final FileDownload NOT_MODIFIED = FileDownload.notModified(null, null);
+
+    /**
+     * Indica internamente que o S3 recusou o intervalo solicitado.
+     */
+    private static final FileDownload RANGE_NOT_SATISFIABLE = FileDownload.notModified(null, null);
+
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucket;
+
+    public AsyncDownloadClient(S3AsyncClient s3AsyncClient, @Value("${aws.s3.bucket.name}") String bucket) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucket = bucket;
+    }
+
+    /**
+     * Baixa um arquivo repassando os cabeçalhos de intervalo e condicionais ao S3.
+     * Objetos compactados em um formato que o cliente não aceita são descompactados
+     * durante o envio; nesse caso um intervalo se refere ao conteúdo original, e o
+     * objeto é buscado novamente por inteiro. Isso vale também quando o S3 recusa o
+     * intervalo por ele passar do tamanho compactado.
+     * <p>
+     * Arquivos armazenados em blocos precisam ser remontados a partir do
+     * manifesto, o que este cliente não faz: nesse caso o download é concluído
+     * com {@code null}.
+     *
+     * @param fileName O nome do arquivo a ser baixado.
+     * @param options Os cabeçalhos de intervalo e condicionais da requisição.
+     * @return O download, concluído quando os cabeçalhos da resposta do S3 chegam, ou concluído
+     *         com {@code null} se o arquivo estiver armazenado em blocos.
+     */
+    public CompletableFuture<FileDownload> download(String fileName, DownloadOptions options) {
+        return download(fileName, options, true);
+    }
+
+    private CompletableFuture<FileDownload> download(String fileName, DownloadOptions options, boolean rangeOnS3) {
+        GetObjectRequest.Builder request = GetObjectRequest.builder().bucket(bucket).key(fileName);
+        boolean ranged = rangeOnS3 && ByteRange.parse(options.range()) != null;
+        if (ranged) {
+            request.range(options.range().trim());
+        }
+        if (options.ifNoneMatch() != null) {
+            request.ifNoneMatch(options.ifNoneMatch());
+        }
+        if (options.ifModifiedSince() != null) {
+            request.ifModifiedSince(options.ifModifiedSince().toInstant());
+        }
+
+        return s3AsyncClient.getObject(request.build(), AsyncResponseTransformer.<GetObjectResponse>toBlockingInputStream())
+                .handle((stream, error) -> error == null
+                        ? toDownload(stream, fileName, options, ranged)
+                        : handleError(fileName, error))
+                .thenCompose(download -> {
+                    if (download == CHUNKED) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    if (download == NOT_MODIFIED) {
+                        return notModified(fileName, options);
+                    }
+                    if (download == RANGE_NOT_SATISFIABLE) {
+                        return rangeNotSatisfiable(fileName, options);
+                    }
+                    return download != null
+                            ? CompletableFuture.completedFuture(download)
+                            : download(fileName, options, false);
+                });
+    }
+
+    /**
+     * @return O download, {@link #CHUNKED} se o arquivo estiver armazenado em blocos, ou {@code null}
+     *         se o objeto precisa ser buscado novamente sem o intervalo.
+     */
+    private FileDownload toDownload(ResponseInputStream<GetObjectResponse> stream, String fileName,
+                                    DownloadOptions options, boolean ranged) {
+        GetObjectResponse response = stream.response();
+        if (ChunkManifest.isManifest(response.metadata())) {
+            stream.abort();
+            return CHUNKED;
+        }
+        String eTag = response.eTag() != null ? response.eTag().replace("\"", "") : null;
+        Date lastModified = response.lastModified() != null ? Date.from(response.lastModified()) : null;
+        ContentCodec codec = ContentCodec.fromEncoding(response.contentEncoding());
+        if (codec != null && !options.acceptsEncoding(codec.encoding())) {
+            if (ranged) {
+                stream.abort();
+                return null;
+            }
+            try {
+                return DecodedDownload.of(codec, stream, ContentCodec.decodedLength(response.metadata()),
+                        options.range(), fileName, response.contentType(), eTag, lastModified);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        boolean partial = ranged && response.contentRange() != null;
+        return new FileDownload(
+                partial ? FileDownload.Status.PARTIAL_CONTENT : FileDownload.Status.OK,
+                response.contentType(),
+                response.contentLength(),
+                partial ? response.contentRange() : null,
+                eTag,
+                lastModified,
+                response.contentEncoding(),
+                FileDownload.Body.of(stream));
+    }
+
+    /**
+     * Monta a resposta de um objeto não modificado. O S3 não informa o formato de
+     * compressão na resposta 304, e ele define a ETag enviada ao cliente, então os
+     * metadados são consultados por um HEAD.
+     */
+    private CompletableFuture<FileDownload> notModified(String fileName, DownloadOptions options) {
+        return s3AsyncClient.headObject(HeadObjectRequest.builder().bucket(bucket).key(fileName).build())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        return handleError(fileName, error);
+                    }
+                    String eTag = response.eTag() != null ? response.eTag().replace("\"", "") : null;
+                    ContentCodec codec = ContentCodec.fromEncoding(response.contentEncoding());
+                    return FileDownload.notModified(
+                            codec != null && !options.acceptsEncoding(codec.encoding()) ? DecodedDownload.weakETag(eTag) : eTag,
+                            response.lastModified() != null ? Date.from(response.lastModified()) : null);
+                });
+    }
+
+    /**
+     * Trata um intervalo recusado pelo S3. O S3 compara o intervalo com o objeto
+     * armazenado, então um intervalo do conteúdo original de um objeto compactado
+     * pode passar do tamanho gravado: nesse caso o objeto é buscado por inteiro e o
+     * intervalo é verificado sobre o conteúdo descompactado.
+     */
+    private CompletableFuture<FileDownload> rangeNotSatisfiable(String fileName, DownloadOptions options) {
+        return s3AsyncClient.headObject(HeadObjectRequest.builder().bucket(bucket).key(fileName).build())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        return handleError(fileName, error);
+                    }
+                    if (ChunkManifest.isManifest(response.metadata())) {
+                        return CHUNKED;
+                    }
+                    ContentCodec codec = ContentCodec.fromEncoding(response.contentEncoding());
+                    if (codec != null && !options.acceptsEncoding(codec.encoding())) {
+                        return null;
+                    }
+                    throw new RangeNotSatisfiableException("Intervalo solicitado inválido para o arquivo: " + fileName);
+                })
+                .thenCompose(download -> download == CHUNKED
+                        ? CompletableFuture.completedFuture(null)
+                        : download(fileName, options, false));
+    }
+
+    private FileDownload handleError(String fileName, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof S3Exception s3Exception) {
+            switch (s3Exception.statusCode()) {
+                case 304:
+                    return NOT_MODIFIED;
+                case 404:
+                    throw new FileNotFoundException("Arquivo não encontrado no bucket: " + fileName);
+                case 416:
+                    return RANGE_NOT_SATISFIABLE;
+                default:
+                    break;
+            }
+        }
+        throw cause instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(cause);
+    }
+}
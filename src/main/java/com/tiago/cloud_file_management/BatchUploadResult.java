@@ -0,0 +1,19 @@
+package com.tiago.cloud_file_management;
+
+/**
+ * O resultado do upload de um arquivo em um envio em lote.
+ *
+ * @param originalFilename O nome original do arquivo enviado.
+ * @param status O resultado do upload.
+ * @param fileName O nome com que o arquivo foi armazenado, quando enviado com sucesso.
+ * @param message Uma descrição do resultado.
+ */
+public record BatchUploadResult(String originalFilename, Status status, String fileName, String message) {
+
+    public enum Status {
+        UPLOADED,
+        DUPLICATE,
+        REJECTED,
+        FAILED
+    }
+}
@@ -0,0 +1,62 @@
+package com.tiago.cloud_file_management;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Um único intervalo de bytes de um cabeçalho {@code Range}.
+ *
+ * @param start O primeiro byte, ou {@code -1} para um intervalo sufixado ({@code bytes=-n}).
+ * @param end O último byte, o tamanho do sufixo quando {@code start} é {@code -1}, ou
+ *            {@code -1} para um intervalo aberto ({@code bytes=n-}).
+ */
+public record ByteRange(long start, long end) {
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    /**
+     * Interpreta um cabeçalho {@code Range}. Intervalos múltiplos ou inválidos são
+     * ignorados, e nesse caso o arquivo deve ser enviado completo.
+     *
+     * @param header O valor do cabeçalho, ou {@code null}.
+     * @return O intervalo, ou {@code null} se não houver um intervalo único válido.
+     */
+    public static ByteRange parse(String header) {
+        if (header == null) {
+            return null;
+        }
+        Matcher matcher = RANGE_PATTERN.matcher(header.trim());
+        if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            return null;
+        }
+        try {
+            if (matcher.group(1).isEmpty()) {
+                return new ByteRange(-1, Long.parseLong(matcher.group(2)));
+            }
+            long start = Long.parseLong(matcher.group(1));
+            long end = matcher.group(2).isEmpty() ? -1 : Long.parseLong(matcher.group(2));
+            return end >= 0 && end < start ? null : new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public boolean isSuffix() {
+        return start < 0;
+    }
+
+    /**
+     * Resolve o intervalo para um arquivo de tamanho conhecido.
+     *
+     * @param length O tamanho do arquivo.
+     * @return O primeiro e o último byte do intervalo, ou {@code null} se ele estiver fora do arquivo.
+     */
+    public long[] resolve(long length) {
+        if (isSuffix()) {
+            return end == 0 || length == 0 ? null : new long[]{Math.max(0, length - end), length - 1};
+        }
+        if (start >= length) {
+            return null;
+        }
+        return new long[]{start, end < 0 ? length - 1 : Math.min(end, length - 1)};
+    }
+}
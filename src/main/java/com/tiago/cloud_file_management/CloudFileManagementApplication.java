@@ -2,8 +2,10 @@ package com.tiago.cloud_file_management;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CloudFileManagementApplication {
 
 	public static void main(String[] args) {
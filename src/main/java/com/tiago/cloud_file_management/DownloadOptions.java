@@ -0,0 +1,69 @@
+package com.tiago.cloud_file_management;
+
+import java.util.Date;
+
+/**
+ * Cabeçalhos condicionais e de intervalo repassados ao S3 em um download, e os
+ * formatos de compressão aceitos pelo cliente.
+ *
+ * @param range O valor do cabeçalho {@code Range}, ou {@code null} para o arquivo completo.
+ * @param ifNoneMatch O valor do cabeçalho {@code If-None-Match}, ou {@code null}. ETags fracas são
+ *                    convertidas em fortes, pois a comparação do {@code If-None-Match} é sempre fraca.
+ * @param ifModifiedSince A data do cabeçalho {@code If-Modified-Since}, ou {@code null}.
+ * @param acceptEncoding O valor do cabeçalho {@code Accept-Encoding}, ou {@code null}.
+ */
+public record DownloadOptions(String range, String ifNoneMatch, Date ifModifiedSince, String acceptEncoding) {
+    public static final DownloadOptions NONE = new DownloadOptions(null, null, null, null);
+
+    public DownloadOptions {
+        if (ifNoneMatch != null) {
+            ifNoneMatch = ifNoneMatch.replace("W/", "");
+        }
+    }
+
+    public DownloadOptions(String range, String ifNoneMatch, Date ifModifiedSince) {
+        this(range, ifNoneMatch, ifModifiedSince, null);
+    }
+
+    /**
+     * Indica se a requisição pede o arquivo completo, sem cabeçalhos condicionais.
+     */
+    public boolean isUnconditional() {
+        return range == null && ifNoneMatch == null && ifModifiedSince == null;
+    }
+
+    /**
+     * Indica se o cliente aceita o conteúdo no formato de compressão informado.
+     * Sem o cabeçalho {@code Accept-Encoding}, o conteúdo é enviado descompactado.
+     *
+     * @param encoding O formato de compressão, como {@code gzip}.
+     */
+    public boolean acceptsEncoding(String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double wildcard = 0;
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parameters = candidate.split(";");
+            String name = parameters[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(encoding)) {
+                return quality > 0;
+            }
+            if (name.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        return wildcard > 0;
+    }
+}
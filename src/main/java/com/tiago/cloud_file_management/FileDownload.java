@@ -0,0 +1,65 @@
+package com.tiago.cloud_file_management;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+
+/**
+ * O resultado de um download: o conteúdo (completo ou parcial) e os metadados
+ * necessários para montar a resposta HTTP.
+ *
+ * @param status Se o conteúdo é completo, parcial ou não foi modificado.
+ * @param contentType O tipo MIME do arquivo.
+ * @param contentLength O tamanho do conteúdo retornado.
+ * @param contentRange O valor do cabeçalho {@code Content-Range}, presente apenas em respostas parciais.
+ * @param eTag A ETag do objeto, sem aspas, ou uma ETag fraca ({@code W/"..."}) quando o
+ *             conteúdo armazenado compactado é enviado descompactado.
+ * @param lastModified A data da última modificação do objeto.
+ * @param contentEncoding O formato de compressão do conteúdo enviado, ou {@code null} se não estiver compactado.
+ * @param body O conteúdo do arquivo, ou {@code null} se não foi modificado.
+ */
+public record FileDownload(Status status, String contentType, long contentLength, String contentRange,
+                           String eTag, Date lastModified, String contentEncoding, Body body) {
+
+    public enum Status {
+        OK,
+        PARTIAL_CONTENT,
+        NOT_MODIFIED
+    }
+
+    /**
+     * O conteúdo de um download, escrito diretamente na resposta.
+     */
+    @FunctionalInterface
+    public interface Body {
+        void writeTo(OutputStream outputStream) throws IOException;
+
+        static Body of(InputStream inputStream) {
+            return outputStream -> {
+                try (inputStream) {
+                    inputStream.transferTo(outputStream);
+                }
+            };
+        }
+    }
+
+    /**
+     * Retorna uma cópia deste download com outro conteúdo.
+     */
+    public FileDownload withBody(Body body) {
+        return new FileDownload(status, contentType, contentLength, contentRange, eTag, lastModified, contentEncoding,
+                body);
+    }
+
+    /**
+     * Uma resposta sem conteúdo para um arquivo não modificado, com os validadores
+     * que a resposta completa teria, como exige a RFC 9110.
+     *
+     * @param eTag A ETag que a resposta completa teria, no mesmo formato de {@link #eTag()}.
+     * @param lastModified A data da última modificação do objeto.
+     */
+    public static FileDownload notModified(String eTag, Date lastModified) {
+        return new FileDownload(Status.NOT_MODIFIED, null, 0, null, eTag, lastModified, null, null);
+    }
+}
@@ -0,0 +1,12 @@
+package com.tiago.cloud_file_management;
+
+import java.util.List;
+
+/**
+ * Uma página da listagem de arquivos do bucket.
+ *
+ * @param files Os nomes dos arquivos da página.
+ * @param nextContinuationToken O token para buscar a próxima página, ou {@code null} se esta for a última.
+ */
+public record FilePage(List<String> files, String nextContinuationToken) {
+}
@@ -0,0 +1,14 @@
+package com.tiago.cloud_file_management;
+
+import com.tiago.cloud_file_management.catalog.FileEntry;
+
+import java.util.List;
+
+/**
+ * Uma página do resultado de uma busca de arquivos.
+ *
+ * @param files Os arquivos da página, na ordem solicitada.
+ * @param nextOffset A posição da próxima página, ou {@code null} se esta for a última.
+ */
+public record FileSearchPage(List<FileEntry> files, Integer nextOffset) {
+}
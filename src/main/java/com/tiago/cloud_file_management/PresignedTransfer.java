@@ -0,0 +1,35 @@
+package com.tiago.cloud_file_management;
+
+import com.tiago.cloud_file_management.exceptions.DirectTransferUnavailableException;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Uma URL assinada para que o cliente transfira um arquivo diretamente com o
+ * armazenamento, sem que o conteúdo passe pela aplicação.
+ *
+ * @param fileName O nome com que o arquivo é armazenado.
+ * @param method O método HTTP da transferência.
+ * @param url A URL assinada.
+ * @param headers Os cabeçalhos que devem ser enviados na transferência.
+ * @param expiresAt O instante a partir do qual a URL deixa de ser aceita.
+ */
+public record PresignedTransfer(String fileName, String method, String url, Map<String, String> headers,
+                                Instant expiresAt) {
+
+    /**
+     * Monta a transferência de uma URL gerada pelo armazenamento.
+     *
+     * @param url A URL assinada, ou {@code null} se o armazenamento não a suporta.
+     * @throws DirectTransferUnavailableException Se o armazenamento não permitir transferência direta.
+     */
+    public static PresignedTransfer of(String fileName, String method, URL url, Map<String, String> headers,
+                                       Instant expiresAt) {
+        if (url == null) {
+            throw new DirectTransferUnavailableException("O armazenamento configurado não permite transferência direta.");
+        }
+        return new PresignedTransfer(fileName, method, url.toString(), headers, expiresAt);
+    }
+}
@@ -1,25 +1,36 @@
 package com.tiago.cloud_file_management;
 
-import com.amazonaws.services.s3.model.S3Object;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tiago.cloud_file_management.catalog.FileQuery;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
 public class S3Controller {
+    private static final String NDJSON = "application/x-ndjson";
     private final S3Service s3Service;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public S3Controller(S3Service s3Service) {
+    public S3Controller(S3Service s3Service, ObjectMapper objectMapper) {
         this.s3Service = s3Service;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/upload")
@@ -28,17 +39,141 @@ public class S3Controller {
             return new ResponseEntity<>(fileName, HttpStatus.OK);
     }
 
-    @GetMapping("/download/{fileName}")
-    public ResponseEntity<InputStreamResource> downloadFile(@PathVariable String fileName) {
-        S3Object s3Object = s3Service.downloadFile(fileName);
+    @PostMapping("/upload/batch")
+    public ResponseEntity<List<BatchUploadResult>> uploadFiles(@RequestParam("files") List<MultipartFile> files) {
+            return new ResponseEntity<>(s3Service.uploadFiles(files), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/upload/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<String> uploadStream(@RequestParam("fileName") String fileName,
+                                               HttpServletRequest request) throws IOException {
+            String uploadedFileName = s3Service.uploadStream(fileName, request.getInputStream(), request.getContentLengthLong());
+            return new ResponseEntity<>(uploadedFileName, HttpStatus.OK);
+    }
+
+    @PostMapping("/upload/presigned")
+    public ResponseEntity<PresignedTransfer> createDirectUpload(@RequestParam("fileName") String fileName) throws IOException {
+        return ResponseEntity.ok(s3Service.createDirectUpload(fileName));
+    }
+
+    @PostMapping("/upload/presigned/complete")
+    public ResponseEntity<String> completeDirectUpload(@RequestParam("fileName") String fileName) {
+        s3Service.completeDirectUpload(fileName);
+        return new ResponseEntity<>("Upload recebido; o arquivo será verificado em segundo plano: " + fileName,
+                HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/download/presigned/{fileName}")
+    public ResponseEntity<PresignedTransfer> createDirectDownload(@PathVariable String fileName) {
+        return ResponseEntity.ok(s3Service.createDirectDownload(fileName));
+    }
+
+    @GetMapping("/download/archive")
+    public ResponseEntity<StreamingResponseBody> downloadArchive(@RequestParam(value = "keys", required = false) List<String> keys,
+                                                                 @RequestParam(value = "prefix", required = false) String prefix) {
+        Iterator<String> archiveKeys = s3Service.archiveKeys(keys, prefix);
         return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(s3Object.getObjectMetadata().getContentType()))
-                .body(new InputStreamResource(s3Object.getObjectContent()));
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("arquivos.zip").build().toString())
+                .body(outputStream -> s3Service.writeArchive(archiveKeys, outputStream));
+    }
+
+    @GetMapping("/download/{fileName}")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> downloadFile(@PathVariable String fileName,
+                                                                                 @RequestHeader HttpHeaders headers) {
+        return s3Service.downloadFileAsync(fileName, downloadOptions(headers)).thenApply(this::toResponse);
+    }
+
+    private ResponseEntity<StreamingResponseBody> toResponse(FileDownload download) {
+        if (download.status() == FileDownload.Status.NOT_MODIFIED) {
+            // A RFC 9110 exige na resposta 304 os validadores e o Vary que a resposta completa teria
+            ResponseEntity.BodyBuilder notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (download.eTag() != null) {
+                notModified.eTag(download.eTag());
+            }
+            if (download.lastModified() != null) {
+                notModified.lastModified(download.lastModified().getTime());
+            }
+            return notModified.build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity
+                .status(download.status() == FileDownload.Status.PARTIAL_CONTENT ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(download.contentType() != null
+                        ? MediaType.parseMediaType(download.contentType())
+                        : MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (download.contentLength() >= 0) {
+            response.contentLength(download.contentLength());
+        }
+        if (download.contentEncoding() != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, download.contentEncoding());
+        }
+        if (download.contentRange() != null) {
+            response.header(HttpHeaders.CONTENT_RANGE, download.contentRange());
+        }
+        if (download.eTag() != null) {
+            response.eTag(download.eTag());
+        }
+        if (download.lastModified() != null) {
+            response.lastModified(download.lastModified().getTime());
+        }
+
+        return response.body(download.body()::writeTo);
+    }
+
+    private DownloadOptions downloadOptions(HttpHeaders headers) {
+        Date ifModifiedSince = null;
+        try {
+            long value = headers.getIfModifiedSince();
+            ifModifiedSince = value >= 0 ? new Date(value) : null;
+        } catch (IllegalArgumentException e) {
+            // Datas inválidas são ignoradas, como determina a RFC 9110
+        }
+        return new DownloadOptions(headers.getFirst(HttpHeaders.RANGE), headers.getFirst(HttpHeaders.IF_NONE_MATCH),
+                ifModifiedSince, headers.getFirst(HttpHeaders.ACCEPT_ENCODING));
     }
 
     @GetMapping("/list")
-    public ResponseEntity<List<String>> listFiles() {
-        return ResponseEntity.ok(s3Service.listFiles());
+    public ResponseEntity<FilePage> listFiles(@RequestParam(value = "limit", required = false) Integer limit,
+                                              @RequestParam(value = "continuationToken", required = false) String continuationToken) {
+        return ResponseEntity.ok(s3Service.listFiles(limit, continuationToken));
+    }
+
+    @GetMapping(value = "/list", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamFiles() {
+        StreamingResponseBody body = outputStream -> s3Service.forEachFilePage(files -> {
+            for (String file : files) {
+                outputStream.write(objectMapper.writeValueAsBytes(file));
+                outputStream.write('\n');
+            }
+            outputStream.flush();
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    @GetMapping("/files")
+    public ResponseEntity<FileSearchPage> searchFiles(@RequestParam(value = "name", required = false) String name,
+                                                      @RequestParam(value = "sha256", required = false) String sha256,
+                                                      @RequestParam(value = "minSize", required = false) Long minSize,
+                                                      @RequestParam(value = "maxSize", required = false) Long maxSize,
+                                                      @RequestParam(value = "contentType", required = false) String contentType,
+                                                      @RequestParam(value = "uploadedAfter", required = false) Instant uploadedAfter,
+                                                      @RequestParam(value = "uploadedBefore", required = false) Instant uploadedBefore,
+                                                      @RequestParam(value = "sort", defaultValue = "uploadedAt") String sort,
+                                                      @RequestParam(value = "order", defaultValue = "desc") String order,
+                                                      @RequestParam(value = "offset", required = false) Integer offset,
+                                                      @RequestParam(value = "limit", required = false) Integer limit) {
+        if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+            throw new IllegalArgumentException("Ordem inválida: " + order);
+        }
+        FileQuery query = new FileQuery(name, sha256, minSize, maxSize, contentType, uploadedAfter, uploadedBefore,
+                FileQuery.Sort.fromParameter(sort), order.equalsIgnoreCase("desc"));
+        return ResponseEntity.ok(s3Service.searchFiles(query, offset, limit));
     }
 
     @DeleteMapping("/delete/{fileName}")
@@ -1,87 +1,317 @@
 package com.tiago.cloud_file_management;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.*;
+import com.tiago.cloud_file_management.cache.DownloadCache;
+import com.tiago.cloud_file_management.catalog.FileEntry;
+import com.tiago.cloud_file_management.catalog.FileQuery;
+import com.tiago.cloud_file_management.catalog.MetadataCatalog;
+import com.tiago.cloud_file_management.chunking.ChunkManifest;
+import com.tiago.cloud_file_management.chunking.ChunkStore;
+import com.tiago.cloud_file_management.compression.ContentCodec;
+import com.tiago.cloud_file_management.dedup.DedupIndex;
+import com.tiago.cloud_file_management.dedup.HashMarkers;
+import com.tiago.cloud_file_management.download.FileDownloader;
+import com.tiago.cloud_file_management.exceptions.CatalogUnavailableException;
 import com.tiago.cloud_file_management.exceptions.FileHashGenerationException;
 import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
-import com.tiago.cloud_file_management.exceptions.FileUploadException;
+import com.tiago.cloud_file_management.exceptions.StorageException;
+import com.tiago.cloud_file_management.hash.ContentHasher;
+import com.tiago.cloud_file_management.metrics.StorageMetrics;
+import com.tiago.cloud_file_management.storage.ListPage;
+import com.tiago.cloud_file_management.storage.ObjectAttributes;
+import com.tiago.cloud_file_management.storage.ReadOptions;
+import com.tiago.cloud_file_management.storage.StorageBackend;
+import com.tiago.cloud_file_management.storage.StoredObject;
+import com.tiago.cloud_file_management.upload.FileUploader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class S3Service {
-    private final AmazonS3 amazonS3;
-    private static final String BUCKET_NAME = "file-management-bucket05012005";
-    private static final String HASHES = "hashes/";
-    private static final List<String> ALLOWED_MIME_TYPES = List.of(
-            // Imagens
-            "image/jpeg", "image/png", "image/gif",
-
-            // Documentos
-            "application/pdf",
-            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
-            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
-            "application/vnd.openxmlformats-officedocument.presentationml.presentation",
-
-            // Arquivos de texto e estruturados
-            "text/plain",
-            "text/csv",
-            "application/json",
-            "application/xml"
-    );
+    private static final Logger log = LoggerFactory.getLogger(S3Service.class);
+    private final StorageBackend storage;
+    private final DedupIndex dedupIndex;
+    private final MetadataCatalog catalog;
+    private final ContentHasher contentHasher;
+    private final ChunkStore chunkStore;
+    private final DownloadCache downloadCache;
+    private final FileUploader uploader;
+    private final FileDownloader downloader;
+    private final StorageMetrics metrics;
+    private static final int MAX_LIST_PAGE_SIZE = 1000;
+    private static final int MAX_ARCHIVE_KEYS = 1000;
+    private static final int DEFAULT_SEARCH_LIMIT = 100;
+    private static final String CATALOG_TOKEN_PREFIX = "catalog:";
+
+    @Value("${upload.multipart.orphan-max-age:PT24H}")
+    private Duration orphanMaxAge = Duration.ofHours(24);
 
     @Autowired
-    public S3Service(AmazonS3 amazonS3) {
-        this.amazonS3 = amazonS3;
+    public S3Service(StorageBackend storage, DedupIndex dedupIndex, MetadataCatalog catalog, ContentHasher contentHasher,
+                     ChunkStore chunkStore, DownloadCache downloadCache, FileUploader uploader,
+                     FileDownloader downloader, StorageMetrics metrics) {
+        this.storage = storage;
+        this.dedupIndex = dedupIndex;
+        this.catalog = catalog;
+        this.contentHasher = contentHasher;
+        this.chunkStore = chunkStore;
+        this.downloadCache = downloadCache;
+        this.uploader = uploader;
+        this.downloader = downloader;
+        this.metrics = metrics;
     }
 
     /**
-     * Faz o upload de um arquivo para o Amazon S3.
+     * Faz o upload de um arquivo para o armazenamento (veja {@link FileUploader#uploadFile(MultipartFile)}).
      *
      * @param file O arquivo a ser enviado.
      * @return Uma mensagem confirmando o sucesso do upload.
      * @throws IOException Se ocorrer um erro ao ler o arquivo.
-     * @throws IllegalArgumentException Se o tipo do arquivo não for permitido.
-     * @throws FileUploadException Se o arquivo já existir no bucket ou não for fornecido.
      */
     public String uploadFile(MultipartFile file) throws IOException {
-        if (file.isEmpty()) {
-            throw new FileUploadException("Arquivo para upload não selecionado.");
-        }
+        return uploader.uploadFile(file);
+    }
 
-        String mimeType = Files.probeContentType(Path.of(file.getOriginalFilename()));
+    /**
+     * Faz o upload de um arquivo lido diretamente do corpo da requisição (veja
+     * {@link FileUploader#uploadStream(String, InputStream, long)}).
+     *
+     * @param originalFilename O nome original do arquivo.
+     * @param inputStream O conteúdo do arquivo.
+     * @param contentLength O tamanho do conteúdo, ou {@code -1} se desconhecido.
+     * @return Uma mensagem confirmando o sucesso do upload.
+     * @throws IOException Se ocorrer um erro ao ler o arquivo.
+     */
+    public String uploadStream(String originalFilename, InputStream inputStream, long contentLength) throws IOException {
+        return uploader.uploadStream(originalFilename, inputStream, contentLength);
+    }
 
-        if (mimeType == null || !ALLOWED_MIME_TYPES.contains(mimeType)) {
-            throw new IllegalArgumentException("Tipo de arquivo não permitido.");
-        }
+    /**
+     * Faz o upload de vários arquivos em uma única requisição (veja {@link FileUploader#uploadFiles(List)}).
+     *
+     * @param files Os arquivos a serem enviados.
+     * @return O resultado de cada arquivo, na ordem em que foram recebidos.
+     */
+    public List<BatchUploadResult> uploadFiles(List<MultipartFile> files) {
+        return uploader.uploadFiles(files);
+    }
 
-        String fileHash = generateFileHash(file.getInputStream());
+    /**
+     * Gera uma URL assinada para que o cliente envie um arquivo diretamente ao
+     * armazenamento (veja {@link FileUploader#createDirectUpload(String)}).
+     *
+     * @param originalFilename O nome original do arquivo.
+     * @return A URL de envio e o nome com que o arquivo será armazenado.
+     * @throws IOException Se não for possível determinar o tipo do arquivo.
+     */
+    public PresignedTransfer createDirectUpload(String originalFilename) throws IOException {
+        return uploader.createDirectUpload(originalFilename);
+    }
 
-        if (amazonS3.doesObjectExist(BUCKET_NAME, HASHES + fileHash)) {
-            throw new FileUploadException("Este arquivo já foi enviado anteriormente.");
-        }
+    /**
+     * Registra um arquivo enviado por uma URL de {@link #createDirectUpload(String)}
+     * (veja {@link FileUploader#completeDirectUpload(String)}).
+     *
+     * @param fileName O nome retornado por {@link #createDirectUpload(String)}.
+     * @return A verificação, concluída com o nome do arquivo que guarda o conteúdo.
+     */
+    public CompletableFuture<String> completeDirectUpload(String fileName) {
+        return uploader.completeDirectUpload(fileName);
+    }
 
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String uniqueFileName = timestamp + "-" + file.getOriginalFilename();
-        amazonS3.putObject(BUCKET_NAME, uniqueFileName, file.getInputStream(), null);
+    /**
+     * Gera uma URL assinada para que o cliente baixe um arquivo diretamente do
+     * armazenamento (veja {@link FileDownloader#createDirectDownload(String)}).
+     *
+     * @param fileName O nome do arquivo.
+     * @return A URL de download.
+     */
+    public PresignedTransfer createDirectDownload(String fileName) {
+        return downloader.createDirectDownload(fileName);
+    }
 
-        ObjectMetadata metadata = new ObjectMetadata();
-        metadata.setContentLength(0);
+    /**
+     * Baixa um arquivo do armazenamento sem bloquear a thread da requisição (veja
+     * {@link FileDownloader#downloadFileAsync(String, DownloadOptions)}).
+     *
+     * @param fileName O nome do arquivo a ser baixado.
+     * @param options Os cabeçalhos de intervalo e condicionais da requisição.
+     * @return O download, concluído quando o conteúdo estiver pronto para ser enviado.
+     */
+    public CompletableFuture<FileDownload> downloadFileAsync(String fileName, DownloadOptions options) {
+        return downloader.downloadFileAsync(fileName, options);
+    }
 
-        amazonS3.putObject(BUCKET_NAME, HASHES + fileHash, new ByteArrayInputStream(new byte[0]), metadata);
+    /**
+     * Baixa um arquivo do armazenamento (veja {@link FileDownloader#downloadFile(String, DownloadOptions)}).
+     *
+     * @param fileName O nome do arquivo a ser baixado.
+     * @param options Os cabeçalhos de intervalo e condicionais da requisição.
+     * @return O conteúdo do arquivo e seus metadados.
+     */
+    public FileDownload downloadFile(String fileName, DownloadOptions options) {
+        return downloader.downloadFile(fileName, options);
+    }
+
+    /**
+     * Escreve um arquivo ZIP com os arquivos selecionados (veja
+     * {@link FileDownloader#writeArchive(Iterator, OutputStream)}).
+     *
+     * @param keys As chaves dos arquivos, obtidas de {@link #archiveKeys(List, String)}.
+     * @param outputStream O destino do arquivo ZIP.
+     * @throws IOException Se ocorrer um erro ao escrever o arquivo.
+     */
+    public void writeArchive(Iterator<String> keys, OutputStream outputStream) throws IOException {
+        downloader.writeArchive(keys, outputStream);
+    }
 
-        return "Arquivo upado para o bucket com sucesso: " + uniqueFileName;
+
+    /**
+     * Carrega em segundo plano o índice local de hashes a partir da listagem
+     * paginada do prefixo {@code hashes/}. Até o fim da carga, toda verificação de
+     * duplicidade consulta o bucket.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmDedupIndex() {
+        Thread warmup = new Thread(() -> {
+            try {
+                String continuationToken = null;
+                do {
+                    ListPage page = storage.list(HashMarkers.HASHES, null, MAX_LIST_PAGE_SIZE, continuationToken);
+                    page.keys().forEach(key -> dedupIndex.add(key.substring(HashMarkers.HASHES.length())));
+                    continuationToken = page.nextContinuationToken();
+                } while (continuationToken != null);
+                dedupIndex.markReady();
+                log.info("Índice de hashes carregado com {} entradas.", dedupIndex.size());
+            } catch (StorageException e) {
+                log.warn("Não foi possível carregar o índice de hashes; as verificações consultarão o bucket.", e);
+            }
+        }, "dedup-index-warmup");
+        warmup.setDaemon(true);
+        warmup.start();
+    }
+
+    /**
+     * Sincroniza em segundo plano o catálogo de metadados com o armazenamento.
+     * Até o fim da sincronização, a listagem e as buscas consultam o
+     * armazenamento, mesmo com um journal de uma execução anterior.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmCatalog() {
+        if (!catalog.isEnabled()) {
+            return;
+        }
+        Thread warmup = new Thread(() -> {
+            try {
+                synchronizeCatalog();
+            } catch (StorageException e) {
+                log.warn("Não foi possível sincronizar o catálogo de arquivos; a listagem consultará o bucket.", e);
+            }
+        }, "catalog-warmup");
+        warmup.setDaemon(true);
+        warmup.start();
+    }
+
+    /**
+     * Sincroniza o catálogo de metadados com a listagem do armazenamento,
+     * incorporando os arquivos enviados e excluídos por outras instâncias. Apenas
+     * os arquivos que o catálogo não conhece são consultados, com um HEAD no
+     * arquivo e outro na referência em {@code refs/}; sem um journal, toda a
+     * listagem é consultada e o catálogo é reconstruído.
+     */
+    @Scheduled(fixedDelayString = "${catalog.sync-interval:PT15M}",
+            initialDelayString = "${catalog.sync-interval:PT15M}")
+    public void synchronizeCatalog() {
+        long startSequence = catalog.beginSync();
+        if (startSequence < 0) {
+            return;
+        }
+        boolean finished = false;
+        try {
+            Set<String> listedKeys = new HashSet<>();
+            int added = 0;
+            String continuationToken = null;
+            do {
+                ListPage page = storage.list(null, "/", MAX_LIST_PAGE_SIZE, continuationToken);
+                for (String key : page.keys()) {
+                    listedKeys.add(key);
+                    if (!catalog.contains(key)) {
+                        FileEntry entry = storedFileEntry(key);
+                        if (entry != null && catalog.putIfAbsent(entry)) {
+                            added++;
+                        }
+                    }
+                }
+                continuationToken = page.nextContinuationToken();
+            } while (continuationToken != null);
+            int removed = catalog.finishSync(listedKeys, startSequence);
+            finished = true;
+            log.info("Catálogo de arquivos sincronizado: {} arquivos, {} incluídos e {} removidos.",
+                    catalog.size(), added, removed);
+        } finally {
+            if (!finished) {
+                catalog.abortSync();
+            }
+        }
+    }
+
+    /**
+     * Monta a entrada do catálogo de um arquivo a partir dos metadados do objeto
+     * e da sua referência em {@code refs/}.
+     *
+     * @return A entrada, ou {@code null} se o arquivo não existir mais.
+     */
+    private FileEntry storedFileEntry(String key) {
+        ObjectAttributes attributes = storage.head(key);
+        if (attributes == null) {
+            return null;
+        }
+        ObjectAttributes reference = storage.head(HashMarkers.REFS + key);
+        Map<String, String> userMetadata = attributes.userMetadata();
+        boolean chunked = ChunkManifest.isManifest(userMetadata);
+        long decodedLength = ContentCodec.decodedLength(userMetadata);
+        long size = chunked ? Long.parseLong(userMetadata.get(ChunkManifest.MANIFEST_METADATA))
+                : decodedLength >= 0 ? decodedLength : attributes.contentLength();
+        String preHash = reference != null ? reference.userMetadata(HashMarkers.PRE_HASH_METADATA) : null;
+        return FileEntry.of(key, size, attributes.contentType(),
+                reference != null ? reference.userMetadata(HashMarkers.HASH_METADATA) : null,
+                preHash == null ? null : Long.parseUnsignedLong(preHash, 16), chunked,
+                attributes.lastModified() != null ? attributes.lastModified().toInstant() : Instant.EPOCH);
+    }
+
+    /**
+     * Remove periodicamente as gravações abandonadas no armazenamento, como os
+     * uploads em partes do S3 e os arquivos temporários do sistema de arquivos.
+     */
+    @Scheduled(fixedDelayString = "${upload.multipart.cleanup-interval:PT1H}",
+            initialDelayString = "${upload.multipart.cleanup-interval:PT1H}")
+    public void abortOrphanedUploads() {
+        int aborted = storage.abortIncompleteUploads(orphanMaxAge);
+        if (aborted > 0) {
+            log.info("{} uploads abandonados foram abortados.", aborted);
+        }
     }
 
     /**
@@ -93,77 +323,270 @@ public class S3Service {
      * @throws FileHashGenerationException Se o algoritmo SHA-256 não estiver disponível.
      */
     public String generateFileHash(InputStream inputStream) throws IOException {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] buffer = new byte[1024];
-            int bytesRead;
+        return contentHasher.sha256(inputStream);
+    }
 
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                digest.update(buffer, 0, bytesRead);
+    /**
+     * Seleciona os arquivos de um download em lote: as chaves informadas ou todos
+     * os arquivos cujo nome começa com o prefixo. A listagem por prefixo é
+     * percorrida página a página, à medida que o arquivo ZIP é escrito, e vem do
+     * catálogo de metadados depois que ele for sincronizado nesta execução.
+     *
+     * @param keys Os nomes dos arquivos, ou {@code null}.
+     * @param prefix O prefixo dos nomes dos arquivos, usado quando nenhuma chave é informada.
+     * @return As chaves dos arquivos, percorridas sob demanda.
+     * @throws IllegalArgumentException Se nenhuma chave ou prefixo válido for informado.
+     */
+    public Iterator<String> archiveKeys(List<String> keys, String prefix) {
+        if (keys != null && !keys.isEmpty()) {
+            if (keys.size() > MAX_ARCHIVE_KEYS) {
+                throw new IllegalArgumentException("Informe no máximo " + MAX_ARCHIVE_KEYS + " arquivos por download.");
             }
+            return keys.stream()
+                    .filter(key -> !key.contains("/"))
+                    .distinct()
+                    .iterator();
+        }
+        if (prefix == null || prefix.isEmpty() || prefix.contains("/")) {
+            throw new IllegalArgumentException("Informe os arquivos ou um prefixo válido para o download.");
+        }
+
+        boolean fromCatalog = catalog.isReady();
+        return new Iterator<>() {
+            private Iterator<String> page = Collections.emptyIterator();
+            private String continuationToken;
+            private boolean more = true;
 
-            byte[] hashBytes = digest.digest();
-            return Base64.getEncoder().encodeToString(hashBytes);
-        } catch (NoSuchAlgorithmException e) {
-            throw new FileHashGenerationException("Erro ao calcular hash do arquivo.");
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && more) {
+                    ListPage result = fromCatalog
+                            ? catalogPage(prefix, continuationToken, MAX_LIST_PAGE_SIZE)
+                            : storage.list(prefix, "/", MAX_LIST_PAGE_SIZE, continuationToken);
+                    page = result.keys().iterator();
+                    continuationToken = result.nextContinuationToken();
+                    more = continuationToken != null;
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+    }
+
+    /**
+     * Lista uma página dos arquivos armazenados no bucket.
+     * <p>
+     * Os arquivos ficam na raiz do bucket e os marcadores em prefixos próprios
+     * ({@code hashes/} e {@code refs/}); a listagem usa {@code /} como delimitador,
+     * então os marcadores nunca são retornados como arquivos.
+     * <p>
+     * Depois que o catálogo de metadados for sincronizado, a página vem dele, sem
+     * consultar o armazenamento, na mesma ordem. Os arquivos enviados por outras
+     * instâncias aparecem a partir da próxima sincronização do catálogo.
+     *
+     * @param limit A quantidade máxima de arquivos da página, limitada a 1000.
+     * @param continuationToken O token retornado pela página anterior, ou {@code null} para a primeira.
+     * @return A página com os nomes dos arquivos e o token da próxima página.
+     * @throws FileNotFoundException Se nenhum arquivo for encontrado.
+     */
+    public FilePage listFiles(Integer limit, String continuationToken) {
+        return metrics.timed("list", () -> doListFiles(limit, continuationToken));
+    }
+
+    private FilePage doListFiles(Integer limit, String continuationToken) {
+        int maxKeys = limit == null ? MAX_LIST_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_LIST_PAGE_SIZE));
+        boolean fromCatalog = catalog.isReady()
+                && (continuationToken == null || continuationToken.startsWith(CATALOG_TOKEN_PREFIX));
+        ListPage page = fromCatalog
+                ? catalogPage(null, catalogPosition(continuationToken), maxKeys)
+                : storage.list(null, "/", maxKeys, continuationToken);
+        if (page.keys().isEmpty() && continuationToken == null && page.nextContinuationToken() == null) {
+            throw new FileNotFoundException("Nenhum arquivo encontrado no bucket.");
         }
+        String nextContinuationToken = fromCatalog && page.nextContinuationToken() != null
+                ? CATALOG_TOKEN_PREFIX + Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(page.nextContinuationToken().getBytes(StandardCharsets.UTF_8))
+                : page.nextContinuationToken();
+        return new FilePage(page.keys(), nextContinuationToken);
     }
 
     /**
-     * Baixa um arquivo do Amazon S3.
+     * Lista uma página de chaves do catálogo de metadados.
      *
-     * @param fileName O nome do arquivo a ser baixado.
-     * @return O objeto S3 contendo o arquivo.
-     * @throws FileNotFoundException Se o arquivo não for encontrado no bucket.
-     * @throws AmazonS3Exception Se ocorrer um erro ao tentar baixar o arquivo.
+     * @param startAfter A última chave da página anterior, ou {@code null} para a primeira.
+     * @return A página, cujo token de continuação é a última chave retornada.
      */
-    public S3Object downloadFile(String fileName) {
-        if (!amazonS3.doesObjectExist(BUCKET_NAME, fileName)) {
-            throw new FileNotFoundException("Arquivo não encontrado no bucket: " + fileName);
+    private ListPage catalogPage(String prefix, String startAfter, int maxKeys) {
+        List<String> keys = catalog.keys(prefix, startAfter, maxKeys + 1);
+        if (keys.size() <= maxKeys) {
+            return new ListPage(keys, null);
+        }
+        List<String> page = keys.subList(0, maxKeys);
+        return new ListPage(List.copyOf(page), page.get(maxKeys - 1));
+    }
+
+    private static String catalogPosition(String continuationToken) {
+        if (continuationToken == null) {
+            return null;
         }
         try {
-            return amazonS3.getObject(BUCKET_NAME, fileName);
-        } catch (AmazonS3Exception e) {
-            throw new AmazonS3Exception("Erro ao tentar baixar o arquivo: " + fileName);
+            return new String(Base64.getUrlDecoder().decode(continuationToken.substring(CATALOG_TOKEN_PREFIX.length())),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Token de continuação inválido.");
         }
     }
 
     /**
-     * Lista todos os arquivos armazenados no bucket, excluindo arquivos de hash.
+     * Busca arquivos no catálogo de metadados pelo nome, hash, tamanho, tipo e
+     * instante do envio, sem consultar o armazenamento.
      *
-     * @return Uma lista contendo os nomes dos arquivos.
-     * @throws FileNotFoundException Se nenhum arquivo for encontrado.
+     * @param query Os filtros e a ordenação da busca.
+     * @param offset A quantidade de arquivos a pular, ou {@code null} para a primeira página.
+     * @param limit A quantidade máxima de arquivos da página, limitada a 1000.
+     * @return Os arquivos encontrados e a posição da próxima página.
+     * @throws CatalogUnavailableException Se o catálogo estiver desabilitado ou ainda não tiver sido sincronizado.
      */
-    public List<String> listFiles() {
-        ListObjectsV2Result result = amazonS3.listObjectsV2(BUCKET_NAME);
-        List<String> files = result.getObjectSummaries().stream()
-                .map(S3ObjectSummary::getKey)
-                .filter(file -> !file.startsWith(HASHES))
-                .toList();
-        if (files.isEmpty()) {
-            throw new FileNotFoundException("Nenhum arquivo encontrado no bucket.");
+    public FileSearchPage searchFiles(FileQuery query, Integer offset, Integer limit) {
+        if (!catalog.isReady()) {
+            throw new CatalogUnavailableException(catalog.isEnabled()
+                    ? "O catálogo de arquivos ainda está sendo carregado."
+                    : "O catálogo de arquivos não está habilitado.");
         }
-        return files;
+        int first = offset == null ? 0 : Math.max(0, offset);
+        int maxFiles = limit == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_LIST_PAGE_SIZE));
+        return metrics.timed("search", () -> {
+            List<FileEntry> files = catalog.search(query, first, maxFiles + 1);
+            return files.size() > maxFiles
+                    ? new FileSearchPage(List.copyOf(files.subList(0, maxFiles)), first + maxFiles)
+                    : new FileSearchPage(files, null);
+        });
+    }
+
+    /**
+     * Percorre todos os arquivos do bucket, entregando cada página assim que ela é
+     * recebida do armazenamento, ou do catálogo de metadados depois que ele for
+     * sincronizado, sem acumular a listagem completa em memória.
+     *
+     * @param pageConsumer Recebe os nomes dos arquivos de cada página.
+     * @throws IOException Se o consumidor falhar ao processar uma página.
+     */
+    public void forEachFilePage(FilePageConsumer pageConsumer) throws IOException {
+        boolean fromCatalog = catalog.isReady();
+        metrics.timed("list.stream", () -> {
+            String continuationToken = null;
+            do {
+                ListPage page = fromCatalog
+                        ? catalogPage(null, continuationToken, MAX_LIST_PAGE_SIZE)
+                        : storage.list(null, "/", MAX_LIST_PAGE_SIZE, continuationToken);
+                pageConsumer.accept(page.keys());
+                continuationToken = page.nextContinuationToken();
+            } while (continuationToken != null);
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    public interface FilePageConsumer {
+        void accept(List<String> files) throws IOException;
     }
 
     /**
-     * Exclui um arquivo do Amazon S3, removendo também seu hash associado.
+     * Exclui um arquivo do armazenamento, removendo também seu hash associado.
+     * <p>
+     * O hash é lido do catálogo de metadados ou, se o arquivo não estiver nele,
+     * dos metadados da referência em {@code refs/}, o que exige apenas um HEAD. A
+     * existência do arquivo é sempre confirmada no armazenamento, pois o catálogo
+     * pode ter entradas de arquivos excluídos fora da aplicação, que são então
+     * removidas sem tocar no marcador de hash. O
+     * arquivo, o marcador de hash e a referência são então removidos em uma única
+     * requisição. Arquivos enviados antes da existência das referências
+     * ainda precisam ser baixados para que o hash seja recalculado. Para arquivos
+     * armazenados em blocos, o manifesto é lido antes da exclusão e as referências
+     * aos blocos são liberadas em seguida, apagando os blocos que ficarem sem uso.
      *
      * @param fileName O nome do arquivo a ser excluído.
      * @throws FileNotFoundException Se o arquivo não for encontrado.
      */
     public void deleteFile(String fileName) {
-        if (!amazonS3.doesObjectExist(BUCKET_NAME, fileName)) {
-            throw new FileNotFoundException("Arquivo não encontrado para exclusão: " + fileName);
-        }
+        metrics.timed("delete", () -> {
+            doDeleteFile(fileName);
+            return null;
+        });
+    }
+
+    private void doDeleteFile(String fileName) {
         try {
-            S3Object file = amazonS3.getObject(BUCKET_NAME, fileName);
-            String fileHash = generateFileHash(file.getObjectContent());
+            StoredHash storedHash = resolveFileHash(fileName);
 
-            amazonS3.deleteObject(BUCKET_NAME, HASHES + fileHash);
-            amazonS3.deleteObject(BUCKET_NAME, fileName);
-        } catch (AmazonS3Exception | IOException e) {
+            storage.delete(List.of(fileName, HashMarkers.HASHES + storedHash.fileHash(), HashMarkers.REFS + fileName));
+            dedupIndex.remove(storedHash.fileHash());
+            if (storedHash.preHash() != null) {
+                dedupIndex.removePreHash(storedHash.preHash());
+            }
+            catalog.remove(fileName);
+            downloadCache.invalidate(fileName);
+            if (storedHash.manifest() != null) {
+                chunkStore.release(fileName, storedHash.manifest());
+            }
+        } catch (StorageException | IOException e) {
             throw new FileNotFoundException("Erro ao tentar excluir o arquivo: " + fileName);
         }
     }
+
+    private StoredHash resolveFileHash(String fileName) throws IOException {
+        FileEntry entry = catalog.get(fileName);
+        if (entry != null && entry.sha256() != null) {
+            ChunkManifest manifest = null;
+            try {
+                if (entry.chunked()) {
+                    manifest = chunkStore.readManifest(storage.get(fileName, ReadOptions.NONE));
+                } else if (storage.head(fileName) == null) {
+                    throw new FileNotFoundException(fileName);
+                }
+            } catch (FileNotFoundException e) {
+                catalog.remove(fileName);
+                throw new FileNotFoundException("Arquivo não encontrado para exclusão: " + fileName);
+            }
+            return new StoredHash(entry.sha256(), entry.preHash(), manifest);
+        }
+
+        ObjectAttributes reference = storage.head(HashMarkers.REFS + fileName);
+        String fileHash = reference != null ? reference.userMetadata(HashMarkers.HASH_METADATA) : null;
+        if (fileHash != null) {
+            String preHash = reference.userMetadata(HashMarkers.PRE_HASH_METADATA);
+            ChunkManifest manifest = reference.userMetadata(HashMarkers.CHUNKED_METADATA) != null
+                    ? chunkStore.readManifest(storage.get(fileName, ReadOptions.NONE))
+                    : null;
+            return new StoredHash(fileHash, preHash == null ? null : Long.parseUnsignedLong(preHash, 16), manifest);
+        }
+
+        StoredObject file;
+        try {
+            file = storage.get(fileName, ReadOptions.NONE);
+        } catch (FileNotFoundException e) {
+            throw new FileNotFoundException("Arquivo não encontrado para exclusão: " + fileName);
+        }
+        try (file) {
+            ChunkManifest manifest = ChunkManifest.isManifest(file.attributes().userMetadata())
+                    ? chunkStore.readManifest(file)
+                    : null;
+            try (InputStream content = manifest != null
+                    ? chunkStore.open(manifest, 0, manifest.size())
+                    : chunkStore.original(file).content()) {
+                return new StoredHash(generateFileHash(content), null, manifest);
+            }
+        }
+    }
+
+    private record StoredHash(String fileHash, Long preHash, ChunkManifest manifest) {
+    }
 }
+
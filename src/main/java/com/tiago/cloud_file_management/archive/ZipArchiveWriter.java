@@ -0,0 +1,138 @@
+package com.tiago.cloud_file_management.archive;
+
+import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
+import com.tiago.cloud_file_management.storage.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLConnection;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Monta um arquivo ZIP em stream a partir de objetos armazenados.
+ * <p>
+ * Enquanto uma entrada é escrita, as próximas já são requisitadas por uma
+ * janela limitada de buscas antecipadas, então o tempo até o primeiro byte de
+ * cada objeto fica escondido atrás da escrita da entrada anterior. Apenas o
+ * buffer de cópia fica em memória, independentemente do tamanho do arquivo.
+ * <p>
+ * Tipos já comprimidos são gravados sem compressão. Como o {@link ZipOutputStream}
+ * só aceita entradas {@code STORED} com o CRC conhecido antes do conteúdo, elas
+ * usam {@code DEFLATED} com nível {@link Deflater#NO_COMPRESSION}, que apenas copia
+ * os bytes em blocos.
+ */
+@Component
+public class ZipArchiveWriter {
+    private static final Logger log = LoggerFactory.getLogger(ZipArchiveWriter.class);
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "image/jpeg", "image/png", "image/gif",
+            "application/pdf", "application/zip",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation"
+    );
+
+    private final Executor executor;
+    private final int prefetch;
+
+    @Autowired
+    public ZipArchiveWriter(@Qualifier("storageExecutor") Executor executor,
+                            @Value("${archive.prefetch:4}") int prefetch) {
+        this.executor = executor;
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    /**
+     * Escreve o arquivo ZIP com os objetos informados.
+     *
+     * @param keys As chaves dos objetos, percorridas uma única vez.
+     * @param fetcher Abre um objeto armazenado a partir de sua chave.
+     * @param outputStream O destino do arquivo ZIP.
+     * @return A quantidade de entradas escritas.
+     * @throws IOException Se ocorrer um erro ao escrever o arquivo.
+     */
+    public int write(Iterator<String> keys, Function<String, StoredObject> fetcher, OutputStream outputStream)
+            throws IOException {
+        Deque<Pending> window = new ArrayDeque<>();
+        int entries = 0;
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        try {
+            fill(window, keys, fetcher);
+            while (!window.isEmpty()) {
+                Pending next = window.poll();
+                fill(window, keys, fetcher);
+
+                StoredObject object = await(next);
+                if (object == null) {
+                    continue;
+                }
+                try (InputStream content = object.content()) {
+                    zip.setLevel(isCompressed(next.key(), object.attributes().contentType())
+                            ? Deflater.NO_COMPRESSION
+                            : Deflater.DEFAULT_COMPRESSION);
+                    ZipEntry entry = new ZipEntry(next.key());
+                    if (object.attributes().lastModified() != null) {
+                        entry.setTime(object.attributes().lastModified().getTime());
+                    }
+                    zip.putNextEntry(entry);
+                    content.transferTo(zip);
+                    zip.closeEntry();
+                    entries++;
+                }
+            }
+            zip.finish();
+            zip.flush();
+            return entries;
+        } finally {
+            window.forEach(pending -> pending.object().thenAccept(object -> {
+                if (object != null) {
+                    object.abort();
+                }
+            }));
+        }
+    }
+
+    private void fill(Deque<Pending> window, Iterator<String> keys, Function<String, StoredObject> fetcher) {
+        while (window.size() < prefetch && keys.hasNext()) {
+            String key = keys.next();
+            window.add(new Pending(key, CompletableFuture.supplyAsync(() -> fetcher.apply(key), executor)));
+        }
+    }
+
+    private StoredObject await(Pending pending) {
+        try {
+            return pending.object().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof FileNotFoundException) {
+                log.info("Arquivo {} não encontrado, ignorado no arquivo ZIP.", pending.key());
+                return null;
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private boolean isCompressed(String key, String contentType) {
+        String type = contentType != null ? contentType : URLConnection.guessContentTypeFromName(key);
+        return type != null && COMPRESSED_TYPES.contains(type);
+    }
+
+    private record Pending(String key, CompletableFuture<StoredObject> object) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.tiago.cloud_file_management.cache;
+
+import com.tiago.cloud_file_management.ByteRange;
+import com.tiago.cloud_file_management.DownloadOptions;
+import com.tiago.cloud_file_management.FileDownload;
+import com.tiago.cloud_file_management.compression.ContentCodec;
+import com.tiago.cloud_file_management.compression.DecodedDownload;
+import com.tiago.cloud_file_management.exceptions.RangeNotSatisfiableException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+/**
+ * Um objeto armazenado no cache de downloads, em memória (arquivos pequenos) ou
+ * em um arquivo local. Objetos compactados são mantidos como foram armazenados.
+ */
+public class CachedObject {
+    private final String eTag;
+    private final String contentType;
+    private final Date lastModified;
+    private final String contentEncoding;
+    private final long decodedLength;
+    private final long length;
+    private final byte[] data;
+    private final Path file;
+    private volatile long validatedAt;
+
+    CachedObject(String eTag, String contentType, Date lastModified, String contentEncoding, long decodedLength,
+                 long length, byte[] data, Path file, long validatedAt) {
+        this.eTag = eTag;
+        this.contentType = contentType;
+        this.lastModified = lastModified;
+        this.contentEncoding = contentEncoding;
+        this.decodedLength = decodedLength;
+        this.length = length;
+        this.data = data;
+        this.file = file;
+        this.validatedAt = validatedAt;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    boolean isInMemory() {
+        return data != null;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getValidatedAt() {
+        return validatedAt;
+    }
+
+    void markValidated(long now) {
+        validatedAt = now;
+    }
+
+    /**
+     * Monta a resposta de download a partir do conteúdo em cache, aplicando os
+     * cabeçalhos condicionais e de intervalo da requisição. Conteúdos compactados em
+     * um formato que o cliente não aceita são descompactados durante o envio.
+     * <p>
+     * O arquivo local só é aberto quando a resposta começa a ser escrita, e é
+     * fechado ao fim do envio; uma resposta que nunca é escrita não retém nenhum
+     * descritor. Se o cache remover o arquivo antes disso, a escrita falha como
+     * uma conexão interrompida com o armazenamento; uma remoção durante a escrita
+     * não a afeta, pois o arquivo já está aberto.
+     *
+     * @param fileName O nome do arquivo.
+     * @param options Os cabeçalhos de intervalo e condicionais da requisição.
+     * @return O download servido a partir do cache.
+     * @throws IOException Se o arquivo local já tiver sido removido.
+     * @throws RangeNotSatisfiableException Se o intervalo solicitado estiver fora do arquivo.
+     */
+    public FileDownload toDownload(String fileName, DownloadOptions options) throws IOException {
+        ContentCodec codec = ContentCodec.fromEncoding(contentEncoding);
+        boolean decode = codec != null && !options.acceptsEncoding(codec.encoding());
+        if (isNotModified(options)) {
+            return FileDownload.notModified(decode ? DecodedDownload.weakETag(eTag) : eTag, lastModified);
+        }
+
+        if (data == null && !Files.isRegularFile(file)) {
+            throw new NoSuchFileException(file.toString());
+        }
+        if (decode) {
+            DecodedDownload.Source encoded = data != null
+                    ? () -> new ByteArrayInputStream(data)
+                    : () -> Files.newInputStream(file);
+            return DecodedDownload.of(codec, encoded, decodedLength, options.range(), fileName, contentType, eTag,
+                    lastModified);
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String contentRange = null;
+        ByteRange range = ByteRange.parse(options.range());
+        if (range != null) {
+            long[] resolved = range.resolve(length);
+            if (resolved == null) {
+                throw new RangeNotSatisfiableException("Intervalo solicitado inválido para o arquivo: " + fileName);
+            }
+            start = resolved[0];
+            end = resolved[1];
+            contentRange = "bytes " + start + "-" + end + "/" + length;
+        }
+
+        long count = end - start + 1;
+        FileDownload.Body body = data != null ? memoryBody(start, count) : fileBody(start, count);
+        return new FileDownload(
+                contentRange != null ? FileDownload.Status.PARTIAL_CONTENT : FileDownload.Status.OK,
+                contentType, count, contentRange, eTag, lastModified, contentEncoding, body);
+    }
+
+    private boolean isNotModified(DownloadOptions options) {
+        if (options.ifNoneMatch() != null) {
+            String ifNoneMatch = options.ifNoneMatch().trim();
+            if (ifNoneMatch.equals("*")) {
+                return true;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String value = candidate.trim();
+                if (value.startsWith("W/")) {
+                    value = value.substring(2);
+                }
+                if (value.replace("\"", "").equals(eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return options.ifModifiedSince() != null && lastModified != null
+                && lastModified.getTime() / 1000 <= options.ifModifiedSince().getTime() / 1000;
+    }
+
+    private FileDownload.Body memoryBody(long start, long count) {
+        return outputStream -> outputStream.write(data, (int) start, (int) count);
+    }
+
+    /**
+     * Escreve um trecho do arquivo local com {@link FileChannel#transferTo}. O
+     * destino é um canal sobre o stream da resposta, e não um socket, então o JDK
+     * copia os bytes em blocos por um buffer próprio, sem {@code sendfile}. O envio
+     * pelo {@code sendfile} do Tomcat não se aplica, pois os downloads são
+     * respondidos de forma assíncrona.
+     */
+    private FileDownload.Body fileBody(long start, long count) {
+        return outputStream -> {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(outputStream);
+                long position = start;
+                long remaining = count;
+                while (remaining > 0) {
+                    long transferred = channel.transferTo(position, remaining, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            }
+        };
+    }
+}
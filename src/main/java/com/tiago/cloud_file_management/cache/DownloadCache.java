@@ -0,0 +1,353 @@
+package com.tiago.cloud_file_management.cache;
+
+import com.tiago.cloud_file_management.chunking.ChunkManifest;
+import com.tiago.cloud_file_management.compression.ContentCodec;
+import com.tiago.cloud_file_management.storage.ObjectAttributes;
+import com.tiago.cloud_file_management.storage.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Cache de leitura para os downloads mais acessados.
+ * <p>
+ * Objetos pequenos ficam em memória e os demais em arquivos no disco local, com
+ * remoção LRU limitada pelo total de bytes de cada nível. Entradas mais antigas
+ * que o intervalo de revalidação são confirmadas no armazenamento por ETag antes de
+ * serem servidas. Apenas uma busca por chave é feita ao mesmo tempo: requisições
+ * concorrentes aguardam o resultado da primeira. Objetos maiores que o limite por
+ * entrada são lembrados e passam a ser buscados diretamente, assim como os
+ * manifestos de arquivos armazenados em blocos, que são remontados a cada download.
+ * <p>
+ * Os arquivos ficam em um subdiretório próprio de cada execução dentro de
+ * {@code cache.directory}, com um arquivo de lock retido enquanto a aplicação
+ * estiver rodando. Na inicialização são removidos apenas os subdiretórios de
+ * execuções anteriores cujo lock não está mais retido; os demais arquivos do
+ * diretório, e os de outras instâncias que o compartilham, não são tocados.
+ */
+@Component
+public class DownloadCache {
+    private static final Logger log = LoggerFactory.getLogger(DownloadCache.class);
+    private static final int MAX_OVERSIZED_KEYS = 10_000;
+    private static final String INSTANCE_PREFIX = "instance-";
+    private static final String LOCK_FILE = ".lock";
+    private static final String ENTRY_SUFFIX = ".cache";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final long maxMemoryBytes;
+    private final long maxEntryBytes;
+    private final long maxMemoryEntryBytes;
+    private final long revalidateAfterMillis;
+
+    private final LinkedHashMap<String, CachedObject> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<CachedObject>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> oversized = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_OVERSIZED_KEYS;
+        }
+    });
+    private final AtomicLong invalidations = new AtomicLong();
+    private long diskBytes;
+    private long memoryBytes;
+    private Path files;
+    // Mantido aberto para reter o lock do subdiretório até o fim da execução
+    private FileChannel lock;
+
+    /**
+     * Busca um objeto no armazenamento para preencher ou revalidar o cache.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param eTag A ETag da entrada em cache a ser revalidada, ou {@code null}.
+         * @return O objeto, ou {@code null} se a ETag informada ainda for a atual.
+         */
+        StoredObject load(String eTag);
+    }
+
+    /**
+     * O resultado de uma consulta ao cache: a entrada em cache ou, quando o objeto
+     * não pode ser armazenado, o objeto já aberto para ser servido diretamente.
+     * Ambos são {@code null} quando o objeto deve ser buscado diretamente, sem o cache.
+     */
+    public record Lookup(CachedObject entry, StoredObject passthrough) {
+        private static final Lookup MISS = new Lookup(null, null);
+    }
+
+    @Autowired
+    public DownloadCache(@Value("${cache.enabled:true}") boolean enabled,
+                         @Value("${cache.directory:${java.io.tmpdir}/cloud-file-management-cache}") Path directory,
+                         @Value("${cache.max-size:1GB}") DataSize maxSize,
+                         @Value("${cache.max-entry-size:128MB}") DataSize maxEntrySize,
+                         @Value("${cache.memory.max-size:32MB}") DataSize maxMemorySize,
+                         @Value("${cache.memory.max-entry-size:64KB}") DataSize maxMemoryEntrySize,
+                         @Value("${cache.revalidate-after:PT30S}") Duration revalidateAfter) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.maxDiskBytes = maxSize.toBytes();
+        this.maxEntryBytes = Math.min(maxEntrySize.toBytes(), maxDiskBytes);
+        this.maxMemoryBytes = maxMemorySize.toBytes();
+        this.maxMemoryEntryBytes = Math.min(maxMemoryEntrySize.toBytes(), maxMemoryBytes);
+        this.revalidateAfterMillis = revalidateAfter.toMillis();
+        if (enabled) {
+            prepareDirectory();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Consulta o cache, buscando o objeto quando ele não estiver em cache ou
+     * precisar ser revalidado.
+     *
+     * @param key A chave do objeto.
+     * @param loader A busca do objeto no armazenamento.
+     * @return A entrada em cache, o objeto a ser servido diretamente ou nenhum dos dois,
+     *         quando o objeto deve ser buscado sem o cache.
+     */
+    public Lookup get(String key, Loader loader) {
+        if (oversized.containsKey(key)) {
+            return Lookup.MISS;
+        }
+        CachedObject cached = peek(key);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.getValidatedAt() < revalidateAfterMillis) {
+            return new Lookup(cached, null);
+        }
+
+        CompletableFuture<CachedObject> fetch = new CompletableFuture<>();
+        CompletableFuture<CachedObject> existing = inFlight.putIfAbsent(key, fetch);
+        if (existing != null) {
+            try {
+                CachedObject shared = existing.join();
+                return shared != null ? new Lookup(shared, null) : Lookup.MISS;
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            long generation = invalidations.get();
+            StoredObject object = loader.load(cached != null ? cached.getETag() : null);
+            if (object == null) {
+                cached.markValidated(now);
+                fetch.complete(cached);
+                return new Lookup(cached, null);
+            }
+
+            ObjectAttributes attributes = object.attributes();
+            if (attributes.contentLength() > maxEntryBytes || ChunkManifest.isManifest(attributes.userMetadata())) {
+                invalidate(key);
+                oversized.put(key, Boolean.TRUE);
+                fetch.complete(null);
+                return new Lookup(null, object);
+            }
+
+            CachedObject filled = fill(key, object, generation);
+            fetch.complete(filled);
+            return filled != null ? new Lookup(filled, null) : Lookup.MISS;
+        } catch (IOException e) {
+            fetch.complete(null);
+            log.warn("Não foi possível armazenar {} no cache de downloads.", key, e);
+            return Lookup.MISS;
+        } catch (RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, fetch);
+        }
+    }
+
+    /**
+     * Remove um objeto do cache, após sua exclusão ou substituição no bucket.
+     *
+     * @param key A chave do objeto.
+     */
+    public void invalidate(String key) {
+        if (!enabled) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        oversized.remove(key);
+        synchronized (entries) {
+            CachedObject removed = entries.remove(key);
+            if (removed != null) {
+                release(removed);
+            }
+        }
+    }
+
+    private CachedObject peek(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private CachedObject fill(String key, StoredObject object, long generation) throws IOException {
+        ObjectAttributes attributes = object.attributes();
+        long length = attributes.contentLength();
+        long decodedLength = ContentCodec.decodedLength(attributes.userMetadata());
+        long now = System.currentTimeMillis();
+
+        CachedObject entry;
+        try (InputStream content = object.content()) {
+            if (length <= maxMemoryEntryBytes) {
+                byte[] data = content.readAllBytes();
+                entry = new CachedObject(attributes.eTag(), attributes.contentType(), attributes.lastModified(),
+                        attributes.contentEncoding(), decodedLength, data.length, data, null, now);
+            } else {
+                Path file = files.resolve(UUID.randomUUID() + ENTRY_SUFFIX);
+                Path temporary = files.resolve(file.getFileName() + TEMPORARY_SUFFIX);
+                long written = Files.copy(content, temporary);
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+                entry = new CachedObject(attributes.eTag(), attributes.contentType(), attributes.lastModified(),
+                        attributes.contentEncoding(), decodedLength, written, null, file, now);
+            }
+        }
+
+        synchronized (entries) {
+            if (invalidations.get() != generation) {
+                // O objeto foi alterado ou excluído durante a busca, então o conteúdo lido não é armazenado
+                deleteFile(entry);
+                return null;
+            }
+            CachedObject previous = entries.put(key, entry);
+            if (previous != null) {
+                release(previous);
+            }
+            account(entry, 1);
+            evict();
+        }
+        return entry;
+    }
+
+    private void evict() {
+        Iterator<CachedObject> iterator = entries.values().iterator();
+        while ((diskBytes > maxDiskBytes || memoryBytes > maxMemoryBytes) && iterator.hasNext()) {
+            CachedObject eldest = iterator.next();
+            boolean overBudget = eldest.isInMemory() ? memoryBytes > maxMemoryBytes : diskBytes > maxDiskBytes;
+            if (overBudget) {
+                iterator.remove();
+                release(eldest);
+            }
+        }
+    }
+
+    private void release(CachedObject entry) {
+        account(entry, -1);
+        deleteFile(entry);
+    }
+
+    private void deleteFile(CachedObject entry) {
+        if (!entry.isInMemory()) {
+            try {
+                Files.deleteIfExists(entry.getFile());
+            } catch (IOException e) {
+                log.warn("Não foi possível remover o arquivo {} do cache.", entry.getFile(), e);
+            }
+        }
+    }
+
+    private void account(CachedObject entry, int sign) {
+        if (entry.isInMemory()) {
+            memoryBytes += sign * entry.getLength();
+        } else {
+            diskBytes += sign * entry.getLength();
+        }
+    }
+
+    private void prepareDirectory() {
+        try {
+            Files.createDirectories(directory);
+            removeAbandonedInstances();
+            files = Files.createDirectory(directory.resolve(INSTANCE_PREFIX + UUID.randomUUID()));
+            lock = FileChannel.open(files.resolve(LOCK_FILE), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            lock.lock();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível preparar o diretório do cache: " + directory, e);
+        }
+    }
+
+    /**
+     * Remove os subdiretórios de execuções anteriores que terminaram sem limpá-los.
+     */
+    private void removeAbandonedInstances() throws IOException {
+        try (DirectoryStream<Path> instances = Files.newDirectoryStream(directory, INSTANCE_PREFIX + "*")) {
+            for (Path instance : instances) {
+                if (Files.isDirectory(instance, LinkOption.NOFOLLOW_LINKS) && isAbandoned(instance)) {
+                    removeInstance(instance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Um subdiretório está abandonado quando nenhum processo retém o seu lock. Sem o
+     * arquivo de lock, o subdiretório pode estar sendo criado por outra instância.
+     */
+    private static boolean isAbandoned(Path instance) {
+        try (FileChannel channel = FileChannel.open(instance.resolve(LOCK_FILE), StandardOpenOption.WRITE)) {
+            FileLock acquired = channel.tryLock();
+            if (acquired == null) {
+                return false;
+            }
+            acquired.release();
+            return true;
+        } catch (OverlappingFileLockException | IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Remove os arquivos do cache de um subdiretório abandonado e, se nada mais
+     * restar, o próprio subdiretório.
+     */
+    private static void removeInstance(Path instance) {
+        try (Stream<Path> entries = Files.list(instance)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                String name = entry.getFileName().toString();
+                if (Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS) && (name.endsWith(ENTRY_SUFFIX)
+                        || name.endsWith(ENTRY_SUFFIX + TEMPORARY_SUFFIX))) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+            Files.deleteIfExists(instance.resolve(LOCK_FILE));
+            Files.deleteIfExists(instance);
+        } catch (IOException e) {
+            log.warn("Não foi possível remover o diretório abandonado {} do cache.", instance, e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.tiago.cloud_file_management.catalog;
+
+import java.time.Instant;
+
+/**
+ * Os metadados de um arquivo armazenado, mantidos pelo {@link MetadataCatalog}.
+ *
+ * @param key A chave do arquivo no armazenamento.
+ * @param name O nome original do arquivo.
+ * @param size O tamanho do conteúdo original, em bytes.
+ * @param contentType O tipo MIME do arquivo, ou {@code null} se desconhecido.
+ * @param uploadedAt O instante do envio, com precisão de milissegundos.
+ * @param sha256 O hash SHA-256 do conteúdo, codificado em Base64, ou {@code null} se o arquivo ainda não foi verificado.
+ * @param preHash O pré-hash (xxHash64) do conteúdo, ou {@code null} se não foi calculado.
+ * @param chunked Se o arquivo está armazenado em blocos.
+ */
+public record FileEntry(String key, String name, long size, String contentType, Instant uploadedAt,
+                        String sha256, Long preHash, boolean chunked) {
+
+    /**
+     * Monta a entrada de um arquivo, obtendo o nome original e o instante do envio
+     * da chave {@code <instante do envio em milissegundos>-<nome original>} gerada
+     * no upload.
+     *
+     * @param fallbackUploadedAt O instante do envio de chaves fora desse padrão, que usam a própria chave como nome.
+     */
+    public static FileEntry of(String key, long size, String contentType, String sha256, Long preHash,
+                               boolean chunked, Instant fallbackUploadedAt) {
+        int separator = key.indexOf('-');
+        if (separator > 0) {
+            try {
+                Instant uploadedAt = Instant.ofEpochMilli(Long.parseLong(key.substring(0, separator)));
+                return new FileEntry(key, key.substring(separator + 1), size, contentType, uploadedAt, sha256,
+                        preHash, chunked);
+            } catch (NumberFormatException e) {
+                // A chave não foi gerada pelo serviço
+            }
+        }
+        return new FileEntry(key, key, size, contentType, fallbackUploadedAt, sha256, preHash, chunked);
+    }
+}
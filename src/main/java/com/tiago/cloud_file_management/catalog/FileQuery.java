@@ -0,0 +1,58 @@
+package com.tiago.cloud_file_management.catalog;
+
+import java.time.Instant;
+
+/**
+ * Os filtros e a ordenação de uma busca no {@link MetadataCatalog}. Filtros
+ * {@code null} não restringem o resultado.
+ *
+ * @param name O prefixo do nome original, sem diferenciar maiúsculas.
+ * @param sha256 O hash SHA-256 do conteúdo, codificado em Base64.
+ * @param minSize O tamanho mínimo, inclusive.
+ * @param maxSize O tamanho máximo, inclusive.
+ * @param contentType O tipo MIME, sem diferenciar maiúsculas.
+ * @param uploadedAfter Seleciona os arquivos enviados depois deste instante.
+ * @param uploadedBefore Seleciona os arquivos enviados antes deste instante.
+ * @param sort O campo da ordenação; arquivos com o mesmo valor são ordenados pela chave.
+ * @param descending Se a ordenação é decrescente.
+ */
+public record FileQuery(String name, String sha256, Long minSize, Long maxSize, String contentType,
+                        Instant uploadedAfter, Instant uploadedBefore, Sort sort, boolean descending) {
+    public enum Sort {
+        NAME("name"), SIZE("size"), UPLOADED_AT("uploadedAt");
+
+        private final String parameter;
+
+        Sort(String parameter) {
+            this.parameter = parameter;
+        }
+
+        /**
+         * @param parameter O nome do campo usado na API: {@code name}, {@code size} ou {@code uploadedAt}.
+         * @throws IllegalArgumentException Se o campo não for reconhecido.
+         */
+        public static Sort fromParameter(String parameter) {
+            for (Sort sort : values()) {
+                if (sort.parameter.equalsIgnoreCase(parameter)) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("Ordenação inválida: " + parameter);
+        }
+    }
+
+    public FileQuery {
+        name = name == null || name.isEmpty() ? null : name;
+        sort = sort == null ? Sort.UPLOADED_AT : sort;
+    }
+
+    public boolean matches(FileEntry entry) {
+        return (name == null || entry.name().regionMatches(true, 0, name, 0, name.length()))
+                && (sha256 == null || sha256.equals(entry.sha256()))
+                && (minSize == null || entry.size() >= minSize)
+                && (maxSize == null || entry.size() <= maxSize)
+                && (contentType == null || contentType.equalsIgnoreCase(entry.contentType()))
+                && (uploadedAfter == null || entry.uploadedAt().isAfter(uploadedAfter))
+                && (uploadedBefore == null || entry.uploadedAt().isBefore(uploadedBefore));
+    }
+}
@@ -0,0 +1,600 @@
+package com.tiago.cloud_file_management.catalog;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Catálogo local dos metadados dos arquivos armazenados, que responde à
+ * listagem e às buscas sem consultar o armazenamento.
+ * <p>
+ * As entradas ficam em memória, indexadas pela chave, pelo nome original (sem
+ * diferenciar maiúsculas), pelo hash do conteúdo, pelo tamanho e pelo instante
+ * do envio. Cada alteração é acrescentada a um journal em {@code catalog.file},
+ * lido de volta na inicialização, e o journal é reescrito apenas com as
+ * entradas atuais quando as substituídas e removidas passam a ocupar a maior
+ * parte dele. Registros incompletos ou corrompidos no fim do journal, deixados
+ * por uma interrupção durante a escrita, são descartados.
+ * <p>
+ * O journal não é sincronizado com o disco a cada escrita: o catálogo pode ser
+ * reconstruído a partir da listagem do armazenamento, e a sincronização
+ * periódica ({@link #beginSync()} e {@link #finishSync(Set, long)}) também
+ * incorpora os arquivos enviados ou excluídos por outras instâncias. Até a
+ * primeira sincronização concluída nesta execução, {@link #isReady()} é
+ * {@code false} e as consultas devem ser feitas ao armazenamento: o journal
+ * lido na inicialização não reflete o que mudou enquanto a aplicação estava
+ * parada. Ele apenas poupa a sincronização de consultar de novo os arquivos que
+ * já conhece.
+ */
+@Component
+public class MetadataCatalog {
+    private static final Logger log = LoggerFactory.getLogger(MetadataCatalog.class);
+    private static final int MAGIC = 0x43415431;
+    private static final int HEADER_LENGTH = 4;
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+    private static final int COMPACTION_SLACK = 10_000;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte SYNCED = 3;
+    private static final String MAX_KEY = "\uffff";
+    private static final Comparator<FileEntry> BY_NAME = Comparator.comparing(FileEntry::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(FileEntry::key);
+    private static final Comparator<FileEntry> BY_SIZE = Comparator.comparingLong(FileEntry::size)
+            .thenComparing(FileEntry::key);
+    private static final Comparator<FileEntry> BY_TIME = Comparator.comparing(FileEntry::uploadedAt)
+            .thenComparing(FileEntry::key);
+
+    private final boolean enabled;
+    private final Path file;
+    private final TreeMap<String, FileEntry> byKey = new TreeMap<>();
+    private final TreeSet<FileEntry> byName = new TreeSet<>(BY_NAME);
+    private final TreeSet<FileEntry> bySize = new TreeSet<>(BY_SIZE);
+    private final TreeSet<FileEntry> byTime = new TreeSet<>(BY_TIME);
+    private final Map<String, Set<String>> byHash = new HashMap<>();
+    private final Map<String, Long> writeSequences = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean syncing = new AtomicBoolean();
+    private FileChannel journal;
+    private long journalRecords;
+    private long sequence;
+    private volatile boolean ready;
+
+    @Autowired
+    public MetadataCatalog(@Value("${catalog.enabled:true}") boolean enabled,
+                           @Value("${catalog.file:${java.io.tmpdir}/cloud-file-management-catalog/catalog.journal}") Path file) {
+        this.enabled = enabled;
+        this.file = file;
+        if (enabled) {
+            open();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Se o catálogo foi sincronizado com o armazenamento nesta execução e
+     *         pode responder às consultas.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Registra um arquivo, substituindo a entrada existente na mesma chave.
+     */
+    public void put(FileEntry entry) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            index(entry);
+            append(encodePut(entry));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registra um arquivo somente se a chave ainda não estiver no catálogo.
+     *
+     * @return Se o arquivo foi registrado.
+     */
+    public boolean putIfAbsent(FileEntry entry) {
+        if (!enabled) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (byKey.containsKey(entry.key())) {
+                return false;
+            }
+            index(entry);
+            append(encodePut(entry));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove um arquivo do catálogo. Não falha se ele não estiver registrado.
+     */
+    public void remove(String key) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (unindex(key) != null) {
+                append(encodeRemove(key));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return A entrada do arquivo, ou {@code null} se ele não estiver registrado.
+     */
+    public FileEntry get(String key) {
+        lock.readLock().lock();
+        try {
+            return byKey.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Lista as chaves com o prefixo informado, em ordem lexicográfica, como a
+     * listagem do armazenamento.
+     *
+     * @param prefix O prefixo das chaves, ou {@code null} para todas.
+     * @param startAfter A última chave da página anterior, ou {@code null} para a primeira.
+     * @param limit A quantidade máxima de chaves.
+     */
+    public List<String> keys(String prefix, String startAfter, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<String, FileEntry> view;
+            if (startAfter != null && (prefix == null || startAfter.compareTo(prefix) >= 0)) {
+                view = byKey.tailMap(startAfter, false);
+            } else {
+                view = prefix != null ? byKey.tailMap(prefix, true) : byKey;
+            }
+            List<String> keys = new ArrayList<>(Math.min(limit, 1024));
+            for (String key : view.keySet()) {
+                if (keys.size() >= limit || (prefix != null && !key.startsWith(prefix))) {
+                    break;
+                }
+                keys.add(key);
+            }
+            return keys;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca os arquivos que atendem aos filtros, na ordem solicitada.
+     * <p>
+     * Uma busca por hash consulta apenas os arquivos com aquele conteúdo. As
+     * demais percorrem o índice do campo da ordenação, limitado ao intervalo do
+     * filtro desse campo, até encontrar os arquivos da página; os outros filtros
+     * são aplicados a cada entrada percorrida.
+     *
+     * @param offset A quantidade de arquivos a pular.
+     * @param limit A quantidade máxima de arquivos retornados.
+     */
+    public List<FileEntry> search(FileQuery query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Iterator<FileEntry> candidates = candidates(query);
+            List<FileEntry> files = new ArrayList<>(Math.min(limit, 1024));
+            int skipped = 0;
+            while (candidates.hasNext() && files.size() < limit) {
+                FileEntry entry = candidates.next();
+                if (!query.matches(entry)) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    files.add(entry);
+                }
+            }
+            return files;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Iterator<FileEntry> candidates(FileQuery query) {
+        if (query.sha256() != null) {
+            Comparator<FileEntry> order = switch (query.sort()) {
+                case NAME -> BY_NAME;
+                case SIZE -> BY_SIZE;
+                case UPLOADED_AT -> BY_TIME;
+            };
+            return byHash.getOrDefault(query.sha256(), Set.of()).stream()
+                    .map(byKey::get)
+                    .sorted(query.descending() ? order.reversed() : order)
+                    .iterator();
+        }
+        if ((query.minSize() != null && query.maxSize() != null && query.minSize() > query.maxSize())
+                || (query.uploadedAfter() != null && query.uploadedBefore() != null
+                && !query.uploadedAfter().isBefore(query.uploadedBefore()))) {
+            return Collections.emptyIterator();
+        }
+        NavigableSet<FileEntry> index = switch (query.sort()) {
+            case NAME -> query.name() == null ? byName
+                    : byName.subSet(probe(query.name(), 0, Instant.EPOCH, ""), true,
+                    probe(query.name() + MAX_KEY, 0, Instant.EPOCH, ""), false);
+            case SIZE -> bySize.subSet(probe("", query.minSize() == null ? Long.MIN_VALUE : query.minSize(), Instant.EPOCH, ""), true,
+                    probe("", query.maxSize() == null ? Long.MAX_VALUE : query.maxSize(), Instant.EPOCH, MAX_KEY), true);
+            case UPLOADED_AT -> byTime.subSet(
+                    probe("", 0, query.uploadedAfter() == null ? Instant.MIN : query.uploadedAfter(), MAX_KEY), false,
+                    probe("", 0, query.uploadedBefore() == null ? Instant.MAX : query.uploadedBefore(), ""), false);
+        };
+        return query.descending() ? index.descendingIterator() : index.iterator();
+    }
+
+    private static FileEntry probe(String name, long size, Instant uploadedAt, String key) {
+        return new FileEntry(key, name, size, null, uploadedAt, null, null, false);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inicia uma sincronização com o armazenamento.
+     *
+     * @return A posição do catálogo no início da sincronização, a ser informada em
+     *         {@link #finishSync(Set, long)}, ou {@code -1} se o catálogo estiver
+     *         desabilitado ou outra sincronização estiver em andamento.
+     */
+    public long beginSync() {
+        if (!enabled || !syncing.compareAndSet(false, true)) {
+            return -1;
+        }
+        lock.readLock().lock();
+        try {
+            return sequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Conclui uma sincronização, removendo os arquivos que não constam da
+     * listagem do armazenamento. Os arquivos registrados depois do início da
+     * sincronização são mantidos, pois podem ter sido enviados depois que a
+     * listagem passou por eles. O catálogo passa a responder às consultas.
+     *
+     * @param listedKeys As chaves listadas no armazenamento.
+     * @param startSequence O valor retornado por {@link #beginSync()}.
+     * @return A quantidade de arquivos removidos.
+     */
+    public int finishSync(Set<String> listedKeys, long startSequence) {
+        lock.writeLock().lock();
+        try {
+            List<String> missing = byKey.keySet().stream()
+                    .filter(key -> !listedKeys.contains(key) && writeSequences.getOrDefault(key, 0L) <= startSequence)
+                    .toList();
+            for (String key : missing) {
+                unindex(key);
+                append(encodeRemove(key));
+            }
+            append(new byte[]{SYNCED});
+            ready = true;
+            if (journalRecords > 2L * byKey.size() + COMPACTION_SLACK) {
+                compact();
+            }
+            return missing.size();
+        } finally {
+            lock.writeLock().unlock();
+            syncing.set(false);
+        }
+    }
+
+    /**
+     * Encerra uma sincronização que falhou, sem alterar o catálogo.
+     */
+    public void abortSync() {
+        syncing.set(false);
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        } catch (IOException e) {
+            log.warn("Não foi possível fechar o journal do catálogo {}.", file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(FileEntry entry) {
+        FileEntry previous = byKey.put(entry.key(), entry);
+        if (previous != null) {
+            unindexFields(previous);
+        }
+        byName.add(entry);
+        bySize.add(entry);
+        byTime.add(entry);
+        if (entry.sha256() != null) {
+            byHash.computeIfAbsent(entry.sha256(), hash -> new HashSet<>(2)).add(entry.key());
+        }
+        writeSequences.put(entry.key(), ++sequence);
+    }
+
+    private FileEntry unindex(String key) {
+        FileEntry previous = byKey.remove(key);
+        if (previous != null) {
+            unindexFields(previous);
+            writeSequences.remove(key);
+        }
+        return previous;
+    }
+
+    private void unindexFields(FileEntry entry) {
+        byName.remove(entry);
+        bySize.remove(entry);
+        byTime.remove(entry);
+        if (entry.sha256() != null) {
+            Set<String> keys = byHash.get(entry.sha256());
+            if (keys != null && keys.remove(entry.key()) && keys.isEmpty()) {
+                byHash.remove(entry.sha256());
+            }
+        }
+    }
+
+    private void open() {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            journal = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (journal.size() >= HEADER_LENGTH && readHeader() == MAGIC) {
+                long valid = replay();
+                if (valid < journal.size()) {
+                    log.warn("Descartados {} bytes incompletos no fim do journal do catálogo {}.",
+                            journal.size() - valid, file);
+                    journal.truncate(valid);
+                }
+                log.info("Catálogo de metadados carregado com {} arquivos.", byKey.size());
+            } else {
+                journal.truncate(0);
+                journal.write(ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).flip(), 0);
+            }
+            journal.position(journal.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o catálogo de metadados: " + file, e);
+        }
+    }
+
+    private int readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        journal.read(header, 0);
+        return header.flip().getInt();
+    }
+
+    /**
+     * Aplica os registros do journal ao catálogo.
+     *
+     * @return A posição do fim do último registro válido.
+     */
+    private long replay() throws IOException {
+        journal.position(HEADER_LENGTH);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(journal), 1 << 16));
+        long position = HEADER_LENGTH;
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte[] payload;
+            int checksum;
+            try {
+                int length = input.readInt();
+                checksum = input.readInt();
+                if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                    return position;
+                }
+                payload = new byte[length];
+                input.readFully(payload);
+            } catch (EOFException e) {
+                return position;
+            }
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                return position;
+            }
+            apply(payload);
+            journalRecords++;
+            position += 8 + payload.length;
+        }
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = input.readByte();
+        if (type == SYNCED) {
+            // Uma sincronização de uma execução anterior não torna o catálogo pronto
+            return;
+        }
+        String key = input.readUTF();
+        if (type == REMOVE) {
+            unindex(key);
+            return;
+        }
+        String name = input.readUTF();
+        long size = input.readLong();
+        String contentType = input.readBoolean() ? input.readUTF() : null;
+        Instant uploadedAt = Instant.ofEpochMilli(input.readLong());
+        String sha256 = input.readBoolean() ? input.readUTF() : null;
+        Long preHash = input.readBoolean() ? input.readLong() : null;
+        boolean chunked = input.readBoolean();
+        index(new FileEntry(key, name, size, contentType, uploadedAt, sha256, preHash, chunked));
+    }
+
+    private static byte[] encodePut(FileEntry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(PUT);
+            output.writeUTF(entry.key());
+            output.writeUTF(entry.name());
+            output.writeLong(entry.size());
+            output.writeBoolean(entry.contentType() != null);
+            if (entry.contentType() != null) {
+                output.writeUTF(entry.contentType());
+            }
+            output.writeLong(entry.uploadedAt().toEpochMilli());
+            output.writeBoolean(entry.sha256() != null);
+            if (entry.sha256() != null) {
+                output.writeUTF(entry.sha256());
+            }
+            output.writeBoolean(entry.preHash() != null);
+            if (entry.preHash() != null) {
+                output.writeLong(entry.preHash());
+            }
+            output.writeBoolean(entry.chunked());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeRemove(String key) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(REMOVE);
+            output.writeUTF(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ByteBuffer frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+    }
+
+    /**
+     * Acrescenta um registro ao journal. Uma falha é apenas registrada no log: o
+     * catálogo em memória continua correto e a próxima sincronização o recupera
+     * após um reinício.
+     */
+    private void append(byte[] payload) {
+        if (journal == null) {
+            return;
+        }
+        ByteBuffer buffer = frame(payload);
+        try {
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            journalRecords++;
+        } catch (IOException e) {
+            log.warn("Não foi possível gravar no journal do catálogo {}.", file, e);
+        }
+    }
+
+    /**
+     * Reescreve o journal apenas com as entradas atuais, em um arquivo temporário
+     * que substitui o atual de forma atômica.
+     */
+    private void compact() {
+        if (journal == null) {
+            return;
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                output.write(ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).array());
+                for (FileEntry entry : byKey.values()) {
+                    output.write(frame(encodePut(entry)).array());
+                }
+                output.write(frame(new byte[]{SYNCED}).array());
+                output.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            journal.close();
+            journal = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            journal.position(journal.size());
+            journalRecords = byKey.size() + 1L;
+        } catch (IOException e) {
+            log.warn("Não foi possível compactar o journal do catálogo {}.", file, e);
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // O arquivo temporário é sobrescrito na próxima compactação
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.tiago.cloud_file_management.chunking;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A lista de blocos de um arquivo armazenado em blocos, na ordem do conteúdo.
+ * <p>
+ * O manifesto é gravado na própria chave do arquivo, então a listagem, os
+ * cabeçalhos condicionais e a exclusão continuam usando o nome do arquivo. O
+ * formato é texto: uma linha de versão, o tamanho total e uma linha por bloco
+ * com o SHA-256 em hexadecimal e o tamanho.
+ *
+ * @param size O tamanho do conteúdo original.
+ * @param chunks Os blocos do arquivo.
+ */
+public record ChunkManifest(long size, List<Chunk> chunks) {
+    /**
+     * Metadado que identifica um objeto como manifesto de blocos.
+     */
+    public static final String MANIFEST_METADATA = "chunk-manifest";
+    private static final String VERSION = "fastcdc 1";
+
+    public ChunkManifest {
+        chunks = List.copyOf(chunks);
+    }
+
+    /**
+     * @param userMetadata Os metadados de usuário de um objeto.
+     * @return Se o objeto é um manifesto de blocos.
+     */
+    public static boolean isManifest(Map<String, String> userMetadata) {
+        return userMetadata != null && userMetadata.containsKey(MANIFEST_METADATA);
+    }
+
+    /**
+     * @return Os hashes dos blocos sem repetição, na ordem em que aparecem.
+     */
+    public Set<String> distinctHashes() {
+        Set<String> hashes = new LinkedHashSet<>();
+        chunks.forEach(chunk -> hashes.add(chunk.hash()));
+        return hashes;
+    }
+
+    public byte[] toBytes() {
+        StringBuilder builder = new StringBuilder(VERSION).append('\n').append(size).append('\n');
+        for (Chunk chunk : chunks) {
+            builder.append(chunk.hash()).append(' ').append(chunk.length()).append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Lê um manifesto gravado por {@link #toBytes()}. O stream não é fechado.
+     *
+     * @throws IOException Se o conteúdo não for um manifesto válido.
+     */
+    public static ChunkManifest parse(InputStream inputStream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.US_ASCII));
+        if (!VERSION.equals(reader.readLine())) {
+            throw new IOException("Formato de manifesto desconhecido.");
+        }
+        try {
+            long size = Long.parseLong(reader.readLine());
+            List<Chunk> chunks = new ArrayList<>();
+            long total = 0;
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                int separator = line.indexOf(' ');
+                Chunk chunk = new Chunk(line.substring(0, separator), Integer.parseInt(line.substring(separator + 1)));
+                chunks.add(chunk);
+                total += chunk.length();
+            }
+            if (total != size) {
+                throw new IOException("Manifesto inconsistente: os blocos somam " + total + " bytes, e não " + size + ".");
+            }
+            return new ChunkManifest(size, chunks);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IOException("Manifesto inválido.", e);
+        }
+    }
+
+    /**
+     * @param hash O SHA-256 do bloco em hexadecimal, que também é sua chave em {@code chunks/}.
+     * @param length O tamanho do bloco.
+     */
+    public record Chunk(String hash, int length) {
+    }
+}
@@ -0,0 +1,543 @@
+package com.tiago.cloud_file_management.chunking;
+
+import com.tiago.cloud_file_management.ByteRange;
+import com.tiago.cloud_file_management.FileDownload;
+import com.tiago.cloud_file_management.compression.CompressionPolicy;
+import com.tiago.cloud_file_management.compression.ContentCodec;
+import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
+import com.tiago.cloud_file_management.exceptions.FileUploadException;
+import com.tiago.cloud_file_management.exceptions.RangeNotSatisfiableException;
+import com.tiago.cloud_file_management.exceptions.StorageException;
+import com.tiago.cloud_file_management.storage.ObjectAttributes;
+import com.tiago.cloud_file_management.storage.ReadOptions;
+import com.tiago.cloud_file_management.storage.StorageBackend;
+import com.tiago.cloud_file_management.storage.StoredObject;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Armazena arquivos divididos em blocos endereçados pelo conteúdo.
+ * <p>
+ * Cada bloco é gravado uma única vez em {@code chunks/<sha256>}, e cada arquivo
+ * que o usa grava uma referência vazia em {@code chunk-refs/<sha256>/<arquivo>}.
+ * A contagem de referências de um bloco é a quantidade de objetos nesse prefixo:
+ * ao excluir um arquivo, suas referências são removidas e somente os blocos que
+ * ficam sem nenhuma são apagados.
+ * <p>
+ * A gravação e a remoção das referências de um mesmo bloco são serializadas por
+ * um lock local, que só vale dentro desta instância. Entre instâncias, um upload
+ * pode gravar sua referência depois que outra instância listou o prefixo vazio e
+ * encontrar o bloco antes de ela apagá-lo. Para isso, o bloco é lido antes de
+ * ser apagado e gravado de volta se uma referência aparecer depois da remoção;
+ * e o upload confere, depois de gravar o manifesto, se os blocos que reaproveitou
+ * ainda existem, falhando em vez de publicar um arquivo incompleto.
+ * <p>
+ * Os blocos novos de um upload são enviados em paralelo, com no máximo
+ * {@code chunking.concurrency} blocos em memória por upload. No download, os
+ * próximos {@code chunking.prefetch} blocos são buscados enquanto o atual é
+ * enviado ao cliente, e um intervalo busca apenas os blocos que o cobrem.
+ */
+@Component
+public class ChunkStore {
+    private static final Logger log = LoggerFactory.getLogger(ChunkStore.class);
+    private static final String CHUNKS = "chunks/";
+    private static final String CHUNK_REFS = "chunk-refs/";
+    private static final int LOCK_STRIPES = 256;
+
+    private final StorageBackend storage;
+    private final CompressionPolicy compressionPolicy;
+    private final boolean enabled;
+    private final long minFileSize;
+    private final FastCdcChunker chunker;
+    private final int concurrency;
+    private final int prefetch;
+    private final ExecutorService executor;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    @Autowired
+    public ChunkStore(StorageBackend storage, CompressionPolicy compressionPolicy,
+                      @Value("${chunking.enabled:false}") boolean enabled,
+                      @Value("${chunking.min-file-size:8MB}") DataSize minFileSize,
+                      @Value("${chunking.min-size:256KB}") DataSize minSize,
+                      @Value("${chunking.avg-size:1MB}") DataSize avgSize,
+                      @Value("${chunking.max-size:4MB}") DataSize maxSize,
+                      @Value("${chunking.concurrency:4}") int concurrency,
+                      @Value("${chunking.prefetch:4}") int prefetch,
+                      @Value("${chunking.threads:16}") int threads) {
+        this.storage = storage;
+        this.compressionPolicy = compressionPolicy;
+        this.enabled = enabled;
+        this.minFileSize = minFileSize.toBytes();
+        this.chunker = new FastCdcChunker((int) minSize.toBytes(), (int) avgSize.toBytes(), (int) maxSize.toBytes());
+        this.concurrency = Math.max(1, concurrency);
+        this.prefetch = Math.max(1, prefetch);
+        this.executor = newBoundedExecutor(Math.max(1, threads));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @param contentLength O tamanho do arquivo, ou {@code -1} se desconhecido.
+     * @return Se o arquivo deve ser armazenado em blocos.
+     */
+    public boolean accepts(long contentLength) {
+        return enabled && (contentLength < 0 || contentLength >= minFileSize);
+    }
+
+    /**
+     * Divide o conteúdo em blocos, envia os que ainda não existem no armazenamento,
+     * registra as referências do arquivo e grava o manifesto na chave do arquivo.
+     * Se o envio falhar, as referências já gravadas são removidas.
+     *
+     * @param key A chave do arquivo.
+     * @param inputStream O conteúdo do arquivo. Não é fechado por este método.
+     * @param mimeType O tipo MIME do arquivo.
+     * @return O manifesto gravado.
+     * @throws IOException Se ocorrer um erro ao ler o conteúdo.
+     * @throws FileUploadException Se o envio não puder ser concluído.
+     */
+    public ChunkManifest store(String key, InputStream inputStream, String mimeType) throws IOException {
+        MessageDigest digest = sha256();
+        FastCdcChunker.Chunks chunks = chunker.split(inputStream);
+        List<ChunkManifest.Chunk> entries = new ArrayList<>();
+        Set<String> submitted = new HashSet<>();
+        Set<String> referenced = ConcurrentHashMap.newKeySet();
+        Set<String> reused = ConcurrentHashMap.newKeySet();
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<?>> pending = new ArrayList<>();
+        long size = 0;
+        try {
+            byte[] chunk;
+            while (failure.get() == null && (chunk = chunks.next()) != null) {
+                String hash = HexFormat.of().formatHex(digest.digest(chunk));
+                entries.add(new ChunkManifest.Chunk(hash, chunk.length));
+                size += chunk.length;
+                if (!submitted.add(hash)) {
+                    continue;
+                }
+                inFlight.acquire();
+                byte[] content = chunk;
+                pending.add(executor.submit(() -> {
+                    try {
+                        if (addReference(key, hash, content, mimeType, referenced)) {
+                            reused.add(hash);
+                        }
+                        return null;
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+
+            ChunkManifest manifest = new ChunkManifest(size, entries);
+            putManifest(key, manifest, mimeType);
+            if (!allExist(reused)) {
+                storage.delete(key);
+                throw new FileUploadException("Blocos do arquivo removidos durante o envio: " + key);
+            }
+            return manifest;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discard(key, pending, referenced);
+            throw new FileUploadException("Upload interrompido: " + key);
+        } catch (ExecutionException | StorageException e) {
+            discard(key, pending, referenced);
+            throw new FileUploadException("Erro ao enviar o arquivo em blocos: " + key);
+        } catch (IOException | RuntimeException e) {
+            discard(key, pending, referenced);
+            throw e;
+        }
+    }
+
+    /**
+     * @return Se o bloco já existia e foi reaproveitado.
+     */
+    private boolean addReference(String key, String hash, byte[] content, String mimeType, Set<String> referenced)
+            throws IOException {
+        ReentrantLock lock = lockFor(hash);
+        lock.lock();
+        try {
+            storage.put(referenceKey(hash, key), new ByteArrayInputStream(new byte[0]), 0, ObjectAttributes.EMPTY);
+            referenced.add(hash);
+            if (storage.exists(CHUNKS + hash)) {
+                return true;
+            }
+            putChunk(hash, content, mimeType);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean allExist(Set<String> hashes) {
+        List<CompletableFuture<Boolean>> checks = hashes.stream()
+                .map(hash -> CompletableFuture.supplyAsync(() -> storage.exists(CHUNKS + hash), executor))
+                .toList();
+        try {
+            return checks.stream().allMatch(CompletableFuture::join);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void putChunk(String hash, byte[] content, String mimeType) throws IOException {
+        byte[] stored = content;
+        String encoding = null;
+        ContentCodec codec = compressionPolicy.codecFor(mimeType, content.length);
+        if (codec != null) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2);
+            try (InputStream encoder = compressionPolicy.compress(new ByteArrayInputStream(content), codec)) {
+                encoder.transferTo(compressed);
+            }
+            if (compressed.size() < content.length) {
+                stored = compressed.toByteArray();
+                encoding = codec.encoding();
+            }
+        }
+        storage.put(CHUNKS + hash, new ByteArrayInputStream(stored), stored.length,
+                ObjectAttributes.of(null, encoding, Map.of()));
+    }
+
+    private void putManifest(String key, ChunkManifest manifest, String mimeType) throws IOException {
+        byte[] content = manifest.toBytes();
+        storage.put(key, new ByteArrayInputStream(content), content.length, ObjectAttributes.of(mimeType, null,
+                Map.of(ChunkManifest.MANIFEST_METADATA, String.valueOf(manifest.size()))));
+    }
+
+    /**
+     * Aguarda os envios em andamento de um upload que falhou e remove as
+     * referências que ele chegou a gravar.
+     */
+    private void discard(String key, List<Future<?>> pending, Set<String> referenced) {
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (ExecutionException | CancellationException e) {
+                // A falha já foi tratada pelo upload
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        release(key, referenced);
+    }
+
+    /**
+     * Remove as referências de um arquivo aos seus blocos e apaga os blocos que
+     * não são mais usados por nenhum arquivo. Falhas são registradas e não
+     * interrompem a remoção das demais referências.
+     *
+     * @param key A chave do arquivo.
+     * @param manifest O manifesto do arquivo.
+     */
+    public void release(String key, ChunkManifest manifest) {
+        release(key, manifest.distinctHashes());
+    }
+
+    private void release(String key, Set<String> hashes) {
+        CompletableFuture.allOf(hashes.stream()
+                .map(hash -> CompletableFuture.runAsync(() -> removeReference(key, hash), executor))
+                .toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void removeReference(String key, String hash) {
+        ReentrantLock lock = lockFor(hash);
+        lock.lock();
+        try {
+            storage.delete(referenceKey(hash, key));
+            if (!isReferenced(hash)) {
+                deleteChunk(hash);
+            }
+        } catch (StorageException | IOException e) {
+            log.warn("Não foi possível liberar o bloco {} do arquivo {}.", hash, key, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apaga um bloco sem referências. Como outra instância pode ter reaproveitado
+     * o bloco entre a listagem e a remoção, o conteúdo gravado é lido antes e
+     * volta ao armazenamento se uma referência aparecer.
+     */
+    private void deleteChunk(String hash) throws IOException {
+        byte[] stored;
+        String encoding;
+        try (StoredObject object = storage.get(CHUNKS + hash, ReadOptions.NONE)) {
+            encoding = object.attributes().contentEncoding();
+            stored = object.content().readAllBytes();
+        } catch (FileNotFoundException e) {
+            return;
+        }
+        storage.delete(CHUNKS + hash);
+        if (isReferenced(hash)) {
+            storage.put(CHUNKS + hash, new ByteArrayInputStream(stored), stored.length,
+                    ObjectAttributes.of(null, encoding, Map.of()));
+        }
+    }
+
+    private boolean isReferenced(String hash) {
+        return !storage.list(CHUNK_REFS + hash + "/", null, 1, null).keys().isEmpty();
+    }
+
+    /**
+     * Lê o manifesto de um objeto identificado por {@link ChunkManifest#isManifest}.
+     * O conteúdo do objeto é fechado ao final.
+     *
+     * @throws IOException Se o manifesto não puder ser lido.
+     */
+    public ChunkManifest readManifest(StoredObject object) throws IOException {
+        try (InputStream content = object.content()) {
+            return ChunkManifest.parse(content);
+        }
+    }
+
+    /**
+     * Monta o download de um arquivo armazenado em blocos, buscando apenas os
+     * blocos que cobrem o intervalo solicitado. A ETag do manifesto identifica o
+     * conteúdo, então é enviada como forte.
+     *
+     * @param fileName O nome do arquivo.
+     * @param manifestObject O objeto com o manifesto, lido e fechado por este método.
+     * @param range O valor do cabeçalho {@code Range} da requisição, ou {@code null}.
+     * @return O download com o conteúdo remontado.
+     * @throws IOException Se o manifesto não puder ser lido.
+     * @throws RangeNotSatisfiableException Se o intervalo solicitado estiver fora do arquivo.
+     */
+    public FileDownload download(String fileName, StoredObject manifestObject, String range) throws IOException {
+        ObjectAttributes attributes = manifestObject.attributes();
+        ChunkManifest manifest = readManifest(manifestObject);
+        long start = 0;
+        long count = manifest.size();
+        String contentRange = null;
+        ByteRange byteRange = ByteRange.parse(range);
+        if (byteRange != null) {
+            long[] resolved = byteRange.resolve(manifest.size());
+            if (resolved == null) {
+                throw new RangeNotSatisfiableException("Intervalo solicitado inválido para o arquivo: " + fileName);
+            }
+            start = resolved[0];
+            count = resolved[1] - resolved[0] + 1;
+            contentRange = "bytes " + resolved[0] + "-" + resolved[1] + "/" + manifest.size();
+        }
+
+        long offset = start;
+        long length = count;
+        return new FileDownload(
+                contentRange != null ? FileDownload.Status.PARTIAL_CONTENT : FileDownload.Status.OK,
+                attributes.contentType(), count, contentRange, attributes.eTag(), attributes.lastModified(), null,
+                outputStream -> {
+                    try (InputStream content = open(manifest, offset, length)) {
+                        content.transferTo(outputStream);
+                    }
+                });
+    }
+
+    /**
+     * Substitui o conteúdo de um objeto pelo conteúdo original do arquivo,
+     * descompactando-o ou remontando-o a partir dos blocos.
+     */
+    public StoredObject original(StoredObject object) {
+        ObjectAttributes attributes = object.attributes();
+        ContentCodec codec = ContentCodec.fromEncoding(attributes.contentEncoding());
+        boolean chunked = ChunkManifest.isManifest(attributes.userMetadata());
+        if (codec == null && !chunked) {
+            return object;
+        }
+        try {
+            if (chunked) {
+                ChunkManifest manifest = readManifest(object);
+                return object.withContent(open(manifest, 0, manifest.size()));
+            }
+            return object.withContent(codec.decoder(object.content()));
+        } catch (IOException e) {
+            object.abort();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Abre o conteúdo original de um arquivo armazenado em blocos.
+     *
+     * @param manifest O manifesto do arquivo.
+     * @param start O primeiro byte a ser lido.
+     * @param count A quantidade de bytes a ser lida.
+     */
+    public InputStream open(ChunkManifest manifest, long start, long count) {
+        return new ReassemblingInputStream(manifest, start, count);
+    }
+
+    private byte[] readChunk(ChunkManifest.Chunk chunk) {
+        try (StoredObject object = storage.get(CHUNKS + chunk.hash(), ReadOptions.NONE)) {
+            ContentCodec codec = ContentCodec.fromEncoding(object.attributes().contentEncoding());
+            InputStream content = codec == null ? object.content() : codec.decoder(object.content());
+            byte[] data = content.readAllBytes();
+            if (data.length != chunk.length()) {
+                throw new IOException("Bloco " + chunk.hash() + " com tamanho inesperado: " + data.length + " bytes.");
+            }
+            return data;
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(new IOException("Bloco ausente no armazenamento: " + chunk.hash()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String referenceKey(String hash, String key) {
+        return CHUNK_REFS + hash + "/" + key;
+    }
+
+    private ReentrantLock lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não está disponível.", e);
+        }
+    }
+
+    private static ExecutorService newBoundedExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(threads * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "chunk-store-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Entrega os bytes de um intervalo de um arquivo em blocos, buscando os
+     * próximos blocos enquanto o atual é lido.
+     */
+    private final class ReassemblingInputStream extends InputStream {
+        private final Iterator<ChunkManifest.Chunk> chunks;
+        private final Deque<CompletableFuture<byte[]>> window = new ArrayDeque<>();
+        private byte[] current;
+        private int position;
+        private long skip;
+        private long remaining;
+
+        ReassemblingInputStream(ChunkManifest manifest, long start, long count) {
+            this.remaining = count;
+            List<ChunkManifest.Chunk> selected = new ArrayList<>();
+            long offset = 0;
+            for (ChunkManifest.Chunk chunk : manifest.chunks()) {
+                long end = offset + chunk.length();
+                if (end > start && offset < start + count) {
+                    if (selected.isEmpty()) {
+                        skip = start - offset;
+                    }
+                    selected.add(chunk);
+                }
+                offset = end;
+            }
+            this.chunks = selected.iterator();
+            fill();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining == 0) {
+                return -1;
+            }
+            if (current == null || position == current.length) {
+                if (!advance()) {
+                    return -1;
+                }
+            }
+            int count = (int) Math.min(Math.min(len, current.length - position), remaining);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+            remaining -= count;
+            return count;
+        }
+
+        private boolean advance() throws IOException {
+            CompletableFuture<byte[]> next = window.poll();
+            if (next == null) {
+                return false;
+            }
+            fill();
+            try {
+                current = next.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException cause) {
+                    throw cause.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            position = (int) skip;
+            skip = 0;
+            return true;
+        }
+
+        private void fill() {
+            while (window.size() < prefetch && chunks.hasNext()) {
+                ChunkManifest.Chunk chunk = chunks.next();
+                window.add(CompletableFuture.supplyAsync(() -> readChunk(chunk), executor));
+            }
+        }
+
+        @Override
+        public void close() {
+            window.forEach(future -> future.cancel(false));
+            window.clear();
+            current = null;
+            remaining = 0;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.tiago.cloud_file_management.chunking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Divide um conteúdo em blocos definidos pelo próprio conteúdo, no estilo do
+ * FastCDC.
+ * <p>
+ * Um hash rolante (gear) é calculado byte a byte e um bloco termina quando os
+ * bits mais altos do hash são zero. Como o corte depende apenas dos bytes
+ * próximos, inserir ou remover algumas linhas no meio de um arquivo altera só os
+ * blocos ao redor da mudança, e os demais continuam idênticos aos da versão
+ * anterior. Antes do tamanho médio é usada uma máscara mais exigente, e depois
+ * dele uma mais permissiva, o que concentra os tamanhos perto da média
+ * (normalized chunking). Os primeiros {@code minSize} bytes de cada bloco não
+ * são avaliados.
+ * <p>
+ * A tabela gear é gerada a partir de uma semente fixa: mudar a tabela ou os
+ * tamanhos altera todos os cortes e impede o reaproveitamento dos blocos já
+ * armazenados.
+ */
+public class FastCdcChunker {
+    private static final long[] GEAR = gearTable();
+
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    private final long maskSmall;
+    private final long maskLarge;
+
+    public FastCdcChunker(int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize) {
+            throw new IllegalArgumentException("Os tamanhos dos blocos devem respeitar 0 < mínimo <= médio <= máximo.");
+        }
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+        int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+        this.maskSmall = topBits(bits + 1);
+        this.maskLarge = topBits(bits - 1);
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param data Os bytes a partir do início do bloco.
+     * @param length A quantidade de bytes disponíveis em {@code data}.
+     * @return O tamanho do bloco que começa em {@code data[0]}.
+     */
+    public int cutPoint(byte[] data, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        int limit = Math.min(length, maxSize);
+        int normal = Math.min(limit, avgSize);
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xFF];
+            if ((hash & maskSmall) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xFF];
+            if ((hash & maskLarge) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Percorre os blocos de um stream, mantendo em memória apenas um buffer do
+     * tamanho máximo de bloco.
+     */
+    public Chunks split(InputStream inputStream) {
+        return new Chunks(inputStream);
+    }
+
+    public final class Chunks {
+        private final InputStream inputStream;
+        private final byte[] buffer = new byte[maxSize];
+        private int buffered;
+        private boolean exhausted;
+
+        private Chunks(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        /**
+         * @return O próximo bloco, ou {@code null} ao fim do conteúdo.
+         * @throws IOException Se ocorrer um erro ao ler o conteúdo.
+         */
+        public byte[] next() throws IOException {
+            if (!exhausted && buffered < maxSize) {
+                int read = inputStream.readNBytes(buffer, buffered, maxSize - buffered);
+                buffered += read;
+                exhausted = buffered < maxSize;
+            }
+            if (buffered == 0) {
+                return null;
+            }
+            int length = cutPoint(buffer, buffered);
+            byte[] chunk = Arrays.copyOf(buffer, length);
+            System.arraycopy(buffer, length, buffer, 0, buffered - length);
+            buffered -= length;
+            return chunk;
+        }
+    }
+
+    private static long topBits(int bits) {
+        return bits <= 0 ? 0 : -1L << (Long.SIZE - Math.min(bits, Long.SIZE));
+    }
+
+    private static long[] gearTable() {
+        SplittableRandom random = new SplittableRandom(0x6A09E667F3BCC908L);
+        long[] table = new long[256];
+        Arrays.setAll(table, i -> random.nextLong());
+        return table;
+    }
+}
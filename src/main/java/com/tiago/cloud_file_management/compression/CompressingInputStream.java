@@ -0,0 +1,85 @@
+package com.tiago.cloud_file_management.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Stream que entrega compactado o conteúdo lido da origem, sem acumular o
+ * resultado em memória: a origem é lida em blocos à medida que os bytes
+ * compactados são consumidos.
+ */
+public class CompressingInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final Output output = new Output();
+    private final OutputStream encoder;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int position;
+    private boolean finished;
+
+    public CompressingInputStream(InputStream source, ContentCodec codec, int level) throws IOException {
+        this.source = source;
+        this.encoder = codec.encoder(output, level);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == output.size() && !finished) {
+            output.reset();
+            position = 0;
+            int read = source.read(chunk);
+            if (read == -1) {
+                encoder.close();
+                finished = true;
+            } else {
+                encoder.write(chunk, 0, read);
+            }
+        }
+        int available = output.size() - position;
+        if (available == 0) {
+            return -1;
+        }
+        int count = Math.min(len, available);
+        System.arraycopy(output.buffer(), position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return output.size() - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (source) {
+            if (!finished) {
+                finished = true;
+                encoder.close();
+            }
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        Output() {
+            super(CHUNK_SIZE);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
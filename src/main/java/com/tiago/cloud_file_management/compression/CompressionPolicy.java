@@ -0,0 +1,63 @@
+package com.tiago.cloud_file_management.compression;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Decide quais uploads são armazenados compactados.
+ * <p>
+ * Apenas os tipos de texto configurados são compactados, pois imagens, PDFs e
+ * documentos do Office já são comprimidos. Conteúdos de tamanho conhecido
+ * abaixo de {@code compression.min-size} são armazenados sem compressão, já que
+ * o ganho não compensa o processamento.
+ */
+@Component
+public class CompressionPolicy {
+    private final boolean enabled;
+    private final ContentCodec codec;
+    private final int level;
+    private final long minSize;
+    private final List<String> mimeTypes;
+
+    @Autowired
+    public CompressionPolicy(@Value("${compression.enabled:true}") boolean enabled,
+                             @Value("${compression.codec:gzip}") String codec,
+                             @Value("${compression.level:0}") int level,
+                             @Value("${compression.min-size:1KB}") DataSize minSize,
+                             @Value("${compression.mime-types:text/plain,text/csv,application/json,application/xml}")
+                             List<String> mimeTypes) {
+        this.enabled = enabled;
+        this.codec = ContentCodec.fromEncoding(codec);
+        if (this.codec == null) {
+            throw new IllegalArgumentException("Formato de compressão desconhecido: " + codec);
+        }
+        this.level = level > 0 ? level : this.codec.defaultLevel();
+        this.minSize = minSize.toBytes();
+        this.mimeTypes = List.copyOf(mimeTypes);
+    }
+
+    /**
+     * @param mimeType O tipo MIME do arquivo.
+     * @param contentLength O tamanho do arquivo, ou {@code -1} se desconhecido.
+     * @return O formato em que o arquivo deve ser armazenado, ou {@code null} para armazená-lo sem compressão.
+     */
+    public ContentCodec codecFor(String mimeType, long contentLength) {
+        if (!enabled || !mimeTypes.contains(mimeType) || (contentLength >= 0 && contentLength < minSize)) {
+            return null;
+        }
+        return codec;
+    }
+
+    /**
+     * Cria um stream com o conteúdo compactado no formato informado.
+     */
+    public InputStream compress(InputStream inputStream, ContentCodec codec) throws IOException {
+        return new CompressingInputStream(inputStream, codec, codec == this.codec ? level : codec.defaultLevel());
+    }
+}
@@ -0,0 +1,106 @@
+package com.tiago.cloud_file_management.compression;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Os formatos de compressão usados para armazenar objetos. O nome de cada um é
+ * o valor gravado no {@code Content-Encoding} do objeto e repassado ao cliente.
+ */
+public enum ContentCodec {
+    GZIP("gzip", 6) {
+        @Override
+        public OutputStream encoder(OutputStream outputStream, int level) throws IOException {
+            return new GZIPOutputStream(outputStream, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+
+        @Override
+        public InputStream decoder(InputStream inputStream) throws IOException {
+            return new GZIPInputStream(inputStream, BUFFER_SIZE);
+        }
+    },
+    ZSTD("zstd", 3) {
+        @Override
+        public OutputStream encoder(OutputStream outputStream, int level) throws IOException {
+            return new ZstdOutputStream(outputStream, level);
+        }
+
+        @Override
+        public InputStream decoder(InputStream inputStream) throws IOException {
+            return new ZstdInputStream(inputStream);
+        }
+    };
+
+    /**
+     * Metadado do objeto com o tamanho do conteúdo original, quando conhecido no envio.
+     */
+    public static final String DECODED_LENGTH_METADATA = "decoded-length";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String encoding;
+    private final int defaultLevel;
+
+    ContentCodec(String encoding, int defaultLevel) {
+        this.encoding = encoding;
+        this.defaultLevel = defaultLevel;
+    }
+
+    public String encoding() {
+        return encoding;
+    }
+
+    public int defaultLevel() {
+        return defaultLevel;
+    }
+
+    /**
+     * Cria um stream que compacta os bytes escritos nele e os repassa ao destino.
+     */
+    public abstract OutputStream encoder(OutputStream outputStream, int level) throws IOException;
+
+    /**
+     * Cria um stream que descompacta o conteúdo lido da origem.
+     */
+    public abstract InputStream decoder(InputStream inputStream) throws IOException;
+
+    /**
+     * @param encoding O valor do {@code Content-Encoding} de um objeto.
+     * @return O formato correspondente, ou {@code null} se o conteúdo não estiver compactado.
+     */
+    public static ContentCodec fromEncoding(String encoding) {
+        if (encoding == null) {
+            return null;
+        }
+        for (ContentCodec codec : values()) {
+            if (codec.encoding.equalsIgnoreCase(encoding.trim())) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param userMetadata Os metadados de usuário do objeto.
+     * @return O tamanho do conteúdo original, ou {@code -1} se não foi registrado.
+     */
+    public static long decodedLength(Map<String, String> userMetadata) {
+        String value = userMetadata == null ? null : userMetadata.get(DECODED_LENGTH_METADATA);
+        try {
+            return value == null ? -1 : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
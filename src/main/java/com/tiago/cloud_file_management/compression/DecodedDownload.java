@@ -0,0 +1,105 @@
+package com.tiago.cloud_file_management.compression;
+
+import com.tiago.cloud_file_management.ByteRange;
+import com.tiago.cloud_file_management.FileDownload;
+import com.tiago.cloud_file_management.exceptions.RangeNotSatisfiableException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+
+/**
+ * Monta o download de um objeto compactado para clientes que não aceitam o
+ * formato em que ele foi armazenado: o conteúdo é descompactado durante o envio.
+ * <p>
+ * O intervalo solicitado se refere ao conteúdo original, então o objeto precisa
+ * ser lido desde o início. A ETag é enviada como fraca, pois os bytes diferem
+ * dos armazenados, embora o conteúdo seja o mesmo.
+ */
+public final class DecodedDownload {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private DecodedDownload() {
+    }
+
+    /**
+     * Abre o conteúdo compactado somente quando a resposta começar a ser escrita.
+     */
+    @FunctionalInterface
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * @param codec O formato em que o objeto foi armazenado.
+     * @param encoded O conteúdo compactado do objeto, desde o início. É fechado ao fim do envio.
+     * @param decodedLength O tamanho do conteúdo original, ou {@code -1} se desconhecido.
+     * @param range O valor do cabeçalho {@code Range} da requisição, ou {@code null}.
+     *              É ignorado quando o tamanho original é desconhecido.
+     * @param fileName O nome do arquivo.
+     * @param contentType O tipo MIME do arquivo.
+     * @param eTag A ETag do objeto armazenado, sem aspas.
+     * @param lastModified A data da última modificação do objeto.
+     * @return O download com o conteúdo descompactado.
+     * @throws RangeNotSatisfiableException Se o intervalo solicitado estiver fora do arquivo.
+     */
+    public static FileDownload of(ContentCodec codec, InputStream encoded, long decodedLength, String range,
+                                  String fileName, String contentType, String eTag, Date lastModified) throws IOException {
+        try {
+            return of(codec, () -> encoded, decodedLength, range, fileName, contentType, eTag, lastModified);
+        } catch (RangeNotSatisfiableException e) {
+            encoded.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Monta o download a partir de um conteúdo que ainda não foi aberto, como um
+     * arquivo local, para que nenhum recurso fique aberto se a resposta não for escrita.
+     *
+     * @param encoded Abre o conteúdo compactado do objeto, desde o início. É fechado ao fim do envio.
+     * @see #of(ContentCodec, InputStream, long, String, String, String, String, Date)
+     */
+    public static FileDownload of(ContentCodec codec, Source encoded, long decodedLength, String range,
+                                  String fileName, String contentType, String eTag, Date lastModified) {
+        long start = 0;
+        long count = decodedLength;
+        String contentRange = null;
+        ByteRange byteRange = decodedLength >= 0 ? ByteRange.parse(range) : null;
+        if (byteRange != null) {
+            long[] resolved = byteRange.resolve(decodedLength);
+            if (resolved == null) {
+                throw new RangeNotSatisfiableException("Intervalo solicitado inválido para o arquivo: " + fileName);
+            }
+            start = resolved[0];
+            count = resolved[1] - resolved[0] + 1;
+            contentRange = "bytes " + resolved[0] + "-" + resolved[1] + "/" + decodedLength;
+        }
+
+        long skip = start;
+        long limit = count;
+        FileDownload.Body body = outputStream -> {
+            try (InputStream stream = encoded.open(); InputStream decoded = codec.decoder(stream)) {
+                decoded.skipNBytes(skip);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long remaining = limit < 0 ? Long.MAX_VALUE : limit;
+                int read;
+                while (remaining > 0 && (read = decoded.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                    outputStream.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+        };
+        return new FileDownload(
+                contentRange != null ? FileDownload.Status.PARTIAL_CONTENT : FileDownload.Status.OK,
+                contentType, count, contentRange, weakETag(eTag), lastModified, null, body);
+    }
+
+    /**
+     * @param eTag A ETag do objeto armazenado, sem aspas, ou {@code null}.
+     * @return A ETag fraca do conteúdo descompactado, ou {@code null}.
+     */
+    public static String weakETag(String eTag) {
+        return eTag != null ? "W/\"" + eTag + "\"" : null;
+    }
+}
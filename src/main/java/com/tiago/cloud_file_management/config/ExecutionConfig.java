@@ -0,0 +1,58 @@
+package com.tiago.cloud_file_management.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Define onde são executadas as operações de armazenamento que deixam a thread
+ * da requisição livre: downloads assíncronos e respostas transmitidas em stream.
+ * <p>
+ * No modo {@code virtual} cada operação roda em uma virtual thread, o que exige
+ * Java 21 ou superior em tempo de execução; em versões anteriores o modo
+ * {@code platform} é usado. As threads do Tomcat passam a ser virtuais com
+ * {@code spring.threads.virtual.enabled=true}.
+ */
+@Configuration
+public class ExecutionConfig implements WebMvcConfigurer {
+    private static final Logger log = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    @Value("${app.execution.mode:platform}")
+    private String mode;
+
+    @Value("${app.execution.max-threads:200}")
+    private int maxThreads;
+
+    @Bean
+    public AsyncTaskExecutor storageExecutor() {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            try {
+                VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("storage-");
+                executor.execute(() -> { });
+                return executor;
+            } catch (UnsupportedOperationException e) {
+                log.warn("Virtual threads exigem Java 21 ou superior; usando threads de plataforma.");
+            }
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxThreads);
+        executor.setMaxPoolSize(maxThreads);
+        executor.setQueueCapacity(maxThreads * 4);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("storage-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(storageExecutor());
+    }
+}
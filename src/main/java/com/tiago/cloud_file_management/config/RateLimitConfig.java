@@ -0,0 +1,35 @@
+package com.tiago.cloud_file_management.config;
+
+import com.tiago.cloud_file_management.ratelimit.BucketStore;
+import com.tiago.cloud_file_management.ratelimit.LocalBucketStore;
+import com.tiago.cloud_file_management.ratelimit.RateLimitProperties;
+import com.tiago.cloud_file_management.ratelimit.SharedBucketStore;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Escolhe onde ficam os contadores do limite de requisições.
+ * <p>
+ * Com {@code rate-limit.backend=shared} os contadores ficam no
+ * {@link ProxyManager} registrado na aplicação (por exemplo, o do módulo
+ * {@code bucket4j-redis}), e o limite passa a valer para todos os nós.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    @Bean
+    public BucketStore bucketStore(RateLimitProperties properties, ObjectProvider<ProxyManager<String>> proxyManager) {
+        if (properties.backend() == RateLimitProperties.Backend.SHARED) {
+            ProxyManager<String> shared = proxyManager.getIfAvailable();
+            if (shared == null) {
+                throw new IllegalStateException("rate-limit.backend=shared exige um bean ProxyManager<String> do bucket4j.");
+            }
+            return new SharedBucketStore(shared);
+        }
+        return new LocalBucketStore(properties.store().maxEntries(), properties.store().idleTimeout());
+    }
+}
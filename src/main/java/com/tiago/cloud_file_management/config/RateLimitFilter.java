@@ -1,43 +1,285 @@
 package com.tiago.cloud_file_management.config;
 
+import com.tiago.cloud_file_management.ratelimit.BucketStore;
+import com.tiago.cloud_file_management.ratelimit.ClientAddressResolver;
+import com.tiago.cloud_file_management.ratelimit.RateLimitProperties;
 import io.github.bucket4j.*;
-import jakarta.servlet.ServletException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
-
+import org.springframework.web.util.UrlPathHelper;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Limita as requisições de cada cliente de acordo com a política da rota.
+ * <p>
+ * O número de requisições é cobrado antes de a requisição seguir. Os bytes
+ * transferidos (corpo recebido e resposta enviada) são cobrados ao fim da
+ * requisição, inclusive das respostas assíncronas, e podem deixar o balde
+ * negativo: uma transferência grande é concluída, mas o cliente só volta a ser
+ * atendido naquela rota depois que o saldo se recompõe.
+ */
 @Component
 public class RateLimitFilter extends OncePerRequestFilter {
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
-    @Override
-    protected void doFilterInternal(HttpServletRequest request, jakarta.servlet.http.HttpServletResponse  response,
-                                    jakarta.servlet.FilterChain filterChain) throws IOException, ServletException {
+    private final boolean enabled;
+    private final List<Policy> policies;
+    private final BucketStore bucketStore;
+    private final ClientAddressResolver clientAddressResolver;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
 
-        String clientIp = request.getRemoteAddr();
+    public RateLimitFilter(RateLimitProperties properties, BucketStore bucketStore, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.policies = properties.policies().stream().map(Policy::of).toList();
+        this.bucketStore = bucketStore;
+        this.clientAddressResolver = new ClientAddressResolver(properties.trustedProxies());
+        this.meterRegistry = meterRegistry;
+    }
 
-        buckets.putIfAbsent(clientIp, createNewBucket());
-        Bucket bucket = buckets.get(clientIp);
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws IOException, ServletException {
+        Policy policy = enabled ? policyFor(urlPathHelper.getPathWithinApplication(request)) : null;
+        if (policy == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        if (bucket.tryConsume(1)) {
+        String client = clientAddressResolver.resolve(request);
+        Bucket requests = bucketStore.resolve(policy.name() + ":" + client + ":requests", policy.requests());
+        ConsumptionProbe probe = requests.tryConsumeAndReturnRemaining(1);
+        if (!probe.isConsumed()) {
+            reject(response, policy, "requests", probe.getNanosToWaitForRefill(),
+                    "Muitas requisicoes, tente novamente mais tarde.");
+            return;
+        }
+        if (policy.bytes() == null) {
             filterChain.doFilter(request, response);
-        } else {
-            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-            response.getWriter().write("Muitas requisicoes, tente novamente mais tarde. (Voce pode fazer apenas 8 requisicoes por minuto)");
-            response.getWriter().flush();
+            return;
+        }
+
+        Bucket bytes = bucketStore.resolve(policy.name() + ":" + client + ":bytes", policy.bytes());
+        if (bytes.getAvailableTokens() <= 0) {
+            reject(response, policy, "bytes", bytes.estimateAbilityToConsume(1).getNanosToWaitForRefill(),
+                    "Limite de transferencia atingido, tente novamente mais tarde.");
+            return;
+        }
+
+        CountingRequest countingRequest = new CountingRequest(request);
+        CountingResponse countingResponse = new CountingResponse(response);
+        try {
+            filterChain.doFilter(countingRequest, countingResponse);
+        } finally {
+            Runnable charge = () -> {
+                long transferred = countingRequest.bytesRead() + countingResponse.bytesWritten();
+                if (transferred > 0) {
+                    bytes.consumeIgnoringRateLimits(transferred);
+                }
+            };
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ChargeOnCompletion(charge));
+            } else {
+                charge.run();
+            }
         }
     }
 
-    private Bucket createNewBucket() {
-        return Bucket.builder()
-                .addLimit(Bandwidth.classic(8, Refill.greedy(8, Duration.ofMinutes(1))))
-                .build();
+    private Policy policyFor(String path) {
+        for (Policy policy : policies) {
+            for (String pattern : policy.paths()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return policy;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, Policy policy, String limit, long nanosToWait,
+                        String message) throws IOException {
+        meterRegistry.counter("ratelimit.rejections", "policy", policy.name(), "limit", limit).increment();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanosToWait) + 1)));
+        response.getWriter().write(message);
+        response.getWriter().flush();
+    }
+
+    private record Policy(String name, List<String> paths, BucketConfiguration requests, BucketConfiguration bytes) {
+
+        static Policy of(RateLimitProperties.Policy policy) {
+            BucketConfiguration bytes = policy.bytes() == null ? null : limit(policy.bytes().toBytes(), policy);
+            return new Policy(policy.name(), policy.paths(), limit(policy.requests(), policy), bytes);
+        }
+
+        private static BucketConfiguration limit(long capacity, RateLimitProperties.Policy policy) {
+            return BucketConfiguration.builder()
+                    .addLimit(Bandwidth.classic(capacity, Refill.greedy(capacity, policy.period())))
+                    .build();
+        }
+    }
+
+    private record ChargeOnCompletion(Runnable charge) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            charge.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    /**
+     * Conta os bytes do corpo da requisição. Quando o tamanho é declarado em
+     * {@code Content-Length} ele é usado, pois o corpo de uploads multipart é
+     * lido pelo contêiner sem passar por {@link #getInputStream()}.
+     */
+    private static final class CountingRequest extends HttpServletRequestWrapper {
+        private CountingInputStream inputStream;
+
+        CountingRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new CountingInputStream(super.getInputStream());
+            }
+            return inputStream;
+        }
+
+        long bytesRead() {
+            long contentLength = getContentLengthLong();
+            if (contentLength >= 0) {
+                return contentLength;
+            }
+            return inputStream == null ? 0 : inputStream.count;
+        }
     }
-}
 
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+        private CountingOutputStream outputStream;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        long bytesWritten() {
+            return outputStream == null ? 0 : outputStream.count;
+        }
+    }
+
+    private static final class CountingInputStream extends ServletInputStream {
+        private final ServletInputStream delegate;
+        private volatile long count;
+
+        CountingInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = delegate.read();
+            if (read >= 0) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = delegate.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+
+    private static final class CountingOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private volatile long count;
+
+        CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
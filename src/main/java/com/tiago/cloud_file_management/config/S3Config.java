@@ -1,14 +1,36 @@
 package com.tiago.cloud_file_management.config;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.tiago.cloud_file_management.metrics.S3AsyncRequestMetrics;
+import com.tiago.cloud_file_management.metrics.S3RequestMetrics;
+import com.tiago.cloud_file_management.metrics.StorageMetrics;
+import com.tiago.cloud_file_management.resilience.ResilienceProperties;
+import com.tiago.cloud_file_management.resilience.StorageGuard;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 
+import java.time.Duration;
+
+/**
+ * Clientes do S3, criados apenas quando ele é o armazenamento configurado
+ * ({@code storage.backend=s3}, o padrão).
+ */
 @Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+@EnableConfigurationProperties(ResilienceProperties.class)
 public class S3Config {
     @Value("${cloud.aws.credentials.access-key}")
     private String accessKey;
@@ -19,13 +41,82 @@ public class S3Config {
     @Value("${cloud.aws.region.static}")
     private String region;
 
+    // Pool de conexões e timeouts do cliente S3
+    @Value("${aws.s3.client.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${aws.s3.client.connection-timeout:PT10S}")
+    private Duration connectionTimeout;
+
+    @Value("${aws.s3.client.socket-timeout:PT50S}")
+    private Duration socketTimeout;
+
+    @Value("${aws.s3.client.request-timeout:PT0S}")
+    private Duration requestTimeout;
+
+    @Value("${aws.s3.client.connection-max-idle:PT60S}")
+    private Duration connectionMaxIdle;
+
+    @Value("${aws.s3.client.max-error-retry:3}")
+    private int maxErrorRetry;
+
     @Bean
-    public AmazonS3 amazonS3() {
+    public AmazonS3 amazonS3(MeterRegistry meterRegistry) {
         BasicAWSCredentials awsCredentials = new BasicAWSCredentials(accessKey, secretKey);
+        ClientConfiguration clientConfiguration = new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withConnectionTimeout((int) connectionTimeout.toMillis())
+                .withSocketTimeout((int) socketTimeout.toMillis())
+                .withRequestTimeout((int) requestTimeout.toMillis())
+                .withConnectionMaxIdleMillis(connectionMaxIdle.toMillis())
+                .withMaxErrorRetry(maxErrorRetry)
+                .withTcpKeepAlive(true);
         return AmazonS3ClientBuilder
                 .standard()
                 .withRegion(region)
                 .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
+                .withClientConfiguration(clientConfiguration)
+                .withRequestHandlers(new S3RequestMetrics(meterRegistry))
+                .build();
+    }
+
+    /**
+     * Proteção das chamadas ao S3 contra a latência de cauda e contra falhas
+     * ({@code storage.resilience.*}).
+     */
+    @Bean(destroyMethod = "close")
+    public StorageGuard storageGuard(ResilienceProperties properties, StorageMetrics storageMetrics) {
+        return new StorageGuard(properties, storageMetrics);
+    }
+
+    /**
+     * Cliente assíncrono (SDK v2 sobre Netty) usado nos downloads quando
+     * {@code aws.s3.client.mode=async}. As transferências não ocupam uma thread
+     * enquanto aguardam o S3, então a vazão acompanha o número de conexões.
+     * <p>
+     * Esses downloads não passam pelo {@link StorageGuard} nem pelo cache local,
+     * que dependem de chamadas bloqueantes; por isso o modo assíncrono exige
+     * {@code storage.resilience.enabled=false} e {@code cache.enabled=false}.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "aws.s3.client.mode", havingValue = "async")
+    public S3AsyncClient s3AsyncClient(ResilienceProperties resilience, MeterRegistry meterRegistry,
+                                       @Value("${cache.enabled:true}") boolean cacheEnabled) {
+        if (resilience.enabled() || cacheEnabled) {
+            throw new IllegalStateException("aws.s3.client.mode=async exige storage.resilience.enabled=false"
+                    + " e cache.enabled=false: os downloads assíncronos não passam pela proteção nem pelo cache.");
+        }
+        return S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConnections)
+                        .connectionTimeout(connectionTimeout)
+                        .readTimeout(socketTimeout)
+                        .connectionMaxIdleTime(connectionMaxIdle)
+                        .tcpKeepAlive(true))
+                .overrideConfiguration(configuration -> configuration
+                        .addExecutionInterceptor(new S3AsyncRequestMetrics(meterRegistry)))
                 .build();
     }
 }
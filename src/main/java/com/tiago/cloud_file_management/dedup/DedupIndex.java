@@ -0,0 +1,230 @@
+package com.tiago.cloud_file_management.dedup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice local dos hashes de conteúdo já armazenados, usado para evitar a
+ * consulta ao marcador em {@code hashes/} quando um conteúdo é novo.
+ * <p>
+ * Um filtro de Bloom responde rapidamente pela maioria dos conteúdos novos, e um
+ * conjunto primitivo com os primeiros 64 bits de cada hash elimina os falsos
+ * positivos do filtro. Uma resposta positiva nunca é definitiva: ela apenas indica
+ * que o marcador deve ser consultado no bucket. Enquanto o índice não estiver
+ * carregado, ou se atingir sua capacidade, todas as consultas indicam que o
+ * marcador deve ser verificado.
+ * <p>
+ * O índice é de cada instância: ele conhece os marcadores listados na carga
+ * inicial e os conteúdos enviados ou descobertos pela própria instância. Um
+ * conteúdo enviado por outra instância depois da carga é tratado como novo, e o
+ * envio só descobre a duplicidade ao gravar o marcador, que é uma escrita
+ * condicional: o objeto enviado é removido, o envio é recusado como duplicado e
+ * o hash passa a constar no índice. Por isso uma resposta negativa dispensa
+ * apenas a consulta anterior ao envio, nunca a gravação condicional do marcador.
+ * <p>
+ * O índice também guarda os pré-hashes (xxHash64) dos conteúdos enviados desde
+ * o início da aplicação, que não podem ser obtidos da listagem do bucket. Um
+ * pré-hash conhecido indica que vale confirmar a duplicidade pelo SHA-256 antes
+ * do envio; um pré-hash desconhecido não garante que o conteúdo é novo.
+ * <p>
+ * O filtro de Bloom e os dois conjuntos são dimensionados pela mesma capacidade
+ * ({@code dedup.index.capacity}). O filtro é alocado inteiro na criação, com
+ * cerca de 1,2 byte por entrada para 1% de falsos positivos; os conjuntos crescem
+ * sob demanda até a capacidade, com no máximo 16 bytes por entrada cada. Com a
+ * capacidade padrão de 2 milhões de entradas o índice ocupa no máximo cerca de
+ * 70 MB.
+ */
+@Component
+public class DedupIndex {
+    private static final int INITIAL_SET_CAPACITY = 1 << 16;
+
+    private final boolean enabled;
+    private final BloomFilter bloomFilter;
+    private final LongHashSet fingerprints;
+    private final LongHashSet preHashes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+    private volatile boolean saturated;
+
+    @Autowired
+    public DedupIndex(@Value("${dedup.index.enabled:true}") boolean enabled,
+                      @Value("${dedup.index.capacity:2000000}") long capacity,
+                      @Value("${dedup.index.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.enabled = enabled;
+        long entries = enabled ? Math.max(1, capacity) : 0;
+        this.bloomFilter = new BloomFilter(Math.max(1, entries), falsePositiveRate);
+        this.fingerprints = new LongHashSet((int) Math.min(entries, INITIAL_SET_CAPACITY), entries);
+        this.preHashes = new LongHashSet((int) Math.min(entries, INITIAL_SET_CAPACITY), entries);
+    }
+
+    /**
+     * Indica se o conteúdo com o hash informado pode já existir no bucket.
+     *
+     * @param fileHash O hash SHA-256 do conteúdo, codificado em Base64.
+     * @return {@code false} somente quando o conteúdo certamente é novo.
+     */
+    public boolean mightContain(String fileHash) {
+        if (!enabled || !ready || saturated) {
+            return true;
+        }
+        ByteBuffer hash = decode(fileHash);
+        if (hash == null) {
+            return true;
+        }
+        lock.readLock().lock();
+        try {
+            return bloomFilter.mightContain(hash.getLong(8), hash.getLong(16))
+                    && fingerprints.contains(fingerprint(hash));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registra um hash armazenado no bucket.
+     *
+     * @param fileHash O hash SHA-256 do conteúdo, codificado em Base64.
+     */
+    public void add(String fileHash) {
+        if (!enabled) {
+            return;
+        }
+        ByteBuffer hash = decode(fileHash);
+        if (hash == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            bloomFilter.put(hash.getLong(8), hash.getLong(16));
+            if (!fingerprints.add(fingerprint(hash))) {
+                saturated = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove um hash do índice. O filtro de Bloom não suporta remoção, mas o
+     * conjunto de hashes passa a responder pelo conteúdo como novo.
+     *
+     * @param fileHash O hash SHA-256 do conteúdo, codificado em Base64.
+     */
+    public void remove(String fileHash) {
+        if (!enabled) {
+            return;
+        }
+        ByteBuffer hash = decode(fileHash);
+        if (hash == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            fingerprints.remove(fingerprint(hash));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indica se algum conteúdo conhecido pelo índice tem o pré-hash informado.
+     *
+     * @param preHash O xxHash64 do conteúdo.
+     * @return {@code true} se o SHA-256 do conteúdo deve ser conferido antes do envio.
+     */
+    public boolean containsPreHash(long preHash) {
+        if (!enabled) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return preHashes.contains(nonZero(preHash));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registra o pré-hash de um conteúdo armazenado no bucket. Acima da
+     * capacidade, novos pré-hashes são descartados.
+     *
+     * @param preHash O xxHash64 do conteúdo.
+     */
+    public void addPreHash(long preHash) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            preHashes.add(nonZero(preHash));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove o pré-hash de um conteúdo excluído. Se outro conteúdo tiver o mesmo
+     * pré-hash, ele apenas deixa de ser conferido antes do envio.
+     *
+     * @param preHash O xxHash64 do conteúdo.
+     */
+    public void removePreHash(long preHash) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            preHashes.remove(nonZero(preHash));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marca o índice como carregado, passando a dispensar a consulta ao bucket
+     * para conteúdos que ele não conhece.
+     */
+    public void markReady() {
+        ready = enabled;
+    }
+
+    public boolean isReady() {
+        return ready && !saturated;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return fingerprints.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long sizeInBytes() {
+        return bloomFilter.sizeInBytes() + fingerprints.sizeInBytes() + preHashes.sizeInBytes();
+    }
+
+    private static long fingerprint(ByteBuffer hash) {
+        return nonZero(hash.getLong(0));
+    }
+
+    private static long nonZero(long value) {
+        return value == 0 ? 1 : value;
+    }
+
+    private static ByteBuffer decode(String fileHash) {
+        try {
+            byte[] bytes = Base64.getDecoder().decode(fileHash);
+            return bytes.length >= 24 ? ByteBuffer.wrap(bytes) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
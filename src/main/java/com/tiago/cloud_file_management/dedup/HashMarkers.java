@@ -0,0 +1,21 @@
+package com.tiago.cloud_file_management.dedup;
+
+/**
+ * As chaves e os metadados dos marcadores que registram o conteúdo dos arquivos.
+ * <p>
+ * O marcador {@code hashes/<sha256>} aponta, em {@link #KEY_METADATA}, para o
+ * arquivo que guarda o conteúdo, e a referência {@code refs/<arquivo>} guarda o
+ * hash do arquivo, o pré-hash e a indicação de que ele foi armazenado em blocos,
+ * para que a exclusão e a sincronização do catálogo não precisem ler o conteúdo.
+ */
+public final class HashMarkers {
+    public static final String HASHES = "hashes/";
+    public static final String REFS = "refs/";
+    public static final String HASH_METADATA = "sha256";
+    public static final String KEY_METADATA = "file-key";
+    public static final String PRE_HASH_METADATA = "xxh64";
+    public static final String CHUNKED_METADATA = "chunked";
+
+    private HashMarkers() {
+    }
+}
@@ -0,0 +1,106 @@
+package com.tiago.cloud_file_management.dedup;
+
+/**
+ * Conjunto de {@code long} com endereçamento aberto e sondagem linear, sem
+ * objetos por entrada. O valor {@code 0} é reservado para marcar posições vazias.
+ * <p>
+ * A tabela cresce até comportar {@code maxEntries}; a partir daí novas inserções
+ * são recusadas para manter o uso de memória limitado. Não é thread-safe.
+ */
+class LongHashSet {
+    private static final double MAX_LOAD = 0.7;
+
+    private final long maxEntries;
+    private long[] table;
+    private int mask;
+    private int size;
+
+    LongHashSet(int initialCapacity, long maxEntries) {
+        this.maxEntries = maxEntries;
+        int capacity = Integer.highestOneBit(Math.max(16, (int) Math.min(1 << 30, initialCapacity / MAX_LOAD)) - 1) << 1;
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return {@code false} se o conjunto atingiu a capacidade máxima e o valor não foi inserido.
+     */
+    boolean add(long value) {
+        int slot = find(value);
+        if (table[slot] == value) {
+            return true;
+        }
+        if (size >= maxEntries) {
+            return false;
+        }
+        if (size + 1 > table.length * MAX_LOAD) {
+            if (!grow()) {
+                return false;
+            }
+            slot = find(value);
+        }
+        table[slot] = value;
+        size++;
+        return true;
+    }
+
+    boolean contains(long value) {
+        return table[find(value)] == value;
+    }
+
+    void remove(long value) {
+        int slot = find(value);
+        if (table[slot] != value) {
+            return;
+        }
+        table[slot] = 0;
+        size--;
+
+        // Desloca para trás as entradas seguintes do mesmo agrupamento, mantendo a sondagem linear sem lápides.
+        int next = (slot + 1) & mask;
+        while (table[next] != 0) {
+            int home = home(table[next]);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                table[slot] = table[next];
+                table[next] = 0;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long sizeInBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private int find(long value) {
+        int slot = home(value);
+        while (table[slot] != 0 && table[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(long value) {
+        return (int) (value ^ (value >>> 32)) & mask;
+    }
+
+    private boolean grow() {
+        if (table.length >= 1 << 30) {
+            return false;
+        }
+        long[] old = table;
+        table = new long[old.length << 1];
+        mask = table.length - 1;
+        for (long value : old) {
+            if (value != 0) {
+                table[find(value)] = value;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,349 @@
+package com.tiago.cloud_file_management.download;
+
+import com.tiago.cloud_file_management.AsyncDownloadClient;
+import com.tiago.cloud_file_management.ByteRange;
+import com.tiago.cloud_file_management.DownloadOptions;
+import com.tiago.cloud_file_management.FileDownload;
+import com.tiago.cloud_file_management.PresignedTransfer;
+import com.tiago.cloud_file_management.archive.ZipArchiveWriter;
+import com.tiago.cloud_file_management.cache.DownloadCache;
+import com.tiago.cloud_file_management.catalog.FileEntry;
+import com.tiago.cloud_file_management.catalog.MetadataCatalog;
+import com.tiago.cloud_file_management.chunking.ChunkManifest;
+import com.tiago.cloud_file_management.chunking.ChunkStore;
+import com.tiago.cloud_file_management.compression.CompressionPolicy;
+import com.tiago.cloud_file_management.compression.ContentCodec;
+import com.tiago.cloud_file_management.compression.DecodedDownload;
+import com.tiago.cloud_file_management.exceptions.DirectTransferUnavailableException;
+import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
+import com.tiago.cloud_file_management.exceptions.RangeNotSatisfiableException;
+import com.tiago.cloud_file_management.exceptions.StorageException;
+import com.tiago.cloud_file_management.metrics.StorageMetrics;
+import com.tiago.cloud_file_management.storage.ObjectAttributes;
+import com.tiago.cloud_file_management.storage.ReadOptions;
+import com.tiago.cloud_file_management.storage.StorageBackend;
+import com.tiago.cloud_file_management.storage.StoredObject;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Orquestra os downloads de arquivos: o download de um arquivo pelo cache
+ * local, pelo cliente assíncrono ou pelo armazenamento, com intervalos e
+ * requisições condicionais; o download direto por URL assinada; e o arquivo ZIP
+ * de um download em lote.
+ */
+@Component
+public class FileDownloader {
+    private static final Logger log = LoggerFactory.getLogger(FileDownloader.class);
+    private final StorageBackend storage;
+    private final MetadataCatalog catalog;
+    private final CompressionPolicy compressionPolicy;
+    private final ChunkStore chunkStore;
+    private final DownloadCache downloadCache;
+    private final Optional<AsyncDownloadClient> asyncDownloadClient;
+    private final Executor storageExecutor;
+    private final ZipArchiveWriter zipArchiveWriter;
+    private final StorageMetrics metrics;
+
+    @Value("${direct-transfer.enabled:false}")
+    private boolean directTransferEnabled;
+
+    @Value("${direct-transfer.url-expiration:PT15M}")
+    private Duration directTransferExpiration = Duration.ofMinutes(15);
+
+    @Autowired
+    public FileDownloader(StorageBackend storage, MetadataCatalog catalog, CompressionPolicy compressionPolicy,
+                          ChunkStore chunkStore, DownloadCache downloadCache, Optional<AsyncDownloadClient> asyncDownloadClient,
+                          @Qualifier("storageExecutor") Executor storageExecutor, ZipArchiveWriter zipArchiveWriter,
+                          StorageMetrics metrics) {
+        this.storage = storage;
+        this.catalog = catalog;
+        this.compressionPolicy = compressionPolicy;
+        this.chunkStore = chunkStore;
+        this.downloadCache = downloadCache;
+        this.asyncDownloadClient = asyncDownloadClient;
+        this.storageExecutor = storageExecutor;
+        this.zipArchiveWriter = zipArchiveWriter;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gera uma URL assinada para que o cliente baixe um arquivo diretamente do
+     * armazenamento. Objetos compactados são entregues como estão, com
+     * {@code Content-Encoding}. Arquivos armazenados em blocos precisam ser
+     * remontados pela aplicação e não podem ser baixados dessa forma.
+     *
+     * @param fileName O nome do arquivo.
+     * @return A URL de download.
+     * @throws FileNotFoundException Se o arquivo não existir.
+     * @throws IllegalArgumentException Se o arquivo estiver armazenado em blocos.
+     * @throws DirectTransferUnavailableException Se a transferência direta não estiver disponível.
+     */
+    public PresignedTransfer createDirectDownload(String fileName) {
+        requireDirectTransfer();
+        ObjectAttributes attributes = storage.head(fileName);
+        if (attributes == null) {
+            throw new FileNotFoundException("Arquivo não encontrado no bucket: " + fileName);
+        }
+        if (ChunkManifest.isManifest(attributes.userMetadata())) {
+            throw new IllegalArgumentException("Arquivos armazenados em blocos não podem ser baixados diretamente.");
+        }
+
+        Instant expiresAt = Instant.now().plus(directTransferExpiration);
+        return PresignedTransfer.of(fileName, "GET", storage.presignedGet(fileName, expiresAt), Map.of(), expiresAt);
+    }
+
+    private void requireDirectTransfer() {
+        if (!directTransferEnabled) {
+            throw new DirectTransferUnavailableException("A transferência direta não está habilitada.");
+        }
+    }
+
+    /**
+     * Baixa um arquivo do armazenamento sem bloquear a thread da requisição.
+     * <p>
+     * Com o cliente assíncrono habilitado ({@code aws.s3.client.mode=async}, que
+     * exige o cache local e a proteção do armazenamento desligados), o download é
+     * feito diretamente por ele; caso contrário, ou quando o arquivo está
+     * armazenado em blocos,
+     * {@link #downloadFile(String, DownloadOptions)} é executado no executor de
+     * armazenamento.
+     *
+     * @param fileName O nome do arquivo a ser baixado.
+     * @param options Os cabeçalhos de intervalo e condicionais da requisição.
+     * @return O download, concluído quando o conteúdo estiver pronto para ser enviado.
+     */
+    public CompletableFuture<FileDownload> downloadFileAsync(String fileName, DownloadOptions options) {
+        Timer.Sample sample = metrics.start();
+        return asyncDownloadClient
+                .map(client -> client.download(fileName, options)
+                        .thenCompose(download -> download != null
+                                ? CompletableFuture.completedFuture(download)
+                                : CompletableFuture.supplyAsync(() -> downloadFile(fileName, options), storageExecutor)))
+                .orElseGet(() -> CompletableFuture.supplyAsync(() -> downloadFile(fileName, options), storageExecutor))
+                .whenComplete((download, error) -> metrics.stop(sample, "download",
+                        error instanceof CompletionException ? error.getCause() : error))
+                .thenApply(download -> download.body() == null ? download
+                        : download.withBody(outputStream -> download.body().writeTo(metrics.countBytesOut(outputStream))));
+    }
+
+    /**
+     * Baixa um arquivo do armazenamento.
+     * <p>
+     * Os cabeçalhos {@code Range}, {@code If-None-Match} e {@code If-Modified-Since}
+     * são repassados ao armazenamento, que retorna apenas o intervalo solicitado ou nenhum
+     * conteúdo quando o arquivo não foi modificado. A existência do arquivo é
+     * verificada pela própria requisição, sem um HEAD prévio, exceto nos intervalos
+     * a partir do fim ({@code bytes=-N}), em que um único HEAD fornece o tamanho, os
+     * validadores e o formato do objeto. Arquivos em cache são servidos localmente,
+     * sem acesso ao armazenamento até a próxima revalidação.
+     * <p>
+     * Objetos armazenados compactados são repassados como estão, com
+     * {@code Content-Encoding}, quando o {@code Accept-Encoding} do cliente aceita
+     * o formato; caso contrário, são descompactados durante o envio. Arquivos
+     * armazenados em blocos são remontados a partir do manifesto, buscando apenas
+     * os blocos que cobrem o intervalo solicitado.
+     *
+     * @param fileName O nome do arquivo a ser baixado.
+     * @param options Os cabeçalhos de intervalo e condicionais da requisição.
+     * @return O conteúdo do arquivo e seus metadados.
+     * @throws FileNotFoundException Se o arquivo não for encontrado no bucket.
+     * @throws RangeNotSatisfiableException Se o intervalo solicitado estiver fora do arquivo.
+     * @throws StorageException Se ocorrer um erro ao tentar baixar o arquivo.
+     */
+    public FileDownload downloadFile(String fileName, DownloadOptions options) {
+        if (downloadCache.isEnabled()) {
+            DownloadCache.Lookup lookup = downloadCache.get(fileName,
+                    eTag -> storage.get(fileName, revalidationOptions(eTag)));
+            if (lookup.entry() != null) {
+                try {
+                    return lookup.entry().toDownload(fileName, options);
+                } catch (IOException e) {
+                    log.debug("Entrada de cache indisponível para {}, buscando no S3.", fileName, e);
+                }
+            } else if (lookup.passthrough() != null) {
+                if (options.isUnconditional()) {
+                    return toFileDownload(lookup.passthrough(), fileName, options, false);
+                }
+                lookup.passthrough().abort();
+            }
+        }
+
+        ReadOptions readOptions = conditionalOptions(options);
+        ByteRange range = ByteRange.parse(options.range());
+        if (range == null || (!range.isSuffix() && isCatalogedAsRangeOnOriginal(fileName, options))) {
+            StoredObject whole = storage.get(fileName, readOptions);
+            if (range == null || whole == null || isRangeOnOriginal(whole.attributes(), options)) {
+                return whole != null ? toFileDownload(whole, fileName, options, false) : notModified(fileName, options);
+            }
+            // Armazenado sem compressão, como nos envios diretos: o intervalo vale para os bytes armazenados
+            whole.abort();
+        }
+
+        StoredObject object;
+        boolean ranged = false;
+        if (range.isSuffix()) {
+            // O HEAD que resolve o intervalo também indica se ele se refere ao conteúdo original
+            ObjectAttributes attributes = storage.head(fileName);
+            if (attributes == null) {
+                throw new FileNotFoundException("Arquivo não encontrado no bucket: " + fileName);
+            }
+            if (readOptions.isNotModified(attributes.eTag(), attributes.lastModified())) {
+                return notModified(attributes, options);
+            }
+            if (isRangeOnOriginal(attributes, options)) {
+                object = storage.get(fileName, readOptions);
+            } else {
+                long[] resolved = range.resolve(attributes.contentLength());
+                if (resolved == null) {
+                    throw new RangeNotSatisfiableException("Intervalo solicitado inválido para o arquivo: " + fileName);
+                }
+                object = storage.get(fileName, readOptions.withRange(resolved[0], resolved[1]));
+                ranged = true;
+            }
+        } else {
+            try {
+                object = storage.get(fileName, readOptions.withRange(range.start(), range.end()));
+                ranged = true;
+            } catch (RangeNotSatisfiableException e) {
+                // O intervalo pode se referir ao conteúdo original, que pode ser maior que o objeto armazenado
+                object = storage.get(fileName, readOptions);
+                if (object != null && !isRangeOnOriginal(object.attributes(), options)) {
+                    object.abort();
+                    throw e;
+                }
+            }
+        }
+        if (object == null) {
+            return notModified(fileName, options);
+        }
+        return toFileDownload(object, fileName, options, ranged);
+    }
+
+    /**
+     * Indica, pelo catálogo de metadados, se o intervalo se refere ao conteúdo
+     * original do arquivo, caso em que o objeto é lido inteiro sem tentar antes o
+     * intervalo no armazenamento: arquivos em blocos e arquivos que o upload
+     * compacta, pelo tipo e tamanho, em um formato que o cliente não aceita. Um
+     * arquivo fora do catálogo é tratado como comum. Os intervalos a partir do fim
+     * não usam o catálogo, pois o HEAD que os resolve já responde as revalidações.
+     */
+    private boolean isCatalogedAsRangeOnOriginal(String fileName, DownloadOptions options) {
+        FileEntry entry = catalog.get(fileName);
+        if (entry == null) {
+            return false;
+        }
+        ContentCodec codec = compressionPolicy.codecFor(entry.contentType(), entry.size());
+        return entry.chunked() || (codec != null && !options.acceptsEncoding(codec.encoding()));
+    }
+
+    /**
+     * Monta a resposta de um arquivo não modificado com a ETag e a data que a
+     * resposta completa teria. O armazenamento não retorna os metadados quando a
+     * condição da leitura falha, então eles são consultados separadamente.
+     */
+    private FileDownload notModified(String fileName, DownloadOptions options) {
+        ObjectAttributes attributes = storage.head(fileName);
+        if (attributes == null) {
+            throw new FileNotFoundException("Arquivo não encontrado no bucket: " + fileName);
+        }
+        return notModified(attributes, options);
+    }
+
+    private static FileDownload notModified(ObjectAttributes attributes, DownloadOptions options) {
+        ContentCodec codec = ContentCodec.fromEncoding(attributes.contentEncoding());
+        return FileDownload.notModified(codec != null && !options.acceptsEncoding(codec.encoding())
+                ? DecodedDownload.weakETag(attributes.eTag()) : attributes.eTag(), attributes.lastModified());
+    }
+
+    private ReadOptions conditionalOptions(DownloadOptions options) {
+        return new ReadOptions(-1, -1, options.ifNoneMatch(), options.ifModifiedSince());
+    }
+
+    /**
+     * Verifica se um intervalo deve ser aplicado ao conteúdo original do arquivo, e
+     * não aos bytes armazenados: arquivos em blocos e arquivos compactados em um
+     * formato que o cliente não aceita.
+     */
+    private static boolean isRangeOnOriginal(ObjectAttributes attributes, DownloadOptions options) {
+        ContentCodec codec = ContentCodec.fromEncoding(attributes.contentEncoding());
+        return ChunkManifest.isManifest(attributes.userMetadata())
+                || (codec != null && !options.acceptsEncoding(codec.encoding()));
+    }
+
+    private ReadOptions revalidationOptions(String eTag) {
+        return eTag != null ? new ReadOptions(-1, -1, "\"" + eTag + "\"", null) : ReadOptions.NONE;
+    }
+
+    private FileDownload toFileDownload(StoredObject object, String fileName, DownloadOptions options, boolean ranged) {
+        ObjectAttributes attributes = object.attributes();
+        ContentCodec codec = ContentCodec.fromEncoding(attributes.contentEncoding());
+        boolean chunked = ChunkManifest.isManifest(attributes.userMetadata());
+        if (ranged && (chunked || (codec != null && !options.acceptsEncoding(codec.encoding())))) {
+            // O intervalo se refere ao conteúdo original, então o objeto é buscado novamente por inteiro
+            object.abort();
+            StoredObject whole = storage.get(fileName, conditionalOptions(options));
+            return whole != null ? toFileDownload(whole, fileName, options, false) : notModified(fileName, options);
+        }
+        if (chunked) {
+            try {
+                return chunkStore.download(fileName, object, options.range());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (codec != null && !options.acceptsEncoding(codec.encoding())) {
+            try {
+                return DecodedDownload.of(codec, object.content(),
+                        ContentCodec.decodedLength(attributes.userMetadata()), options.range(), fileName,
+                        attributes.contentType(), attributes.eTag(), attributes.lastModified());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        boolean partial = ranged && object.contentRange() != null;
+        return new FileDownload(
+                partial ? FileDownload.Status.PARTIAL_CONTENT : FileDownload.Status.OK,
+                attributes.contentType(),
+                attributes.contentLength(),
+                partial ? object.contentRange() : null,
+                attributes.eTag(),
+                attributes.lastModified(),
+                attributes.contentEncoding(),
+                FileDownload.Body.of(object.content()));
+    }
+
+    /**
+     * Escreve um arquivo ZIP com os arquivos selecionados, buscando os próximos
+     * arquivos no armazenamento enquanto os anteriores são escritos. Arquivos inexistentes
+     * são ignorados, arquivos armazenados compactados entram descompactados e
+     * arquivos armazenados em blocos entram remontados.
+     *
+     * @param keys As chaves dos arquivos, percorridas sob demanda.
+     * @param outputStream O destino do arquivo ZIP.
+     * @throws IOException Se ocorrer um erro ao escrever o arquivo.
+     */
+    public void writeArchive(Iterator<String> keys, OutputStream outputStream) throws IOException {
+        metrics.timed("download.archive", () -> zipArchiveWriter.write(keys,
+                key -> chunkStore.original(storage.get(key, ReadOptions.NONE)),
+                metrics.countBytesOut(outputStream)));
+    }
+}
@@ -0,0 +1,7 @@
+package com.tiago.cloud_file_management.exceptions;
+
+public class CatalogUnavailableException extends RuntimeException {
+    public CatalogUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.tiago.cloud_file_management.exceptions;
+
+public class DirectTransferUnavailableException extends RuntimeException {
+    public DirectTransferUnavailableException(String message) {
+        super(message);
+    }
+}
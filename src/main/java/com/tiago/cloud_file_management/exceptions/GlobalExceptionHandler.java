@@ -19,12 +19,24 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>("Arquivo não encontrado: " + ex.getMessage(), HttpStatus.NOT_FOUND);
     }
 
+    // Trata intervalo de download fora do tamanho do arquivo
+    @ExceptionHandler(RangeNotSatisfiableException.class)
+    public ResponseEntity<String> handleRangeNotSatisfiableException(RangeNotSatisfiableException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+
     // Exceção de upload de arquivo
     @ExceptionHandler(FileUploadException.class)
     public ResponseEntity<String> handleFileUploadException(FileUploadException ex, HttpServletRequest request) {
         return new ResponseEntity<>("Erro no upload do arquivo: " + ex.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
+    // Trata parâmetros inválidos da requisição, como nomes de arquivo, tokens de continuação e ordenações
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
     // Trata erro de falha na comunicação com o S3
     @ExceptionHandler(AmazonS3Exception.class)
     public ResponseEntity<String> handleAmazonS3Error(AmazonS3Exception ex) {
@@ -32,6 +44,31 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(message);
     }
 
+    // Trata pedidos de URL assinada quando a transferência direta não está disponível
+    @ExceptionHandler(DirectTransferUnavailableException.class)
+    public ResponseEntity<String> handleDirectTransferUnavailableException(DirectTransferUnavailableException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+    }
+
+    // Trata buscas enquanto o catálogo de arquivos não está disponível
+    @ExceptionHandler(CatalogUnavailableException.class)
+    public ResponseEntity<String> handleCatalogUnavailableException(CatalogUnavailableException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // Trata chamadas recusadas ou esgotadas enquanto o armazenamento está lento ou falhando
+    @ExceptionHandler(StorageUnavailableException.class)
+    public ResponseEntity<String> handleStorageUnavailableException(StorageUnavailableException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // Trata falhas do armazenamento configurado
+    @ExceptionHandler(StorageException.class)
+    public ResponseEntity<String> handleStorageException(StorageException ex) {
+        String message = "Erro ao acessar o serviço de armazenamento: " + ex.getMessage();
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(message);
+    }
+
     // Trata erros genéricos de I/O
     @ExceptionHandler(IOException.class)
     public ResponseEntity<String> handleIOException(IOException ex) {
@@ -0,0 +1,7 @@
+package com.tiago.cloud_file_management.exceptions;
+
+public class RangeNotSatisfiableException extends RuntimeException {
+    public RangeNotSatisfiableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.tiago.cloud_file_management.exceptions;
+
+public class StorageException extends RuntimeException {
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.tiago.cloud_file_management.exceptions;
+
+public class StorageUnavailableException extends StorageException {
+    public StorageUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
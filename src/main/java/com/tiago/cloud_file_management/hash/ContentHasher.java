@@ -0,0 +1,200 @@
+package com.tiago.cloud_file_management.hash;
+
+import com.tiago.cloud_file_management.exceptions.FileHashGenerationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.function.Consumer;
+
+/**
+ * Calcula os hashes de conteúdo usados na verificação de duplicidade.
+ * <p>
+ * Cada thread reaproveita suas instâncias de SHA-256 e xxHash64 e seus buffers
+ * de leitura, em vez de criá-los a cada arquivo. Arquivos em disco a partir de
+ * {@code hash.mmap-threshold} são mapeados em memória; os menores são lidos do
+ * {@link FileChannel} para um buffer direto.
+ * <p>
+ * O xxHash64 serve apenas de pré-hash: ele indica quais conteúdos merecem ter o
+ * SHA-256 calculado antes do envio, mas a decisão de duplicidade é sempre
+ * tomada pelo SHA-256.
+ */
+@Component
+public class ContentHasher {
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+
+    private final int bufferSize;
+    private final long mmapThreshold;
+    private final boolean preHashEnabled;
+    private final ThreadLocal<State> state;
+
+    @Autowired
+    public ContentHasher(@Value("${hash.buffer-size:256KB}") DataSize bufferSize,
+                         @Value("${hash.mmap-threshold:4MB}") DataSize mmapThreshold,
+                         @Value("${hash.prehash.enabled:true}") boolean preHashEnabled) {
+        this.bufferSize = (int) Math.max(4096, Math.min(bufferSize.toBytes(), 64 * 1024 * 1024));
+        this.mmapThreshold = mmapThreshold.toBytes();
+        this.preHashEnabled = preHashEnabled;
+        this.state = ThreadLocal.withInitial(State::new);
+    }
+
+    public boolean isPreHashEnabled() {
+        return preHashEnabled;
+    }
+
+    /**
+     * Retorna o digest SHA-256 da thread atual, já reiniciado. Ele só pode ser
+     * usado pela thread atual e até a próxima chamada deste objeto nela.
+     */
+    public MessageDigest sha256Digest() {
+        MessageDigest digest = state.get().sha256;
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * Retorna o xxHash64 da thread atual, já reiniciado, com as mesmas restrições
+     * de {@link #sha256Digest()}.
+     */
+    public XxHash64 preHashDigest() {
+        XxHash64 preHash = state.get().preHash;
+        preHash.reset();
+        return preHash;
+    }
+
+    /**
+     * Calcula o SHA-256 de um conteúdo.
+     *
+     * @return O hash codificado em Base64.
+     * @throws IOException Se ocorrer um erro ao ler o conteúdo.
+     */
+    public String sha256(InputStream inputStream) throws IOException {
+        MessageDigest digest = sha256Digest();
+        read(inputStream, digest::update);
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    /**
+     * Calcula o SHA-256 de um arquivo em disco.
+     *
+     * @return O hash codificado em Base64.
+     * @throws IOException Se ocorrer um erro ao ler o arquivo.
+     */
+    public String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256Digest();
+        read(file, digest::update);
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    /**
+     * Calcula o pré-hash xxHash64 de um conteúdo.
+     *
+     * @throws IOException Se ocorrer um erro ao ler o conteúdo.
+     */
+    public long preHash(InputStream inputStream) throws IOException {
+        XxHash64 preHash = preHashDigest();
+        read(inputStream, preHash::update);
+        return preHash.getValue();
+    }
+
+    /**
+     * Calcula o pré-hash xxHash64 de um arquivo em disco.
+     *
+     * @throws IOException Se ocorrer um erro ao ler o arquivo.
+     */
+    public long preHash(Path file) throws IOException {
+        XxHash64 preHash = preHashDigest();
+        read(file, preHash::update);
+        return preHash.getValue();
+    }
+
+    /**
+     * Move um arquivo recebido por multipart para um arquivo temporário próprio,
+     * que pode ser mapeado em memória. Quando o contêiner já guardou o arquivo em
+     * disco, ele é apenas renomeado, sem cópia.
+     *
+     * @return O arquivo temporário, ou {@code null} se o arquivo for menor que
+     *         {@code hash.mmap-threshold} e deve ser lido do próprio multipart.
+     * @throws IOException Se o arquivo não puder ser transferido.
+     */
+    public SpooledFile spool(MultipartFile file) throws IOException {
+        if (file.getSize() < mmapThreshold) {
+            return null;
+        }
+        Path path = Files.createTempFile("upload-", ".tmp");
+        try {
+            file.transferTo(path.toAbsolutePath().toFile());
+            return new SpooledFile(path);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    private void read(InputStream inputStream, Consumer<ByteBuffer> consumer) throws IOException {
+        ByteBuffer buffer = state.get().heapBuffer();
+        byte[] bytes = buffer.array();
+        int read;
+        while ((read = inputStream.read(bytes)) != -1) {
+            consumer.accept(buffer.clear().limit(read));
+        }
+    }
+
+    private void read(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= mmapThreshold) {
+                for (long position = 0; position < size; position += MAP_WINDOW) {
+                    consumer.accept(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(MAP_WINDOW, size - position)));
+                }
+                return;
+            }
+            ByteBuffer buffer = state.get().directBuffer();
+            while (channel.read(buffer.clear()) != -1) {
+                consumer.accept(buffer.flip());
+            }
+        }
+    }
+
+    private final class State {
+        private final MessageDigest sha256 = newDigest();
+        private final XxHash64 preHash = new XxHash64();
+        private ByteBuffer heapBuffer;
+        private ByteBuffer directBuffer;
+
+        ByteBuffer heapBuffer() {
+            if (heapBuffer == null) {
+                heapBuffer = ByteBuffer.allocate(bufferSize);
+            }
+            return heapBuffer;
+        }
+
+        ByteBuffer directBuffer() {
+            if (directBuffer == null) {
+                directBuffer = ByteBuffer.allocateDirect(bufferSize);
+            }
+            return directBuffer;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new FileHashGenerationException("Erro ao calcular hash do arquivo.");
+        }
+    }
+}
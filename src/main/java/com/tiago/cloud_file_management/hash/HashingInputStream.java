@@ -0,0 +1,108 @@
+package com.tiago.cloud_file_management.hash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Stream que calcula o hash do conteúdo à medida que os bytes são lidos,
+ * permitindo enviar e gerar o hash de um arquivo em uma única leitura.
+ * Opcionalmente calcula também o pré-hash xxHash64 na mesma leitura.
+ * <p>
+ * {@code mark/reset} é desabilitado para que um reenvio interno do SDK não
+ * reprocesse bytes já incluídos no digest.
+ */
+public class HashingInputStream extends DigestInputStream {
+    private final XxHash64 preHash;
+    private long bytesRead;
+    private long digestNanos;
+
+    public HashingInputStream(InputStream stream, MessageDigest digest) {
+        this(stream, digest, null);
+    }
+
+    public HashingInputStream(InputStream stream, MessageDigest digest, XxHash64 preHash) {
+        super(stream, digest);
+        this.preHash = preHash;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            bytesRead++;
+            long start = System.nanoTime();
+            digest.update((byte) b);
+            if (preHash != null) {
+                preHash.update(new byte[]{(byte) b}, 0, 1);
+            }
+            digestNanos += System.nanoTime() - start;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0) {
+            bytesRead += read;
+            long start = System.nanoTime();
+            digest.update(b, off, read);
+            if (preHash != null) {
+                preHash.update(b, off, read);
+            }
+            digestNanos += System.nanoTime() - start;
+        }
+        return read;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset não suportado durante o cálculo do hash.");
+    }
+
+    /**
+     * @return A quantidade de bytes lidos até o momento.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return O tempo gasto no cálculo do hash, sem contar a leitura do conteúdo, em nanossegundos.
+     */
+    public long getDigestNanos() {
+        return digestNanos;
+    }
+
+    /**
+     * @return O pré-hash xxHash64 do conteúdo lido.
+     * @throws IllegalStateException Se o stream foi criado sem pré-hash.
+     */
+    public long getPreHash() {
+        if (preHash == null) {
+            throw new IllegalStateException("Pré-hash não calculado.");
+        }
+        return preHash.getValue();
+    }
+
+    /**
+     * Finaliza o digest e retorna o hash codificado em Base64.
+     *
+     * @return O hash do conteúdo lido.
+     */
+    public String getHash() {
+        return Base64.getEncoder().encodeToString(getMessageDigest().digest());
+    }
+}
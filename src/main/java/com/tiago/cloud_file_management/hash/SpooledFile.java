@@ -0,0 +1,17 @@
+package com.tiago.cloud_file_management.hash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Arquivo temporário com o conteúdo de um upload, removido ao ser fechado.
+ */
+public record SpooledFile(Path path) implements Closeable {
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,140 @@
+package com.tiago.cloud_file_management.hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Implementação incremental do xxHash64, um hash rápido e não criptográfico.
+ * <p>
+ * É usado apenas como pré-hash: colisões são possíveis e nunca decidem
+ * sozinhas que dois conteúdos são iguais. Não é thread-safe.
+ */
+public final class XxHash64 {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    private final long seed;
+    private final ByteBuffer pending = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long totalLength;
+
+    public XxHash64() {
+        this(0);
+    }
+
+    public XxHash64(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    public void reset() {
+        v1 = seed + PRIME1 + PRIME2;
+        v2 = seed + PRIME2;
+        v3 = seed;
+        v4 = seed - PRIME1;
+        totalLength = 0;
+        pending.clear();
+    }
+
+    public void update(byte[] bytes, int offset, int length) {
+        update(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Processa os bytes restantes do buffer, avançando sua posição até o limite.
+     */
+    public void update(ByteBuffer buffer) {
+        ByteBuffer input = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int position = input.position();
+        int limit = input.limit();
+        totalLength += limit - position;
+
+        if (pending.position() > 0) {
+            int length = Math.min(pending.remaining(), limit - position);
+            pending.put(input.slice(position, length));
+            position += length;
+            if (pending.hasRemaining()) {
+                buffer.position(limit);
+                return;
+            }
+            processStripe(pending, 0);
+            pending.clear();
+        }
+
+        while (limit - position >= STRIPE) {
+            processStripe(input, position);
+            position += STRIPE;
+        }
+        if (position < limit) {
+            pending.put(input.slice(position, limit - position));
+        }
+        buffer.position(limit);
+    }
+
+    /**
+     * @return O hash dos bytes processados até o momento, sem finalizar o cálculo.
+     */
+    public long getValue() {
+        long hash;
+        if (totalLength >= STRIPE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        hash += totalLength;
+
+        int length = pending.position();
+        int position = 0;
+        while (position + Long.BYTES <= length) {
+            hash ^= round(0, pending.getLong(position));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+            position += Long.BYTES;
+        }
+        if (position + Integer.BYTES <= length) {
+            hash ^= (pending.getInt(position) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            position += Integer.BYTES;
+        }
+        while (position < length) {
+            hash ^= (pending.get(position) & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+            position++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private void processStripe(ByteBuffer input, int position) {
+        v1 = round(v1, input.getLong(position));
+        v2 = round(v2, input.getLong(position + 8));
+        v3 = round(v3, input.getLong(position + 16));
+        v4 = round(v4, input.getLong(position + 24));
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME1 + PRIME4;
+    }
+}
@@ -0,0 +1,61 @@
+package com.tiago.cloud_file_management.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede as chamadas do cliente assíncrono do S3 no mesmo timer
+ * ({@code s3.requests}, por {@code operation} e {@code status}) usado por
+ * {@link S3RequestMetrics} no cliente síncrono.
+ * <p>
+ * A duração vai do início da execução no SDK até a resposta ou a falha,
+ * incluindo as novas tentativas.
+ */
+public class S3AsyncRequestMetrics implements ExecutionInterceptor {
+    private static final ExecutionAttribute<Long> START = new ExecutionAttribute<>("metrics.start");
+
+    private final MeterRegistry registry;
+
+    public S3AsyncRequestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes, String.valueOf(context.httpResponse().statusCode()));
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes, context.exception() instanceof SdkServiceException serviceException
+                ? String.valueOf(serviceException.statusCode())
+                : "IO_ERROR");
+    }
+
+    private void record(ExecutionAttributes executionAttributes, String status) {
+        Long start = executionAttributes.getAttribute(START);
+        if (start == null) {
+            return;
+        }
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        Timer.builder("s3.requests")
+                .description("Duração das chamadas ao S3")
+                .tag("operation", operation == null ? "unknown" : operation)
+                .tag("status", status)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,84 @@
+package com.tiago.cloud_file_management.metrics;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.http.IdleConnectionReaper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Mede cada chamada do cliente S3 ({@code s3.requests}, por {@code operation} e
+ * {@code status}) e publica a ocupação do pool de conexões
+ * ({@code s3.connections}, por {@code state}).
+ * <p>
+ * A duração vai do envio da requisição até a resposta, incluindo as novas
+ * tentativas do SDK. Em um GetObject ela termina quando os cabeçalhos chegam; o
+ * tempo de leitura do conteúdo fica na operação de armazenamento.
+ */
+public class S3RequestMetrics extends RequestHandler2 {
+    private static final HandlerContextKey<Long> START = new HandlerContextKey<>("metrics.start");
+
+    private final MeterRegistry registry;
+
+    public S3RequestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        gauge("leased", PoolStats::getLeased);
+        gauge("pending", PoolStats::getPending);
+        gauge("available", PoolStats::getAvailable);
+        gauge("max", PoolStats::getMax);
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        request.addHandlerContext(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        record(request, String.valueOf(response.getHttpResponse().getStatusCode()));
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        record(request, e instanceof AmazonServiceException serviceException
+                ? String.valueOf(serviceException.getStatusCode())
+                : "IO_ERROR");
+    }
+
+    private void record(Request<?> request, String status) {
+        Long start = request.getHandlerContext(START);
+        if (start == null) {
+            return;
+        }
+        String operation = request.getHandlerContext(HandlerContextKey.OPERATION_NAME);
+        Timer.builder("s3.requests")
+                .description("Duração das chamadas ao S3")
+                .tag("operation", operation == null ? request.getOriginalRequest().getClass().getSimpleName() : operation)
+                .tag("status", status)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Soma as estatísticas dos pools registrados pelo SDK; com um único cliente
+     * S3 v1 na aplicação, é o pool desse cliente.
+     */
+    private void gauge(String state, ToIntFunction<PoolStats> value) {
+        Gauge.builder("s3.connections", () -> IdleConnectionReaper.getRegisteredConnectionManagers().stream()
+                        .filter(ConnPoolControl.class::isInstance)
+                        .mapToInt(manager -> value.applyAsInt(((ConnPoolControl<?>) manager).getTotalStats()))
+                        .sum())
+                .description("Conexões do pool do cliente S3")
+                .tag("state", state)
+                .register(registry);
+    }
+}
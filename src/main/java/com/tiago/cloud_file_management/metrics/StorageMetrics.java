@@ -0,0 +1,164 @@
+package com.tiago.cloud_file_management.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métricas das operações de armazenamento, expostas pelo Actuator em
+ * {@code /actuator/prometheus}.
+ * <ul>
+ *     <li>{@code storage.operation}: duração de cada operação do serviço, por
+ *     {@code operation}, {@code outcome} e {@code exception};</li>
+ *     <li>{@code storage.upload.phase}: duração de cada fase de um upload, por {@code phase};</li>
+ *     <li>{@code storage.bytes}: bytes recebidos e enviados, por {@code direction};</li>
+ *     <li>{@code storage.dedup.lookups}: verificações de duplicidade, por {@code result};</li>
+ *     <li>{@code storage.resilience.hedges}: leituras repetidas em paralelo, por
+ *     {@code operation} e {@code result};</li>
+ *     <li>{@code storage.resilience.timeouts}: leituras que excederam o tempo limite, por {@code operation};</li>
+ *     <li>{@code storage.resilience.rejections}: chamadas recusadas sem chegar ao
+ *     armazenamento, por {@code reason};</li>
+ *     <li>{@code storage.resilience.circuit}: estado do circuit breaker (0 fechado,
+ *     1 meio aberto, 2 aberto).</li>
+ * </ul>
+ * As chamadas ao S3 são medidas por {@link S3RequestMetrics}.
+ */
+@Component
+public class StorageMetrics {
+    private final MeterRegistry registry;
+    private final Counter bytesIn;
+    private final Counter bytesOut;
+
+    public StorageMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.bytesIn = Counter.builder("storage.bytes").baseUnit("bytes").tag("direction", "in")
+                .description("Bytes recebidos dos clientes e enviados ao armazenamento").register(registry);
+        this.bytesOut = Counter.builder("storage.bytes").baseUnit("bytes").tag("direction", "out")
+                .description("Bytes entregues aos clientes").register(registry);
+    }
+
+    /**
+     * Executa uma operação do serviço medindo sua duração e seu resultado.
+     *
+     * @param operation O nome da operação.
+     * @param call A operação.
+     * @return O resultado da operação.
+     */
+    public <T, E extends Exception> T timed(String operation, StorageCall<T, E> call) throws E {
+        Timer.Sample sample = Timer.start(registry);
+        Throwable error = null;
+        try {
+            return call.call();
+        } catch (Exception | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            stop(sample, operation, error);
+        }
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Registra a duração de uma operação iniciada com {@link #start()}.
+     *
+     * @param error O erro que encerrou a operação, ou {@code null} em caso de sucesso.
+     */
+    public void stop(Timer.Sample sample, String operation, Throwable error) {
+        sample.stop(Timer.builder("storage.operation")
+                .description("Duração das operações de armazenamento")
+                .tag("operation", operation)
+                .tag("outcome", error == null ? "success" : "error")
+                .tag("exception", error == null ? "none" : error.getClass().getSimpleName())
+                .register(registry));
+    }
+
+    public void uploadPhase(Timer.Sample sample, String phase) {
+        sample.stop(uploadPhaseTimer(phase));
+    }
+
+    public void uploadPhase(String phase, long nanos) {
+        uploadPhaseTimer(phase).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer uploadPhaseTimer(String phase) {
+        return Timer.builder("storage.upload.phase")
+                .description("Duração de cada fase do upload")
+                .tag("phase", phase)
+                .register(registry);
+    }
+
+    public void bytesIn(long bytes) {
+        bytesIn.increment(bytes);
+    }
+
+    /**
+     * Conta os bytes escritos no stream como bytes enviados aos clientes.
+     */
+    public OutputStream countBytesOut(OutputStream outputStream) {
+        return new ProxyOutputStream(outputStream) {
+            @Override
+            protected void afterWrite(int n) {
+                bytesOut.increment(n);
+            }
+        };
+    }
+
+    /**
+     * Registra uma verificação de duplicidade.
+     *
+     * @param result {@code hit} quando o conteúdo já existia, {@code miss} quando o
+     *               bucket foi consultado e o conteúdo é novo, {@code skipped}
+     *               quando o índice local dispensou a consulta, {@code coalesced}
+     *               quando o envio aguardou outro envio simultâneo do mesmo
+     *               conteúdo, ou {@code conflict} quando outro envio gravou o
+     *               marcador de hash primeiro.
+     */
+    public void dedupLookup(String result) {
+        registry.counter("storage.dedup.lookups", "result", result).increment();
+    }
+
+    /**
+     * Registra uma leitura repetida em paralelo.
+     *
+     * @param result {@code won} quando a repetição respondeu primeiro, ou {@code lost}
+     *               quando a tentativa original respondeu primeiro.
+     */
+    public void hedge(String operation, String result) {
+        registry.counter("storage.resilience.hedges", "operation", operation, "result", result).increment();
+    }
+
+    public void timeout(String operation) {
+        registry.counter("storage.resilience.timeouts", "operation", operation).increment();
+    }
+
+    /**
+     * Registra uma chamada recusada.
+     *
+     * @param reason {@code circuit-open} quando o circuito estava aberto, ou
+     *               {@code bulkhead-full} quando não havia vaga para a chamada.
+     */
+    public void rejection(String reason) {
+        registry.counter("storage.resilience.rejections", "reason", reason).increment();
+    }
+
+    public void circuitState(Supplier<Number> state) {
+        Gauge.builder("storage.resilience.circuit", state)
+                .description("Estado do circuit breaker do armazenamento")
+                .register(registry);
+    }
+
+    @FunctionalInterface
+    public interface StorageCall<T, E extends Exception> {
+        T call() throws E;
+    }
+}
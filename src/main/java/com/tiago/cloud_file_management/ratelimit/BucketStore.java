@@ -0,0 +1,19 @@
+package com.tiago.cloud_file_management.ratelimit;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+
+/**
+ * Onde ficam os baldes de tokens de cada cliente.
+ */
+public interface BucketStore {
+
+    /**
+     * Retorna o balde da chave, criando-o com a configuração informada se ainda não existir.
+     *
+     * @param key A chave do balde (política, cliente e tipo de limite).
+     * @param configuration A configuração usada para criar o balde.
+     * @return O balde da chave.
+     */
+    Bucket resolve(String key, BucketConfiguration configuration);
+}
@@ -0,0 +1,93 @@
+package com.tiago.cloud_file_management.ratelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Mantém os baldes na memória do nó, com tamanho limitado e expiração por
+ * inatividade. Os baldes são mantidos em ordem de acesso: os que ficaram
+ * ociosos por mais tempo que {@code idleTimeout} são descartados a cada acesso
+ * e, acima de {@code maxEntries}, o menos usado recentemente dá lugar ao novo.
+ * Um balde descartado volta cheio, o que só favorece clientes que já estavam
+ * parados.
+ */
+public class LocalBucketStore implements BucketStore {
+    private final int maxEntries;
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public LocalBucketStore(int maxEntries, Duration idleTimeout) {
+        this(maxEntries, idleTimeout, System::nanoTime);
+    }
+
+    LocalBucketStore(int maxEntries, Duration idleTimeout, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.clock = clock;
+    }
+
+    @Override
+    public Bucket resolve(String key, BucketConfiguration configuration) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            evictIdle(now);
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                if (entries.size() >= maxEntries) {
+                    Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+                entry = new Entry(newBucket(configuration));
+                entries.put(key, entry);
+            }
+            entry.lastAccess = now;
+            return entry.bucket;
+        }
+    }
+
+    /**
+     * Retorna o número de baldes em memória.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void evictIdle(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastAccess <= idleTimeoutNanos) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private static Bucket newBucket(BucketConfiguration configuration) {
+        LocalBucketBuilder builder = Bucket.builder();
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+
+    private static final class Entry {
+        private final Bucket bucket;
+        private long lastAccess;
+
+        private Entry(Bucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
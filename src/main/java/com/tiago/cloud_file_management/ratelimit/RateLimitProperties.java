@@ -0,0 +1,53 @@
+package com.tiago.cloud_file_management.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuração do limite de requisições ({@code rate-limit.*}).
+ * <p>
+ * Cada política se aplica às rotas que casam com um de seus padrões; a primeira
+ * política que casar com a rota é usada. Uma política limita o número de
+ * requisições por período e, opcionalmente, os bytes transferidos no período.
+ *
+ * @param enabled Se o limite está ativo.
+ * @param backend Onde ficam os contadores: na memória do nó ou em um armazenamento compartilhado.
+ * @param store Limites do armazenamento local de contadores.
+ * @param trustedProxies Endereços ou faixas CIDR dos proxies cujo {@code X-Forwarded-For} é confiável.
+ * @param policies As políticas, em ordem de prioridade.
+ */
+@ConfigurationProperties("rate-limit")
+public record RateLimitProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("local") Backend backend,
+                                  @DefaultValue Store store,
+                                  @DefaultValue List<String> trustedProxies,
+                                  @DefaultValue List<Policy> policies) {
+
+    public enum Backend { LOCAL, SHARED }
+
+    /**
+     * @param maxEntries Número máximo de contadores mantidos em memória.
+     * @param idleTimeout Tempo sem uso após o qual um contador é descartado.
+     */
+    public record Store(@DefaultValue("100000") int maxEntries,
+                        @DefaultValue("PT10M") Duration idleTimeout) {
+    }
+
+    /**
+     * @param name Nome da política, usado para separar os contadores de cada rota.
+     * @param paths Padrões de rota no formato Ant, como {@code /api/upload/**}.
+     * @param requests Requisições permitidas por período.
+     * @param bytes Bytes enviados e recebidos permitidos por período, ou {@code null} para não limitar.
+     * @param period O período em que os limites são renovados.
+     */
+    public record Policy(String name,
+                         List<String> paths,
+                         long requests,
+                         DataSize bytes,
+                         @DefaultValue("PT1M") Duration period) {
+    }
+}
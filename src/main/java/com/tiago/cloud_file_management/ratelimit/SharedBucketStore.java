@@ -0,0 +1,24 @@
+package com.tiago.cloud_file_management.ratelimit;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+
+/**
+ * Mantém os baldes em um armazenamento compartilhado entre os nós (Redis,
+ * JCache, banco de dados...), por meio do {@link ProxyManager} do bucket4j.
+ * Assim o limite vale para o cliente independentemente do nó que o atende.
+ * A expiração dos baldes fica a cargo do armazenamento.
+ */
+public class SharedBucketStore implements BucketStore {
+    private final ProxyManager<String> proxyManager;
+
+    public SharedBucketStore(ProxyManager<String> proxyManager) {
+        this.proxyManager = proxyManager;
+    }
+
+    @Override
+    public Bucket resolve(String key, BucketConfiguration configuration) {
+        return proxyManager.builder().build(key, () -> configuration);
+    }
+}
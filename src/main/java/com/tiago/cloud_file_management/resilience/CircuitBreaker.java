@@ -0,0 +1,123 @@
+package com.tiago.cloud_file_management.resilience;
+
+/**
+ * Circuit breaker por taxa de falhas nas últimas chamadas.
+ * <p>
+ * Fechado, registra o resultado das chamadas em uma janela circular e abre
+ * quando a taxa de falhas atinge o limite. Aberto, recusa as chamadas até o fim
+ * do período de espera; então passa a meio aberto e deixa passar algumas
+ * chamadas de teste. Se todas derem certo o circuito fecha; a primeira falha o
+ * abre de novo.
+ */
+final class CircuitBreaker {
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final double failureRate;
+    private final int minCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final boolean[] outcomes;
+    private int recorded;
+    private int failures;
+    private int next;
+    private State state = State.CLOSED;
+    private long openUntil;
+    private int probes;
+    private int probeSuccesses;
+
+    CircuitBreaker(ResilienceProperties.Circuit properties) {
+        this.failureRate = properties.failureRate();
+        this.outcomes = new boolean[Math.max(1, properties.window())];
+        this.minCalls = Math.max(1, Math.min(properties.minCalls(), outcomes.length));
+        this.openNanos = properties.openDuration().toNanos();
+        this.halfOpenCalls = Math.max(1, properties.halfOpenCalls());
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Pede passagem para uma chamada. Cada passagem concedida deve ser seguida de
+     * {@link #onSuccess()}, {@link #onFailure()} ou {@link #onIgnored()}.
+     *
+     * @return {@code false} se o circuito está aberto ou já tem todas as chamadas de teste em andamento.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openUntil < 0) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probes = 0;
+            probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probes >= halfOpenCalls) {
+                return false;
+            }
+            probes++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probeSuccesses >= halfOpenCalls) {
+                state = State.CLOSED;
+                reset();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minCalls && failures >= failureRate * recorded) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Devolve uma passagem cuja chamada não chegou ao armazenamento.
+     */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probes > probeSuccesses) {
+            probes--;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.nanoTime() + openNanos;
+        reset();
+    }
+
+    private void reset() {
+        recorded = 0;
+        failures = 0;
+        next = 0;
+    }
+}
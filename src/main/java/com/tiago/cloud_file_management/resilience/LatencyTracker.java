@@ -0,0 +1,46 @@
+package com.tiago.cloud_file_management.resilience;
+
+import java.util.Arrays;
+
+/**
+ * Mantém as latências mais recentes de uma operação e calcula seus percentis.
+ * <p>
+ * As amostras ficam em um buffer circular. A cópia ordenada usada nos percentis
+ * é refeita depois de cada 1/16 da janela de novas amostras, e não a cada
+ * consulta.
+ */
+final class LatencyTracker {
+    private final long[] samples;
+    private final int minSamples;
+    private final int refreshInterval;
+    private long count;
+    private long[] sorted = new long[0];
+    private long sortedAt;
+
+    LatencyTracker(int window, int minSamples) {
+        this.samples = new long[Math.max(1, window)];
+        this.minSamples = Math.max(1, Math.min(minSamples, samples.length));
+        this.refreshInterval = Math.max(1, samples.length / 16);
+    }
+
+    synchronized void record(long nanos) {
+        samples[(int) (count++ % samples.length)] = nanos;
+    }
+
+    /**
+     * @param quantile O percentil, entre 0 e 1.
+     * @return A latência do percentil em nanossegundos, ou {@code -1} se ainda não há amostras suficientes.
+     */
+    synchronized long percentile(double quantile) {
+        if (count < minSamples) {
+            return -1;
+        }
+        if (sorted.length == 0 || count - sortedAt >= refreshInterval) {
+            sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            Arrays.sort(sorted);
+            sortedAt = count;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,81 @@
+package com.tiago.cloud_file_management.resilience;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuração da proteção das chamadas ao armazenamento ({@code storage.resilience.*}),
+ * aplicada pelo {@link StorageGuard}.
+ *
+ * @param enabled Se a proteção está ativa.
+ * @param latency A janela de latências usada para calcular os percentis.
+ * @param hedge As leituras repetidas em paralelo quando a primeira tentativa demora.
+ * @param timeout O tempo limite adaptativo das leituras.
+ * @param circuit O circuit breaker.
+ * @param bulkhead O limite de chamadas simultâneas.
+ */
+@ConfigurationProperties("storage.resilience")
+public record ResilienceProperties(@DefaultValue("true") boolean enabled,
+                                   @DefaultValue Latency latency,
+                                   @DefaultValue Hedge hedge,
+                                   @DefaultValue Timeout timeout,
+                                   @DefaultValue Circuit circuit,
+                                   @DefaultValue Bulkhead bulkhead) {
+
+    /**
+     * @param window Número de latências recentes mantidas por operação.
+     * @param minSamples Latências necessárias antes de usar os percentis; até lá não há
+     *                   repetição e vale o tempo limite máximo.
+     */
+    public record Latency(@DefaultValue("1000") int window,
+                          @DefaultValue("50") int minSamples) {
+    }
+
+    /**
+     * @param enabled Se as leituras lentas são repetidas.
+     * @param quantile O percentil da latência após o qual a leitura é repetida.
+     * @param minDelay A espera mínima antes de repetir a leitura.
+     * @param budget A fração máxima das leituras que pode ser repetida.
+     */
+    public record Hedge(@DefaultValue("true") boolean enabled,
+                        @DefaultValue("0.95") double quantile,
+                        @DefaultValue("PT0.005S") Duration minDelay,
+                        @DefaultValue("0.1") double budget) {
+    }
+
+    /**
+     * @param quantile O percentil da latência que serve de base para o tempo limite.
+     * @param multiplier Quantas vezes o percentil a leitura pode demorar.
+     * @param min O menor tempo limite.
+     * @param max O maior tempo limite, usado também enquanto não há latências suficientes.
+     */
+    public record Timeout(@DefaultValue("0.99") double quantile,
+                          @DefaultValue("3") double multiplier,
+                          @DefaultValue("PT0.5S") Duration min,
+                          @DefaultValue("PT30S") Duration max) {
+    }
+
+    /**
+     * @param failureRate A taxa de falhas, entre 0 e 1, que abre o circuito.
+     * @param window Número de chamadas recentes consideradas na taxa de falhas.
+     * @param minCalls Chamadas necessárias na janela antes de avaliar a taxa.
+     * @param openDuration Quanto tempo o circuito fica aberto antes das chamadas de teste.
+     * @param halfOpenCalls Chamadas de teste bem-sucedidas necessárias para fechar o circuito.
+     */
+    public record Circuit(@DefaultValue("0.5") double failureRate,
+                          @DefaultValue("50") int window,
+                          @DefaultValue("20") int minCalls,
+                          @DefaultValue("PT10S") Duration openDuration,
+                          @DefaultValue("5") int halfOpenCalls) {
+    }
+
+    /**
+     * @param maxConcurrent Número máximo de leituras em andamento no armazenamento.
+     * @param maxWait Quanto uma leitura espera por uma vaga antes de ser recusada.
+     */
+    public record Bulkhead(@DefaultValue("64") int maxConcurrent,
+                           @DefaultValue("PT0.1S") Duration maxWait) {
+    }
+}
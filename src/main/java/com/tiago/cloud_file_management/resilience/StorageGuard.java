@@ -0,0 +1,338 @@
+package com.tiago.cloud_file_management.resilience;
+
+import com.tiago.cloud_file_management.exceptions.StorageException;
+import com.tiago.cloud_file_management.exceptions.StorageUnavailableException;
+import com.tiago.cloud_file_management.metrics.StorageMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Protege as chamadas a um armazenamento remoto contra a latência de cauda e
+ * contra a degradação do serviço.
+ * <ul>
+ *     <li>Uma leitura que passa do percentil {@code hedge.quantile} da latência
+ *     recente da operação é repetida em paralelo. A primeira resposta é usada, e
+ *     a outra tentativa é cancelada. As repetições são limitadas a uma fração
+ *     ({@code hedge.budget}) das leituras;</li>
+ *     <li>Cada leitura tem um tempo limite adaptativo: {@code timeout.multiplier}
+ *     vezes o percentil {@code timeout.quantile}, entre {@code timeout.min} e
+ *     {@code timeout.max}. O tempo restante é repassado à chamada, para que o
+ *     cliente do armazenamento também desista dela;</li>
+ *     <li>Um {@link CircuitBreaker} recusa leituras e escritas enquanto a taxa de
+ *     falhas recente estiver acima do limite;</li>
+ *     <li>Um bulkhead limita as tentativas de leitura em andamento, para que um
+ *     armazenamento lento não prenda todas as threads de requisição.</li>
+ * </ul>
+ * As leituras rodam em threads próprias, e a thread da requisição só aguarda o
+ * resultado. Uma tentativa abandonada, por perder para a outra ou por esgotar o
+ * tempo, é cancelada e tem sua thread interrompida; ela devolve a vaga no
+ * bulkhead quando a chamada termina, e o resultado que ainda chegar é descartado.
+ * <p>
+ * Falhas são as {@link StorageException}s e os tempos esgotados; respostas como
+ * objeto inexistente contam como sucesso, pois o armazenamento respondeu. As
+ * recusas lançam {@link StorageUnavailableException}.
+ */
+public class StorageGuard implements AutoCloseable {
+    private static final double MAX_HEDGE_CREDITS = 10;
+
+    private final boolean enabled;
+    private final ResilienceProperties properties;
+    private final StorageMetrics metrics;
+    private final CircuitBreaker circuit;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final Map<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+    private double hedgeCredits;
+
+    public StorageGuard(ResilienceProperties properties, StorageMetrics metrics) {
+        this.enabled = properties.enabled();
+        this.properties = properties;
+        this.metrics = metrics;
+        this.circuit = new CircuitBreaker(properties.circuit());
+        this.permits = new Semaphore(Math.max(1, properties.bulkhead().maxConcurrent()));
+        this.executor = enabled ? newExecutor() : null;
+        if (enabled) {
+            metrics.circuitState(() -> circuit.state().ordinal());
+        }
+    }
+
+    private StorageGuard() {
+        this.enabled = false;
+        this.properties = null;
+        this.metrics = null;
+        this.circuit = null;
+        this.permits = null;
+        this.executor = null;
+    }
+
+    /**
+     * Uma proteção que apenas executa as chamadas.
+     */
+    public static StorageGuard disabled() {
+        return new StorageGuard();
+    }
+
+    private static ExecutorService newExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        // O número de threads é limitado pelas vagas do bulkhead, adquiridas antes de cada tentativa
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "storage-guard-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Executa uma leitura idempotente, que pode ser repetida em paralelo.
+     *
+     * @param operation O nome da operação, que separa as estatísticas de latência.
+     * @param call A leitura, que recebe o tempo limite da tentativa.
+     * @param discard Descarta o resultado de uma tentativa que não foi usada.
+     * @return O resultado da primeira tentativa que respondeu.
+     * @throws StorageUnavailableException Se a leitura foi recusada ou excedeu o tempo limite.
+     */
+    public <T> T read(String operation, TimedCall<T> call, Consumer<? super T> discard) {
+        if (!enabled) {
+            return call.call(0);
+        }
+        acquireCircuit();
+        LatencyTracker latency = latencies.computeIfAbsent(operation,
+                name -> new LatencyTracker(properties.latency().window(), properties.latency().minSamples()));
+        long timeout = timeout(latency);
+        long start = System.nanoTime();
+
+        List<Attempt<T>> attempts = new ArrayList<>(2);
+        AtomicInteger winner = new AtomicInteger();
+        T result;
+        try {
+            if (!permits.tryAcquire(properties.bulkhead().maxWait().toNanos(), TimeUnit.NANOSECONDS)) {
+                circuit.onIgnored();
+                metrics.rejection("bulkhead-full");
+                throw new StorageUnavailableException("Armazenamento sobrecarregado: muitas leituras em andamento.", null);
+            }
+            attempts.add(attempt(call, latency, timeout));
+            CompletableFuture<T> first = attempts.get(0).result();
+
+            long hedgeDelay = hedgeDelay(latency);
+            if (hedgeDelay >= 0 && hedgeDelay < timeout) {
+                try {
+                    result = first.get(hedgeDelay, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (takeHedgeCredit() && permits.tryAcquire()) {
+                        attempts.add(attempt(call, latency, timeout - (System.nanoTime() - start)));
+                        first = firstAnswer(attempts.stream().map(Attempt::result).toList(), winner);
+                    }
+                    result = first.get(timeout - (System.nanoTime() - start), TimeUnit.NANOSECONDS);
+                }
+            } else {
+                result = first.get(timeout, TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            attempts.forEach(attempt -> attempt.abandon(discard));
+            circuit.onFailure();
+            metrics.timeout(operation);
+            throw new StorageUnavailableException("Tempo limite de " + TimeUnit.NANOSECONDS.toMillis(timeout)
+                    + " ms esgotado na operação " + operation + " do armazenamento.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            attempts.forEach(attempt -> attempt.abandon(discard));
+            circuit.onIgnored();
+            throw new StorageException("Leitura do armazenamento interrompida.", e);
+        } catch (ExecutionException e) {
+            attempts.forEach(attempt -> attempt.abandon(discard));
+            if (isFailure(e.getCause())) {
+                circuit.onFailure();
+            } else {
+                circuit.onSuccess();
+            }
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new StorageException(e.getMessage(), e);
+        }
+
+        circuit.onSuccess();
+        if (attempts.size() > 1) {
+            metrics.hedge(operation, winner.get() == 0 ? "lost" : "won");
+        }
+        for (int i = 0; i < attempts.size(); i++) {
+            if (i != winner.get()) {
+                attempts.get(i).abandon(discard);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Executa uma escrita, que não é repetida nem tem tempo limite próprio, mas
+     * é recusada enquanto o circuito estiver aberto.
+     */
+    public <T, E extends Exception> T write(StorageMetrics.StorageCall<T, E> call) throws E {
+        if (!enabled) {
+            return call.call();
+        }
+        acquireCircuit();
+        try {
+            T result = call.call();
+            circuit.onSuccess();
+            return result;
+        } catch (Exception | Error e) {
+            if (isFailure(e)) {
+                circuit.onFailure();
+            } else {
+                circuit.onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    private void acquireCircuit() {
+        if (!circuit.tryAcquire()) {
+            metrics.rejection("circuit-open");
+            throw new StorageUnavailableException("Armazenamento indisponível: muitas falhas recentes.", null);
+        }
+    }
+
+    /**
+     * Inicia uma tentativa, que já tem sua vaga no bulkhead e a devolve ao terminar.
+     *
+     * @param timeout O tempo limite da tentativa, em nanossegundos.
+     */
+    private <T> Attempt<T> attempt(TimedCall<T> call, LatencyTracker latency, long timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        int timeoutMillis = (int) Math.min(Integer.MAX_VALUE, Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout)));
+        // Quem marcar primeiro devolve a vaga: a própria tentativa, ou o cancelamento antes de ela começar
+        AtomicBoolean started = new AtomicBoolean();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                T value = call.call(timeoutMillis);
+                latency.record(System.nanoTime() - start);
+                result.complete(value);
+            } catch (Throwable e) {
+                if (!isFailure(e)) {
+                    latency.record(System.nanoTime() - start);
+                }
+                result.completeExceptionally(e);
+            } finally {
+                permits.release();
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                if (isCancelled() && started.compareAndSet(false, true)) {
+                    permits.release();
+                    result.cancel(false);
+                }
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            started.set(true);
+            permits.release();
+            result.completeExceptionally(new StorageUnavailableException("Armazenamento indisponível.", e));
+        }
+        return new Attempt<>(result, task);
+    }
+
+    /**
+     * Combina as tentativas: completa com a primeira resposta definitiva, ou com a
+     * última falha se todas falharem.
+     *
+     * @param winner Recebe a posição da tentativa cuja resposta foi usada.
+     */
+    private static <T> CompletableFuture<T> firstAnswer(List<CompletableFuture<T>> attempts, AtomicInteger winner) {
+        CompletableFuture<T> answer = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < attempts.size(); i++) {
+            int index = i;
+            attempts.get(i).whenComplete((value, error) -> {
+                synchronized (answer) {
+                    if (answer.isDone()) {
+                        return;
+                    }
+                    if (error == null) {
+                        winner.set(index);
+                        answer.complete(value);
+                    } else if (!isFailure(error) || failures.incrementAndGet() == attempts.size()) {
+                        winner.set(index);
+                        answer.completeExceptionally(error);
+                    }
+                }
+            });
+        }
+        return answer;
+    }
+
+    private static boolean isFailure(Throwable error) {
+        return error instanceof StorageException;
+    }
+
+    private long timeout(LatencyTracker latency) {
+        ResilienceProperties.Timeout timeout = properties.timeout();
+        long max = timeout.max().toNanos();
+        long percentile = latency.percentile(timeout.quantile());
+        if (percentile < 0) {
+            return max;
+        }
+        return Math.max(timeout.min().toNanos(), Math.min(max, (long) (percentile * timeout.multiplier())));
+    }
+
+    private long hedgeDelay(LatencyTracker latency) {
+        ResilienceProperties.Hedge hedge = properties.hedge();
+        if (!hedge.enabled()) {
+            return -1;
+        }
+        addHedgeCredit(hedge.budget());
+        long percentile = latency.percentile(hedge.quantile());
+        return percentile < 0 ? -1 : Math.max(hedge.minDelay().toNanos(), percentile);
+    }
+
+    private synchronized void addHedgeCredit(double credit) {
+        hedgeCredits = Math.min(MAX_HEDGE_CREDITS, hedgeCredits + credit);
+    }
+
+    private synchronized boolean takeHedgeCredit() {
+        if (hedgeCredits < 1) {
+            return false;
+        }
+        hedgeCredits--;
+        return true;
+    }
+
+    /**
+     * Uma leitura protegida.
+     */
+    @FunctionalInterface
+    public interface TimedCall<T> {
+        /**
+         * @param timeoutMillis O tempo limite da tentativa em milissegundos, ou 0 quando não há limite.
+         */
+        T call(int timeoutMillis);
+    }
+
+    private record Attempt<T>(CompletableFuture<T> result, Future<?> task) {
+        /**
+         * Cancela a tentativa, interrompendo sua thread, e descarta o resultado se ele ainda chegar.
+         */
+        void abandon(Consumer<? super T> discard) {
+            task.cancel(true);
+            result.thenAccept(discard);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
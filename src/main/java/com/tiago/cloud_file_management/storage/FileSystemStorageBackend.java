@@ -0,0 +1,560 @@
+package com.tiago.cloud_file_management.storage;
+
+import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
+import com.tiago.cloud_file_management.exceptions.RangeNotSatisfiableException;
+import com.tiago.cloud_file_management.exceptions.StorageException;
+import com.tiago.cloud_file_management.hash.XxHash64;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Armazena os objetos em arquivos de um diretório local, para nós de borda e
+ * instalações sem S3, e para testes de carga locais.
+ * <p>
+ * Cada segmento da chave (separado por {@code /}) vira um diretório, e o objeto
+ * é gravado em {@code <segmento>.obj}, com os caracteres fora de
+ * {@code [A-Za-z0-9_-]} codificados como {@code %XX}. O arquivo contém o conteúdo
+ * seguido dos metadados, do tamanho dos metadados e de um número mágico, então
+ * o objeto é substituído por inteiro com uma única renomeação atômica. A ETag é
+ * o xxHash64 do conteúdo.
+ * <p>
+ * A gravação passa por um buffer direto de {@code storage.filesystem.buffer-size}
+ * reaproveitado por thread, no qual o xxHash64 também é calculado. Na leitura, o
+ * conteúdo é entregue por {@link FileChannel#transferTo}, sem cópias para a heap
+ * quando o destino é um arquivo.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "filesystem")
+public class FileSystemStorageBackend implements StorageBackend {
+    private static final String DATA_SUFFIX = ".obj";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x43464D31;
+    private static final int TRAILER_SIZE = 8;
+    private static final String CONTENT_TYPE = "content-type";
+    private static final String CONTENT_ENCODING = "content-encoding";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+    private static final String USER_METADATA_PREFIX = "meta.";
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Path root;
+    private final int bufferSize;
+    private final ThreadLocal<Buffers> buffers;
+
+    @Autowired
+    public FileSystemStorageBackend(
+            @Value("${storage.filesystem.root:${java.io.tmpdir}/cloud-file-management-storage}") Path root,
+            @Value("${storage.filesystem.buffer-size:256KB}") DataSize bufferSize) {
+        this.root = root.toAbsolutePath().normalize();
+        this.bufferSize = (int) Math.max(4096, Math.min(bufferSize.toBytes(), 64 * 1024 * 1024));
+        this.buffers = ThreadLocal.withInitial(Buffers::new);
+        try {
+            Files.createDirectories(this.root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível preparar o diretório de armazenamento: " + root, e);
+        }
+    }
+
+    @Override
+    public void put(String key, InputStream content, long contentLength, ObjectAttributes attributes)
+            throws IOException {
+        Path target = path(key);
+        Path temporary = writeTemporary(key, target, content, contentLength, attributes);
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(temporary, e);
+            throw e;
+        }
+    }
+
+    /**
+     * O arquivo temporário é publicado com um link, que falha de forma atômica
+     * quando o destino já existe.
+     */
+    @Override
+    public boolean putIfAbsent(String key, InputStream content, long contentLength, ObjectAttributes attributes)
+            throws IOException {
+        Path target = path(key);
+        if (Files.exists(target)) {
+            return false;
+        }
+        Path temporary = writeTemporary(key, target, content, contentLength, attributes);
+        try {
+            Files.createLink(target, temporary);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path writeTemporary(String key, Path target, InputStream content, long contentLength,
+                                ObjectAttributes attributes) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        try (FileChannel channel = createTemporary(temporary)) {
+            XxHash64 hash = new XxHash64();
+            long written = writeContent(content, channel, hash);
+            if (contentLength >= 0 && written != contentLength) {
+                throw new IOException("O conteúdo de " + key + " tem " + written + " bytes, e não " + contentLength + ".");
+            }
+            writeFully(channel, footer(attributes, String.format("%016x", hash.getValue())));
+            return temporary;
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(temporary, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Cria o arquivo temporário e os diretórios da chave. Uma exclusão
+     * concorrente pode remover um diretório vazio entre a criação dele e a do
+     * arquivo, então a criação é repetida.
+     */
+    private FileChannel createTemporary(Path temporary) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            Files.createDirectories(temporary.getParent());
+            try {
+                return FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (NoSuchFileException e) {
+                if (attempt >= 3) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private long writeContent(InputStream content, FileChannel channel, XxHash64 hash) throws IOException {
+        Buffers state = buffers.get();
+        byte[] bytes = state.bytes;
+        ByteBuffer buffer = state.direct;
+        long written = 0;
+        int read;
+        while ((read = content.readNBytes(bytes, 0, bytes.length)) > 0) {
+            buffer.clear();
+            buffer.put(bytes, 0, read).flip();
+            hash.update(buffer);
+            buffer.rewind();
+            writeFully(channel, buffer);
+            written += read;
+        }
+        return written;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void deleteQuietly(Path temporary, Exception failure) {
+        try {
+            Files.deleteIfExists(temporary);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private ByteBuffer footer(ObjectAttributes attributes, String eTag) throws IOException {
+        Properties properties = new Properties();
+        if (attributes.contentType() != null) {
+            properties.setProperty(CONTENT_TYPE, attributes.contentType());
+        }
+        if (attributes.contentEncoding() != null) {
+            properties.setProperty(CONTENT_ENCODING, attributes.contentEncoding());
+        }
+        properties.setProperty(ETAG, eTag);
+        properties.setProperty(LAST_MODIFIED, String.valueOf(System.currentTimeMillis()));
+        attributes.userMetadata().forEach((name, value) ->
+                properties.setProperty(USER_METADATA_PREFIX + name.toLowerCase(Locale.ROOT), value));
+        StringWriter writer = new StringWriter();
+        properties.store(writer, null);
+        byte[] encoded = writer.toString().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(encoded.length + TRAILER_SIZE)
+                .put(encoded)
+                .putInt(encoded.length)
+                .putInt(MAGIC)
+                .flip();
+    }
+
+    @Override
+    public StoredObject get(String key, ReadOptions options) {
+        FileChannel channel = open(key);
+        if (channel == null) {
+            throw new FileNotFoundException("Arquivo não encontrado no bucket: " + key);
+        }
+        try {
+            ObjectAttributes attributes = readAttributes(channel, key);
+            if (options.isNotModified(attributes.eTag(), attributes.lastModified())) {
+                channel.close();
+                return null;
+            }
+
+            long length = attributes.contentLength();
+            long start = 0;
+            long end = length - 1;
+            String contentRange = null;
+            if (options.isRanged()) {
+                if (options.rangeStart() >= length) {
+                    channel.close();
+                    throw new RangeNotSatisfiableException("Intervalo solicitado inválido para o arquivo: " + key);
+                }
+                start = options.rangeStart();
+                end = options.rangeEnd() >= 0 ? Math.min(options.rangeEnd(), length - 1) : length - 1;
+                contentRange = "bytes " + start + "-" + end + "/" + length;
+            }
+            long count = end - start + 1;
+            ObjectAttributes returned = new ObjectAttributes(attributes.contentType(), attributes.contentEncoding(),
+                    count, attributes.eTag(), attributes.lastModified(), attributes.userMetadata());
+            return new StoredObject(returned, contentRange, new RegionInputStream(channel, start, count), null);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new StorageException("Erro ao tentar baixar o arquivo: " + key, e);
+        }
+    }
+
+    @Override
+    public ObjectAttributes head(String key) {
+        FileChannel channel = open(key);
+        if (channel == null) {
+            return null;
+        }
+        try (channel) {
+            return readAttributes(channel, key);
+        } catch (IOException e) {
+            throw new StorageException("Erro ao consultar o objeto: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(path(key));
+    }
+
+    private FileChannel open(String key) {
+        try {
+            return FileChannel.open(path(key), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new StorageException("Erro ao abrir o objeto: " + key, e);
+        }
+    }
+
+    private static ObjectAttributes readAttributes(FileChannel channel, String key) throws IOException {
+        long size = channel.size();
+        if (size < TRAILER_SIZE) {
+            throw new IOException("Objeto corrompido: " + key);
+        }
+        ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+        int footerLength = trailer.getInt(0);
+        if (trailer.getInt(4) != MAGIC || footerLength < 0 || footerLength > size - TRAILER_SIZE) {
+            throw new IOException("Objeto corrompido: " + key);
+        }
+        long contentLength = size - TRAILER_SIZE - footerLength;
+        ByteBuffer footer = readFully(channel, contentLength, footerLength);
+        Properties properties = new Properties();
+        properties.load(new StringReader(StandardCharsets.UTF_8.decode(footer).toString()));
+
+        Map<String, String> userMetadata = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(USER_METADATA_PREFIX)) {
+                userMetadata.put(name.substring(USER_METADATA_PREFIX.length()), properties.getProperty(name));
+            }
+        }
+        String lastModified = properties.getProperty(LAST_MODIFIED);
+        return new ObjectAttributes(properties.getProperty(CONTENT_TYPE), properties.getProperty(CONTENT_ENCODING),
+                contentLength, properties.getProperty(ETAG),
+                lastModified != null ? new Date(Long.parseLong(lastModified)) : null, userMetadata);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Fim inesperado do arquivo.");
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public ListPage list(String prefix, String delimiter, int maxKeys, String continuationToken) {
+        if (delimiter != null && !delimiter.equals("/")) {
+            throw new IllegalArgumentException("Apenas o delimitador / é suportado.");
+        }
+        String keyPrefix = prefix == null ? "" : prefix;
+        Path directory = directory(keyPrefix.substring(0, keyPrefix.lastIndexOf('/') + 1));
+        if (!Files.isDirectory(directory)) {
+            return new ListPage(List.of(), null);
+        }
+        List<String> keys;
+        try (Stream<Path> files = delimiter != null ? Files.list(directory) : Files.walk(directory)) {
+            keys = files
+                    .filter(file -> file.getFileName().toString().endsWith(DATA_SUFFIX))
+                    .map(this::key)
+                    .filter(key -> key.startsWith(keyPrefix))
+                    .filter(key -> continuationToken == null || key.compareTo(continuationToken) > 0)
+                    .sorted()
+                    .limit(maxKeys + 1L)
+                    .toList();
+        } catch (IOException | UncheckedIOException e) {
+            throw new StorageException("Erro ao listar os objetos com o prefixo: " + keyPrefix, e);
+        }
+        if (keys.size() > maxKeys) {
+            List<String> page = keys.subList(0, maxKeys);
+            return new ListPage(page, page.get(page.size() - 1));
+        }
+        return new ListPage(keys, null);
+    }
+
+    @Override
+    public void delete(String key) {
+        Path file = path(key);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new StorageException("Erro ao excluir o objeto: " + key, e);
+        }
+        pruneDirectories(file.getParent());
+    }
+
+    @Override
+    public void delete(List<String> keys) {
+        keys.forEach(this::delete);
+    }
+
+    /**
+     * Remove os diretórios que ficaram vazios após uma exclusão, até a raiz.
+     */
+    private void pruneDirectories(Path directory) {
+        for (Path current = directory; current != null && !current.equals(root); current = current.getParent()) {
+            try {
+                Files.delete(current);
+            } catch (IOException e) {
+                // O diretório ainda tem objetos ou já foi removido por outra exclusão
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove os arquivos temporários de gravações interrompidas, por exemplo por
+     * uma parada do processo durante o upload.
+     */
+    @Override
+    public int abortIncompleteUploads(Duration maxAge) {
+        long cutoff = System.currentTimeMillis() - maxAge.toMillis();
+        List<Path> abandoned = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(file -> file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .filter(file -> {
+                        try {
+                            return Files.getLastModifiedTime(file).toMillis() < cutoff;
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    })
+                    .forEach(abandoned::add);
+            for (Path file : abandoned) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new StorageException("Erro ao remover as gravações incompletas.", e);
+        }
+        return abandoned.size();
+    }
+
+    private Path path(String key) {
+        String[] segments = key.split("/", -1);
+        Path path = root;
+        for (int i = 0; i < segments.length - 1; i++) {
+            path = path.resolve(encode(segments[i]));
+        }
+        return path.resolve(encode(segments[segments.length - 1]) + DATA_SUFFIX);
+    }
+
+    /**
+     * @param directoryKey O início de uma chave até o último {@code /}, inclusive, ou vazio para a raiz.
+     */
+    private Path directory(String directoryKey) {
+        Path path = root;
+        if (directoryKey.isEmpty()) {
+            return path;
+        }
+        for (String segment : directoryKey.substring(0, directoryKey.length() - 1).split("/", -1)) {
+            path = path.resolve(encode(segment));
+        }
+        return path;
+    }
+
+    private String key(Path file) {
+        Path relative = root.relativize(file);
+        int last = relative.getNameCount() - 1;
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i <= last; i++) {
+            String name = relative.getName(i).toString();
+            if (i > 0) {
+                key.append('/');
+            }
+            key.append(decode(i == last ? name.substring(0, name.length() - DATA_SUFFIX.length()) : name));
+        }
+        return key.toString();
+    }
+
+    private static String encode(String segment) {
+        if (segment.isEmpty()) {
+            return "%";
+        }
+        StringBuilder encoded = new StringBuilder(segment.length());
+        for (byte value : segment.getBytes(StandardCharsets.UTF_8)) {
+            int c = value & 0xFF;
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_') {
+                encoded.append((char) c);
+            } else {
+                encoded.append('%').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static String decode(String name) {
+        if (name.equals("%")) {
+            return "";
+        }
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '%') {
+                decoded.write(Integer.parseInt(name, i + 1, i + 3, 16));
+                i += 2;
+            } else {
+                decoded.write(c);
+            }
+        }
+        return decoded.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // O canal já está sendo descartado
+        }
+    }
+
+    private final class Buffers {
+        private final byte[] bytes = new byte[bufferSize];
+        private final ByteBuffer direct = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Lê um trecho de um arquivo por posição. {@link #transferTo(OutputStream)}
+     * usa {@link FileChannel#transferTo}: quando o destino é um arquivo, os bytes
+     * são copiados pelo kernel; nos demais casos, o próprio canal os copia em
+     * blocos, sem passar pelo buffer deste stream.
+     */
+    private static final class RegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        RegionInputStream(FileChannel channel, long start, long count) {
+            this.channel = channel;
+            this.position = start;
+            this.remaining = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (read < 0) {
+                remaining = 0;
+                return -1;
+            }
+            position += read;
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, remaining));
+            position += skipped;
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            WritableByteChannel target = Channels.newChannel(out);
+            long transferred = 0;
+            while (remaining > 0) {
+                long count = channel.transferTo(position, remaining, target);
+                if (count <= 0) {
+                    break;
+                }
+                position += count;
+                remaining -= count;
+                transferred += count;
+            }
+            return transferred;
+        }
+
+        @Override
+        public void close() throws IOException {
+            remaining = 0;
+            channel.close();
+        }
+    }
+}
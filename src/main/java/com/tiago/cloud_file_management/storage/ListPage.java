@@ -0,0 +1,12 @@
+package com.tiago.cloud_file_management.storage;
+
+import java.util.List;
+
+/**
+ * Uma página da listagem de chaves de um armazenamento.
+ *
+ * @param keys As chaves da página, em ordem lexicográfica.
+ * @param nextContinuationToken O token para buscar a próxima página, ou {@code null} se esta for a última.
+ */
+public record ListPage(List<String> keys, String nextContinuationToken) {
+}
@@ -0,0 +1,41 @@
+package com.tiago.cloud_file_management.storage;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Os metadados de um objeto armazenado.
+ * <p>
+ * Na gravação, apenas o tipo MIME, o formato de compressão e os metadados de
+ * usuário são considerados; o tamanho, a ETag e a data de modificação são
+ * definidos pelo armazenamento.
+ *
+ * @param contentType O tipo MIME do conteúdo, ou {@code null}.
+ * @param contentEncoding O formato de compressão do conteúdo armazenado, ou {@code null}.
+ * @param contentLength O tamanho do conteúdo armazenado, ou {@code -1} se desconhecido.
+ * @param eTag A ETag do objeto, sem aspas.
+ * @param lastModified A data da última modificação do objeto.
+ * @param userMetadata Os metadados de usuário, com os nomes em minúsculas.
+ */
+public record ObjectAttributes(String contentType, String contentEncoding, long contentLength, String eTag,
+                               Date lastModified, Map<String, String> userMetadata) {
+    public static final ObjectAttributes EMPTY = of(null, null, Map.of());
+
+    public ObjectAttributes {
+        userMetadata = userMetadata == null ? Map.of() : Map.copyOf(userMetadata);
+    }
+
+    /**
+     * Cria os metadados de um objeto a ser gravado.
+     */
+    public static ObjectAttributes of(String contentType, String contentEncoding, Map<String, String> userMetadata) {
+        return new ObjectAttributes(contentType, contentEncoding, -1, null, null, userMetadata);
+    }
+
+    /**
+     * @return O valor de um metadado de usuário, ou {@code null} se ele não existir.
+     */
+    public String userMetadata(String name) {
+        return userMetadata.get(name);
+    }
+}
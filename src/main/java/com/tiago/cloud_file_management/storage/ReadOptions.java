@@ -0,0 +1,44 @@
+package com.tiago.cloud_file_management.storage;
+
+import java.util.Date;
+
+/**
+ * O intervalo e as condições de uma leitura.
+ *
+ * @param rangeStart O primeiro byte do intervalo, ou {@code -1} para o objeto inteiro.
+ * @param rangeEnd O último byte do intervalo, inclusive, ou {@code -1} para ler até o fim.
+ * @param ifNoneMatch As ETags aceitas pelo cliente, no formato do cabeçalho {@code If-None-Match}, ou {@code null}.
+ * @param ifModifiedSince A data do cabeçalho {@code If-Modified-Since}, ou {@code null}.
+ */
+public record ReadOptions(long rangeStart, long rangeEnd, String ifNoneMatch, Date ifModifiedSince) {
+    public static final ReadOptions NONE = new ReadOptions(-1, -1, null, null);
+
+    public ReadOptions withRange(long start, long end) {
+        return new ReadOptions(start, end, ifNoneMatch, ifModifiedSince);
+    }
+
+    public boolean isRanged() {
+        return rangeStart >= 0;
+    }
+
+    /**
+     * Avalia as condições da leitura com a mesma semântica do S3: o
+     * {@code If-None-Match}, quando presente, prevalece sobre o
+     * {@code If-Modified-Since}, e a comparação de ETags é sempre fraca.
+     *
+     * @return Se o objeto não foi modificado e o conteúdo não deve ser enviado.
+     */
+    public boolean isNotModified(String eTag, Date lastModified) {
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String value = candidate.trim();
+                if (value.equals("*") || value.replace("W/", "").replace("\"", "").equals(eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return ifModifiedSince != null && lastModified != null
+                && lastModified.getTime() / 1000 <= ifModifiedSince.getTime() / 1000;
+    }
+}
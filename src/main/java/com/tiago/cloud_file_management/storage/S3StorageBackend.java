@@ -0,0 +1,308 @@
+package com.tiago.cloud_file_management.storage;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.*;
+import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
+import com.tiago.cloud_file_management.exceptions.RangeNotSatisfiableException;
+import com.tiago.cloud_file_management.exceptions.StorageException;
+import com.tiago.cloud_file_management.resilience.StorageGuard;
+import com.tiago.cloud_file_management.upload.MultipartUploadEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Armazena os objetos em um bucket do S3. Objetos grandes são enviados em
+ * partes paralelas pelo {@link MultipartUploadEngine}, e as leituras repassam o
+ * intervalo e as condições ao S3.
+ * <p>
+ * As chamadas passam pelo {@link StorageGuard}: as leituras podem ser repetidas
+ * em paralelo quando demoram e têm tempo limite, e todas as chamadas são
+ * recusadas enquanto o S3 estiver falhando. As consultas de metadados e as
+ * listagens repassam esse tempo limite ao cliente do S3, que encerra a conexão
+ * de uma tentativa abandonada.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3StorageBackend implements StorageBackend {
+    private static final int MAX_CONDITIONAL_ATTEMPTS = 3;
+
+    private final AmazonS3 amazonS3;
+    private final MultipartUploadEngine uploadEngine;
+    private final String bucket;
+    private final StorageGuard guard;
+
+    @Autowired
+    public S3StorageBackend(AmazonS3 amazonS3, MultipartUploadEngine uploadEngine,
+                            @Value("${aws.s3.bucket.name}") String bucket, StorageGuard guard) {
+        this.amazonS3 = amazonS3;
+        this.uploadEngine = uploadEngine;
+        this.bucket = bucket;
+        this.guard = guard;
+    }
+
+    /**
+     * Cria um armazenamento sem a proteção do {@link StorageGuard}.
+     */
+    public S3StorageBackend(AmazonS3 amazonS3, MultipartUploadEngine uploadEngine, String bucket) {
+        this(amazonS3, uploadEngine, bucket, StorageGuard.disabled());
+    }
+
+    @Override
+    public void put(String key, InputStream content, long contentLength, ObjectAttributes attributes)
+            throws IOException {
+        guard.write(() -> {
+            try {
+                uploadEngine.upload(bucket, key, content, contentLength, metadata(attributes));
+            } catch (AmazonClientException e) {
+                throw new StorageException("Erro ao gravar o objeto: " + key, e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Usa uma escrita condicional do S3 ({@code If-None-Match: *}), que responde
+     * 412 quando a chave já existe. Um 409 indica outra escrita condicional em
+     * andamento na mesma chave, e a gravação é repetida quando o conteúdo
+     * permite {@code mark/reset}.
+     */
+    @Override
+    public boolean putIfAbsent(String key, InputStream content, long contentLength, ObjectAttributes attributes)
+            throws IOException {
+        return guard.write(() -> putConditionally(key, content, contentLength, attributes));
+    }
+
+    private boolean putConditionally(String key, InputStream content, long contentLength, ObjectAttributes attributes)
+            throws IOException {
+        ObjectMetadata metadata = metadata(attributes);
+        if (contentLength >= 0) {
+            metadata.setContentLength(contentLength);
+        }
+        PutObjectRequest request = new PutObjectRequest(bucket, key, content, metadata);
+        request.putCustomRequestHeader(Headers.GET_OBJECT_IF_NONE_MATCH, "*");
+        boolean repeatable = content.markSupported();
+        if (repeatable) {
+            content.mark(Integer.MAX_VALUE);
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                amazonS3.putObject(request);
+                return true;
+            } catch (AmazonS3Exception e) {
+                if (e.getStatusCode() == 412) {
+                    return false;
+                }
+                if (e.getStatusCode() != 409 || !repeatable || attempt >= MAX_CONDITIONAL_ATTEMPTS) {
+                    throw new StorageException("Erro ao gravar o objeto: " + key, e);
+                }
+                content.reset();
+            } catch (AmazonClientException e) {
+                throw new StorageException("Erro ao gravar o objeto: " + key, e);
+            }
+        }
+    }
+
+    private static ObjectMetadata metadata(ObjectAttributes attributes) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(attributes.contentType());
+        if (attributes.contentEncoding() != null) {
+            metadata.setContentEncoding(attributes.contentEncoding());
+        }
+        metadata.setUserMetadata(new HashMap<>(attributes.userMetadata()));
+        return metadata;
+    }
+
+    @Override
+    public StoredObject get(String key, ReadOptions options) {
+        GetObjectRequest request = new GetObjectRequest(bucket, key);
+        if (options.isRanged() && options.rangeEnd() >= 0) {
+            request.setRange(options.rangeStart(), options.rangeEnd());
+        } else if (options.isRanged()) {
+            request.setRange(options.rangeStart());
+        }
+        if (options.ifNoneMatch() != null) {
+            request.setNonmatchingETagConstraints(List.of(options.ifNoneMatch()));
+        }
+        if (options.ifModifiedSince() != null) {
+            request.setModifiedSinceConstraint(options.ifModifiedSince());
+        }
+        return guard.read("get", timeout -> get(request), object -> {
+            if (object != null) {
+                object.abort();
+            }
+        });
+    }
+
+    private StoredObject get(GetObjectRequest request) {
+        String key = request.getKey();
+        S3Object object;
+        try {
+            object = amazonS3.getObject(request);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) {
+                throw new FileNotFoundException("Arquivo não encontrado no bucket: " + key);
+            }
+            if (e.getStatusCode() == 416) {
+                throw new RangeNotSatisfiableException("Intervalo solicitado inválido para o arquivo: " + key);
+            }
+            throw new StorageException("Erro ao tentar baixar o arquivo: " + key, e);
+        } catch (AmazonClientException e) {
+            throw new StorageException("Erro ao tentar baixar o arquivo: " + key, e);
+        }
+        if (object == null) {
+            return null;
+        }
+
+        ObjectMetadata metadata = object.getObjectMetadata();
+        Object contentRange = metadata.getRawMetadataValue(Headers.CONTENT_RANGE);
+        S3ObjectInputStream content = object.getObjectContent();
+        return new StoredObject(attributes(metadata), contentRange != null ? contentRange.toString() : null,
+                content, content::abort);
+    }
+
+    @Override
+    public ObjectAttributes head(String key) {
+        return guard.read("head", timeout -> fetchAttributes(key, timeout), attributes -> { });
+    }
+
+    private ObjectAttributes fetchAttributes(String key, int timeout) {
+        try {
+            return attributes(timeout > 0
+                    ? amazonS3.getObjectMetadata(withTimeout(new GetObjectMetadataRequest(bucket, key), timeout))
+                    : amazonS3.getObjectMetadata(bucket, key));
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw new StorageException("Erro ao consultar o objeto: " + key, e);
+        } catch (AmazonClientException e) {
+            throw new StorageException("Erro ao consultar o objeto: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return guard.read("exists", timeout -> {
+            if (timeout > 0) {
+                return fetchAttributes(key, timeout) != null;
+            }
+            try {
+                return amazonS3.doesObjectExist(bucket, key);
+            } catch (AmazonClientException e) {
+                throw new StorageException("Erro ao consultar o objeto: " + key, e);
+            }
+        }, exists -> { });
+    }
+
+    @Override
+    public ListPage list(String prefix, String delimiter, int maxKeys, String continuationToken) {
+        return guard.read("list", timeout -> {
+            ListObjectsV2Request request = new ListObjectsV2Request()
+                    .withBucketName(bucket)
+                    .withPrefix(prefix)
+                    .withDelimiter(delimiter)
+                    .withMaxKeys(maxKeys)
+                    .withContinuationToken(continuationToken);
+            try {
+                ListObjectsV2Result result = amazonS3.listObjectsV2(withTimeout(request, timeout));
+                return new ListPage(result.getObjectSummaries().stream().map(S3ObjectSummary::getKey).toList(),
+                        result.isTruncated() ? result.getNextContinuationToken() : null);
+            } catch (AmazonClientException e) {
+                throw new StorageException("Erro ao listar os objetos do bucket.", e);
+            }
+        }, page -> { });
+    }
+
+    @Override
+    public void delete(String key) {
+        guard.write(() -> {
+            try {
+                amazonS3.deleteObject(bucket, key);
+            } catch (AmazonClientException e) {
+                throw new StorageException("Erro ao excluir o objeto: " + key, e);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(List<String> keys) {
+        guard.write(() -> {
+            try {
+                amazonS3.deleteObjects(new DeleteObjectsRequest(bucket)
+                        .withKeys(keys.toArray(String[]::new))
+                        .withQuiet(true));
+            } catch (AmazonClientException e) {
+                throw new StorageException("Erro ao excluir os objetos: " + keys, e);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public int abortIncompleteUploads(Duration maxAge) {
+        return guard.write(() -> {
+            try {
+                return uploadEngine.abortOrphanedUploads(bucket, maxAge);
+            } catch (AmazonClientException e) {
+                throw new StorageException("Erro ao abortar os uploads em partes abandonados.", e);
+            }
+        });
+    }
+
+    /**
+     * A assinatura é calculada localmente, sem requisição ao S3. O
+     * {@code Content-Type} faz parte da requisição assinada.
+     */
+    @Override
+    public URL presignedPut(String key, String contentType, Instant expiresAt) {
+        return presign(new GeneratePresignedUrlRequest(bucket, key, HttpMethod.PUT)
+                .withContentType(contentType)
+                .withExpiration(Date.from(expiresAt)));
+    }
+
+    @Override
+    public URL presignedGet(String key, Instant expiresAt) {
+        return presign(new GeneratePresignedUrlRequest(bucket, key, HttpMethod.GET)
+                .withExpiration(Date.from(expiresAt)));
+    }
+
+    private URL presign(GeneratePresignedUrlRequest request) {
+        try {
+            return amazonS3.generatePresignedUrl(request);
+        } catch (AmazonClientException e) {
+            throw new StorageException("Erro ao assinar a URL do objeto: " + request.getKey(), e);
+        }
+    }
+
+    /**
+     * Limita a chamada ao tempo da tentativa; sem limite, vale o tempo configurado no cliente.
+     */
+    private static <R extends AmazonWebServiceRequest> R withTimeout(R request, int timeout) {
+        if (timeout > 0) {
+            request.setSdkRequestTimeout(timeout);
+        }
+        return request;
+    }
+
+    private static ObjectAttributes attributes(ObjectMetadata metadata) {
+        return new ObjectAttributes(metadata.getContentType(), metadata.getContentEncoding(),
+                metadata.getContentLength(), metadata.getETag(), metadata.getLastModified(),
+                metadata.getUserMetadata());
+    }
+}
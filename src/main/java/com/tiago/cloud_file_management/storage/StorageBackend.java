@@ -0,0 +1,119 @@
+package com.tiago.cloud_file_management.storage;
+
+import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
+import com.tiago.cloud_file_management.exceptions.RangeNotSatisfiableException;
+import com.tiago.cloud_file_management.exceptions.StorageException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * O armazenamento de objetos usado pelo serviço de arquivos.
+ * <p>
+ * As chaves usam {@code /} como separador, como no S3, e o conteúdo é sempre
+ * transferido em stream, sem ser acumulado em memória. A implementação é
+ * escolhida por {@code storage.backend}: {@code s3} (padrão), que usa o bucket
+ * {@code aws.s3.bucket.name}, ou {@code filesystem}, que grava os objetos em
+ * {@code storage.filesystem.root}.
+ * <p>
+ * Falhas do armazenamento são lançadas como {@link StorageException}.
+ */
+public interface StorageBackend {
+    /**
+     * Grava um objeto, substituindo o existente na mesma chave.
+     *
+     * @param key A chave do objeto.
+     * @param content O conteúdo. Não é fechado por este método.
+     * @param contentLength O tamanho do conteúdo, ou {@code -1} se desconhecido.
+     * @param attributes O tipo MIME, o formato de compressão e os metadados de usuário do objeto.
+     * @throws IOException Se ocorrer um erro ao ler o conteúdo ou ao gravá-lo.
+     */
+    void put(String key, InputStream content, long contentLength, ObjectAttributes attributes) throws IOException;
+
+    /**
+     * Grava um objeto somente se a chave ainda não existir. A verificação e a
+     * gravação são atômicas, inclusive entre instâncias da aplicação, então apenas
+     * uma de várias gravações simultâneas na mesma chave tem sucesso. Indicado
+     * para objetos pequenos, como marcadores.
+     *
+     * @return {@code true} se o objeto foi gravado, ou {@code false} se a chave já existia.
+     * @throws IOException Se ocorrer um erro ao ler o conteúdo ou ao gravá-lo.
+     */
+    boolean putIfAbsent(String key, InputStream content, long contentLength, ObjectAttributes attributes)
+            throws IOException;
+
+    /**
+     * Abre um objeto para leitura.
+     *
+     * @param key A chave do objeto.
+     * @param options O intervalo e as condições da leitura.
+     * @return O objeto, ou {@code null} se as condições indicarem que ele não foi modificado.
+     * @throws FileNotFoundException Se o objeto não existir.
+     * @throws RangeNotSatisfiableException Se o intervalo estiver fora do objeto.
+     */
+    StoredObject get(String key, ReadOptions options);
+
+    /**
+     * @return Os metadados do objeto, ou {@code null} se ele não existir.
+     */
+    ObjectAttributes head(String key);
+
+    boolean exists(String key);
+
+    /**
+     * Lista as chaves com o prefixo informado, em ordem lexicográfica.
+     *
+     * @param prefix O prefixo das chaves, ou {@code null} para todas.
+     * @param delimiter Com {@code /}, as chaves que têm outro {@code /} após o prefixo não são
+     *                  listadas; com {@code null}, todas são.
+     * @param maxKeys A quantidade máxima de chaves da página.
+     * @param continuationToken O token retornado pela página anterior, ou {@code null} para a primeira.
+     */
+    ListPage list(String prefix, String delimiter, int maxKeys, String continuationToken);
+
+    /**
+     * Remove um objeto. Não falha se ele não existir.
+     */
+    void delete(String key);
+
+    /**
+     * Remove vários objetos. Não falha para os que não existirem.
+     */
+    void delete(List<String> keys);
+
+    /**
+     * Remove as gravações incompletas iniciadas há mais tempo que o limite
+     * informado, como os uploads em partes abandonados no S3.
+     *
+     * @return A quantidade de gravações removidas.
+     */
+    default int abortIncompleteUploads(Duration maxAge) {
+        return 0;
+    }
+
+    /**
+     * Gera uma URL assinada para que o cliente grave o objeto diretamente no
+     * armazenamento, sem que o conteúdo passe pela aplicação.
+     *
+     * @param contentType O tipo MIME que o cliente deve enviar no {@code Content-Type}.
+     * @param expiresAt O instante a partir do qual a URL deixa de ser aceita.
+     * @return A URL, ou {@code null} se o armazenamento não permitir acesso direto.
+     */
+    default URL presignedPut(String key, String contentType, Instant expiresAt) {
+        return null;
+    }
+
+    /**
+     * Gera uma URL assinada para que o cliente leia o objeto diretamente do armazenamento.
+     *
+     * @param expiresAt O instante a partir do qual a URL deixa de ser aceita.
+     * @return A URL, ou {@code null} se o armazenamento não permitir acesso direto.
+     */
+    default URL presignedGet(String key, Instant expiresAt) {
+        return null;
+    }
+}
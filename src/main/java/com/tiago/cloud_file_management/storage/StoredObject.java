@@ -0,0 +1,79 @@
+package com.tiago.cloud_file_management.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Um objeto aberto para leitura: seus metadados e o conteúdo, lido sob demanda.
+ * <p>
+ * O conteúdo deve ser lido até o fim e fechado, ou descartado com
+ * {@link #abort()} quando não for mais necessário. O descarte permite que o
+ * armazenamento encerre a transferência sem ler os bytes restantes.
+ */
+public final class StoredObject implements Closeable {
+    private final ObjectAttributes attributes;
+    private final String contentRange;
+    private final InputStream content;
+    private final Runnable abort;
+
+    /**
+     * @param attributes Os metadados do objeto. O tamanho é o do conteúdo retornado.
+     * @param contentRange O valor do {@code Content-Range} de uma leitura parcial, ou {@code null}.
+     * @param content O conteúdo do objeto.
+     * @param abort Descarta o conteúdo sem lê-lo até o fim, ou {@code null} para apenas fechá-lo.
+     */
+    public StoredObject(ObjectAttributes attributes, String contentRange, InputStream content, Runnable abort) {
+        this.attributes = attributes;
+        this.contentRange = contentRange;
+        this.content = content;
+        this.abort = abort;
+    }
+
+    public ObjectAttributes attributes() {
+        return attributes;
+    }
+
+    public String contentRange() {
+        return contentRange;
+    }
+
+    public InputStream content() {
+        return content;
+    }
+
+    /**
+     * Retorna uma cópia deste objeto com outro conteúdo, como o conteúdo
+     * descompactado. Descartar a cópia descarta também o conteúdo original.
+     */
+    public StoredObject withContent(InputStream replacement) {
+        return new StoredObject(attributes, contentRange, replacement, () -> {
+            abort();
+            try {
+                replacement.close();
+            } catch (IOException e) {
+                // O conteúdo original já foi descartado
+            }
+        });
+    }
+
+    /**
+     * Descarta o conteúdo sem lê-lo até o fim.
+     */
+    public void abort() {
+        if (abort != null) {
+            abort.run();
+            return;
+        }
+        try {
+            content.close();
+        } catch (IOException e) {
+            // Nada a fazer: o conteúdo está sendo descartado
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
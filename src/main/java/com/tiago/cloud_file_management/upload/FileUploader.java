@@ -0,0 +1,938 @@
+package com.tiago.cloud_file_management.upload;
+
+import com.tiago.cloud_file_management.BatchUploadResult;
+import com.tiago.cloud_file_management.PresignedTransfer;
+import com.tiago.cloud_file_management.cache.DownloadCache;
+import com.tiago.cloud_file_management.catalog.FileEntry;
+import com.tiago.cloud_file_management.catalog.MetadataCatalog;
+import com.tiago.cloud_file_management.chunking.ChunkManifest;
+import com.tiago.cloud_file_management.chunking.ChunkStore;
+import com.tiago.cloud_file_management.compression.CompressionPolicy;
+import com.tiago.cloud_file_management.compression.ContentCodec;
+import com.tiago.cloud_file_management.dedup.DedupIndex;
+import com.tiago.cloud_file_management.dedup.HashMarkers;
+import com.tiago.cloud_file_management.exceptions.DirectTransferUnavailableException;
+import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
+import com.tiago.cloud_file_management.exceptions.FileUploadException;
+import com.tiago.cloud_file_management.exceptions.StorageException;
+import com.tiago.cloud_file_management.hash.ContentHasher;
+import com.tiago.cloud_file_management.hash.HashingInputStream;
+import com.tiago.cloud_file_management.hash.SpooledFile;
+import com.tiago.cloud_file_management.metrics.StorageMetrics;
+import com.tiago.cloud_file_management.storage.ObjectAttributes;
+import com.tiago.cloud_file_management.storage.ReadOptions;
+import com.tiago.cloud_file_management.storage.StorageBackend;
+import com.tiago.cloud_file_management.storage.StoredObject;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntConsumer;
+
+/**
+ * Orquestra os envios de arquivos: o upload de um arquivo, do corpo da
+ * requisição, em lote e direto ao armazenamento por URL assinada.
+ * <p>
+ * Cada envio calcula o hash do conteúdo na mesma leitura em que ele é enviado,
+ * grava o arquivo inteiro, compactado ou em blocos, e confirma a duplicidade
+ * pelo índice local e pelos marcadores de {@link HashMarkers}, registrando o
+ * arquivo no catálogo de metadados. Envios simultâneos do mesmo conteúdo nesta
+ * instância compartilham um único resultado.
+ */
+@Component
+public class FileUploader {
+    private static final Logger log = LoggerFactory.getLogger(FileUploader.class);
+    private final StorageBackend storage;
+    private final DedupIndex dedupIndex;
+    private final MetadataCatalog catalog;
+    private final ContentHasher contentHasher;
+    private final CompressionPolicy compressionPolicy;
+    private final ChunkStore chunkStore;
+    private final DownloadCache downloadCache;
+    private final Executor storageExecutor;
+    private final StorageMetrics metrics;
+    private final Map<Object, CompletableFuture<StoredUpload>> uploadsInFlight = new ConcurrentHashMap<>();
+    private static final String PENDING = "pending/";
+    private static final List<String> ALLOWED_MIME_TYPES = List.of(
+            // Imagens
+            "image/jpeg", "image/png", "image/gif",
+
+            // Documentos
+            "application/pdf",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation",
+
+            // Arquivos de texto e estruturados
+            "text/plain",
+            "text/csv",
+            "application/json",
+            "application/xml"
+    );
+
+    @Value("${upload.batch.concurrency:8}")
+    private int batchConcurrency = 8;
+
+    @Value("${direct-transfer.enabled:false}")
+    private boolean directTransferEnabled;
+
+    @Value("${direct-transfer.url-expiration:PT15M}")
+    private Duration directTransferExpiration = Duration.ofMinutes(15);
+
+    @Autowired
+    public FileUploader(StorageBackend storage, DedupIndex dedupIndex, MetadataCatalog catalog,
+                        ContentHasher contentHasher, CompressionPolicy compressionPolicy, ChunkStore chunkStore,
+                        DownloadCache downloadCache, @Qualifier("storageExecutor") Executor storageExecutor,
+                        StorageMetrics metrics) {
+        this.storage = storage;
+        this.dedupIndex = dedupIndex;
+        this.catalog = catalog;
+        this.contentHasher = contentHasher;
+        this.compressionPolicy = compressionPolicy;
+        this.chunkStore = chunkStore;
+        this.downloadCache = downloadCache;
+        this.storageExecutor = storageExecutor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Faz o upload de um arquivo para o armazenamento.
+     * <p>
+     * O arquivo é lido uma única vez: o hash SHA-256 é calculado enquanto os bytes
+     * são enviados ao S3, com o tamanho do conteúdo informado antecipadamente, e
+     * arquivos grandes são enviados em partes paralelas. Ao final, o marcador de
+     * hash em {@code hashes/} é confirmado ou, se o conteúdo já existir, o objeto
+     * recém-enviado é removido.
+     * <p>
+     * Arquivos grandes guardados em disco pelo multipart são mapeados em memória
+     * e têm o pré-hash calculado antes do envio; se ele corresponder a um
+     * conteúdo conhecido, o SHA-256 é calculado e a duplicidade é confirmada sem
+     * enviar o arquivo. Envios simultâneos de um mesmo arquivo grande, como os de
+     * clientes que repetem a requisição, aguardam o primeiro terminar e recebem o
+     * seu resultado, sem um novo envio. Nos demais envios, o SHA-256 só é
+     * conhecido ao fim da leitura, e um envio simultâneo do mesmo conteúdo que
+     * ainda esteja confirmando o marcador de hash é aguardado da mesma forma: o
+     * objeto recém-enviado é removido e o resultado do outro envio é usado.
+     * <p>
+     * Arquivos de texto, CSV, JSON e XML são armazenados compactados, com o
+     * formato registrado no {@code Content-Encoding} do objeto; o hash é sempre
+     * calculado sobre o conteúdo original.
+     * <p>
+     * Com {@code chunking.enabled}, arquivos a partir de {@code chunking.min-file-size}
+     * são divididos em blocos definidos pelo conteúdo, e apenas os blocos que ainda
+     * não existem no bucket são enviados (veja {@link ChunkStore}).
+     *
+     * @param file O arquivo a ser enviado.
+     * @return Uma mensagem confirmando o sucesso do upload.
+     * @throws IOException Se ocorrer um erro ao ler o arquivo.
+     * @throws IllegalArgumentException Se o nome contiver {@code /} ou o tipo do arquivo não for permitido.
+     * @throws FileUploadException Se o arquivo já existir no bucket ou não for fornecido.
+     */
+    public String uploadFile(MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            throw new FileUploadException("Arquivo para upload não selecionado.");
+        }
+
+        try (SpooledFile spooled = contentHasher.spool(file);
+             InputStream inputStream = openContent(file, spooled)) {
+            return storeFile(file.getOriginalFilename(), inputStream, file.getSize(), spooled);
+        }
+    }
+
+    private InputStream openContent(MultipartFile file, SpooledFile spooled) throws IOException {
+        return spooled == null ? file.getInputStream() : Files.newInputStream(spooled.path());
+    }
+
+    /**
+     * Faz o upload de um arquivo lido diretamente do corpo da requisição, sem o
+     * armazenamento intermediário do multipart do Spring. Arquivos grandes são
+     * enviados em partes paralelas.
+     *
+     * @param originalFilename O nome original do arquivo.
+     * @param inputStream O conteúdo do arquivo.
+     * @param contentLength O tamanho do conteúdo, ou {@code -1} se desconhecido.
+     * @return Uma mensagem confirmando o sucesso do upload.
+     * @throws IOException Se ocorrer um erro ao ler o arquivo.
+     * @throws IllegalArgumentException Se o nome contiver {@code /} ou o tipo do arquivo não for permitido.
+     * @throws FileUploadException Se o arquivo já existir no bucket ou não for fornecido.
+     */
+    public String uploadStream(String originalFilename, InputStream inputStream, long contentLength) throws IOException {
+        if (originalFilename == null || originalFilename.isBlank() || contentLength == 0) {
+            throw new FileUploadException("Arquivo para upload não selecionado.");
+        }
+        return storeFile(originalFilename, inputStream, contentLength, null);
+    }
+
+    private String storeFile(String originalFilename, InputStream content, long contentLength,
+                             SpooledFile spooled) throws IOException {
+        return metrics.timed("upload", () -> doStoreFile(originalFilename, content, contentLength, spooled));
+    }
+
+    private String doStoreFile(String originalFilename, InputStream content, long contentLength,
+                               SpooledFile spooled) throws IOException {
+        requireValidName(originalFilename);
+        Timer.Sample mimeProbe = metrics.start();
+        String mimeType = Files.probeContentType(Path.of(originalFilename));
+        metrics.uploadPhase(mimeProbe, "mime-probe");
+
+        if (mimeType == null || !ALLOWED_MIME_TYPES.contains(mimeType)) {
+            throw new IllegalArgumentException("Tipo de arquivo não permitido.");
+        }
+
+        StoredUpload stored;
+        if (spooled == null || !contentHasher.isPreHashEnabled()) {
+            stored = putFile(originalFilename, content, contentLength, mimeType, null);
+        } else {
+            Timer.Sample preHashSample = metrics.start();
+            long preHash = contentHasher.preHash(spooled.path());
+            metrics.uploadPhase(preHashSample, "prehash");
+            stored = coalesceUpload(preHash, leader -> leader.fileHash().equals(spooledHash(spooled)), () -> {
+                if (dedupIndex.containsPreHash(preHash)) {
+                    rejectKnownContent(spooled);
+                }
+                return putFile(originalFilename, content, contentLength, mimeType, preHash);
+            });
+        }
+        if (stored == null) {
+            throw new FileUploadException("Este arquivo já foi enviado anteriormente.");
+        }
+        return "Arquivo upado para o bucket com sucesso: " + stored.key();
+    }
+
+    /**
+     * Envia o conteúdo de um arquivo calculando o SHA-256 na mesma leitura e
+     * confirma o marcador de hash.
+     *
+     * @param preHash O pré-hash já calculado, ou {@code null} para calculá-lo durante o envio.
+     * @return O arquivo que guarda o conteúdo, ou {@code null} se o conteúdo já existia.
+     */
+    private StoredUpload putFile(String originalFilename, InputStream content, long contentLength, String mimeType,
+                                 Long preHash) throws IOException {
+        String uniqueFileName = uniqueFileName(originalFilename, System.currentTimeMillis());
+
+        boolean streamPreHash = preHash == null && contentHasher.isPreHashEnabled();
+        HashingInputStream inputStream = new HashingInputStream(content, contentHasher.sha256Digest(),
+                streamPreHash ? contentHasher.preHashDigest() : null);
+        Timer.Sample put = metrics.start();
+        ChunkManifest manifest = storeContent(uniqueFileName, inputStream, contentLength, mimeType);
+        metrics.uploadPhase(put, "object-put");
+        metrics.uploadPhase("hash", inputStream.getDigestNanos());
+        metrics.bytesIn(inputStream.getBytesRead());
+        String fileHash = inputStream.getHash();
+
+        if (inputStream.getBytesRead() == 0) {
+            discardUpload(uniqueFileName, manifest);
+            throw new FileUploadException("Arquivo para upload não selecionado.");
+        }
+
+        return claimUpload(uniqueFileName, inputStream.getBytesRead(), mimeType, fileHash,
+                streamPreHash ? inputStream.getPreHash() : preHash, manifest);
+    }
+
+    /**
+     * Confirma pelo SHA-256, antes do envio, se um arquivo em disco cujo pré-hash
+     * corresponde a um conteúdo conhecido já existe.
+     *
+     * @throws FileUploadException Se o conteúdo já existir no bucket.
+     */
+    private void rejectKnownContent(SpooledFile spooled) throws IOException {
+        if (isKnownHash(spooledHash(spooled))) {
+            throw new FileUploadException("Este arquivo já foi enviado anteriormente.");
+        }
+    }
+
+    private String spooledHash(SpooledFile spooled) throws IOException {
+        Timer.Sample hashSample = metrics.start();
+        String fileHash = contentHasher.sha256(spooled.path());
+        metrics.uploadPhase(hashSample, "hash");
+        return fileHash;
+    }
+
+    /**
+     * Executa um envio como o único em andamento nesta instância para a chave
+     * dada: o SHA-256 do conteúdo ou, enquanto ele não é conhecido, o pré-hash.
+     * Um envio simultâneo com a mesma chave, como o de um cliente que repete a
+     * requisição, aguarda o que está em andamento e recebe o seu resultado sem
+     * enviar nada, desde que {@code sameContent} confirme que o conteúdo é o
+     * mesmo; se não confirmar, é executado por conta própria. Se o envio em
+     * andamento falhar ou encontrar o conteúdo já existente, o seguinte é
+     * executado em seu lugar e chega à mesma conclusão por conta própria.
+     *
+     * @param sameContent Verifica o conteúdo de um envio concluído, ou {@code null} se a chave é o SHA-256.
+     * @return O resultado do envio, compartilhado com os envios simultâneos do mesmo conteúdo.
+     */
+    private StoredUpload coalesceUpload(Object flightKey, SameContent sameContent, CoalescedUpload upload)
+            throws IOException {
+        while (true) {
+            CompletableFuture<StoredUpload> flight = new CompletableFuture<>();
+            CompletableFuture<StoredUpload> existing = uploadsInFlight.putIfAbsent(flightKey, flight);
+            if (existing == null) {
+                try {
+                    StoredUpload stored = upload.run();
+                    flight.complete(stored);
+                    return stored;
+                } catch (Throwable e) {
+                    flight.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    uploadsInFlight.remove(flightKey, flight);
+                }
+            }
+
+            StoredUpload leader;
+            try {
+                leader = existing.join();
+            } catch (CompletionException e) {
+                continue;
+            }
+            if (leader == null) {
+                continue;
+            }
+            if (sameContent == null || sameContent.test(leader)) {
+                metrics.dedupLookup("coalesced");
+                return leader;
+            }
+            return upload.run();
+        }
+    }
+
+    /**
+     * Um arquivo armazenado: a chave do objeto que guarda o conteúdo e o seu SHA-256.
+     */
+    private record StoredUpload(String key, String fileHash) {
+    }
+
+    @FunctionalInterface
+    private interface CoalescedUpload {
+        StoredUpload run() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface SameContent {
+        boolean test(StoredUpload stored) throws IOException;
+    }
+
+    /**
+     * Envia o conteúdo de um arquivo inteiro ou, quando o armazenamento em blocos
+     * se aplica, dividido em blocos.
+     *
+     * @return O manifesto do arquivo, ou {@code null} se ele foi armazenado inteiro.
+     */
+    private ChunkManifest storeContent(String key, InputStream content, long contentLength, String mimeType)
+            throws IOException {
+        if (chunkStore.accepts(contentLength)) {
+            return chunkStore.store(key, content, mimeType);
+        }
+        putContent(key, content, contentLength, mimeType);
+        return null;
+    }
+
+    /**
+     * Envia o conteúdo de um arquivo, compactado quando o tipo do arquivo permite.
+     * O tamanho original é registrado nos metadados para que o conteúdo possa ser
+     * servido descompactado com {@code Content-Length}.
+     */
+    private void putContent(String key, InputStream content, long contentLength, String mimeType) throws IOException {
+        ContentCodec codec = compressionPolicy.codecFor(mimeType, contentLength);
+        if (codec == null) {
+            storage.put(key, content, contentLength, ObjectAttributes.of(mimeType, null, Map.of()));
+            return;
+        }
+
+        Map<String, String> userMetadata = contentLength >= 0
+                ? Map.of(ContentCodec.DECODED_LENGTH_METADATA, String.valueOf(contentLength))
+                : Map.of();
+        try (InputStream compressed = compressionPolicy.compress(content, codec)) {
+            storage.put(key, compressed, -1, ObjectAttributes.of(mimeType, codec.encoding(), userMetadata));
+        }
+    }
+
+    private String uniqueFileName(String originalFilename, long timestamp) {
+        return timestamp + "-" + originalFilename;
+    }
+
+    /**
+     * Os arquivos ficam na raiz do armazenamento, e {@code /} separa os prefixos
+     * dos marcadores; um nome com {@code /} criaria um arquivo fora da listagem e,
+     * no sistema de arquivos, subdiretórios.
+     *
+     * @throws IllegalArgumentException Se o nome contiver {@code /}.
+     */
+    private static void requireValidName(String originalFilename) {
+        if (!isValidName(originalFilename)) {
+            throw new IllegalArgumentException("Nome de arquivo inválido.");
+        }
+    }
+
+    private static boolean isValidName(String originalFilename) {
+        return originalFilename != null && !originalFilename.contains("/");
+    }
+
+    /**
+     * Gera uma URL assinada para que o cliente envie um arquivo diretamente ao
+     * armazenamento, sem que o conteúdo passe pela aplicação. O tipo do arquivo é
+     * validado pelo nome, e o cliente deve enviar o {@code Content-Type}
+     * correspondente. Concluído o envio, o cliente chama
+     * {@link #completeDirectUpload(String)} com o nome retornado, que fica
+     * registrado em {@code pending/} até a conclusão.
+     *
+     * @param originalFilename O nome original do arquivo.
+     * @return A URL de envio e o nome com que o arquivo será armazenado.
+     * @throws IOException Se não for possível determinar o tipo do arquivo.
+     * @throws IllegalArgumentException Se o tipo do arquivo não for permitido.
+     * @throws DirectTransferUnavailableException Se a transferência direta não estiver disponível.
+     */
+    public PresignedTransfer createDirectUpload(String originalFilename) throws IOException {
+        requireDirectTransfer();
+        if (originalFilename == null || originalFilename.isBlank()) {
+            throw new FileUploadException("Arquivo para upload não selecionado.");
+        }
+        requireValidName(originalFilename);
+        String mimeType = Files.probeContentType(Path.of(originalFilename));
+        if (mimeType == null || !ALLOWED_MIME_TYPES.contains(mimeType)) {
+            throw new IllegalArgumentException("Tipo de arquivo não permitido.");
+        }
+
+        String fileName = uniqueFileName(originalFilename, System.currentTimeMillis());
+        Instant expiresAt = Instant.now().plus(directTransferExpiration);
+        PresignedTransfer transfer = PresignedTransfer.of(fileName, "PUT",
+                storage.presignedPut(fileName, mimeType, expiresAt), Map.of("Content-Type", mimeType), expiresAt);
+        putMarker(PENDING + fileName, Map.of());
+        return transfer;
+    }
+
+    /**
+     * Registra um arquivo enviado por uma URL de {@link #createDirectUpload(String)}.
+     * <p>
+     * Apenas os nomes gerados por {@link #createDirectUpload(String)}, ainda
+     * registrados em {@code pending/}, são aceitos; qualquer outro arquivo, como
+     * os enviados antes das referências em {@code refs/}, nunca é lido nem
+     * removido por este fluxo. O registro em {@code pending/} é removido quando o
+     * arquivo é registrado ou removido.
+     * <p>
+     * A verificação é feita no executor de armazenamento, fora da requisição: o
+     * conteúdo é lido uma vez do armazenamento para calcular o SHA-256 e o
+     * pré-hash e, como em {@link #uploadFile(MultipartFile)}, o arquivo é removido
+     * se o tipo não for permitido ou se o conteúdo já existir; caso contrário, os
+     * marcadores de hash são gravados. Se outro envio do mesmo conteúdo estiver
+     * sendo registrado ao mesmo tempo, o arquivo é removido e a verificação é
+     * concluída com o nome do outro arquivo. Chamadas repetidas para um arquivo
+     * já registrado não têm efeito.
+     *
+     * @param fileName O nome retornado por {@link #createDirectUpload(String)}.
+     * @return A verificação, concluída com o nome do arquivo que guarda o conteúdo,
+     *         ou com {@link FileUploadException} ou {@link IllegalArgumentException}
+     *         se o arquivo for removido.
+     * @throws FileNotFoundException Se o arquivo não tiver sido enviado ou o nome não tiver sido gerado para um envio direto.
+     * @throws DirectTransferUnavailableException Se a transferência direta não estiver habilitada.
+     */
+    public CompletableFuture<String> completeDirectUpload(String fileName) {
+        requireDirectTransfer();
+        if (fileName == null || fileName.contains("/") || !storage.exists(fileName)
+                || (!storage.exists(PENDING + fileName) && !storage.exists(HashMarkers.REFS + fileName))) {
+            throw new FileNotFoundException("Arquivo não encontrado no bucket: " + fileName);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return metrics.timed("upload.direct", () -> verifyDirectUpload(fileName));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, storageExecutor)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        log.warn("Upload direto de {} não registrado: {}", fileName,
+                                (error instanceof CompletionException ? error.getCause() : error).getMessage());
+                    }
+                });
+    }
+
+    private String verifyDirectUpload(String fileName) throws IOException {
+        if (storage.head(HashMarkers.REFS + fileName) != null) {
+            storage.delete(PENDING + fileName);
+            return fileName;
+        }
+        try {
+            return verifyUnregisteredDirectUpload(fileName);
+        } catch (IOException | RuntimeException e) {
+            // O objeto pode ter sido baixado, e guardado no cache, entre o envio e a sua remoção aqui
+            downloadCache.invalidate(fileName);
+            throw e;
+        }
+    }
+
+    private String verifyUnregisteredDirectUpload(String fileName) throws IOException {
+        String fileHash;
+        Long preHash;
+        String mimeType;
+        long size;
+        try (StoredObject object = storage.get(fileName, ReadOptions.NONE)) {
+            mimeType = Files.probeContentType(Path.of(fileName));
+            if (mimeType == null || !ALLOWED_MIME_TYPES.contains(mimeType)
+                    || !mimeType.equals(object.attributes().contentType())) {
+                object.abort();
+                storage.delete(List.of(fileName, PENDING + fileName));
+                throw new IllegalArgumentException("Tipo de arquivo não permitido.");
+            }
+            try (HashingInputStream content = new HashingInputStream(chunkStore.original(object).content(),
+                    contentHasher.sha256Digest(), contentHasher.isPreHashEnabled() ? contentHasher.preHashDigest() : null)) {
+                content.transferTo(OutputStream.nullOutputStream());
+                if (content.getBytesRead() == 0) {
+                    storage.delete(List.of(fileName, PENDING + fileName));
+                    throw new FileUploadException("Arquivo para upload não selecionado.");
+                }
+                fileHash = content.getHash();
+                preHash = contentHasher.isPreHashEnabled() ? content.getPreHash() : null;
+                size = content.getBytesRead();
+            }
+        }
+
+        StoredUpload stored = claimUpload(fileName, size, mimeType, fileHash, preHash, null);
+        storage.delete(PENDING + fileName);
+        if (stored == null) {
+            throw new FileUploadException("Este arquivo já foi enviado anteriormente.");
+        }
+        return stored.key();
+    }
+
+    private void requireDirectTransfer() {
+        if (!directTransferEnabled) {
+            throw new DirectTransferUnavailableException("A transferência direta não está habilitada.");
+        }
+    }
+
+    /**
+     * Faz o upload de vários arquivos em uma única requisição.
+     * <p>
+     * Os arquivos já estão no disco local, então seus hashes são calculados em
+     * paralelo antes do envio. A verificação de duplicidade é feita uma única vez
+     * para o lote: arquivos repetidos dentro do lote ou já existentes no bucket não
+     * são enviados. Os demais são enviados em paralelo, respeitando o limite de
+     * concorrência configurado.
+     * <p>
+     * Com o pré-hash habilitado, apenas ele é calculado antes do envio. O SHA-256
+     * é calculado antecipadamente só para os arquivos cujo pré-hash coincide com
+     * o de outro arquivo do lote ou de um conteúdo conhecido; os demais têm o
+     * SHA-256 calculado durante o envio e a duplicidade confirmada ao final.
+     *
+     * @param files Os arquivos a serem enviados.
+     * @return O resultado de cada arquivo, na ordem em que foram recebidos.
+     * @throws FileUploadException Se nenhum arquivo for fornecido.
+     */
+    public List<BatchUploadResult> uploadFiles(List<MultipartFile> files) {
+        if (files == null || files.isEmpty()) {
+            throw new FileUploadException("Arquivo para upload não selecionado.");
+        }
+        SpooledFile[] spooled = new SpooledFile[files.size()];
+        try {
+            return metrics.timed("upload.batch", () -> doUploadFiles(files, spooled));
+        } finally {
+            for (SpooledFile file : spooled) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private List<BatchUploadResult> doUploadFiles(List<MultipartFile> files, SpooledFile[] spooled) {
+        boolean preHashEnabled = contentHasher.isPreHashEnabled();
+        BatchUploadResult[] results = new BatchUploadResult[files.size()];
+        String[] hashes = new String[files.size()];
+        long[] preHashes = new long[files.size()];
+        String[] mimeTypes = new String[files.size()];
+
+        runBounded(files.size(), i -> {
+            MultipartFile file = files.get(i);
+            try {
+                if (file.isEmpty()) {
+                    results[i] = rejected(file, "Arquivo para upload não selecionado.");
+                    return;
+                }
+                if (!isValidName(file.getOriginalFilename())) {
+                    results[i] = rejected(file, "Nome de arquivo inválido.");
+                    return;
+                }
+                mimeTypes[i] = Files.probeContentType(Path.of(file.getOriginalFilename()));
+                if (mimeTypes[i] == null || !ALLOWED_MIME_TYPES.contains(mimeTypes[i])) {
+                    results[i] = rejected(file, "Tipo de arquivo não permitido.");
+                } else {
+                    spooled[i] = contentHasher.spool(file);
+                    if (preHashEnabled) {
+                        preHashes[i] = spooled[i] == null ? preHash(file) : contentHasher.preHash(spooled[i].path());
+                    } else {
+                        hashes[i] = spooled[i] == null ? generateFileHash(file) : contentHasher.sha256(spooled[i].path());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                results[i] = failed(file, e);
+            }
+        });
+
+        if (preHashEnabled) {
+            Map<Long, Integer> preHashCounts = new HashMap<>();
+            for (int i = 0; i < files.size(); i++) {
+                if (results[i] == null) {
+                    preHashCounts.merge(preHashes[i], 1, Integer::sum);
+                }
+            }
+            runBounded(files.size(), i -> {
+                if (results[i] != null
+                        || (preHashCounts.get(preHashes[i]) == 1 && !dedupIndex.containsPreHash(preHashes[i]))) {
+                    return;
+                }
+                try {
+                    hashes[i] = spooled[i] == null ? generateFileHash(files.get(i)) : contentHasher.sha256(spooled[i].path());
+                } catch (IOException | RuntimeException e) {
+                    results[i] = failed(files.get(i), e);
+                }
+            });
+        }
+
+        Map<String, Integer> firstByHash = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            if (results[i] == null && hashes[i] != null && firstByHash.putIfAbsent(hashes[i], i) != null) {
+                results[i] = duplicate(files.get(i));
+            }
+        }
+        List<String> candidates = firstByHash.keySet().stream().filter(dedupIndex::mightContain).toList();
+        for (int i = candidates.size(); i < firstByHash.size(); i++) {
+            metrics.dedupLookup("skipped");
+        }
+        Set<String> known = ConcurrentHashMap.newKeySet();
+        Set<String> unchecked = ConcurrentHashMap.newKeySet();
+        runBounded(candidates.size(), i -> {
+            try {
+                if (storage.exists(HashMarkers.HASHES + candidates.get(i))) {
+                    known.add(candidates.get(i));
+                    metrics.dedupLookup("hit");
+                } else {
+                    metrics.dedupLookup("miss");
+                }
+            } catch (StorageException e) {
+                unchecked.add(candidates.get(i));
+            }
+        });
+
+        long timestamp = System.currentTimeMillis();
+        Set<String> assignedNames = new HashSet<>();
+        String[] fileNames = new String[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            if (results[i] == null && hashes[i] != null && known.contains(hashes[i])) {
+                results[i] = duplicate(files.get(i));
+            } else if (results[i] == null && hashes[i] != null && unchecked.contains(hashes[i])) {
+                results[i] = new BatchUploadResult(files.get(i).getOriginalFilename(), BatchUploadResult.Status.FAILED,
+                        null, "Não foi possível verificar se o arquivo já foi enviado.");
+            } else if (results[i] == null) {
+                long candidate = timestamp;
+                while (!assignedNames.add(uniqueFileName(files.get(i).getOriginalFilename(), candidate))) {
+                    candidate++;
+                }
+                fileNames[i] = uniqueFileName(files.get(i).getOriginalFilename(), candidate);
+            }
+        }
+
+        runBounded(files.size(), i -> {
+            if (results[i] != null) {
+                return;
+            }
+            MultipartFile file = files.get(i);
+            Long preHash = preHashEnabled ? preHashes[i] : null;
+            try (InputStream inputStream = openContent(file, spooled[i])) {
+                StoredUpload stored;
+                if (hashes[i] != null) {
+                    stored = coalesceUpload(hashes[i], null, () -> {
+                        ChunkManifest manifest = storeContent(fileNames[i], inputStream, file.getSize(), mimeTypes[i]);
+                        metrics.bytesIn(file.getSize());
+                        return writeHashMarkers(fileNames[i], file.getSize(), mimeTypes[i], hashes[i], preHash, manifest)
+                                ? new StoredUpload(fileNames[i], hashes[i]) : null;
+                    });
+                } else {
+                    HashingInputStream hashingStream = new HashingInputStream(inputStream, contentHasher.sha256Digest());
+                    ChunkManifest manifest = storeContent(fileNames[i], hashingStream, file.getSize(), mimeTypes[i]);
+                    metrics.bytesIn(file.getSize());
+                    stored = claimUpload(fileNames[i], file.getSize(), mimeTypes[i], hashingStream.getHash(), preHash,
+                            manifest);
+                }
+                if (stored == null) {
+                    results[i] = duplicate(file);
+                    return;
+                }
+                results[i] = new BatchUploadResult(file.getOriginalFilename(), BatchUploadResult.Status.UPLOADED,
+                        stored.key(), "Arquivo upado para o bucket com sucesso: " + stored.key());
+            } catch (IOException | RuntimeException e) {
+                results[i] = failed(file, e);
+            }
+        });
+
+        return List.of(results);
+    }
+
+    private String generateFileHash(MultipartFile file) throws IOException {
+        try (InputStream inputStream = file.getInputStream()) {
+            return contentHasher.sha256(inputStream);
+        }
+    }
+
+    private long preHash(MultipartFile file) throws IOException {
+        try (InputStream inputStream = file.getInputStream()) {
+            return contentHasher.preHash(inputStream);
+        }
+    }
+
+    private void deleteQuietly(SpooledFile file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            log.warn("Não foi possível remover o arquivo temporário {}.", file.path(), e);
+        }
+    }
+
+    private BatchUploadResult rejected(MultipartFile file, String message) {
+        return new BatchUploadResult(file.getOriginalFilename(), BatchUploadResult.Status.REJECTED, null, message);
+    }
+
+    private BatchUploadResult duplicate(MultipartFile file) {
+        return new BatchUploadResult(file.getOriginalFilename(), BatchUploadResult.Status.DUPLICATE, null,
+                "Este arquivo já foi enviado anteriormente.");
+    }
+
+    private BatchUploadResult failed(MultipartFile file, Exception e) {
+        return new BatchUploadResult(file.getOriginalFilename(), BatchUploadResult.Status.FAILED, null, e.getMessage());
+    }
+
+    /**
+     * Executa uma tarefa para cada índice de {@code 0} a {@code count - 1} no
+     * executor de armazenamento, com no máximo {@code upload.batch.concurrency}
+     * tarefas simultâneas, e aguarda todas terminarem.
+     */
+    private void runBounded(int count, IntConsumer task) {
+        Semaphore permits = new Semaphore(batchConcurrency);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                permits.acquire();
+                int index = i;
+                futures[i] = CompletableFuture.runAsync(() -> task.accept(index), storageExecutor)
+                        .whenComplete((result, error) -> permits.release());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileUploadException("Upload em lote interrompido.");
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * Confirma o marcador de hash de um arquivo recém-enviado como o único envio
+     * do conteúdo em andamento nesta instância (veja
+     * {@link #coalesceUpload(Object, SameContent, CoalescedUpload)}). Se outro
+     * envio do mesmo conteúdo estiver confirmando o seu ao mesmo tempo, o objeto
+     * enviado é removido e o resultado do outro envio é usado.
+     *
+     * @param key A chave do objeto recém-enviado.
+     * @param size O tamanho do conteúdo original.
+     * @param contentType O tipo MIME do arquivo.
+     * @param fileHash O hash do conteúdo do objeto.
+     * @param preHash O pré-hash do conteúdo, ou {@code null} se não foi calculado.
+     * @param manifest O manifesto do objeto, ou {@code null} se ele foi armazenado inteiro.
+     * @return O arquivo que guarda o conteúdo, ou {@code null} se o conteúdo já existia.
+     * @throws FileUploadException Se o marcador não puder ser gravado.
+     */
+    private StoredUpload claimUpload(String key, long size, String contentType, String fileHash, Long preHash,
+                                     ChunkManifest manifest) throws IOException {
+        StoredUpload stored = coalesceUpload(fileHash, null,
+                () -> confirmHashMarker(key, size, contentType, fileHash, preHash, manifest)
+                        ? new StoredUpload(key, fileHash) : null);
+        if (stored != null && !stored.key().equals(key)) {
+            discardUpload(key, manifest);
+        }
+        return stored;
+    }
+
+    /**
+     * Confirma o marcador de hash de um arquivo recém-enviado. Se o conteúdo já
+     * existir no bucket, inclusive por um envio simultâneo que gravou o marcador
+     * primeiro, ou se os marcadores não puderem ser gravados, o objeto enviado é
+     * removido para não deixar cópias sem marcador.
+     *
+     * @return {@code false} se o conteúdo já existia, caso em que o objeto enviado foi removido.
+     * @throws FileUploadException Se o marcador não puder ser gravado.
+     */
+    private boolean confirmHashMarker(String key, long size, String contentType, String fileHash, Long preHash,
+                                      ChunkManifest manifest) {
+        if (isKnownUploadedHash(key, fileHash, manifest)) {
+            return false;
+        }
+        Timer.Sample markerPut = metrics.start();
+        boolean claimed = writeHashMarkers(key, size, contentType, fileHash, preHash, manifest);
+        metrics.uploadPhase(markerPut, "marker-put");
+        return claimed;
+    }
+
+    /**
+     * Verifica se o conteúdo de um objeto recém-enviado já existia no bucket. Se
+     * existir, ou se a verificação falhar, o objeto enviado é removido. Um
+     * marcador que já aponta para a própria chave foi gravado por uma chamada
+     * anterior para o mesmo objeto, como a conclusão de um envio direto repetida
+     * pelo cliente, e o objeto é mantido.
+     */
+    private boolean isKnownUploadedHash(String key, String fileHash, ChunkManifest manifest) {
+        boolean known;
+        try {
+            known = isKnownHash(fileHash);
+        } catch (StorageException e) {
+            discardUpload(key, manifest);
+            throw e;
+        }
+        if (known) {
+            ObjectAttributes marker = storage.head(HashMarkers.HASHES + fileHash);
+            if (marker != null && key.equals(marker.userMetadata(HashMarkers.KEY_METADATA))) {
+                return false;
+            }
+            discardUpload(key, manifest);
+        }
+        return known;
+    }
+
+    /**
+     * Remove um objeto recém-enviado e, se ele foi armazenado em blocos, libera
+     * suas referências aos blocos.
+     */
+    private void discardUpload(String key, ChunkManifest manifest) {
+        storage.delete(key);
+        if (manifest != null) {
+            chunkStore.release(key, manifest);
+        }
+    }
+
+    /**
+     * Verifica se um conteúdo já existe no bucket. O marcador só é consultado no
+     * armazenamento quando o índice local de hashes não garante que o conteúdo é novo.
+     */
+    private boolean isKnownHash(String fileHash) {
+        if (!dedupIndex.mightContain(fileHash)) {
+            metrics.dedupLookup("skipped");
+            return false;
+        }
+        Timer.Sample dedupHead = metrics.start();
+        boolean known = storage.exists(HashMarkers.HASHES + fileHash);
+        metrics.uploadPhase(dedupHead, "dedup-head");
+        metrics.dedupLookup(known ? "hit" : "miss");
+        return known;
+    }
+
+    /**
+     * Grava o marcador de hash e a referência reversa em {@code refs/}, que guarda o
+     * hash do arquivo nos metadados para que a exclusão não precise baixar o
+     * conteúdo. O pré-hash, quando calculado, também é guardado na referência e
+     * registrado no índice local, assim como a indicação de que o arquivo foi
+     * armazenado em blocos. Se a gravação falhar, o objeto enviado é removido;
+     * caso contrário, o arquivo é registrado no catálogo de metadados.
+     * <p>
+     * O marcador é gravado com uma escrita condicional, então de dois envios
+     * simultâneos do mesmo conteúdo, nesta ou em outra instância, apenas um o
+     * grava; o outro tem o objeto enviado removido.
+     *
+     * @param key A chave do objeto recém-enviado.
+     * @param size O tamanho do conteúdo original.
+     * @param contentType O tipo MIME do arquivo.
+     * @param fileHash O hash do conteúdo do objeto.
+     * @param preHash O pré-hash do conteúdo, ou {@code null} se não foi calculado.
+     * @param manifest O manifesto do objeto, ou {@code null} se ele foi armazenado inteiro.
+     * @return {@code false} se o marcador já existia, caso em que o objeto enviado foi removido.
+     * @throws FileUploadException Se o marcador não puder ser gravado.
+     */
+    private boolean writeHashMarkers(String key, long size, String contentType, String fileHash, Long preHash,
+                                     ChunkManifest manifest) {
+        boolean claimed;
+        try {
+            claimed = claimHashMarker(key, fileHash);
+        } catch (StorageException | IOException e) {
+            discardUpload(key, manifest);
+            throw new FileUploadException("Erro ao registrar o hash do arquivo: " + key);
+        }
+        if (!claimed) {
+            discardUpload(key, manifest);
+            dedupIndex.add(fileHash);
+            metrics.dedupLookup("conflict");
+            return false;
+        }
+
+        Map<String, String> refMetadata = new HashMap<>();
+        refMetadata.put(HashMarkers.HASH_METADATA, fileHash);
+        if (preHash != null) {
+            refMetadata.put(HashMarkers.PRE_HASH_METADATA, Long.toHexString(preHash));
+        }
+        if (manifest != null) {
+            refMetadata.put(HashMarkers.CHUNKED_METADATA, "true");
+        }
+        try {
+            putMarker(HashMarkers.REFS + key, refMetadata);
+        } catch (StorageException | IOException e) {
+            storage.delete(HashMarkers.HASHES + fileHash);
+            discardUpload(key, manifest);
+            throw new FileUploadException("Erro ao registrar o hash do arquivo: " + key);
+        }
+
+        dedupIndex.add(fileHash);
+        if (preHash != null) {
+            dedupIndex.addPreHash(preHash);
+        }
+        catalog.put(FileEntry.of(key, size, contentType, fileHash, preHash, manifest != null,
+                Instant.ofEpochMilli(System.currentTimeMillis())));
+        return true;
+    }
+
+
+    /**
+     * Grava o marcador de hash somente se ele ainda não existir. Um marcador que
+     * já aponta para a própria chave foi gravado por uma tentativa anterior da
+     * mesma escrita, repetida pelo cliente do armazenamento após uma falha de rede.
+     * Se o marcador for removido entre a escrita e a consulta, a escrita é repetida.
+     *
+     * @return Se o marcador pertence à chave informada.
+     */
+    private boolean claimHashMarker(String key, String fileHash) throws IOException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (storage.putIfAbsent(HashMarkers.HASHES + fileHash, new ByteArrayInputStream(new byte[0]), 0,
+                    ObjectAttributes.of(null, null, Map.of(HashMarkers.KEY_METADATA, key)))) {
+                return true;
+            }
+            ObjectAttributes marker = storage.head(HashMarkers.HASHES + fileHash);
+            if (marker != null) {
+                return key.equals(marker.userMetadata(HashMarkers.KEY_METADATA));
+            }
+        }
+        return false;
+    }
+
+    private void putMarker(String key, Map<String, String> userMetadata) throws IOException {
+        storage.put(key, new ByteArrayInputStream(new byte[0]), 0, ObjectAttributes.of(null, null, userMetadata));
+    }
+}
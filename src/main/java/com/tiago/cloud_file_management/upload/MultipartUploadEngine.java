@@ -0,0 +1,236 @@
+package com.tiago.cloud_file_management.upload;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+import com.tiago.cloud_file_management.exceptions.FileUploadException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Envia objetos ao S3 em partes paralelas usando o multipart upload.
+ * <p>
+ * As partes são lidas sequencialmente do stream de origem e enviadas por um
+ * executor limitado. Cada upload mantém no máximo {@code concurrency} partes em
+ * memória ao mesmo tempo, e cada parte é reenviada individualmente em caso de
+ * falha. Uploads que não puderem ser concluídos são abortados para não deixar
+ * partes órfãs no bucket.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+public class MultipartUploadEngine {
+    private static final Logger log = LoggerFactory.getLogger(MultipartUploadEngine.class);
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final AmazonS3 amazonS3;
+    private final int partSize;
+    private final int concurrency;
+    private final long threshold;
+    private final int maxAttempts;
+    private final ExecutorService executor;
+
+    @Autowired
+    public MultipartUploadEngine(AmazonS3 amazonS3,
+                                 @Value("${upload.multipart.part-size:16MB}") DataSize partSize,
+                                 @Value("${upload.multipart.concurrency:4}") int concurrency,
+                                 @Value("${upload.multipart.threshold:32MB}") DataSize threshold,
+                                 @Value("${upload.multipart.max-attempts:3}") int maxAttempts,
+                                 @Value("${upload.multipart.threads:16}") int threads) {
+        this.amazonS3 = amazonS3;
+        this.partSize = (int) Math.max(MIN_PART_SIZE, partSize.toBytes());
+        this.concurrency = Math.max(1, concurrency);
+        this.threshold = Math.max(this.partSize, threshold.toBytes());
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.executor = newBoundedExecutor(Math.max(1, threads));
+    }
+
+    /**
+     * Envia o conteúdo de um stream para o bucket. Conteúdos menores que o limite
+     * configurado, com tamanho conhecido, são enviados em um único PUT; os demais
+     * são enviados em partes paralelas.
+     *
+     * @param bucket O bucket de destino.
+     * @param key A chave do objeto.
+     * @param inputStream O conteúdo a ser enviado. Não é fechado por este método.
+     * @param contentLength O tamanho do conteúdo, ou {@code -1} se desconhecido.
+     * @param contentType O tipo MIME do conteúdo.
+     * @throws IOException Se ocorrer um erro ao ler o conteúdo.
+     * @throws FileUploadException Se o envio não puder ser concluído.
+     */
+    public void upload(String bucket, String key, InputStream inputStream, long contentLength, String contentType)
+            throws IOException {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        upload(bucket, key, inputStream, contentLength, metadata);
+    }
+
+    /**
+     * Envia o conteúdo de um stream para o bucket com os metadados informados,
+     * como {@link #upload(String, String, InputStream, long, String)}.
+     *
+     * @param metadata Os metadados do objeto. O tamanho do conteúdo é preenchido por este método.
+     */
+    public void upload(String bucket, String key, InputStream inputStream, long contentLength, ObjectMetadata metadata)
+            throws IOException {
+        if (contentLength >= 0 && contentLength <= threshold) {
+            ObjectMetadata single = metadata.clone();
+            single.setContentLength(contentLength);
+            amazonS3.putObject(bucket, key, inputStream, single);
+            return;
+        }
+
+        byte[] firstPart = inputStream.readNBytes(partSize);
+        if (firstPart.length < partSize) {
+            ObjectMetadata single = metadata.clone();
+            single.setContentLength(firstPart.length);
+            amazonS3.putObject(bucket, key, new ByteArrayInputStream(firstPart), single);
+            return;
+        }
+
+        uploadInParts(bucket, key, inputStream, firstPart, metadata);
+    }
+
+    private void uploadInParts(String bucket, String key, InputStream inputStream, byte[] firstPart,
+                               ObjectMetadata metadata) throws IOException {
+        String uploadId = amazonS3.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key, metadata))
+                .getUploadId();
+
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<PartETag>> parts = new ArrayList<>();
+        try {
+            byte[] buffer = firstPart;
+            int length = firstPart.length;
+            int partNumber = 1;
+            while (length > 0 && failure.get() == null) {
+                inFlight.acquire();
+                byte[] part = buffer;
+                int partLength = length;
+                int number = partNumber++;
+                parts.add(executor.submit(() -> {
+                    try {
+                        return uploadPart(bucket, key, uploadId, number, part, partLength);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+
+                buffer = new byte[partSize];
+                length = inputStream.readNBytes(buffer, 0, partSize);
+            }
+
+            List<PartETag> eTags = new ArrayList<>(parts.size());
+            for (Future<PartETag> part : parts) {
+                eTags.add(part.get());
+            }
+            eTags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+            amazonS3.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, eTags));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(bucket, key, uploadId, parts);
+            throw new FileUploadException("Upload interrompido: " + key);
+        } catch (ExecutionException | AmazonClientException e) {
+            abort(bucket, key, uploadId, parts);
+            throw new FileUploadException("Erro ao enviar o arquivo em partes: " + key);
+        } catch (IOException | RuntimeException e) {
+            abort(bucket, key, uploadId, parts);
+            throw e;
+        }
+    }
+
+    private PartETag uploadPart(String bucket, String key, String uploadId, int partNumber, byte[] part, int length)
+            throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                UploadPartRequest request = new UploadPartRequest()
+                        .withBucketName(bucket)
+                        .withKey(key)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withPartSize(length)
+                        .withInputStream(new ByteArrayInputStream(part, 0, length));
+                return amazonS3.uploadPart(request).getPartETag();
+            } catch (AmazonClientException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.warn("Falha ao enviar a parte {} de {} (tentativa {}), reenviando.", partNumber, key, attempt);
+                Thread.sleep(200L << (attempt - 1));
+            }
+        }
+    }
+
+    private void abort(String bucket, String key, String uploadId, List<Future<PartETag>> parts) {
+        parts.forEach(part -> part.cancel(true));
+        try {
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+        } catch (AmazonClientException e) {
+            log.warn("Não foi possível abortar o upload {} de {}; ele será removido na próxima limpeza.", uploadId, key);
+        }
+    }
+
+    /**
+     * Aborta os uploads em partes iniciados há mais tempo que o limite informado,
+     * liberando o armazenamento ocupado por partes órfãs.
+     *
+     * @param bucket O bucket a ser verificado.
+     * @param maxAge A idade máxima de um upload em andamento.
+     * @return A quantidade de uploads abortados.
+     */
+    public int abortOrphanedUploads(String bucket, Duration maxAge) {
+        Date cutoff = new Date(System.currentTimeMillis() - maxAge.toMillis());
+        ListMultipartUploadsRequest request = new ListMultipartUploadsRequest(bucket);
+        int aborted = 0;
+        MultipartUploadListing listing;
+        do {
+            listing = amazonS3.listMultipartUploads(request);
+            for (MultipartUpload upload : listing.getMultipartUploads()) {
+                if (upload.getInitiated().before(cutoff)) {
+                    amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, upload.getKey(), upload.getUploadId()));
+                    aborted++;
+                }
+            }
+            request.setKeyMarker(listing.getNextKeyMarker());
+            request.setUploadIdMarker(listing.getNextUploadIdMarker());
+        } while (listing.isTruncated());
+        return aborted;
+    }
+
+    private static ExecutorService newBoundedExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(threads * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "multipart-upload-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
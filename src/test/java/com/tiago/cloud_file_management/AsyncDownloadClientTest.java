@@ -0,0 +1,93 @@
+package com.tiago.cloud_file_management;
+
+import com.tiago.cloud_file_management.compression.ContentCodec;
+import com.tiago.cloud_file_management.exceptions.RangeNotSatisfiableException;
+import com.tiago.cloud_file_management.s3.LocalS3Server;
+import com.tiago.cloud_file_management.storage.ObjectAttributes;
+import com.tiago.cloud_file_management.storage.S3StorageBackend;
+import com.tiago.cloud_file_management.upload.MultipartUploadEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Executa o {@link AsyncDownloadClient} contra o {@link LocalS3Server}.
+ */
+class AsyncDownloadClientTest {
+    private static final String BUCKET = "file-management-bucket05012005";
+
+    private LocalS3Server server;
+    private S3AsyncClient s3AsyncClient;
+    private AsyncDownloadClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new LocalS3Server();
+        s3AsyncClient = S3AsyncClient.builder()
+                .endpointOverride(URI.create(server.endpoint()))
+                .forcePathStyle(true)
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("local", "local")))
+                .build();
+        client = new AsyncDownloadClient(s3AsyncClient, BUCKET);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3AsyncClient.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Testa se um intervalo além do tamanho compactado é servido a partir do objeto inteiro descompactado")
+    void testRangeBeyondCompressedSize() throws IOException {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            rows.append(i).append(";cliente-").append(i % 97).append('\n');
+        }
+        byte[] content = rows.toString().getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream encoder = ContentCodec.GZIP.encoder(compressed, ContentCodec.GZIP.defaultLevel())) {
+            encoder.write(content);
+        }
+        assertTrue(compressed.size() < content.length / 2);
+        S3StorageBackend storage = new S3StorageBackend(server.client(), new MultipartUploadEngine(server.client(),
+                DataSize.ofMegabytes(5), 2, DataSize.ofMegabytes(5), 2, 2), BUCKET);
+        storage.put("clientes.csv", new ByteArrayInputStream(compressed.toByteArray()), compressed.size(),
+                ObjectAttributes.of("text/csv", "gzip",
+                        Map.of(ContentCodec.DECODED_LENGTH_METADATA, String.valueOf(content.length))));
+
+        int start = content.length - 100;
+        FileDownload download = client.download("clientes.csv",
+                new DownloadOptions("bytes=" + start + "-" + (content.length - 1), null, null, null)).join();
+
+        assertEquals(FileDownload.Status.PARTIAL_CONTENT, download.status());
+        assertEquals("bytes " + start + "-" + (content.length - 1) + "/" + content.length, download.contentRange());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        download.body().writeTo(body);
+        assertArrayEquals(Arrays.copyOfRange(content, start, content.length), body.toByteArray());
+
+        server.putObject("notas.txt", content, "text/plain", Map.of());
+        CompletionException thrown = assertThrows(CompletionException.class, () -> client.download("notas.txt",
+                new DownloadOptions("bytes=" + content.length + "-", null, null, null)).join());
+        assertInstanceOf(RangeNotSatisfiableException.class, thrown.getCause());
+    }
+}
@@ -0,0 +1,476 @@
+package com.tiago.cloud_file_management;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.tiago.cloud_file_management.archive.ZipArchiveWriter;
+import com.tiago.cloud_file_management.cache.DownloadCache;
+import com.tiago.cloud_file_management.catalog.FileEntry;
+import com.tiago.cloud_file_management.catalog.FileQuery;
+import com.tiago.cloud_file_management.chunking.ChunkManifest;
+import com.tiago.cloud_file_management.catalog.MetadataCatalog;
+import com.tiago.cloud_file_management.chunking.ChunkStore;
+import com.tiago.cloud_file_management.compression.CompressionPolicy;
+import com.tiago.cloud_file_management.dedup.DedupIndex;
+import com.tiago.cloud_file_management.download.FileDownloader;
+import com.tiago.cloud_file_management.exceptions.CatalogUnavailableException;
+import com.tiago.cloud_file_management.exceptions.DirectTransferUnavailableException;
+import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
+import com.tiago.cloud_file_management.exceptions.FileUploadException;
+import com.tiago.cloud_file_management.hash.ContentHasher;
+import com.tiago.cloud_file_management.metrics.StorageMetrics;
+import com.tiago.cloud_file_management.s3.LocalS3Server;
+import com.tiago.cloud_file_management.storage.S3StorageBackend;
+import com.tiago.cloud_file_management.storage.StorageBackend;
+import com.tiago.cloud_file_management.upload.FileUploader;
+import com.tiago.cloud_file_management.upload.MultipartUploadEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Executa as operações do serviço contra o {@link LocalS3Server}, passando pelo
+ * SDK e pelo HTTP, em vez de simular as respostas do cliente.
+ */
+class S3ServiceLocalS3Test {
+    private LocalS3Server server;
+    private S3Service s3Service;
+    private S3Service chunkedService;
+    private int services;
+
+    @TempDir
+    Path catalogDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new LocalS3Server();
+        s3Service = newService(false);
+        chunkedService = newService(true);
+    }
+
+    private S3Service newService(boolean chunking) {
+        return newService(chunking, new MetadataCatalog(true, catalogDirectory.resolve("catalog-" + services++ + ".journal")));
+    }
+
+    private S3Service newService(boolean chunking, MetadataCatalog catalog) {
+        return newService(chunking, catalog, new DedupIndex(false, 10000, 0.01));
+    }
+
+    private S3Service newService(boolean chunking, MetadataCatalog catalog, DedupIndex dedupIndex) {
+        AmazonS3 amazonS3 = server.client();
+        MultipartUploadEngine uploadEngine = new MultipartUploadEngine(amazonS3,
+                DataSize.ofMegabytes(5), 2, DataSize.ofMegabytes(5), 2, 2);
+        StorageBackend storage = new S3StorageBackend(amazonS3, uploadEngine, "file-management-bucket05012005");
+        DownloadCache downloadCache = new DownloadCache(false, Path.of("target"), DataSize.ofMegabytes(1),
+                DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), DataSize.ofKilobytes(1), Duration.ofSeconds(30));
+        CompressionPolicy compressionPolicy = new CompressionPolicy(true, "gzip", 0, DataSize.ofKilobytes(1),
+                List.of("text/plain", "text/csv", "application/json", "application/xml"));
+        ChunkStore chunkStore = new ChunkStore(storage, compressionPolicy, chunking, DataSize.ofKilobytes(64),
+                DataSize.ofKilobytes(4), DataSize.ofKilobytes(16), DataSize.ofKilobytes(64), 4, 4, 4);
+        ContentHasher contentHasher = new ContentHasher(DataSize.ofKilobytes(256), DataSize.ofMegabytes(4), true);
+        StorageMetrics metrics = new StorageMetrics(new SimpleMeterRegistry());
+        return new S3Service(storage, dedupIndex, catalog, contentHasher, chunkStore, downloadCache,
+                new FileUploader(storage, dedupIndex, catalog, contentHasher, compressionPolicy, chunkStore,
+                        downloadCache, Runnable::run, metrics),
+                new FileDownloader(storage, catalog, compressionPolicy, chunkStore, downloadCache, Optional.empty(), Runnable::run,
+                        new ZipArchiveWriter(Runnable::run, 2), metrics),
+                metrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Testa o ciclo de upload, listagem, download e exclusão de um arquivo grande enviado em partes")
+    void testRoundTrip() throws IOException {
+        byte[] content = new byte[12 * 1024 * 1024];
+        new Random(42).nextBytes(content);
+
+        String message = s3Service.uploadStream("dados.csv", new ByteArrayInputStream(content), content.length);
+        String fileName = message.substring(message.lastIndexOf(' ') + 1);
+
+        assertEquals(java.util.List.of(fileName), s3Service.listFiles(null, null).files());
+        ByteArrayOutputStream downloaded = new ByteArrayOutputStream();
+        s3Service.downloadFile(fileName, DownloadOptions.NONE).body().writeTo(downloaded);
+        assertArrayEquals(content, downloaded.toByteArray());
+
+        FileDownload range = s3Service.downloadFile(fileName, new DownloadOptions("bytes=10-19", null, null));
+        assertEquals(FileDownload.Status.PARTIAL_CONTENT, range.status());
+        assertEquals(10, range.contentLength());
+
+        assertThrows(FileUploadException.class,
+                () -> s3Service.uploadStream("copia.csv", new ByteArrayInputStream(content), content.length));
+
+        s3Service.deleteFile(fileName);
+        assertTrue(server.keys().isEmpty());
+        assertThrows(FileNotFoundException.class, () -> s3Service.downloadFile(fileName, DownloadOptions.NONE));
+    }
+
+    @Test
+    @DisplayName("Testa se um conteúdo enviado por outra instância, desconhecido pelo índice local, não fica duplicado")
+    void testDuplicateFromAnotherInstance() throws IOException {
+        DedupIndex firstIndex = new DedupIndex(true, 10000, 0.01);
+        DedupIndex secondIndex = new DedupIndex(true, 10000, 0.01);
+        firstIndex.markReady();
+        secondIndex.markReady();
+        S3Service first = newService(false, new MetadataCatalog(false, null), firstIndex);
+        S3Service second = newService(false, new MetadataCatalog(false, null), secondIndex);
+        byte[] content = new byte[4096];
+        new Random(7).nextBytes(content);
+
+        String message = first.uploadStream("dados.csv", new ByteArrayInputStream(content), content.length);
+        String fileName = message.substring(message.lastIndexOf(' ') + 1);
+        assertEquals(0, secondIndex.size());
+
+        assertThrows(FileUploadException.class,
+                () -> second.uploadStream("copia.csv", new ByteArrayInputStream(content), content.length));
+        assertEquals(List.of(fileName), second.listFiles(null, null).files());
+        assertEquals(1, secondIndex.size());
+    }
+
+    @Test
+    @DisplayName("Testa o armazenamento compactado de um arquivo de texto e o download com e sem Accept-Encoding")
+    void testCompressedRoundTrip() throws IOException {
+        byte[] content = "id;nome;valor\n".repeat(2000).getBytes(StandardCharsets.US_ASCII);
+
+        String message = s3Service.uploadStream("dados.csv", new ByteArrayInputStream(content), content.length);
+        String fileName = message.substring(message.lastIndexOf(' ') + 1);
+
+        assertEquals("gzip", server.contentEncoding(fileName));
+        assertTrue(server.content(fileName).length < content.length);
+
+        FileDownload encoded = s3Service.downloadFile(fileName, new DownloadOptions(null, null, null, "gzip, br"));
+        assertEquals("gzip", encoded.contentEncoding());
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        encoded.body().writeTo(compressed);
+        assertArrayEquals(content, new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())).readAllBytes());
+
+        FileDownload decoded = s3Service.downloadFile(fileName, DownloadOptions.NONE);
+        assertNull(decoded.contentEncoding());
+        assertEquals(content.length, decoded.contentLength());
+        assertTrue(decoded.eTag().startsWith("W/"));
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        decoded.body().writeTo(plain);
+        assertArrayEquals(content, plain.toByteArray());
+
+        // O catálogo indica que o arquivo é compactado, então o intervalo é lido do objeto inteiro em uma chamada
+        long requests = server.requestCount();
+        FileDownload range = s3Service.downloadFile(fileName, new DownloadOptions("bytes=14-27", null, null, "identity"));
+        assertEquals(FileDownload.Status.PARTIAL_CONTENT, range.status());
+        assertEquals("bytes 14-27/" + content.length, range.contentRange());
+        ByteArrayOutputStream slice = new ByteArrayOutputStream();
+        range.body().writeTo(slice);
+        assertEquals("id;nome;valor\n", slice.toString(StandardCharsets.US_ASCII));
+        assertEquals(requests + 1, server.requestCount());
+
+        requests = server.requestCount();
+        FileDownload tail = s3Service.downloadFile(fileName, new DownloadOptions("bytes=-14", null, null, "identity"));
+        assertEquals("bytes " + (content.length - 14) + "-" + (content.length - 1) + "/" + content.length,
+                tail.contentRange());
+        ByteArrayOutputStream end = new ByteArrayOutputStream();
+        tail.body().writeTo(end);
+        assertEquals("id;nome;valor\n", end.toString(StandardCharsets.US_ASCII));
+        assertEquals(requests + 2, server.requestCount());
+
+        requests = server.requestCount();
+        FileDownload unchanged = s3Service.downloadFile(fileName,
+                new DownloadOptions("bytes=-14", decoded.eTag(), null, "identity"));
+        assertEquals(FileDownload.Status.NOT_MODIFIED, unchanged.status());
+        assertEquals(decoded.eTag(), unchanged.eTag());
+        assertEquals(requests + 1, server.requestCount());
+    }
+
+    @Test
+    @DisplayName("Testa o armazenamento em blocos de duas versões próximas de um arquivo e a liberação dos blocos")
+    void testChunkedVersions() throws IOException {
+        byte[] first = csvRows(0, 20_000);
+        byte[] second = concat(csvRows(0, 10_000), csvRows(50_000, 5), csvRows(10_000, 10_000));
+
+        String firstName = uploadedName(chunkedService.uploadStream("v1.csv", new ByteArrayInputStream(first), first.length));
+        long firstChunks = countKeys("chunks/");
+        String secondName = uploadedName(chunkedService.uploadStream("v2.csv", new ByteArrayInputStream(second), second.length));
+        long newChunks = countKeys("chunks/") - firstChunks;
+
+        assertTrue(firstChunks > 10);
+        assertTrue(newChunks <= 3, "blocos novos na segunda versão: " + newChunks);
+        assertEquals(List.of(firstName, secondName).stream().sorted().toList(), s3Service.listFiles(null, null).files());
+
+        ByteArrayOutputStream downloaded = new ByteArrayOutputStream();
+        chunkedService.downloadFile(secondName, DownloadOptions.NONE).body().writeTo(downloaded);
+        assertArrayEquals(second, downloaded.toByteArray());
+
+        FileDownload range = chunkedService.downloadFile(secondName,
+                new DownloadOptions("bytes=100000-100099", null, null, "gzip"));
+        assertEquals(FileDownload.Status.PARTIAL_CONTENT, range.status());
+        assertEquals("bytes 100000-100099/" + second.length, range.contentRange());
+        ByteArrayOutputStream slice = new ByteArrayOutputStream();
+        range.body().writeTo(slice);
+        assertArrayEquals(Arrays.copyOfRange(second, 100_000, 100_100), slice.toByteArray());
+
+        chunkedService.deleteFile(firstName);
+        Set<String> secondChunks = ChunkManifest.parse(new ByteArrayInputStream(server.content(secondName))).distinctHashes();
+        assertEquals(secondChunks.size(), countKeys("chunks/"));
+        assertTrue(secondChunks.size() < firstChunks + newChunks);
+        ByteArrayOutputStream afterDelete = new ByteArrayOutputStream();
+        s3Service.downloadFile(secondName, DownloadOptions.NONE).body().writeTo(afterDelete);
+        assertArrayEquals(second, afterDelete.toByteArray());
+
+        chunkedService.deleteFile(secondName);
+        assertTrue(server.keys().isEmpty(), "objetos restantes: " + server.keys());
+    }
+
+    @Test
+    @DisplayName("Testa o envio e o download diretos por URLs assinadas e a verificação feita após o envio")
+    void testPresignedTransfer() throws Exception {
+        assertThrows(DirectTransferUnavailableException.class, () -> s3Service.createDirectUpload("dados.csv"));
+        ReflectionTestUtils.setField(ReflectionTestUtils.getField(s3Service, "uploader"), "directTransferEnabled", true);
+        ReflectionTestUtils.setField(ReflectionTestUtils.getField(s3Service, "downloader"), "directTransferEnabled", true);
+        byte[] content = csvRows(0, 1000);
+
+        PresignedTransfer upload = s3Service.createDirectUpload("dados.csv");
+        assertEquals("text/csv", upload.headers().get("Content-Type"));
+        assertEquals(200, transfer(upload, content).statusCode());
+        s3Service.completeDirectUpload(upload.fileName()).join();
+        s3Service.completeDirectUpload(upload.fileName()).join();
+
+        // Uma conclusão repetida que chegou antes da referência ser gravada pela primeira
+        server.delete("refs/" + upload.fileName());
+        server.putObject("pending/" + upload.fileName(), new byte[0], null, Map.of());
+        assertEquals(upload.fileName(), s3Service.completeDirectUpload(upload.fileName()).join());
+        assertTrue(server.contains(upload.fileName()));
+
+        assertTrue(server.contains("refs/" + upload.fileName()));
+        assertEquals(1, countKeys("hashes/"));
+        PresignedTransfer download = s3Service.createDirectDownload(upload.fileName());
+        assertArrayEquals(content, transfer(download, null).body());
+        // Enviado diretamente, o arquivo fica sem compressão, e o intervalo vale para os bytes armazenados
+        FileDownload range = s3Service.downloadFile(upload.fileName(), new DownloadOptions("bytes=10-19", null, null, null));
+        assertEquals("bytes 10-19/" + content.length, range.contentRange());
+        ByteArrayOutputStream slice = new ByteArrayOutputStream();
+        range.body().writeTo(slice);
+        assertArrayEquals(Arrays.copyOfRange(content, 10, 20), slice.toByteArray());
+
+        PresignedTransfer copy = s3Service.createDirectUpload("copia.csv");
+        transfer(copy, content);
+        CompletionException duplicate = assertThrows(CompletionException.class,
+                () -> s3Service.completeDirectUpload(copy.fileName()).join());
+        assertInstanceOf(FileUploadException.class, duplicate.getCause());
+        assertFalse(server.contains(copy.fileName()));
+
+        PresignedTransfer image = s3Service.createDirectUpload("imagem.png");
+        transfer(new PresignedTransfer(image.fileName(), image.method(), image.url(),
+                Map.of("Content-Type", "text/html"), image.expiresAt()), content);
+        CompletionException disguised = assertThrows(CompletionException.class,
+                () -> s3Service.completeDirectUpload(image.fileName()).join());
+        assertInstanceOf(IllegalArgumentException.class, disguised.getCause());
+        assertFalse(server.contains(image.fileName()));
+        assertThrows(FileNotFoundException.class, () -> s3Service.completeDirectUpload("ausente.csv"));
+        assertTrue(server.keys().stream().noneMatch(key -> key.startsWith("pending/")), "marcadores restantes: " + server.keys());
+
+        server.putObject("legado.csv", content, "application/octet-stream", Map.of());
+        assertThrows(FileNotFoundException.class, () -> s3Service.completeDirectUpload("legado.csv"));
+        assertTrue(server.contains("legado.csv"));
+    }
+
+    @Test
+    @DisplayName("Testa se envios simultâneos do mesmo conteúdo, na mesma instância e em instâncias diferentes, guardam uma única cópia")
+    void testConcurrentIdenticalUploads() throws Exception {
+        byte[] content = csvRows(0, 250_000);
+        List<S3Service> nodes = List.of(s3Service, s3Service, s3Service, newService(false), newService(false));
+        ExecutorService executor = Executors.newFixedThreadPool(nodes.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> uploads = new ArrayList<>();
+        try {
+            for (int i = 0; i < nodes.size(); i++) {
+                S3Service node = nodes.get(i);
+                String name = "dados-" + i + ".csv";
+                boolean multipart = i < 4;
+                uploads.add(executor.submit(() -> {
+                    start.await();
+                    return multipart
+                            ? node.uploadFile(new MockMultipartFile("file", name, "text/csv", content))
+                            : node.uploadStream(name, new ByteArrayInputStream(content), content.length);
+                }));
+            }
+            start.countDown();
+
+            Set<String> stored = new HashSet<>();
+            for (Future<String> upload : uploads) {
+                try {
+                    stored.add(upload.get());
+                } catch (ExecutionException e) {
+                    assertInstanceOf(FileUploadException.class, e.getCause());
+                }
+            }
+            assertEquals(1, stored.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, countKeys("hashes/"));
+        assertEquals(1, countKeys("refs/"));
+        assertEquals(3, server.keys().size());
+    }
+
+    @Test
+    @DisplayName("Testa se um envio repetido enquanto o primeiro está em andamento recebe o mesmo resultado sem um novo envio")
+    void testConcurrentRetrySharesResult() throws Exception {
+        byte[] content = csvRows(0, 250_000);
+        server.withLatency(Duration.ofMillis(100), Duration.ZERO);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> uploads = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                MockMultipartFile file = new MockMultipartFile("file", "dados.csv", "text/csv", content);
+                uploads.add(executor.submit(() -> {
+                    start.await();
+                    return s3Service.uploadFile(file);
+                }));
+            }
+            start.countDown();
+
+            String result = uploads.get(0).get();
+            assertEquals(result, uploads.get(1).get());
+            assertTrue(result.startsWith("Arquivo upado para o bucket com sucesso: "));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, countKeys("hashes/"));
+        assertEquals(3, server.keys().size());
+    }
+
+    @Test
+    @DisplayName("Testa a reconstrução do catálogo a partir do bucket e a listagem e a busca sem consultas ao bucket")
+    void testCatalog() throws IOException {
+        byte[] rows = csvRows(0, 100);
+        byte[] notes = "anotações da reunião".getBytes(StandardCharsets.UTF_8);
+        String report = uploadedName(s3Service.uploadStream("Relatorio.csv", new ByteArrayInputStream(rows), rows.length));
+        String note = uploadedName(s3Service.uploadStream("notas.txt", new ByteArrayInputStream(notes), notes.length));
+
+        Path journal = catalogDirectory.resolve("no.journal");
+        MetadataCatalog catalog = new MetadataCatalog(true, journal);
+        S3Service node = newService(false, catalog);
+        FileQuery all = new FileQuery(null, null, null, null, null, null, null, FileQuery.Sort.SIZE, false);
+        assertThrows(CatalogUnavailableException.class, () -> node.searchFiles(all, null, null));
+        node.synchronizeCatalog();
+
+        long requests = server.requestCount();
+        FilePage first = node.listFiles(1, null);
+        assertEquals(List.of(report), first.files());
+        assertEquals(List.of(note), node.listFiles(1, first.nextContinuationToken()).files());
+        FileSearchPage bySize = node.searchFiles(all, null, 1);
+        assertEquals(note, bySize.files().get(0).key());
+        assertEquals(1, bySize.nextOffset());
+        FileEntry entry = node.searchFiles(new FileQuery("relat", null, null, null, null, null, null,
+                FileQuery.Sort.NAME, false), null, null).files().get(0);
+        assertEquals(new FileEntry(report, "Relatorio.csv", rows.length, "text/csv", entry.uploadedAt(),
+                s3Service.generateFileHash(new ByteArrayInputStream(rows)), entry.preHash(), false), entry);
+        assertEquals(List.of(entry), node.searchFiles(new FileQuery(null, entry.sha256(), null, null, null, null,
+                null, FileQuery.Sort.UPLOADED_AT, true), null, null).files());
+        assertEquals(requests, server.requestCount());
+
+        server.putObject("1700000000000-externo.pdf", new byte[10], "application/pdf", Map.of());
+        server.delete(note);
+        node.synchronizeCatalog();
+        assertEquals(List.of("1700000000000-externo.pdf", report), node.listFiles(null, null).files());
+        FileEntry external = catalog.get("1700000000000-externo.pdf");
+        assertEquals("externo.pdf", external.name());
+        assertEquals(Instant.ofEpochMilli(1_700_000_000_000L), external.uploadedAt());
+
+        node.deleteFile(report);
+        assertFalse(catalog.contains(report));
+        catalog.close();
+        MetadataCatalog reloaded = new MetadataCatalog(true, journal);
+        assertFalse(reloaded.isReady());
+        assertEquals(List.of("1700000000000-externo.pdf"), reloaded.keys(null, null, 10));
+        reloaded.close();
+    }
+
+    @Test
+    @DisplayName("Testa se a exclusão de um arquivo que só consta do catálogo não remove o marcador de hash")
+    void testDeleteStaleCatalogEntry() throws IOException {
+        MetadataCatalog catalog = new MetadataCatalog(true, catalogDirectory.resolve("stale.journal"));
+        S3Service node = newService(false, catalog);
+        byte[] content = "id;nome\n1;relatório\n".getBytes(StandardCharsets.UTF_8);
+        String message = node.uploadStream("dados.csv", new ByteArrayInputStream(content), content.length);
+        String fileName = message.substring(message.lastIndexOf(' ') + 1);
+        String fileHash = catalog.get(fileName).sha256();
+        String stale = "1700000000000-excluido.csv";
+        catalog.put(new FileEntry(stale, "excluido.csv", content.length, "text/csv",
+                Instant.ofEpochMilli(1_700_000_000_000L), fileHash, null, false));
+
+        assertThrows(FileNotFoundException.class, () -> node.deleteFile(stale));
+        assertFalse(catalog.contains(stale));
+        assertTrue(server.keys().contains("hashes/" + fileHash));
+        catalog.close();
+    }
+
+    private static HttpResponse<byte[]> transfer(PresignedTransfer transfer, byte[] content) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(transfer.url()))
+                .method(transfer.method(), content == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(content));
+        transfer.headers().forEach(request::header);
+        return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static byte[] csvRows(int first, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = first; i < first + count; i++) {
+            builder.append(i).append(';').append(i * 2654435761L % 1_000_003).append(";cliente-").append(i % 97)
+                    .append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            outputStream.writeBytes(part);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String uploadedName(String message) {
+        return message.substring(message.lastIndexOf(' ') + 1);
+    }
+
+    private long countKeys(String prefix) {
+        return server.keys().stream().filter(key -> key.startsWith(prefix)).count();
+    }
+}
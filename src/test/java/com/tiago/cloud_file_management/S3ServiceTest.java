@@ -2,21 +2,47 @@ package com.tiago.cloud_file_management;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.*;
+import com.tiago.cloud_file_management.archive.ZipArchiveWriter;
+import com.tiago.cloud_file_management.cache.DownloadCache;
+import com.tiago.cloud_file_management.catalog.MetadataCatalog;
+import com.tiago.cloud_file_management.chunking.ChunkStore;
+import com.tiago.cloud_file_management.compression.CompressionPolicy;
+import com.tiago.cloud_file_management.dedup.DedupIndex;
+import com.tiago.cloud_file_management.download.FileDownloader;
 import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
 import com.tiago.cloud_file_management.exceptions.FileUploadException;
+import com.tiago.cloud_file_management.hash.ContentHasher;
+import com.tiago.cloud_file_management.hash.XxHash64;
+import com.tiago.cloud_file_management.metrics.StorageMetrics;
+import com.tiago.cloud_file_management.storage.S3StorageBackend;
+import com.tiago.cloud_file_management.storage.StorageBackend;
+import com.tiago.cloud_file_management.upload.FileUploader;
+import com.tiago.cloud_file_management.upload.MultipartUploadEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,38 +51,216 @@ import static org.mockito.Mockito.*;
 class S3ServiceTest {
     private static final String BUCKET_NAME = "file-management-bucket05012005";
     private static final String HASHES = "hashes/";
+    private static final String REFS = "refs/";
     @Mock
     private AmazonS3 amazonS3;
-    @InjectMocks
+    private DedupIndex dedupIndex;
     private S3Service s3Service;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MultipartUploadEngine uploadEngine = new MultipartUploadEngine(amazonS3,
+                DataSize.ofMegabytes(5), 2, DataSize.ofMegabytes(5), 2, 2);
+        StorageBackend storage = new S3StorageBackend(amazonS3, uploadEngine, BUCKET_NAME);
+        dedupIndex = new DedupIndex(true, 10000, 0.01);
+        meterRegistry = new SimpleMeterRegistry();
+        DownloadCache downloadCache = new DownloadCache(false, Path.of("target"), DataSize.ofMegabytes(1),
+                DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), DataSize.ofKilobytes(1), Duration.ofSeconds(30));
+        CompressionPolicy compressionPolicy = new CompressionPolicy(true, "gzip", 0, DataSize.ofKilobytes(1),
+                List.of("text/plain", "text/csv", "application/json", "application/xml"));
+        ChunkStore chunkStore = new ChunkStore(storage, compressionPolicy, false, DataSize.ofMegabytes(8),
+                DataSize.ofKilobytes(256), DataSize.ofMegabytes(1), DataSize.ofMegabytes(4), 2, 2, 2);
+        MetadataCatalog catalog = new MetadataCatalog(false, null);
+        ContentHasher contentHasher = new ContentHasher(DataSize.ofKilobytes(64), DataSize.ofMegabytes(4), true);
+        StorageMetrics metrics = new StorageMetrics(meterRegistry);
+        s3Service = new S3Service(storage, dedupIndex, catalog, contentHasher, chunkStore, downloadCache,
+                new FileUploader(storage, dedupIndex, catalog, contentHasher, compressionPolicy, chunkStore,
+                        downloadCache, Runnable::run, metrics),
+                new FileDownloader(storage, catalog, compressionPolicy, chunkStore, downloadCache, Optional.empty(), Runnable::run,
+                        new ZipArchiveWriter(Runnable::run, 2), metrics),
+                metrics);
+    }
 
     //UPLOAD
     @Test
     @DisplayName("Testa se o arquivo é enviado para o S3 e verifica se o hash é gerado corretamente")
     void testUploadFile() throws IOException {
+        byte[] content = "conteúdo do arquivo".getBytes();
         MultipartFile mockFile = mock(MultipartFile.class);
         when(mockFile.isEmpty()).thenReturn(false);
         when(mockFile.getOriginalFilename()).thenReturn("test.txt");
+        when(mockFile.getSize()).thenReturn((long) content.length);
+        when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(content));
 
-        InputStream inputStream = new ByteArrayInputStream("conteúdo do arquivo".getBytes());
-        when(mockFile.getInputStream()).thenReturn(inputStream);
-
-        String expectedHash = s3Service.generateFileHash(inputStream);
+        String expectedHash = s3Service.generateFileHash(new ByteArrayInputStream(content));
 
+        when(amazonS3.putObject(eq(BUCKET_NAME), matches("^\\d+-test.txt"), any(InputStream.class), any(ObjectMetadata.class)))
+                .thenAnswer(invocation -> {
+                    invocation.getArgument(2, InputStream.class).readAllBytes();
+                    return new PutObjectResult();
+                });
         when(amazonS3.doesObjectExist(eq(BUCKET_NAME), eq(HASHES + expectedHash))).thenReturn(false);
 
-        S3Service s3ServiceMock = spy(s3Service);
-        doReturn(expectedHash).when(s3ServiceMock).generateFileHash(inputStream);
-
-        String fileName = s3ServiceMock.uploadFile(mockFile);
+        String fileName = s3Service.uploadFile(mockFile);
 
         assertNotNull(fileName);
-        verify(amazonS3).putObject(eq(BUCKET_NAME), matches("\\d+-test.txt"), any(InputStream.class), isNull());
-        verify(amazonS3).putObject(eq(BUCKET_NAME), eq(HASHES + expectedHash), any(InputStream.class), any(ObjectMetadata.class));
+        ArgumentCaptor<ObjectMetadata> metadataCaptor = ArgumentCaptor.forClass(ObjectMetadata.class);
+        verify(amazonS3).putObject(eq(BUCKET_NAME), matches("^\\d+-test.txt"), any(InputStream.class), metadataCaptor.capture());
+        assertEquals(content.length, metadataCaptor.getValue().getContentLength());
+        verify(amazonS3).putObject(conditionalPut(HASHES + expectedHash));
+        ArgumentCaptor<ObjectMetadata> refCaptor = ArgumentCaptor.forClass(ObjectMetadata.class);
+        verify(amazonS3).putObject(eq(BUCKET_NAME), matches(REFS + "\\d+-test.txt"), any(InputStream.class), refCaptor.capture());
+        assertEquals(expectedHash, refCaptor.getValue().getUserMetaDataOf("sha256"));
+        verify(mockFile, times(1)).getInputStream();
 
         verify(amazonS3).doesObjectExist(eq(BUCKET_NAME), eq(HASHES + expectedHash));
     }
 
+    @Test
+    @DisplayName("Testa se o objeto enviado é removido quando o conteúdo já existe no bucket")
+    void testUploadDuplicateRollsBack() throws IOException {
+        byte[] content = "conteúdo duplicado".getBytes();
+        MultipartFile mockFile = mock(MultipartFile.class);
+        when(mockFile.isEmpty()).thenReturn(false);
+        when(mockFile.getOriginalFilename()).thenReturn("test.txt");
+        when(mockFile.getSize()).thenReturn((long) content.length);
+        when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(content));
+
+        String expectedHash = s3Service.generateFileHash(new ByteArrayInputStream(content));
+
+        when(amazonS3.putObject(eq(BUCKET_NAME), anyString(), any(InputStream.class), any(ObjectMetadata.class)))
+                .thenAnswer(invocation -> {
+                    invocation.getArgument(2, InputStream.class).readAllBytes();
+                    return new PutObjectResult();
+                });
+        when(amazonS3.doesObjectExist(BUCKET_NAME, HASHES + expectedHash)).thenReturn(true);
+        ObjectMetadata markerMetadata = new ObjectMetadata();
+        markerMetadata.addUserMetadata("file-key", "outro-arquivo.txt");
+        when(amazonS3.getObjectMetadata(BUCKET_NAME, HASHES + expectedHash)).thenReturn(markerMetadata);
+
+        FileUploadException thrown = assertThrows(FileUploadException.class, () -> s3Service.uploadFile(mockFile));
+
+        assertEquals("Este arquivo já foi enviado anteriormente.", thrown.getMessage());
+        verify(amazonS3).deleteObject(eq(BUCKET_NAME), matches("^\\d+-test.txt"));
+        verify(amazonS3, never()).putObject(conditionalPut(HASHES + expectedHash));
+        assertEquals(1, meterRegistry.counter("storage.dedup.lookups", "result", "hit").count());
+        assertEquals(content.length, meterRegistry.counter("storage.bytes", "direction", "in").count());
+        assertEquals(1, meterRegistry.get("storage.operation").tags("operation", "upload", "outcome", "error").timer().count());
+        assertEquals(1, meterRegistry.get("storage.upload.phase").tags("phase", "dedup-head").timer().count());
+    }
+
+    @Test
+    @DisplayName("Testa se um arquivo em disco com pré-hash conhecido é recusado sem ser enviado")
+    void testUploadKnownPreHashRejectedBeforeUpload() throws IOException {
+        byte[] content = new byte[5 * 1024 * 1024];
+        new Random(42).nextBytes(content);
+        MultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", content);
+        XxHash64 preHash = new XxHash64();
+        preHash.update(content, 0, content.length);
+        dedupIndex.addPreHash(preHash.getValue());
+        String expectedHash = s3Service.generateFileHash(new ByteArrayInputStream(content));
+        when(amazonS3.doesObjectExist(BUCKET_NAME, HASHES + expectedHash)).thenReturn(true);
+
+        FileUploadException thrown = assertThrows(FileUploadException.class, () -> s3Service.uploadFile(file));
+
+        assertEquals("Este arquivo já foi enviado anteriormente.", thrown.getMessage());
+        verify(amazonS3).doesObjectExist(BUCKET_NAME, HASHES + expectedHash);
+        verifyNoMoreInteractions(amazonS3);
+        assertEquals(1, meterRegistry.get("storage.upload.phase").tags("phase", "prehash").timer().count());
+    }
+
+    @Test
+    @DisplayName("Testa se o marcador não é consultado quando o índice local garante que o conteúdo é novo")
+    void testUploadSkipsMarkerCheckForNewContent() throws IOException {
+        byte[] content = "conteúdo novo".getBytes();
+        MultipartFile mockFile = mock(MultipartFile.class);
+        when(mockFile.isEmpty()).thenReturn(false);
+        when(mockFile.getOriginalFilename()).thenReturn("test.txt");
+        when(mockFile.getSize()).thenReturn((long) content.length);
+        when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(content));
+        when(amazonS3.putObject(eq(BUCKET_NAME), anyString(), any(InputStream.class), any(ObjectMetadata.class)))
+                .thenAnswer(invocation -> {
+                    invocation.getArgument(2, InputStream.class).readAllBytes();
+                    return new PutObjectResult();
+                });
+        dedupIndex.markReady();
+
+        s3Service.uploadFile(mockFile);
+
+        String expectedHash = s3Service.generateFileHash(new ByteArrayInputStream(content));
+        verify(amazonS3, never()).doesObjectExist(anyString(), anyString());
+        assertTrue(dedupIndex.mightContain(expectedHash));
+    }
+
+    @Test
+    @DisplayName("Testa se arquivos grandes enviados por stream são divididos em partes")
+    void testUploadStreamMultipart() throws IOException {
+        byte[] content = new byte[12 * 1024 * 1024];
+        new Random(42).nextBytes(content);
+        InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+        initiated.setUploadId("upload-id");
+        when(amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiated);
+        when(amazonS3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag-" + request.getPartNumber());
+            return result;
+        });
+
+        String expectedHash = s3Service.generateFileHash(new ByteArrayInputStream(content));
+        when(amazonS3.doesObjectExist(BUCKET_NAME, HASHES + expectedHash)).thenReturn(false);
+
+        String fileName = s3Service.uploadStream("big.csv", new ByteArrayInputStream(content), -1);
+
+        assertTrue(fileName.matches(".*\\d+-big.csv"));
+        verify(amazonS3, times(3)).uploadPart(any(UploadPartRequest.class));
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(amazonS3).completeMultipartUpload(completeCaptor.capture());
+        assertEquals(List.of(1, 2, 3), completeCaptor.getValue().getPartETags().stream().map(PartETag::getPartNumber).toList());
+        verify(amazonS3).putObject(conditionalPut(HASHES + expectedHash));
+    }
+
+    @Test
+    @DisplayName("Testa se o upload em partes é abortado quando uma parte falha em todas as tentativas")
+    void testUploadStreamMultipartAborted() {
+        byte[] content = new byte[12 * 1024 * 1024];
+        new Random(42).nextBytes(content);
+        InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+        initiated.setUploadId("upload-id");
+        when(amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiated);
+        when(amazonS3.uploadPart(any(UploadPartRequest.class))).thenThrow(new AmazonS3Exception("falha"));
+
+        assertThrows(FileUploadException.class,
+                () -> s3Service.uploadStream("big.csv", new ByteArrayInputStream(content), -1));
+
+        verify(amazonS3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(amazonS3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    @DisplayName("Testa o upload em lote com arquivos repetidos e tipos não permitidos")
+    void testUploadFiles() throws IOException {
+        byte[] content = "conteúdo do lote".getBytes();
+        MultipartFile first = batchFile("a.txt", content);
+        MultipartFile repeated = batchFile("b.txt", content);
+        MultipartFile rejected = mock(MultipartFile.class);
+        when(rejected.getOriginalFilename()).thenReturn("programa.exe");
+
+        String expectedHash = s3Service.generateFileHash(new ByteArrayInputStream(content));
+        when(amazonS3.doesObjectExist(BUCKET_NAME, HASHES + expectedHash)).thenReturn(false);
+
+        List<BatchUploadResult> results = s3Service.uploadFiles(List.of(first, repeated, rejected));
+
+        assertEquals(List.of(BatchUploadResult.Status.UPLOADED, BatchUploadResult.Status.DUPLICATE, BatchUploadResult.Status.REJECTED),
+                results.stream().map(BatchUploadResult::status).toList());
+        assertTrue(results.get(0).fileName().matches("\\d+-a.txt"));
+        verify(amazonS3).putObject(eq(BUCKET_NAME), matches("^\\d+-a.txt"), any(InputStream.class), any(ObjectMetadata.class));
+        verify(amazonS3, never()).putObject(eq(BUCKET_NAME), matches("^\\d+-b.txt"), any(InputStream.class), any(ObjectMetadata.class));
+        verify(amazonS3).putObject(conditionalPut(HASHES + expectedHash));
+    }
+
     @Test
     @DisplayName("Testa a exceção ao tentar fazer upload sem um arquivo selecionado")
     void testUploadExcption() throws IOException {
@@ -68,60 +272,164 @@ class S3ServiceTest {
         assertEquals("Arquivo para upload não selecionado.", thrown.getMessage());
     }
 
+    @Test
+    @DisplayName("Testa se nomes com barra são recusados em todas as formas de upload")
+    void testUploadInvalidName() throws IOException {
+        MultipartFile nested = mock(MultipartFile.class);
+        when(nested.getOriginalFilename()).thenReturn("pasta/relatorio.txt");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> s3Service.uploadStream("pasta/relatorio.txt", new ByteArrayInputStream("conteúdo".getBytes()), 8));
+        assertEquals(BatchUploadResult.Status.REJECTED, s3Service.uploadFiles(List.of(nested)).get(0).status());
+        verifyNoInteractions(amazonS3);
+    }
+
     //DOWNLOAD
     @Test
     @DisplayName("Testa se o arquivo é baixado corretamente")
     void testDownloadFile() {
-        when(amazonS3.doesObjectExist(BUCKET_NAME, "test.txt")).thenReturn(true);
+        S3Object s3Object = new S3Object();
+        s3Object.getObjectMetadata().setContentType("text/plain");
+        s3Object.getObjectMetadata().setContentLength(19);
+        s3Object.setObjectContent(new ByteArrayInputStream("conteúdo do arquivo".getBytes()));
+        when(amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(s3Object);
 
-        S3Object mockS3Object = mock(S3Object.class);
-        when(amazonS3.getObject(BUCKET_NAME, "test.txt")).thenReturn(mockS3Object);
+        FileDownload result = s3Service.downloadFile("test.txt", DownloadOptions.NONE);
 
-        S3Object result = s3Service.downloadFile("test.txt");
-
-        verify(amazonS3).getObject(BUCKET_NAME, "test.txt");
+        ArgumentCaptor<GetObjectRequest> requestCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(amazonS3).getObject(requestCaptor.capture());
+        verify(amazonS3, never()).doesObjectExist(anyString(), anyString());
+        assertEquals("test.txt", requestCaptor.getValue().getKey());
+        assertNull(requestCaptor.getValue().getRange());
 
         assertNotNull(result);
-        assertEquals(mockS3Object, result);
+        assertEquals(FileDownload.Status.OK, result.status());
+        assertEquals("text/plain", result.contentType());
+        assertEquals(19, result.contentLength());
+    }
+
+    @Test
+    @DisplayName("Testa se o intervalo solicitado é repassado ao S3 e retornado como conteúdo parcial")
+    void testDownloadFileRange() {
+        S3Object s3Object = new S3Object();
+        s3Object.getObjectMetadata().setContentLength(100);
+        s3Object.getObjectMetadata().setHeader("Content-Range", "bytes 100-199/1000");
+        s3Object.setObjectContent(new ByteArrayInputStream(new byte[100]));
+        when(amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(s3Object);
+
+        FileDownload result = s3Service.downloadFile("video.mp4", new DownloadOptions("bytes=100-199", null, null));
+
+        ArgumentCaptor<GetObjectRequest> requestCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(amazonS3).getObject(requestCaptor.capture());
+        assertArrayEquals(new long[]{100, 199}, requestCaptor.getValue().getRange());
+        assertEquals(FileDownload.Status.PARTIAL_CONTENT, result.status());
+        assertEquals("bytes 100-199/1000", result.contentRange());
+    }
+
+    @Test
+    @DisplayName("Testa se o download retorna não modificado quando a condição do S3 não é atendida")
+    void testDownloadFileNotModified() {
+        when(amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(null);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", "etag");
+        metadata.setLastModified(new Date(1_700_000_000_000L));
+        when(amazonS3.getObjectMetadata(BUCKET_NAME, "test.txt")).thenReturn(metadata);
+
+        FileDownload result = s3Service.downloadFile("test.txt", new DownloadOptions(null, "\"etag\"", null));
+
+        ArgumentCaptor<GetObjectRequest> requestCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(amazonS3).getObject(requestCaptor.capture());
+        assertEquals(List.of("\"etag\""), requestCaptor.getValue().getNonmatchingETagConstraints());
+        assertEquals(FileDownload.Status.NOT_MODIFIED, result.status());
+        assertEquals("etag", result.eTag());
+        assertEquals(new Date(1_700_000_000_000L), result.lastModified());
+        assertNull(result.body());
     }
 
     @Test
     @DisplayName("Testa a exceção ao tentar baixar arquivo inexistente")
     void testDownloadFileNotFound() {
-        when(amazonS3.doesObjectExist(BUCKET_NAME, "nonexistent.txt")).thenReturn(false);
+        when(amazonS3.getObject(any(GetObjectRequest.class))).thenThrow(notFound());
 
-        FileNotFoundException thrown = assertThrows(FileNotFoundException.class, () -> s3Service.downloadFile("nonexistent.txt"));
+        FileNotFoundException thrown = assertThrows(FileNotFoundException.class,
+                () -> s3Service.downloadFile("nonexistent.txt", DownloadOptions.NONE));
         assertEquals("Arquivo não encontrado no bucket: nonexistent.txt", thrown.getMessage());
     }
 
+    @Test
+    @DisplayName("Testa se o download em lote gera um ZIP com os arquivos existentes")
+    void testWriteArchive() throws IOException {
+        when(amazonS3.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            if (request.getKey().equals("ausente.txt")) {
+                throw notFound();
+            }
+            S3Object s3Object = new S3Object();
+            s3Object.getObjectMetadata().setContentType(request.getKey().endsWith(".png") ? "image/png" : "text/plain");
+            s3Object.setObjectContent(new ByteArrayInputStream(("conteudo de " + request.getKey()).getBytes()));
+            return s3Object;
+        });
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        s3Service.writeArchive(s3Service.archiveKeys(List.of("a.txt", "ausente.txt", "b.png"), null), outputStream);
+
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.add(entry.getName());
+                assertEquals("conteudo de " + entry.getName(), new String(zip.readAllBytes()));
+            }
+        }
+        assertEquals(List.of("a.txt", "b.png"), entries);
+    }
+
     //DELETE
     @Test
-    @DisplayName("Testa se o arquivo existente está sendo deletado")
-    void testDeleteFile() throws IOException {
+    @DisplayName("Testa se o arquivo existente está sendo deletado sem baixar o conteúdo")
+    void testDeleteFile() {
+        String fileName = "existent-file.txt";
+        ObjectMetadata refMetadata = new ObjectMetadata();
+        refMetadata.addUserMetadata("sha256", "hash-do-arquivo");
+        when(amazonS3.getObjectMetadata(BUCKET_NAME, REFS + fileName)).thenReturn(refMetadata);
+
+        s3Service.deleteFile(fileName);
+
+        ArgumentCaptor<DeleteObjectsRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(amazonS3).deleteObjects(deleteCaptor.capture());
+        verify(amazonS3, never()).getObject(any(GetObjectRequest.class));
+
+        List<String> capturedKeys = deleteCaptor.getValue().getKeys().stream().map(DeleteObjectsRequest.KeyVersion::getKey).toList();
+        assertEquals(List.of(fileName, HASHES + "hash-do-arquivo", REFS + fileName), capturedKeys);
+    }
+
+    @Test
+    @DisplayName("Testa se arquivos enviados antes das referências ainda são deletados com o hash recalculado")
+    void testDeleteLegacyFile() throws IOException {
         String fileName = "existent-file.txt";
         S3Object mockFile = new S3Object();
         InputStream inputStream = new ByteArrayInputStream("conteúdo do arquivo".getBytes());
         mockFile.setObjectContent(inputStream);
-        when(amazonS3.doesObjectExist(BUCKET_NAME, fileName)).thenReturn(true);
-        when(amazonS3.getObject(BUCKET_NAME, fileName)).thenReturn(mockFile);
+        when(amazonS3.getObjectMetadata(BUCKET_NAME, REFS + fileName)).thenThrow(notFound());
+        when(amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(mockFile);
 
-        ArgumentCaptor<String> bucketCaptor = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<String> keyCaptor = ArgumentCaptor.forClass(String.class);
+        String expectedHash = s3Service.generateFileHash(new ByteArrayInputStream("conteúdo do arquivo".getBytes()));
 
         s3Service.deleteFile(fileName);
 
-        verify(amazonS3, times(2)).deleteObject(bucketCaptor.capture(), keyCaptor.capture());
+        ArgumentCaptor<DeleteObjectsRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(amazonS3).deleteObjects(deleteCaptor.capture());
 
-        List<String> capturedKeys = keyCaptor.getAllValues();
+        List<String> capturedKeys = deleteCaptor.getValue().getKeys().stream().map(DeleteObjectsRequest.KeyVersion::getKey).toList();
         assertTrue(capturedKeys.contains(fileName));
-        assertTrue(capturedKeys.stream().anyMatch(key -> key.startsWith(HASHES)));
+        assertTrue(capturedKeys.contains(HASHES + expectedHash));
     }
 
 
     @Test
     @DisplayName("Testa a exceção ao tentar deletar arquivo inexistente")
     void testDeleteFileNotFound() {
-        when(amazonS3.doesObjectExist(BUCKET_NAME, "nonexistent.txt")).thenReturn(false);
+        when(amazonS3.getObjectMetadata(BUCKET_NAME, REFS + "nonexistent.txt")).thenThrow(notFound());
+        when(amazonS3.getObject(any(GetObjectRequest.class))).thenThrow(notFound());
 
         FileNotFoundException thrown = assertThrows(FileNotFoundException.class, () -> s3Service.deleteFile("nonexistent.txt"));
         assertEquals("Arquivo não encontrado para exclusão: nonexistent.txt", thrown.getMessage());
@@ -139,13 +447,45 @@ class S3ServiceTest {
         file2.setKey("file2.jpg");
 
         when(mockResult.getObjectSummaries()).thenReturn(List.of(file1, file2));
-        when(amazonS3.listObjectsV2(BUCKET_NAME)).thenReturn(mockResult);
+        when(mockResult.isTruncated()).thenReturn(true);
+        when(mockResult.getNextContinuationToken()).thenReturn("next-token");
+        when(amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(mockResult);
 
-        List<String> files = s3Service.listFiles();
+        FilePage page = s3Service.listFiles(2, null);
 
-        assertEquals(2, files.size());
-        assertTrue(files.contains("file1.txt"));
-        assertTrue(files.contains("file2.jpg"));
+        assertEquals(2, page.files().size());
+        assertTrue(page.files().contains("file1.txt"));
+        assertTrue(page.files().contains("file2.jpg"));
+        assertEquals("next-token", page.nextContinuationToken());
+
+        ArgumentCaptor<ListObjectsV2Request> requestCaptor = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(amazonS3).listObjectsV2(requestCaptor.capture());
+        assertEquals("/", requestCaptor.getValue().getDelimiter());
+        assertEquals(2, requestCaptor.getValue().getMaxKeys());
+    }
+
+    @Test
+    @DisplayName("Testa se a listagem completa percorre todas as páginas")
+    void testForEachFilePage() throws IOException {
+        ListObjectsV2Result firstPage = new ListObjectsV2Result();
+        S3ObjectSummary file1 = new S3ObjectSummary();
+        file1.setKey("file1.txt");
+        firstPage.getObjectSummaries().add(file1);
+        firstPage.setTruncated(true);
+        firstPage.setNextContinuationToken("next-token");
+
+        ListObjectsV2Result lastPage = new ListObjectsV2Result();
+        S3ObjectSummary file2 = new S3ObjectSummary();
+        file2.setKey("file2.jpg");
+        lastPage.getObjectSummaries().add(file2);
+
+        when(amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(firstPage, lastPage);
+
+        List<String> files = new ArrayList<>();
+        s3Service.forEachFilePage(files::addAll);
+
+        assertEquals(List.of("file1.txt", "file2.jpg"), files);
+        verify(amazonS3, times(2)).listObjectsV2(any(ListObjectsV2Request.class));
     }
 
     @Test
@@ -153,10 +493,31 @@ class S3ServiceTest {
     void testListFilesEmptyBucket() {
         ListObjectsV2Result emptyResult = mock(ListObjectsV2Result.class);
         when(emptyResult.getObjectSummaries()).thenReturn(List.of());
-        when(amazonS3.listObjectsV2(BUCKET_NAME)).thenReturn(emptyResult);
+        when(amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(emptyResult);
 
-        FileNotFoundException thrown = assertThrows(FileNotFoundException.class, () -> s3Service.listFiles());
+        FileNotFoundException thrown = assertThrows(FileNotFoundException.class, () -> s3Service.listFiles(null, null));
         assertEquals("Nenhum arquivo encontrado no bucket.", thrown.getMessage());
     }
 
+    private static AmazonS3Exception notFound() {
+        AmazonS3Exception exception = new AmazonS3Exception("Not Found");
+        exception.setStatusCode(404);
+        return exception;
+    }
+
+    private static PutObjectRequest conditionalPut(String key) {
+        return argThat(request -> request != null && key.equals(request.getKey())
+                && request.getCustomRequestHeaders() != null
+                && "*".equals(request.getCustomRequestHeaders().get("If-None-Match")));
+    }
+
+    private static MultipartFile batchFile(String name, byte[] content) throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.isEmpty()).thenReturn(false);
+        when(file.getOriginalFilename()).thenReturn(name);
+        lenient().when(file.getSize()).thenReturn((long) content.length);
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(content));
+        return file;
+    }
+
 }
\ No newline at end of file
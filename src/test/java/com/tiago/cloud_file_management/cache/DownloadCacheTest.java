@@ -0,0 +1,175 @@
+package com.tiago.cloud_file_management.cache;
+
+import com.tiago.cloud_file_management.DownloadOptions;
+import com.tiago.cloud_file_management.FileDownload;
+import com.tiago.cloud_file_management.storage.ObjectAttributes;
+import com.tiago.cloud_file_management.storage.StoredObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownloadCacheTest {
+    @TempDir
+    Path directory;
+
+    private DownloadCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new DownloadCache(true, directory, DataSize.ofKilobytes(64),
+                DataSize.ofKilobytes(32), DataSize.ofKilobytes(4),
+                DataSize.ofKilobytes(1), Duration.ofMinutes(5));
+    }
+
+    @Test
+    @DisplayName("Testa se um arquivo em cache é servido do disco sem nova busca ao armazenamento")
+    void testDiskHit() throws IOException {
+        byte[] content = content(20 * 1024);
+        AtomicInteger loads = new AtomicInteger();
+        DownloadCache.Loader loader = eTag -> {
+            loads.incrementAndGet();
+            return storedObject(content, "etag");
+        };
+
+        cache.get("arquivo.pdf", loader);
+        DownloadCache.Lookup lookup = cache.get("arquivo.pdf", loader);
+
+        assertEquals(1, loads.get());
+        assertArrayEquals(content, write(lookup.entry().toDownload("arquivo.pdf", DownloadOptions.NONE)));
+    }
+
+    @Test
+    @DisplayName("Testa se intervalos e cabeçalhos condicionais são atendidos pela entrada em cache")
+    void testRangeAndConditionalFromCache() throws IOException {
+        byte[] content = content(512);
+        CachedObject entry = cache.get("arquivo.txt", eTag -> storedObject(content, "etag")).entry();
+
+        FileDownload partial = entry.toDownload("arquivo.txt", new DownloadOptions("bytes=10-19", null, null));
+        assertEquals(FileDownload.Status.PARTIAL_CONTENT, partial.status());
+        assertEquals("bytes 10-19/512", partial.contentRange());
+        assertArrayEquals(Arrays.copyOfRange(content, 10, 20), write(partial));
+
+        FileDownload notModified = entry.toDownload("arquivo.txt", new DownloadOptions(null, "\"etag\"", null));
+        assertEquals(FileDownload.Status.NOT_MODIFIED, notModified.status());
+        assertEquals("etag", notModified.eTag());
+    }
+
+    @Test
+    @DisplayName("Testa se a invalidação força uma nova busca ao armazenamento")
+    void testInvalidate() {
+        AtomicInteger loads = new AtomicInteger();
+        DownloadCache.Loader loader = eTag -> {
+            loads.incrementAndGet();
+            return storedObject(content(100), "etag");
+        };
+
+        cache.get("arquivo.txt", loader);
+        cache.invalidate("arquivo.txt");
+        cache.get("arquivo.txt", loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Testa se objetos maiores que o limite por entrada são servidos diretamente")
+    void testOversizedPassthrough() {
+        DownloadCache.Lookup lookup = cache.get("video.mp4", eTag -> storedObject(content(40 * 1024), "etag"));
+
+        assertNull(lookup.entry());
+        assertNotNull(lookup.passthrough());
+        assertNull(cache.get("video.mp4", eTag -> fail("o objeto não deveria ser buscado pelo cache")).passthrough());
+    }
+
+    @Test
+    @DisplayName("Testa se requisições concorrentes para a mesma chave fazem uma única busca ao armazenamento")
+    void testSingleFlight() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        DownloadCache.Loader loader = eTag -> {
+            loads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return storedObject(content(8 * 1024), "etag");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> assertNotNull(cache.get("arquivo.csv", loader).entry()));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Testa se a inicialização remove apenas os arquivos de execuções encerradas do cache")
+    void testPrepareDirectory() throws IOException {
+        byte[] content = content(20 * 1024);
+        cache.get("arquivo.pdf", eTag -> storedObject(content, "etag"));
+        Path unrelated = Files.writeString(directory.resolve("outro.txt"), "não pertence ao cache");
+        Path subdirectory = Files.createDirectories(directory.resolve("dados"));
+        Path abandoned = Files.createDirectories(directory.resolve("instance-anterior"));
+        Files.createFile(abandoned.resolve(".lock"));
+        Files.write(abandoned.resolve("entrada.cache"), content);
+
+        new DownloadCache(true, directory, DataSize.ofKilobytes(64), DataSize.ofKilobytes(32),
+                DataSize.ofKilobytes(4), DataSize.ofKilobytes(1), Duration.ofMinutes(5));
+
+        assertTrue(Files.exists(unrelated));
+        assertTrue(Files.isDirectory(subdirectory));
+        assertFalse(Files.exists(abandoned));
+        assertArrayEquals(content, write(cache.get("arquivo.pdf", eTag -> {
+            throw new AssertionError("A entrada em cache não deveria ser buscada novamente");
+        }).entry().toDownload("arquivo.pdf", DownloadOptions.NONE)));
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    private static StoredObject storedObject(byte[] content, String eTag) {
+        return new StoredObject(new ObjectAttributes(null, null, content.length, eTag, null, Map.of()), null,
+                new ByteArrayInputStream(content), null);
+    }
+
+    private static byte[] write(FileDownload download) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        download.body().writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+}
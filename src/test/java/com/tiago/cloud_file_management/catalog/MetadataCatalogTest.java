@@ -0,0 +1,107 @@
+package com.tiago.cloud_file_management.catalog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataCatalogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Testa os filtros, a ordenação e a paginação da busca")
+    void testSearch() {
+        MetadataCatalog catalog = new MetadataCatalog(true, directory.resolve("catalog.journal"));
+        for (int i = 0; i < 100; i++) {
+            catalog.put(entry(i, (i % 2 == 0 ? "Foto-" : "relatorio-") + i + ".png", i * 10L, "hash-" + (i % 10)));
+        }
+
+        List<FileEntry> photos = catalog.search(query("foto-", null, null, null, FileQuery.Sort.NAME, false), 0, 3);
+        assertEquals(List.of("Foto-0.png", "Foto-10.png", "Foto-12.png"), photos.stream().map(FileEntry::name).toList());
+
+        List<FileEntry> sized = catalog.search(query(null, null, 200L, 300L, FileQuery.Sort.SIZE, true), 2, 100);
+        assertEquals(List.of(28L, 27L, 26L, 25L, 24L, 23L, 22L, 21L, 20L),
+                sized.stream().map(entry -> entry.size() / 10).toList());
+
+        List<FileEntry> recent = catalog.search(new FileQuery("relatorio", null, null, null, null,
+                Instant.ofEpochMilli(90), Instant.ofEpochMilli(96), FileQuery.Sort.UPLOADED_AT, false), 0, 100);
+        assertEquals(List.of(91L, 93L, 95L), recent.stream().map(entry -> entry.uploadedAt().toEpochMilli()).toList());
+
+        List<FileEntry> sameContent = catalog.search(query(null, "hash-3", null, 400L, FileQuery.Sort.SIZE, true), 0, 100);
+        assertEquals(List.of(33L, 23L, 13L, 3L), sameContent.stream().map(entry -> entry.size() / 10).toList());
+
+        assertTrue(catalog.search(query(null, null, 300L, 200L, FileQuery.Sort.SIZE, false), 0, 10).isEmpty());
+        assertEquals(List.of("00000000000040-Foto-40.png", "00000000000041-relatorio-41.png"),
+                catalog.keys("0000000000004", "00000000000039-relatorio-39.png", 2));
+        catalog.close();
+    }
+
+    @Test
+    @DisplayName("Testa se o journal é lido de volta e se um registro incompleto no fim é descartado")
+    void testJournalRecovery() throws IOException {
+        Path journal = directory.resolve("catalog.journal");
+        MetadataCatalog catalog = new MetadataCatalog(true, journal);
+        catalog.put(entry(1, "a.txt", 10, "hash-a"));
+        catalog.put(entry(2, "b.txt", 20, "hash-b"));
+        long start = catalog.beginSync();
+        catalog.finishSync(Set.of(entry(1, "a.txt", 0, null).key(), entry(2, "b.txt", 0, null).key()), start);
+        catalog.remove(entry(1, "a.txt", 0, null).key());
+        catalog.put(entry(3, "c.txt", 30, "hash-c"));
+        catalog.close();
+
+        long complete = Files.size(journal);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(complete - 3);
+        }
+
+        MetadataCatalog reloaded = new MetadataCatalog(true, journal);
+        assertFalse(reloaded.isReady());
+        assertEquals(List.of(entry(2, "b.txt", 20, "hash-b").key()), reloaded.keys(null, null, 10));
+        assertEquals(entry(2, "b.txt", 20, "hash-b"), reloaded.get(entry(2, "b.txt", 0, null).key()));
+
+        reloaded.put(entry(4, "d.txt", 40, null));
+        reloaded.close();
+        assertEquals(2, new MetadataCatalog(true, journal).size());
+    }
+
+    @Test
+    @DisplayName("Testa se a sincronização remove apenas os arquivos ausentes registrados antes do seu início")
+    void testSync() {
+        MetadataCatalog catalog = new MetadataCatalog(true, directory.resolve("catalog.journal"));
+        assertFalse(catalog.isReady());
+        catalog.put(entry(1, "listado.txt", 1, null));
+        catalog.put(entry(2, "excluido.txt", 1, null));
+
+        long start = catalog.beginSync();
+        assertEquals(-1, catalog.beginSync());
+        catalog.put(entry(3, "novo.txt", 1, null));
+        assertEquals(1, catalog.finishSync(Set.of(entry(1, "listado.txt", 0, null).key()), start));
+
+        assertTrue(catalog.isReady());
+        assertEquals(List.of(entry(1, "listado.txt", 0, null).key(), entry(3, "novo.txt", 0, null).key()),
+                catalog.keys(null, null, 10));
+        assertTrue(catalog.beginSync() >= 0);
+        catalog.close();
+    }
+
+    private static FileEntry entry(int timestamp, String name, long size, String sha256) {
+        return new FileEntry(String.format("%014d-%s", timestamp, name), name, size, "image/png",
+                Instant.ofEpochMilli(timestamp), sha256, null, false);
+    }
+
+    private static FileQuery query(String name, String sha256, Long minSize, Long maxSize, FileQuery.Sort sort,
+                                   boolean descending) {
+        return new FileQuery(name, sha256, minSize, maxSize, null, null, null, sort, descending);
+    }
+}
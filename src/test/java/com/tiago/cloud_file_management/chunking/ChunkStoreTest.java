@@ -0,0 +1,95 @@
+package com.tiago.cloud_file_management.chunking;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.tiago.cloud_file_management.compression.CompressionPolicy;
+import com.tiago.cloud_file_management.s3.LocalS3Server;
+import com.tiago.cloud_file_management.storage.ListPage;
+import com.tiago.cloud_file_management.storage.S3StorageBackend;
+import com.tiago.cloud_file_management.storage.StorageBackend;
+import com.tiago.cloud_file_management.upload.MultipartUploadEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+/**
+ * Executa duas instâncias do {@link ChunkStore}, como dois nós da aplicação,
+ * sobre o mesmo {@link LocalS3Server}.
+ */
+class ChunkStoreTest {
+    private LocalS3Server server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new LocalS3Server();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Testa se um bloco reaproveitado por outro nó durante a liberação volta ao armazenamento")
+    void testReleaseRacesWithOtherNode() throws IOException {
+        byte[] content = new byte[256 * 1024];
+        new Random(7).nextBytes(content);
+        ChunkStore otherNode = newChunkStore(newStorage());
+        StorageBackend releasingStorage = spy(newStorage());
+        ChunkStore releasingNode = newChunkStore(releasingStorage);
+        ChunkManifest released = releasingNode.store("a.bin", new ByteArrayInputStream(content), "application/octet-stream");
+
+        // O outro nó envia o mesmo conteúdo logo depois que este listou as referências de um bloco e não achou nenhuma
+        AtomicBoolean raced = new AtomicBoolean();
+        ChunkManifest[] stored = new ChunkManifest[1];
+        doAnswer(invocation -> {
+            ListPage page = (ListPage) invocation.callRealMethod();
+            if (page.keys().isEmpty() && raced.compareAndSet(false, true)) {
+                stored[0] = otherNode.store("b.bin", new ByteArrayInputStream(content), "application/octet-stream");
+            }
+            return page;
+        }).when(releasingStorage).list(startsWith("chunk-refs/"), isNull(), eq(1), isNull());
+        releasingStorage.delete("a.bin");
+        releasingNode.release("a.bin", released);
+
+        assertTrue(raced.get());
+        for (String hash : stored[0].distinctHashes()) {
+            assertTrue(server.contains("chunks/" + hash), "bloco ausente: " + hash);
+        }
+        try (InputStream reassembled = otherNode.open(stored[0], 0, stored[0].size())) {
+            assertArrayEquals(content, reassembled.readAllBytes());
+        }
+
+        server.delete("b.bin");
+        otherNode.release("b.bin", stored[0]);
+        assertTrue(server.keys().isEmpty(), "objetos restantes: " + server.keys());
+    }
+
+    private StorageBackend newStorage() {
+        AmazonS3 amazonS3 = server.client();
+        MultipartUploadEngine uploadEngine = new MultipartUploadEngine(amazonS3,
+                DataSize.ofMegabytes(5), 2, DataSize.ofMegabytes(5), 2, 2);
+        return new S3StorageBackend(amazonS3, uploadEngine, "file-management-bucket05012005");
+    }
+
+    private static ChunkStore newChunkStore(StorageBackend storage) {
+        CompressionPolicy compressionPolicy = new CompressionPolicy(false, "gzip", 0, DataSize.ofKilobytes(1),
+                List.of("text/plain"));
+        // Uma única thread libera os blocos em sequência, para que a corrida aconteça em um bloco conhecido
+        return new ChunkStore(storage, compressionPolicy, true, DataSize.ofKilobytes(64),
+                DataSize.ofKilobytes(4), DataSize.ofKilobytes(16), DataSize.ofKilobytes(64), 4, 4, 1);
+    }
+}
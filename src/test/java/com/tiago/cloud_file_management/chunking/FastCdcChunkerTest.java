@@ -0,0 +1,73 @@
+package com.tiago.cloud_file_management.chunking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastCdcChunkerTest {
+    private final FastCdcChunker chunker = new FastCdcChunker(2 * 1024, 8 * 1024, 32 * 1024);
+
+    @Test
+    @DisplayName("Testa se os blocos respeitam os tamanhos configurados e reconstroem o conteúdo")
+    void testChunkSizes() throws IOException {
+        byte[] content = new byte[1024 * 1024];
+        new Random(42).nextBytes(content);
+
+        List<byte[]> chunks = split(content);
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (int i = 0; i < chunks.size(); i++) {
+            byte[] chunk = chunks.get(i);
+            assertTrue(chunk.length <= 32 * 1024);
+            assertTrue(chunk.length >= 2 * 1024 || i == chunks.size() - 1);
+            joined.writeBytes(chunk);
+        }
+        assertArrayEquals(content, joined.toByteArray());
+        double average = (double) content.length / chunks.size();
+        assertTrue(average > 4 * 1024 && average < 16 * 1024, "tamanho médio: " + average);
+    }
+
+    @Test
+    @DisplayName("Testa se uma inserção no meio do conteúdo altera apenas os blocos ao redor dela")
+    void testInsertionLocality() throws IOException {
+        byte[] content = new byte[512 * 1024];
+        new Random(7).nextBytes(content);
+        byte[] inserted = new byte[100];
+        new Random(8).nextBytes(inserted);
+        ByteArrayOutputStream edited = new ByteArrayOutputStream();
+        edited.write(content, 0, 200_000);
+        edited.writeBytes(inserted);
+        edited.write(content, 200_000, content.length - 200_000);
+
+        Set<String> original = fingerprints(split(content));
+        List<byte[]> editedChunks = split(edited.toByteArray());
+        long changed = fingerprints(editedChunks).stream().filter(chunk -> !original.contains(chunk)).count();
+
+        assertTrue(changed <= 2, "blocos alterados: " + changed + " de " + editedChunks.size());
+    }
+
+    private List<byte[]> split(byte[] content) throws IOException {
+        FastCdcChunker.Chunks chunks = chunker.split(new ByteArrayInputStream(content));
+        List<byte[]> result = new ArrayList<>();
+        byte[] chunk;
+        while ((chunk = chunks.next()) != null) {
+            result.add(chunk);
+        }
+        return result;
+    }
+
+    private static Set<String> fingerprints(List<byte[]> chunks) {
+        return chunks.stream().map(HexFormat.of()::formatHex).collect(Collectors.toSet());
+    }
+}
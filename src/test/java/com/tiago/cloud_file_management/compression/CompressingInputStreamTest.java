@@ -0,0 +1,45 @@
+package com.tiago.cloud_file_management.compression;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressingInputStreamTest {
+
+    @ParameterizedTest
+    @EnumSource(ContentCodec.class)
+    @DisplayName("Testa que o conteúdo compactado em blocos é restaurado pelo decodificador do mesmo formato")
+    void testRoundTrip(ContentCodec codec) throws IOException {
+        byte[] content = "linha de texto repetida;".repeat(20_000).getBytes(StandardCharsets.US_ASCII);
+
+        byte[] compressed;
+        try (InputStream inputStream = new CompressingInputStream(new ByteArrayInputStream(content), codec,
+                codec.defaultLevel())) {
+            compressed = inputStream.readAllBytes();
+        }
+
+        assertTrue(compressed.length < content.length / 10);
+        try (InputStream decoded = codec.decoder(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(content, decoded.readAllBytes());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ContentCodec.class)
+    @DisplayName("Testa a compactação de um conteúdo vazio")
+    void testEmpty(ContentCodec codec) throws IOException {
+        byte[] compressed = new CompressingInputStream(InputStream.nullInputStream(), codec, codec.defaultLevel())
+                .readAllBytes();
+
+        try (InputStream decoded = codec.decoder(new ByteArrayInputStream(compressed))) {
+            assertEquals(0, decoded.readAllBytes().length);
+        }
+    }
+}
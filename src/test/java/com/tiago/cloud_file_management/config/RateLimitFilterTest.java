@@ -0,0 +1,78 @@
+package com.tiago.cloud_file_management.config;
+
+import com.tiago.cloud_file_management.ratelimit.LocalBucketStore;
+import com.tiago.cloud_file_management.ratelimit.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+    private RateLimitFilter filter;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties(true, RateLimitProperties.Backend.LOCAL,
+                new RateLimitProperties.Store(1000, Duration.ofMinutes(10)),
+                List.of("10.0.0.0/8"),
+                List.of(new RateLimitProperties.Policy("download", List.of("/api/download/**"), 100, DataSize.ofBytes(1000), Duration.ofMinutes(1)),
+                        new RateLimitProperties.Policy("default", List.of("/**"), 2, null, Duration.ofMinutes(1))));
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(properties, new LocalBucketStore(1000, Duration.ofMinutes(10)), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Testa se as requisições acima do limite da política são recusadas")
+    void testRequestLimit() throws Exception {
+        assertEquals(200, send("/api/list", "1.1.1.1", null, 0));
+        assertEquals(200, send("/api/list", "1.1.1.1", null, 0));
+
+        assertEquals(429, send("/api/list", "1.1.1.1", null, 0));
+        assertEquals(200, send("/api/list", "2.2.2.2", null, 0));
+        assertEquals(200, send("/api/download/a.txt", "1.1.1.1", null, 0));
+        assertEquals(1, meterRegistry.counter("ratelimit.rejections", "policy", "default", "limit", "requests").count());
+    }
+
+    @Test
+    @DisplayName("Testa se os bytes transferidos são cobrados e bloqueiam as próximas requisições")
+    void testBytesLimit() throws Exception {
+        assertEquals(200, send("/api/download/a.txt", "1.1.1.1", null, 5000));
+
+        assertEquals(429, send("/api/download/b.txt", "1.1.1.1", null, 0));
+        assertEquals(200, send("/api/download/b.txt", "2.2.2.2", null, 0));
+    }
+
+    @Test
+    @DisplayName("Testa se o X-Forwarded-For só é usado quando vem de um proxy confiável")
+    void testForwardedFor() throws Exception {
+        send("/api/list", "10.0.0.1", "9.9.9.9, 3.3.3.3, 10.0.0.2", 0);
+        send("/api/list", "10.0.0.5", "3.3.3.3", 0);
+
+        assertEquals(429, send("/api/list", "10.0.0.9", "3.3.3.3", 0));
+        assertEquals(200, send("/api/list", "4.4.4.4", "3.3.3.3", 0));
+        assertEquals(200, send("/api/list", "4.4.4.4", "5.5.5.5", 0));
+        assertEquals(429, send("/api/list", "4.4.4.4", "6.6.6.6", 0));
+    }
+
+    private int send(String path, String remoteAddr, String forwardedFor, int responseBytes) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> res.getOutputStream().write(new byte[responseBytes]);
+        filter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+}
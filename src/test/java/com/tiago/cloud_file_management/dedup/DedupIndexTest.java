@@ -0,0 +1,66 @@
+package com.tiago.cloud_file_management.dedup;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DedupIndexTest {
+
+    @Test
+    @DisplayName("Testa se o índice exige a consulta ao bucket enquanto não estiver carregado")
+    void testNotReadyAlwaysMightContain() throws NoSuchAlgorithmException {
+        DedupIndex index = new DedupIndex(true, 10000, 0.01);
+
+        assertTrue(index.mightContain(hash("qualquer conteúdo")));
+    }
+
+    @Test
+    @DisplayName("Testa se hashes adicionados são encontrados e hashes removidos deixam de ser")
+    void testAddAndRemove() throws NoSuchAlgorithmException {
+        DedupIndex index = new DedupIndex(true, 10000, 0.01);
+        index.markReady();
+
+        for (int i = 0; i < 5000; i++) {
+            index.add(hash("arquivo-" + i));
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(index.mightContain(hash("arquivo-" + i)));
+        }
+        assertFalse(index.mightContain(hash("arquivo-novo")));
+
+        for (int i = 0; i < 5000; i += 2) {
+            index.remove(hash("arquivo-" + i));
+        }
+
+        assertEquals(2500, index.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i % 2 == 1, index.mightContain(hash("arquivo-" + i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Testa se o índice volta a consultar o bucket ao atingir a capacidade")
+    void testSaturation() throws NoSuchAlgorithmException {
+        DedupIndex index = new DedupIndex(true, 10, 0.01);
+        index.markReady();
+
+        for (int i = 0; i < 11; i++) {
+            index.add(hash("arquivo-" + i));
+        }
+
+        assertFalse(index.isReady());
+        assertTrue(index.mightContain(hash("arquivo-novo")));
+    }
+
+    private static String hash(String content) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return Base64.getEncoder().encodeToString(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.tiago.cloud_file_management.hash;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentHasherTest {
+    private final ContentHasher contentHasher =
+            new ContentHasher(DataSize.ofKilobytes(4), DataSize.ofKilobytes(64), true);
+
+    @Test
+    @DisplayName("Testa o xxHash64 com valores de referência e com o conteúdo entregue em partes")
+    void testXxHash64() {
+        assertEquals(0xEF46DB3751D8E999L, xxHash64(""));
+        assertEquals(0xD24EC4F1A98C6E5BL, xxHash64("a"));
+        assertEquals(0x44BC2CF5AD770999L, xxHash64("abc"));
+        assertEquals(0xFBCEA83C8A378BF1L, xxHash64("Nobody inspects the spammish repetition"));
+
+        byte[] content = new byte[1000];
+        new Random(42).nextBytes(content);
+        XxHash64 whole = new XxHash64();
+        whole.update(content, 0, content.length);
+        XxHash64 parts = new XxHash64();
+        for (int offset = 0, length = 1; offset < content.length; offset += length, length = length % 37 + 1) {
+            parts.update(content, offset, Math.min(length, content.length - offset));
+        }
+        assertEquals(whole.getValue(), parts.getValue());
+    }
+
+    @Test
+    @DisplayName("Testa se os hashes de arquivos mapeados em memória e lidos por stream coincidem")
+    void testFileAndStreamHashesMatch(@TempDir Path directory) throws IOException, NoSuchAlgorithmException {
+        for (int size : new int[]{0, 100, 10_000, 200_000}) {
+            byte[] content = new byte[size];
+            new Random(size).nextBytes(content);
+            Path file = Files.write(directory.resolve(size + ".bin"), content);
+            String expected = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(content));
+
+            assertEquals(expected, contentHasher.sha256(file));
+            assertEquals(expected, contentHasher.sha256(new ByteArrayInputStream(content)));
+            assertEquals(contentHasher.preHash(new ByteArrayInputStream(content)), contentHasher.preHash(file));
+        }
+    }
+
+    @Test
+    @DisplayName("Testa se apenas arquivos acima do limite de mapeamento são transferidos para o disco")
+    void testSpool() throws IOException {
+        byte[] large = new byte[100_000];
+        new Random(7).nextBytes(large);
+
+        assertNull(contentHasher.spool(new MockMultipartFile("file", "a.txt", "text/plain", new byte[10])));
+        try (SpooledFile spooled = contentHasher.spool(new MockMultipartFile("file", "b.txt", "text/plain", large))) {
+            assertArrayEquals(large, Files.readAllBytes(spooled.path()));
+            spooled.close();
+            assertFalse(Files.exists(spooled.path()));
+        }
+    }
+
+    private static long xxHash64(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        XxHash64 hash = new XxHash64();
+        hash.update(bytes, 0, bytes.length);
+        return hash.getValue();
+    }
+}
@@ -0,0 +1,58 @@
+package com.tiago.cloud_file_management.ratelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalBucketStoreTest {
+    private static final BucketConfiguration CONFIGURATION = BucketConfiguration.builder()
+            .addLimit(Bandwidth.classic(2, Refill.greedy(2, Duration.ofMinutes(1))))
+            .build();
+
+    @Test
+    @DisplayName("Testa se o mesmo balde é retornado para a mesma chave")
+    void testResolveReusesBucket() {
+        LocalBucketStore store = new LocalBucketStore(10, Duration.ofMinutes(10));
+
+        Bucket bucket = store.resolve("cliente", CONFIGURATION);
+        bucket.tryConsume(2);
+
+        assertSame(bucket, store.resolve("cliente", CONFIGURATION));
+        assertFalse(store.resolve("cliente", CONFIGURATION).tryConsume(1));
+    }
+
+    @Test
+    @DisplayName("Testa se o armazenamento descarta o balde menos usado ao atingir o limite")
+    void testBoundedSize() {
+        LocalBucketStore store = new LocalBucketStore(100, Duration.ofMinutes(10));
+
+        for (int i = 0; i < 10_000; i++) {
+            store.resolve("cliente-" + i, CONFIGURATION);
+        }
+
+        assertEquals(100, store.size());
+    }
+
+    @Test
+    @DisplayName("Testa se baldes ociosos expiram")
+    void testIdleExpiration() {
+        AtomicLong clock = new AtomicLong();
+        LocalBucketStore store = new LocalBucketStore(100, Duration.ofSeconds(10), clock::get);
+
+        store.resolve("ocioso", CONFIGURATION);
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        store.resolve("ativo", CONFIGURATION);
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        store.resolve("ativo", CONFIGURATION);
+
+        assertEquals(1, store.size());
+    }
+}
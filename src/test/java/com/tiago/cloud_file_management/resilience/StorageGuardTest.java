@@ -0,0 +1,161 @@
+package com.tiago.cloud_file_management.resilience;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.tiago.cloud_file_management.exceptions.StorageUnavailableException;
+import com.tiago.cloud_file_management.metrics.StorageMetrics;
+import com.tiago.cloud_file_management.s3.LocalS3Server;
+import com.tiago.cloud_file_management.storage.ReadOptions;
+import com.tiago.cloud_file_management.storage.S3StorageBackend;
+import com.tiago.cloud_file_management.storage.StorageBackend;
+import com.tiago.cloud_file_management.storage.StoredObject;
+import com.tiago.cloud_file_management.upload.MultipartUploadEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Executa o {@link S3StorageBackend} protegido pelo {@link StorageGuard} contra
+ * o {@link LocalS3Server} com latência injetada.
+ */
+class StorageGuardTest {
+    private static final String KEY = "relatorio.txt";
+    private static final byte[] CONTENT = "conteúdo do relatório".getBytes(StandardCharsets.UTF_8);
+
+    private LocalS3Server server;
+    private SimpleMeterRegistry meterRegistry;
+    private StorageGuard guard;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new LocalS3Server();
+        server.putObject(KEY, CONTENT, "text/plain", Map.of());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Testa se uma leitura lenta é repetida em paralelo e a resposta mais rápida é usada")
+    void testHedgedRead() throws IOException {
+        StorageBackend storage = newStorage(new ResilienceProperties.Hedge(true, 0.95, Duration.ofMillis(5), 1),
+                Duration.ofSeconds(10), new ResilienceProperties.Circuit(0.5, 50, 20, Duration.ofSeconds(10), 5),
+                new ResilienceProperties.Bulkhead(16, Duration.ofMillis(100)));
+        for (int i = 0; i < 30; i++) {
+            assertArrayEquals(CONTENT, read(storage));
+        }
+
+        server.stallNext(1, Duration.ofSeconds(3));
+        long start = System.nanoTime();
+        assertArrayEquals(CONTENT, read(storage));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) < 0);
+        assertEquals(1, meterRegistry.counter("storage.resilience.hedges", "operation", "get", "result", "won").count());
+    }
+
+    @Test
+    @DisplayName("Testa se as leituras lentas esgotam o tempo limite, abrem o circuito e se ele fecha quando o S3 se recupera")
+    void testCircuitBreaker() throws InterruptedException {
+        StorageBackend storage = newStorage(new ResilienceProperties.Hedge(false, 0.95, Duration.ofMillis(5), 0.1),
+                Duration.ofMillis(200), new ResilienceProperties.Circuit(0.5, 4, 4, Duration.ofMillis(500), 1),
+                new ResilienceProperties.Bulkhead(16, Duration.ofMillis(100)));
+        server.withLatency(Duration.ofSeconds(1), Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(StorageUnavailableException.class, () -> storage.head(KEY));
+        }
+        assertEquals(4, meterRegistry.counter("storage.resilience.timeouts", "operation", "head").count());
+
+        long requests = server.requestCount();
+        long start = System.nanoTime();
+        assertThrows(StorageUnavailableException.class, () -> storage.head(KEY));
+        assertThrows(StorageUnavailableException.class, () -> storage.delete(KEY));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(100)) < 0);
+        assertEquals(requests, server.requestCount());
+        assertEquals(2, meterRegistry.counter("storage.resilience.rejections", "reason", "circuit-open").count());
+
+        server.withLatency(Duration.ZERO, Duration.ZERO);
+        Thread.sleep(600);
+        assertEquals(CONTENT.length, storage.head(KEY).contentLength());
+        assertTrue(storage.exists(KEY));
+    }
+
+    @Test
+    @DisplayName("Testa se as leituras além do limite de chamadas simultâneas são recusadas sem esperar o S3")
+    void testBulkhead() throws Exception {
+        StorageBackend storage = newStorage(new ResilienceProperties.Hedge(false, 0.95, Duration.ofMillis(5), 0.1),
+                Duration.ofSeconds(10), new ResilienceProperties.Circuit(0.5, 50, 20, Duration.ofSeconds(10), 5),
+                new ResilienceProperties.Bulkhead(2, Duration.ofMillis(50)));
+        server.withLatency(Duration.ofMillis(500), Duration.ZERO);
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        CountDownLatch ready = new CountDownLatch(5);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                ready.await();
+                try {
+                    return storage.exists(KEY);
+                } catch (StorageUnavailableException e) {
+                    return false;
+                }
+            }));
+        }
+        int found = 0;
+        for (Future<Boolean> result : results) {
+            found += result.get(5, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertEquals(2, found);
+        assertEquals(3, meterRegistry.counter("storage.resilience.rejections", "reason", "bulkhead-full").count());
+    }
+
+    @Test
+    @DisplayName("Testa se a leitura que esgota o tempo limite é cancelada e devolve sua vaga no bulkhead")
+    void testTimedOutReadReleasesPermit() {
+        StorageBackend storage = newStorage(new ResilienceProperties.Hedge(false, 0.95, Duration.ofMillis(5), 0.1),
+                Duration.ofMillis(200), new ResilienceProperties.Circuit(0.5, 50, 20, Duration.ofSeconds(10), 5),
+                new ResilienceProperties.Bulkhead(1, Duration.ofMillis(300)));
+        server.withLatency(Duration.ofSeconds(3), Duration.ZERO);
+        assertThrows(StorageUnavailableException.class, () -> storage.head(KEY));
+
+        server.withLatency(Duration.ZERO, Duration.ZERO);
+        long start = System.nanoTime();
+        assertTrue(storage.exists(KEY));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) < 0);
+        assertEquals(0, meterRegistry.counter("storage.resilience.rejections", "reason", "bulkhead-full").count());
+    }
+
+    private StorageBackend newStorage(ResilienceProperties.Hedge hedge, Duration maxTimeout,
+                                      ResilienceProperties.Circuit circuit, ResilienceProperties.Bulkhead bulkhead) {
+        ResilienceProperties properties = new ResilienceProperties(true, new ResilienceProperties.Latency(1000, 20),
+                hedge, new ResilienceProperties.Timeout(0.99, 3, Duration.ofMillis(500), maxTimeout), circuit, bulkhead);
+        guard = new StorageGuard(properties, new StorageMetrics(meterRegistry));
+        AmazonS3 amazonS3 = server.client();
+        MultipartUploadEngine uploadEngine = new MultipartUploadEngine(amazonS3,
+                DataSize.ofMegabytes(5), 2, DataSize.ofMegabytes(5), 2, 2);
+        return new S3StorageBackend(amazonS3, uploadEngine, "file-management-bucket05012005", guard);
+    }
+
+    private static byte[] read(StorageBackend storage) throws IOException {
+        try (StoredObject object = storage.get(KEY, ReadOptions.NONE)) {
+            return object.content().readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,598 @@
+package com.tiago.cloud_file_management.s3;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Servidor HTTP local que implementa o subconjunto da API do S3 usado pela
+ * aplicação, com os objetos em memória: PUT (inclusive condicional com
+ * {@code If-None-Match: *}), GET com intervalo e condições, HEAD, DELETE,
+ * exclusão em lote, ListObjectsV2 e uploads em partes.
+ * <p>
+ * Uma latência pode ser injetada em cada requisição para simular a distância
+ * até o S3. Os buckets são criados sob demanda e compartilham o mesmo espaço de
+ * chaves.
+ */
+public class LocalS3Server implements AutoCloseable {
+    private static final DateTimeFormatter ISO_INSTANT = DateTimeFormatter.ISO_INSTANT;
+    private static final Pattern PART = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+    private static final Pattern DELETE_KEY = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+
+    static {
+        // Sem TCP_NODELAY, cabeçalhos e corpo enviados em pacotes separados esperam o ACK atrasado do cliente (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ConcurrentSkipListMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong uploadIds = new AtomicLong();
+    private final AtomicInteger stalls = new AtomicInteger();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration jitter = Duration.ZERO;
+    private volatile Duration stall = Duration.ZERO;
+
+    public LocalS3Server() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "local-s3");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Define a latência adicionada a cada requisição, acrescida de um valor
+     * aleatório entre zero e {@code jitter}.
+     */
+    public LocalS3Server withLatency(Duration latency, Duration jitter) {
+        this.latency = latency;
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Atrasa as próximas {@code requests} requisições em {@code stall}, além da
+     * latência configurada, simulando respostas lentas isoladas.
+     */
+    public LocalS3Server stallNext(int requests, Duration stall) {
+        this.stall = stall;
+        stalls.set(requests);
+        return this;
+    }
+
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Cria um cliente do SDK apontando para este servidor.
+     */
+    public AmazonS3 client() {
+        return AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint(), "us-east-1"))
+                .withPathStyleAccessEnabled(true)
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("local", "local")))
+                .build();
+    }
+
+    /**
+     * Grava um objeto diretamente, sem passar pelo HTTP.
+     */
+    public void putObject(String key, byte[] content, String contentType, Map<String, String> userMetadata) {
+        objects.put(key, new StoredObject(content, contentType, null, new HashMap<>(userMetadata), md5Hex(content),
+                Instant.now()));
+    }
+
+    public void delete(String key) {
+        objects.remove(key);
+    }
+
+    public boolean contains(String key) {
+        return objects.containsKey(key);
+    }
+
+    /**
+     * @return Os bytes armazenados do objeto, como estão no bucket, ou {@code null} se ele não existir.
+     */
+    public byte[] content(String key) {
+        StoredObject object = objects.get(key);
+        return object == null ? null : object.content();
+    }
+
+    public String contentEncoding(String key) {
+        StoredObject object = objects.get(key);
+        return object == null ? null : object.contentEncoding();
+    }
+
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(objects.keySet());
+    }
+
+    public long requestCount() {
+        return requestCount.get();
+    }
+
+    public void clear() {
+        objects.clear();
+        uploads.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try (exchange) {
+            injectLatency();
+            String path = exchange.getRequestURI().getPath();
+            int slash = path.indexOf('/', 1);
+            String key = slash < 0 ? "" : path.substring(slash + 1);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+
+            if (key.isEmpty()) {
+                if (method.equals("GET") && query.containsKey("uploads")) {
+                    listUploads(exchange);
+                } else if (method.equals("GET")) {
+                    listObjects(exchange, query);
+                } else if (method.equals("POST") && query.containsKey("delete")) {
+                    deleteObjects(exchange);
+                } else {
+                    sendEmpty(exchange, 200);
+                }
+                return;
+            }
+
+            switch (method) {
+                case "PUT" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploadPart(exchange, query);
+                    } else {
+                        putObject(exchange, key);
+                    }
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        initiateUpload(exchange, key);
+                    } else {
+                        completeUpload(exchange, key, query.get("uploadId"));
+                    }
+                }
+                case "GET" -> getObject(exchange, key, true);
+                case "HEAD" -> getObject(exchange, key, false);
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploads.remove(query.get("uploadId"));
+                    } else {
+                        objects.remove(key);
+                    }
+                    sendEmpty(exchange, 204);
+                }
+                default -> sendError(exchange, 405, "MethodNotAllowed");
+            }
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "InternalError");
+        }
+    }
+
+    private void injectLatency() {
+        long nanos = latency.toNanos();
+        if (stalls.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+            nanos += stall.toNanos();
+        }
+        if (!jitter.isZero()) {
+            nanos += ThreadLocalRandom.current().nextLong(jitter.toNanos() + 1);
+        }
+        if (nanos > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(nanos).toMillis(), (int) (nanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void putObject(HttpExchange exchange, String key) throws IOException {
+        Headers headers = exchange.getRequestHeaders();
+        byte[] content = readBody(exchange);
+        StoredObject object = new StoredObject(content, headers.getFirst("Content-Type"), contentEncoding(headers),
+                userMetadata(headers), md5Hex(content), Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        if (!"*".equals(headers.getFirst("If-None-Match"))) {
+            objects.put(key, object);
+        } else if (objects.putIfAbsent(key, object) != null) {
+            sendError(exchange, 412, "PreconditionFailed");
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", "\"" + object.eTag() + "\"");
+        sendEmpty(exchange, 200);
+    }
+
+    private void getObject(HttpExchange exchange, String key, boolean withBody) throws IOException {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            if (withBody) {
+                sendError(exchange, 404, "NoSuchKey");
+            } else {
+                sendEmpty(exchange, 404);
+            }
+            return;
+        }
+
+        Headers request = exchange.getRequestHeaders();
+        Headers response = exchange.getResponseHeaders();
+        response.set("ETag", "\"" + object.eTag() + "\"");
+        response.set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(object.lastModified().atZone(ZoneOffset.UTC)));
+        response.set("Accept-Ranges", "bytes");
+        if (object.contentType() != null) {
+            response.set("Content-Type", object.contentType());
+        }
+        if (object.contentEncoding() != null) {
+            response.set("Content-Encoding", object.contentEncoding());
+        }
+        object.userMetadata().forEach((name, value) -> response.set("x-amz-meta-" + name, value));
+
+        String ifNoneMatch = request.getFirst("If-None-Match");
+        if (ifNoneMatch != null && ifNoneMatch.replace("\"", "").equals(object.eTag())) {
+            sendEmpty(exchange, 304);
+            return;
+        }
+        String ifModifiedSince = request.getFirst("If-Modified-Since");
+        if (ifNoneMatch == null && ifModifiedSince != null
+                && !object.lastModified().isAfter(ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant())) {
+            sendEmpty(exchange, 304);
+            return;
+        }
+
+        byte[] content = object.content();
+        int start = 0;
+        int end = content.length - 1;
+        int status = 200;
+        String range = request.getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring(6).split("-", -1);
+            if (bounds[0].isEmpty()) {
+                start = Math.max(0, content.length - Integer.parseInt(bounds[1]));
+            } else {
+                start = Integer.parseInt(bounds[0]);
+                if (!bounds[1].isEmpty()) {
+                    end = Math.min(end, Integer.parseInt(bounds[1]));
+                }
+            }
+            if (start >= content.length) {
+                response.set("Content-Range", "bytes */" + content.length);
+                response.remove("Content-Encoding");
+                sendError(exchange, 416, "InvalidRange");
+                return;
+            }
+            status = 206;
+            response.set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        }
+
+        int length = end - start + 1;
+        if (!withBody) {
+            response.set("Content-Length", String.valueOf(length));
+            sendEmpty(exchange, status);
+            return;
+        }
+        sendHeaders(exchange, status, length == 0 ? -1 : length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(content, start, length);
+        }
+    }
+
+    private void listObjects(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.get("delimiter");
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        String token = query.get("continuation-token");
+        boolean urlEncoded = "url".equals(query.get("encoding-type"));
+
+        StringBuilder contents = new StringBuilder();
+        Set<String> commonPrefixes = new TreeSet<>();
+        int count = 0;
+        String lastKey = null;
+        boolean truncated = false;
+        NavigableMap<String, StoredObject> candidates = token == null
+                ? objects.tailMap(prefix, true)
+                : objects.tailMap(token, false);
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+            int delimiterIndex = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+            if (delimiterIndex >= 0) {
+                if (commonPrefixes.add(key.substring(0, delimiterIndex + delimiter.length()))) {
+                    count++;
+                }
+            } else {
+                StoredObject object = entry.getValue();
+                contents.append("<Contents><Key>").append(xml(encode(key, urlEncoded))).append("</Key>")
+                        .append("<LastModified>").append(ISO_INSTANT.format(object.lastModified())).append("</LastModified>")
+                        .append("<ETag>&quot;").append(object.eTag()).append("&quot;</ETag>")
+                        .append("<Size>").append(object.content().length).append("</Size>")
+                        .append("<StorageClass>STANDARD</StorageClass></Contents>");
+                count++;
+            }
+            lastKey = key;
+        }
+
+        StringBuilder body = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>bucket</Name>")
+                .append("<Prefix>").append(xml(encode(prefix, urlEncoded))).append("</Prefix>")
+                .append("<KeyCount>").append(count).append("</KeyCount>")
+                .append("<MaxKeys>").append(maxKeys).append("</MaxKeys>")
+                .append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (delimiter != null) {
+            body.append("<Delimiter>").append(xml(encode(delimiter, urlEncoded))).append("</Delimiter>");
+        }
+        if (urlEncoded) {
+            body.append("<EncodingType>url</EncodingType>");
+        }
+        if (truncated) {
+            body.append("<NextContinuationToken>").append(xml(lastKey)).append("</NextContinuationToken>");
+        }
+        body.append(contents);
+        for (String commonPrefix : commonPrefixes) {
+            body.append("<CommonPrefixes><Prefix>").append(xml(encode(commonPrefix, urlEncoded))).append("</Prefix></CommonPrefixes>");
+        }
+        body.append("</ListBucketResult>");
+        sendXml(exchange, 200, body.toString());
+    }
+
+    private void deleteObjects(HttpExchange exchange) throws IOException {
+        String request = new String(readBody(exchange), StandardCharsets.UTF_8);
+        Matcher matcher = DELETE_KEY.matcher(request);
+        StringBuilder deleted = new StringBuilder();
+        boolean quiet = request.contains("<Quiet>true</Quiet>");
+        while (matcher.find()) {
+            String key = unescapeXml(matcher.group(1));
+            objects.remove(key);
+            if (!quiet) {
+                deleted.append("<Deleted><Key>").append(xml(key)).append("</Key></Deleted>");
+            }
+        }
+        sendXml(exchange, 200, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<DeleteResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">" + deleted + "</DeleteResult>");
+    }
+
+    private void initiateUpload(HttpExchange exchange, String key) throws IOException {
+        String uploadId = "upload-" + uploadIds.incrementAndGet();
+        Headers headers = exchange.getRequestHeaders();
+        uploads.put(uploadId, new Upload(key, headers.getFirst("Content-Type"), contentEncoding(headers),
+                userMetadata(headers), Instant.now(), new ConcurrentSkipListMap<>()));
+        sendXml(exchange, 200, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<InitiateMultipartUploadResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                + "<Bucket>bucket</Bucket><Key>" + xml(key) + "</Key><UploadId>" + uploadId + "</UploadId>"
+                + "</InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, Map<String, String> query) throws IOException {
+        Upload upload = uploads.get(query.get("uploadId"));
+        byte[] content = readBody(exchange);
+        if (upload == null) {
+            sendError(exchange, 404, "NoSuchUpload");
+            return;
+        }
+        upload.parts().put(Integer.parseInt(query.get("partNumber")), content);
+        exchange.getResponseHeaders().set("ETag", "\"" + md5Hex(content) + "\"");
+        sendEmpty(exchange, 200);
+    }
+
+    private void completeUpload(HttpExchange exchange, String key, String uploadId) throws IOException {
+        String request = new String(readBody(exchange), StandardCharsets.UTF_8);
+        Upload upload = uploadId == null ? null : uploads.remove(uploadId);
+        if (upload == null) {
+            sendError(exchange, 404, "NoSuchUpload");
+            return;
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        Matcher matcher = PART.matcher(request);
+        int parts = 0;
+        while (matcher.find()) {
+            byte[] part = upload.parts().get(Integer.parseInt(matcher.group(1)));
+            if (part == null) {
+                sendError(exchange, 400, "InvalidPart");
+                return;
+            }
+            content.write(part);
+            parts++;
+        }
+        byte[] bytes = content.toByteArray();
+        String eTag = md5Hex(bytes) + "-" + parts;
+        objects.put(key, new StoredObject(bytes, upload.contentType(), upload.contentEncoding(), upload.userMetadata(),
+                eTag, Instant.now().truncatedTo(ChronoUnit.SECONDS)));
+        sendXml(exchange, 200, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<CompleteMultipartUploadResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                + "<Location>" + endpoint() + "/bucket/" + xml(key) + "</Location><Bucket>bucket</Bucket>"
+                + "<Key>" + xml(key) + "</Key><ETag>&quot;" + eTag + "&quot;</ETag>"
+                + "</CompleteMultipartUploadResult>");
+    }
+
+    private void listUploads(HttpExchange exchange) throws IOException {
+        StringBuilder body = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<ListMultipartUploadsResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Bucket>bucket</Bucket><IsTruncated>false</IsTruncated>");
+        uploads.forEach((uploadId, upload) -> body.append("<Upload><Key>").append(xml(upload.key())).append("</Key>")
+                .append("<UploadId>").append(uploadId).append("</UploadId>")
+                .append("<Initiated>").append(ISO_INSTANT.format(upload.initiated().truncatedTo(ChronoUnit.MILLIS))).append("</Initiated>")
+                .append("</Upload>"));
+        body.append("</ListMultipartUploadsResult>");
+        sendXml(exchange, 200, body.toString());
+    }
+
+    /**
+     * Lê o corpo da requisição, decodificando o formato {@code aws-chunked} que o
+     * SDK usa para enviar conteúdo assinado por HTTP.
+     */
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        String decodedLength = exchange.getRequestHeaders().getFirst("x-amz-decoded-content-length");
+        if (decodedLength == null) {
+            return raw;
+        }
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(Integer.parseInt(decodedLength));
+        int position = 0;
+        while (position < raw.length) {
+            int lineEnd = position;
+            while (raw[lineEnd] != '\r') {
+                lineEnd++;
+            }
+            String header = new String(raw, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.substring(0, header.indexOf(';') < 0 ? header.length() : header.indexOf(';')), 16);
+            if (size == 0) {
+                break;
+            }
+            decoded.write(raw, lineEnd + 2, size);
+            position = lineEnd + 2 + size + 2;
+        }
+        return decoded.toByteArray();
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? parameter : parameter.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+        return query;
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        sendHeaders(exchange, status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code) throws IOException {
+        sendXml(exchange, status, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code
+                + "</Code><Message>" + code + "</Message><RequestId>local</RequestId></Error>");
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        sendHeaders(exchange, status, -1);
+    }
+
+    /**
+     * Envia os cabeçalhos da resposta depois de consumir o corpo da requisição:
+     * se ele não tiver sido lido até o fim quando a resposta termina, o
+     * {@code HttpServer} fecha a conexão, e o SDK trata o reset da próxima
+     * requisição como falha e tenta novamente após uma espera.
+     */
+    private static void sendHeaders(HttpExchange exchange, int status, long length) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.sendResponseHeaders(status, length);
+    }
+
+    private static String encode(String value, boolean urlEncoded) {
+        return urlEncoded ? URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20") : value;
+    }
+
+    private static String xml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static String unescapeXml(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&amp;", "&");
+    }
+
+    private static String md5Hex(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, String> userMetadata(Headers headers) {
+        Map<String, String> userMetadata = new HashMap<>();
+        headers.forEach((name, values) -> {
+            if (name.toLowerCase(Locale.ROOT).startsWith("x-amz-meta-")) {
+                userMetadata.put(name.substring("x-amz-meta-".length()).toLowerCase(Locale.ROOT), values.get(0));
+            }
+        });
+        return userMetadata;
+    }
+
+    /**
+     * O {@code Content-Encoding} a ser armazenado, sem o {@code aws-chunked} da
+     * assinatura por blocos, como faz o S3.
+     */
+    private static String contentEncoding(Headers headers) {
+        String value = headers.getFirst("Content-Encoding");
+        if (value == null) {
+            return null;
+        }
+        String encoding = Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(token -> !token.isEmpty() && !token.equalsIgnoreCase("aws-chunked"))
+                .collect(Collectors.joining(","));
+        return encoding.isEmpty() ? null : encoding;
+    }
+
+    private record StoredObject(byte[] content, String contentType, String contentEncoding,
+                                Map<String, String> userMetadata, String eTag, Instant lastModified) {
+    }
+
+    private record Upload(String key, String contentType, String contentEncoding, Map<String, String> userMetadata,
+                          Instant initiated, Map<Integer, byte[]> parts) {
+    }
+}
@@ -0,0 +1,179 @@
+package com.tiago.cloud_file_management.storage;
+
+import com.tiago.cloud_file_management.exceptions.FileNotFoundException;
+import com.tiago.cloud_file_management.exceptions.RangeNotSatisfiableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemStorageBackendTest {
+    @TempDir
+    Path root;
+
+    private FileSystemStorageBackend storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new FileSystemStorageBackend(root, DataSize.ofKilobytes(4));
+    }
+
+    @Test
+    @DisplayName("Testa se o conteúdo e os metadados gravados são lidos de volta")
+    void testPutAndGet() throws IOException {
+        byte[] content = content(10_000);
+        storage.put("docs/relatorio.pdf", new ByteArrayInputStream(content), content.length,
+                ObjectAttributes.of("application/pdf", "gzip", Map.of("sha256", "abc")));
+
+        try (StoredObject object = storage.get("docs/relatorio.pdf", ReadOptions.NONE)) {
+            assertArrayEquals(content, object.content().readAllBytes());
+            assertEquals("application/pdf", object.attributes().contentType());
+            assertEquals("gzip", object.attributes().contentEncoding());
+            assertEquals(content.length, object.attributes().contentLength());
+            assertEquals("abc", object.attributes().userMetadata("sha256"));
+            assertNotNull(object.attributes().eTag());
+            assertNull(object.contentRange());
+        }
+        assertTrue(storage.exists("docs/relatorio.pdf"));
+        assertNull(storage.head("docs/ausente.pdf"));
+        assertThrows(FileNotFoundException.class, () -> storage.get("docs/ausente.pdf", ReadOptions.NONE));
+    }
+
+    @Test
+    @DisplayName("Testa se gravações com tamanho divergente falham sem deixar arquivos para trás")
+    void testPutLengthMismatch() throws IOException {
+        assertThrows(IOException.class, () -> storage.put("a.txt", new ByteArrayInputStream(content(100)), 200,
+                ObjectAttributes.EMPTY));
+
+        assertFalse(storage.exists("a.txt"));
+        try (var files = Files.walk(root)) {
+            assertEquals(List.of(root), files.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Testa leituras parciais, intervalos inválidos e leituras condicionais")
+    void testRangeAndConditional() throws IOException {
+        byte[] content = content(1000);
+        storage.put("a.bin", new ByteArrayInputStream(content), -1, ObjectAttributes.EMPTY);
+
+        try (StoredObject partial = storage.get("a.bin", ReadOptions.NONE.withRange(100, 199))) {
+            assertEquals("bytes 100-199/1000", partial.contentRange());
+            assertEquals(100, partial.attributes().contentLength());
+            assertArrayEquals(Arrays.copyOfRange(content, 100, 200), partial.content().readAllBytes());
+        }
+        try (StoredObject tail = storage.get("a.bin", ReadOptions.NONE.withRange(900, -1))) {
+            assertArrayEquals(Arrays.copyOfRange(content, 900, 1000), tail.content().readAllBytes());
+        }
+        assertThrows(RangeNotSatisfiableException.class,
+                () -> storage.get("a.bin", ReadOptions.NONE.withRange(1000, -1)));
+
+        String eTag = storage.head("a.bin").eTag();
+        assertNull(storage.get("a.bin", new ReadOptions(-1, -1, "\"" + eTag + "\"", null)));
+        try (StoredObject modified = storage.get("a.bin", new ReadOptions(-1, -1, "\"outra\"", null))) {
+            assertNotNull(modified);
+        }
+    }
+
+    @Test
+    @DisplayName("Testa se o conteúdo é transferido do canal para arquivos e streams")
+    void testTransferTo() throws IOException {
+        byte[] content = new byte[300_000];
+        new Random(42).nextBytes(content);
+        storage.put("video.mp4", new ByteArrayInputStream(content), content.length, ObjectAttributes.EMPTY);
+
+        Path copy = root.resolve("copia.bin");
+        try (StoredObject object = storage.get("video.mp4", ReadOptions.NONE.withRange(1000, 250_999));
+             OutputStream outputStream = Files.newOutputStream(copy)) {
+            assertEquals(250_000, object.content().transferTo(outputStream));
+        }
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 251_000), Files.readAllBytes(copy));
+
+        try (StoredObject object = storage.get("video.mp4", ReadOptions.NONE);
+             InputStream inputStream = object.content()) {
+            assertEquals(5, inputStream.skip(5));
+            assertEquals(content[5] & 0xFF, inputStream.read());
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            inputStream.transferTo(outputStream);
+            assertArrayEquals(Arrays.copyOfRange(content, 6, content.length), outputStream.toByteArray());
+        }
+    }
+
+    @Test
+    @DisplayName("Testa a listagem paginada com e sem delimitador e a remoção dos diretórios vazios")
+    void testListAndDelete() throws IOException {
+        for (String key : List.of("b.txt", "a.txt", "hashes/1", "hashes/2", "hashes/3", "dir/sub/c.txt",
+                "nome com espaço & acento é.txt")) {
+            storage.put(key, new ByteArrayInputStream(new byte[0]), 0, ObjectAttributes.EMPTY);
+        }
+
+        assertEquals(List.of("a.txt", "b.txt", "nome com espaço & acento é.txt"),
+                storage.list(null, "/", 10, null).keys());
+
+        List<String> hashes = new ArrayList<>();
+        String continuationToken = null;
+        do {
+            ListPage page = storage.list("hashes/", null, 2, continuationToken);
+            hashes.addAll(page.keys());
+            continuationToken = page.nextContinuationToken();
+        } while (continuationToken != null);
+        assertEquals(List.of("hashes/1", "hashes/2", "hashes/3"), hashes);
+        assertEquals(List.of("dir/sub/c.txt"), storage.list("dir/", null, 10, null).keys());
+
+        storage.delete(List.of("dir/sub/c.txt", "inexistente.txt"));
+        assertFalse(Files.exists(root.resolve("dir")));
+        assertEquals(List.of(), storage.list("dir/", null, 10, null).keys());
+    }
+
+    @Test
+    @DisplayName("Testa se a gravação condicional não substitui um objeto existente")
+    void testPutIfAbsent() throws IOException {
+        assertTrue(storage.putIfAbsent("hashes/abc", new ByteArrayInputStream(new byte[0]), 0,
+                ObjectAttributes.of(null, null, Map.of("file-key", "a.txt"))));
+        assertFalse(storage.putIfAbsent("hashes/abc", new ByteArrayInputStream(new byte[0]), 0,
+                ObjectAttributes.of(null, null, Map.of("file-key", "b.txt"))));
+
+        assertEquals("a.txt", storage.head("hashes/abc").userMetadata("file-key"));
+        try (var files = Files.walk(root)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    @DisplayName("Testa se apenas os arquivos temporários antigos são removidos")
+    void testAbortIncompleteUploads() throws IOException {
+        storage.put("a.txt", new ByteArrayInputStream(content(10)), 10, ObjectAttributes.EMPTY);
+        Path abandoned = Files.createFile(root.resolve("b.obj.1234.tmp"));
+        Files.setLastModifiedTime(abandoned, FileTime.fromMillis(0));
+
+        assertEquals(1, storage.abortIncompleteUploads(Duration.ofHours(1)));
+        assertFalse(Files.exists(abandoned));
+        assertTrue(storage.exists("a.txt"));
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+}